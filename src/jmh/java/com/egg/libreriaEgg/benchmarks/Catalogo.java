@@ -0,0 +1,214 @@
+package com.egg.libreriaEgg.benchmarks;
+
+import com.egg.libreriaEgg.LibreriaEggApplication;
+import com.egg.libreriaEgg.entidades.Foto;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.ids.IdBinario;
+import com.egg.libreriaEgg.ids.Uuid7;
+import com.egg.libreriaEgg.repositorios.UsuarioRepositorio;
+import com.egg.libreriaEgg.servicios.BuscadorServicio;
+import com.egg.libreriaEgg.servicios.CatalogoCache;
+import com.egg.libreriaEgg.servicios.FotoServicio;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Estado compartido por los benchmarks: levanta la aplicación completa contra
+ * una base H2 en memoria y la carga con un catálogo de "libros" libros (más
+ * sus autores, editoriales y un grupo fijo de usuarios). La carga se hace con
+ * inserts por lotes de JDBC, para que no domine el tiempo de preparación; los
+ * ids se pasan como BINARY(16), igual que los guarda Hibernate (ver
+ * IdBinario).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@State(Scope.Benchmark)
+public class Catalogo {
+
+    private static final int LIBROS_POR_AUTOR = 20;
+    private static final int EDITORIALES = 100;
+    private static final int USUARIOS = 1000;
+    private static final int LOTE = 5000;
+    // Ids que se guardan para elegir al azar en cada operación:
+    private static final int MUESTRA = 1000;
+
+    public static final String CLAVE_USUARIO = "benchmark";
+
+    @Param({"1000", "100000", "1000000"})
+    public int libros;
+
+    // Costo de BCrypt de las claves (los tests usan uno bajo); 0 lo calibra
+    // como en producción. Para comparar: -p costoClave=10,12
+    @Param({"10"})
+    public int costoClave;
+
+    // Cache de segundo nivel de Hibernate; para comparar: -p cacheSegundoNivel=true,false
+    @Param({"true"})
+    public boolean cacheSegundoNivel;
+
+    public ConfigurableApplicationContext contexto;
+    public MockMvc mockMvc;
+    public JdbcTemplate jdbc;
+
+    public final List<String> idsLibros = new ArrayList<>();
+    public final List<String> idsUsuarios = new ArrayList<>();
+    public final List<String> mailsUsuarios = new ArrayList<>();
+    public String idLibroConFoto;
+    private final List<byte[]> idsAutores = new ArrayList<>();
+    private final List<byte[]> idsEditoriales = new ArrayList<>();
+    public Usuario usuario;
+
+    @Setup(Level.Trial)
+    public void iniciar() throws IOException {
+        // El reinicio automático de devtools no tiene sentido acá:
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        // Como argumentos (y no con properties(), que tiene menos prioridad
+        // que application.properties):
+        contexto = new SpringApplicationBuilder(LibreriaEggApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;DATABASE_TO_LOWER=TRUE",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.generate_statistics=false",
+                "--spring.jpa.properties.hibernate.cache.use_second_level_cache=" + cacheSegundoNivel,
+                "--spring.jpa.properties.hibernate.cache.use_query_cache=" + cacheSegundoNivel,
+                "--spring.thymeleaf.cache=true",
+                "--clave.costo=" + costoClave,
+                "--logging.level.root=WARN");
+        jdbc = bean(JdbcTemplate.class);
+        cargarAutoresYEditoriales();
+        cargarLibros();
+        cargarUsuarios();
+        cargarFoto();
+        bean(CatalogoCache.class).invalidarTodo();
+        bean(BuscadorServicio.class).construir();
+        // findById y no getById, que devuelve un proxy sin sesión.
+        usuario = bean(UsuarioRepositorio.class).findById(idsUsuarios.get(0)).get();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) contexto)
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    public <T> T bean(Class<T> tipo) {
+        return contexto.getBean(tipo);
+    }
+
+    public String libroAlAzar() {
+        return idsLibros.get(ThreadLocalRandom.current().nextInt(idsLibros.size()));
+    }
+
+    public String usuarioAlAzar() {
+        return idsUsuarios.get(ThreadLocalRandom.current().nextInt(idsUsuarios.size()));
+    }
+
+    public String mailAlAzar() {
+        return mailsUsuarios.get(ThreadLocalRandom.current().nextInt(mailsUsuarios.size()));
+    }
+
+    private void cargarAutoresYEditoriales() {
+        List<Object[]> autores = new ArrayList<>();
+        for (int i = 0; i < cantidadAutores(); i++) {
+            byte[] id = nuevoId();
+            idsAutores.add(id);
+            autores.add(new Object[]{id, "Autor " + i});
+        }
+        jdbc.batchUpdate("INSERT INTO autor (id, nombre, alta) VALUES (?, ?, true)", autores);
+        List<Object[]> editoriales = new ArrayList<>();
+        for (int i = 0; i < EDITORIALES; i++) {
+            byte[] id = nuevoId();
+            idsEditoriales.add(id);
+            editoriales.add(new Object[]{id, "Editorial " + i});
+        }
+        jdbc.batchUpdate("INSERT INTO editorial (id, nombre, alta) VALUES (?, ?, true)", editoriales);
+    }
+
+    private void cargarLibros() {
+        String sql = "INSERT INTO libro (id, isbn, titulo, anio, descripcion, ejemplares, ejemplares_prestados, ejemplares_restantes, alta, autor_id, editorial_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?, 0, ?, true, ?, ?)";
+        // Sobran ejemplares, para que los préstamos del benchmark nunca se queden sin stock:
+        int ejemplares = 1000000;
+        int paso = Math.max(1, libros / MUESTRA);
+        List<Object[]> lote = new ArrayList<>(LOTE);
+        for (int i = 0; i < libros; i++) {
+            byte[] id = nuevoId();
+            if (i % paso == 0) {
+                idsLibros.add(IdBinario.deBytes(id));
+            }
+            lote.add(new Object[]{id, 9780000000000L + i, "Libro " + i, 1900 + i % 120,
+                "Descripción del libro " + i, ejemplares, ejemplares,
+                idsAutores.get(i / LIBROS_POR_AUTOR), idsEditoriales.get(i % EDITORIALES)});
+            if (lote.size() == LOTE) {
+                jdbc.batchUpdate(sql, lote);
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            jdbc.batchUpdate(sql, lote);
+        }
+    }
+
+    private void cargarUsuarios() {
+        List<Object[]> usuarios = new ArrayList<>();
+        for (int i = 0; i < USUARIOS; i++) {
+            byte[] id = nuevoId();
+            String mail = "usuario" + i + "@benchmark.com";
+            idsUsuarios.add(IdBinario.deBytes(id));
+            mailsUsuarios.add(mail);
+            usuarios.add(new Object[]{id, "Usuario", "Número " + i, String.valueOf(30000000 + i), mail, CLAVE_USUARIO});
+        }
+        jdbc.batchUpdate("INSERT INTO usuario (id, nombre, apellido, dni, mail, clave, alta, rol) VALUES (?, ?, ?, ?, ?, ?, CURRENT_DATE, 'USUARIO')", usuarios);
+    }
+
+    /**
+     * Guarda una portada (con FotoServicio, como al subirla) y se la asigna
+     * al primer libro de la muestra.
+     */
+    private void cargarFoto() throws IOException {
+        BufferedImage imagen = new BufferedImage(800, 1200, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = imagen.createGraphics();
+        g.setColor(Color.ORANGE);
+        g.fillRect(0, 0, 800, 1200);
+        g.setColor(Color.DARK_GRAY);
+        g.fillOval(100, 300, 600, 600);
+        g.dispose();
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        ImageIO.write(imagen, "jpeg", salida);
+        Foto foto = bean(FotoServicio.class).guardar(new MockMultipartFile("archivo", "portada.jpg", "image/jpeg", salida.toByteArray()));
+        idLibroConFoto = idsLibros.get(0);
+        jdbc.update("UPDATE libro SET foto_id = ? WHERE id = ?", IdBinario.aBytes(foto.getId()), IdBinario.aBytes(idLibroConFoto));
+    }
+
+    private static byte[] nuevoId() {
+        return IdBinario.aBytes(Uuid7.nuevo().toString());
+    }
+
+    private int cantidadAutores() {
+        return (libros + LIBROS_POR_AUTOR - 1) / LIBROS_POR_AUTOR;
+    }
+
+}
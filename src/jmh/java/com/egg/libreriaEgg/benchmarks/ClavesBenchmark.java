@@ -0,0 +1,93 @@
+package com.egg.libreriaEgg.benchmarks;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestBuilders.formLogin;
+
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.enums.Rol;
+import com.egg.libreriaEgg.repositorios.UsuarioRepositorio;
+import com.egg.libreriaEgg.servicios.ClaveServicio;
+import com.egg.libreriaEgg.servicios.UsuarioServicio;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Logins y registros por segundo con varios hilos a la vez, como en una
+ * ráfaga de principio de cuatrimestre. El costo de BCrypt es el parámetro
+ * costoClave de Catalogo; el catálogo no influye, así que conviene correrlo
+ * con el más chico:
+ *
+ * mvn -P benchmark verify -Djmh.args="-p libros=1000 -p costoClave=10,12 ClavesBenchmark"
+ *
+ * Con -t se cambia la cantidad de hilos (por ejemplo, para compararla con
+ * clave.hilos).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(16)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ClavesBenchmark {
+
+    private static final String CLAVE = "benchmark";
+
+    /**
+     * Un usuario con la clave encriptada con el costo actual, para iniciar
+     * sesión, y un contador para que cada registro use un mail distinto.
+     */
+    @State(Scope.Benchmark)
+    public static class Usuarios {
+
+        public String mail;
+        public final AtomicLong registros = new AtomicLong();
+
+        @Setup(Level.Trial)
+        public void iniciar(Catalogo catalogo) throws Exception {
+            Usuario usuario = new Usuario();
+            usuario.setNombre("Login");
+            usuario.setApellido("Benchmark");
+            usuario.setDni("20000000");
+            usuario.setMail("login@benchmark.com");
+            usuario.setClave(catalogo.bean(ClaveServicio.class).encriptar(CLAVE));
+            usuario.setAlta(new Date());
+            usuario.setRol(Rol.USUARIO);
+            mail = catalogo.bean(UsuarioRepositorio.class).save(usuario).getMail();
+        }
+    }
+
+    /**
+     * Inicio de sesión con el formulario, de punta a punta (filtros de
+     * seguridad, búsqueda del usuario y comparación de la clave).
+     */
+    @Benchmark
+    public int login(Catalogo catalogo, Usuarios usuarios) throws Exception {
+        return catalogo.mockMvc.perform(formLogin("/logincheck").user(usuarios.mail).password(CLAVE))
+                .andReturn().getResponse().getStatus();
+    }
+
+    /**
+     * Registro de un usuario nuevo (sin foto).
+     */
+    @Benchmark
+    public void registro(Catalogo catalogo, Usuarios usuarios) throws Exception {
+        long numero = usuarios.registros.incrementAndGet();
+        catalogo.bean(UsuarioServicio.class).registrar(null, "Nuevo", "Benchmark", String.valueOf(40000000 + numero),
+                "1100000000", "nuevo" + numero + "@benchmark.com", CLAVE, CLAVE);
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.egg.libreriaEgg.benchmarks;
+
+import com.egg.libreriaEgg.ids.IdBinario;
+import com.egg.libreriaEgg.ids.Uuid7;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Inserts por segundo con los ids de antes (UUID aleatorio como VARCHAR(36))
+ * y con los de ahora (UUID versión 7 como BINARY(16)), en una tabla con las
+ * columnas de "libro" que ya tiene "filas" filas.
+ *
+ * Por defecto usa H2 en memoria; la diferencia importante (las páginas del
+ * índice que toca cada insert) se ve en MySQL/InnoDB, con una tabla más
+ * grande que el buffer pool:
+ *
+ * mvn -P benchmark verify -Djmh.args="-p url=jdbc:mysql://localhost:3306/benchmark -p usuario=root -p clave=root -p filas=5000000 IdsBenchmark"
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdsBenchmark {
+
+    private static final int LOTE = 1000;
+
+    @Param({"jdbc:h2:mem:ids;MODE=MySQL;DB_CLOSE_DELAY=-1"})
+    public String url;
+
+    @Param({"sa"})
+    public String usuario;
+
+    @Param({""})
+    public String clave;
+
+    @Param({"1000000"})
+    public int filas;
+
+    // "texto": VARCHAR(36) con UUID aleatorio (antes); "binario": BINARY(16) con UUID versión 7 (ahora).
+    @Param({"texto", "binario"})
+    public String ids;
+
+    private Connection conexion;
+    private PreparedStatement insert;
+    private long numero;
+
+    @Setup(Level.Trial)
+    public void iniciar() throws SQLException {
+        conexion = DriverManager.getConnection(url, usuario, clave);
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("DROP TABLE IF EXISTS libro_ids");
+            sentencia.execute("CREATE TABLE libro_ids (id " + ("texto".equals(ids) ? "VARCHAR(36)" : IdBinario.COLUMNA)
+                    + " NOT NULL PRIMARY KEY, isbn BIGINT, titulo VARCHAR(255), anio INT, descripcion VARCHAR(255), "
+                    + "ejemplares INT, ejemplares_prestados INT, ejemplares_restantes INT, alta BOOLEAN)");
+        }
+        conexion.setAutoCommit(false);
+        insert = conexion.prepareStatement("INSERT INTO libro_ids VALUES (?, ?, ?, ?, ?, 5, 0, 5, true)");
+        // La tabla se llena antes de medir, así los inserts medidos van a un índice grande.
+        while (numero < filas) {
+            insertarLote();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws SQLException {
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("DROP TABLE libro_ids");
+        }
+        conexion.close();
+    }
+
+    /**
+     * Inserta un lote de libros en una transacción (el resultado es en
+     * libros por segundo).
+     */
+    @Benchmark
+    @OperationsPerInvocation(LOTE)
+    public void insertar() throws SQLException {
+        insertarLote();
+    }
+
+    private void insertarLote() throws SQLException {
+        for (int i = 0; i < LOTE; i++, numero++) {
+            if ("texto".equals(ids)) {
+                insert.setString(1, UUID.randomUUID().toString());
+            } else {
+                insert.setBytes(1, IdBinario.aBytes(Uuid7.nuevo().toString()));
+            }
+            insert.setLong(2, 9780000000000L + numero);
+            insert.setString(3, "Libro " + numero);
+            insert.setInt(4, 1900 + (int) (numero % 120));
+            insert.setString(5, "Descripción del libro " + numero);
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        conexion.commit();
+    }
+
+}
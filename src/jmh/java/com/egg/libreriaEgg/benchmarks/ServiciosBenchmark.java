@@ -0,0 +1,103 @@
+package com.egg.libreriaEgg.benchmarks;
+
+import com.egg.libreriaEgg.autenticacion.CredencialesCache;
+import com.egg.libreriaEgg.dto.ResumenPrestamos;
+import com.egg.libreriaEgg.entidades.Libro;
+import com.egg.libreriaEgg.entidades.Prestamo;
+import com.egg.libreriaEgg.servicios.AutenticacionServicio;
+import com.egg.libreriaEgg.servicios.CatalogoCache;
+import com.egg.libreriaEgg.servicios.LibroServicio;
+import com.egg.libreriaEgg.servicios.PrestamoServicio;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Benchmarks de los servicios más usados, llamados directamente (sin pasar
+ * por HTTP).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ServiciosBenchmark {
+
+    /**
+     * Registra un préstamo de un libro y a un usuario elegidos al azar, y su
+     * devolución (si no, los usuarios llegan enseguida a su límite de
+     * préstamos activos).
+     */
+    @Benchmark
+    public void agregarPrestamo(Catalogo catalogo) throws Exception {
+        Date hoy = new Date();
+        Date devolucion = new Date(hoy.getTime() + TimeUnit.DAYS.toMillis(14));
+        PrestamoServicio prestamoServicio = catalogo.bean(PrestamoServicio.class);
+        Prestamo prestamo = prestamoServicio.agregarPrestamo(hoy, devolucion, catalogo.libroAlAzar(), catalogo.usuarioAlAzar());
+        prestamoServicio.baja(prestamo.getId());
+    }
+
+    /**
+     * Lo mismo que agregarPrestamo, pero con 4 libros en lote (un préstamo
+     * por libro y una sola devolución de los cuatro), para compararlo con 4
+     * veces agregarPrestamo.
+     */
+    @Benchmark
+    public void prestamosEnLote(Catalogo catalogo) throws Exception {
+        Date hoy = new Date();
+        Date devolucion = new Date(hoy.getTime() + TimeUnit.DAYS.toMillis(14));
+        PrestamoServicio prestamoServicio = catalogo.bean(PrestamoServicio.class);
+        List<String> libros = Arrays.asList(catalogo.libroAlAzar(), catalogo.libroAlAzar(), catalogo.libroAlAzar(), catalogo.libroAlAzar());
+        ResumenPrestamos resumen = prestamoServicio.agregarPrestamos(hoy, devolucion, catalogo.usuarioAlAzar(), libros);
+        if (!resumen.getRealizados().isEmpty()) {
+            prestamoServicio.bajaPrestamos(resumen.getRealizados());
+        }
+    }
+
+    /**
+     * Lista todos los libros, con el catálogo ya en cache.
+     */
+    @Benchmark
+    public List<Libro> findAll(Catalogo catalogo) {
+        return catalogo.bean(LibroServicio.class).findAll();
+    }
+
+    /**
+     * Lista todos los libros, leyéndolos siempre de la DB.
+     */
+    @Benchmark
+    public List<Libro> findAllSinCache(Catalogo catalogo) {
+        catalogo.bean(CatalogoCache.class).invalidarLibros();
+        return catalogo.bean(LibroServicio.class).findAll();
+    }
+
+    /**
+     * Busca un usuario como al iniciar sesión, con sus datos ya en la
+     * CredencialesCache.
+     */
+    @Benchmark
+    public UserDetails loadUserByUsername(Catalogo catalogo) {
+        return catalogo.bean(AutenticacionServicio.class).loadUserByUsername(catalogo.mailAlAzar());
+    }
+
+    /**
+     * Busca un usuario como al iniciar sesión, leyéndolo siempre de la DB.
+     */
+    @Benchmark
+    public UserDetails loadUserByUsernameSinCache(Catalogo catalogo) {
+        catalogo.bean(CredencialesCache.class).invalidarTodo();
+        return catalogo.bean(AutenticacionServicio.class).loadUserByUsername(catalogo.mailAlAzar());
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.egg.libreriaEgg.benchmarks;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import com.egg.libreriaEgg.autenticacion.UsuarioSesion;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Benchmarks de las peticiones más frecuentes, de punta a punta (seguridad,
+ * controlador, servicios y vista) pero sin red: se usa MockMvc.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class WebBenchmark {
+
+    /**
+     * ETag de la portada, para las peticiones condicionales.
+     */
+    @State(Scope.Benchmark)
+    public static class Portada {
+
+        public String etag;
+
+        @Setup(Level.Trial)
+        public void iniciar(Catalogo catalogo) throws Exception {
+            etag = catalogo.mockMvc.perform(get("/foto/libro/" + catalogo.idLibroConFoto))
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        }
+    }
+
+    /**
+     * Consultas SQL que hizo /inicio (según ConsultasInterceptor). JMH
+     * informa los totales junto al tiempo, como "inicio:consultas" e
+     * "inicio:peticiones": el cociente son las consultas por petición (para
+     * comparar con y sin la cache de segundo nivel).
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ConsultasInicio {
+
+        public long consultas;
+        public long peticiones;
+
+        double total(Catalogo catalogo) {
+            DistributionSummary resumen = catalogo.bean(MeterRegistry.class).find("libreria.peticion.consultas")
+                    .tag("handler", "PortalController.inicio").summary();
+            return resumen != null ? resumen.totalAmount() : 0;
+        }
+    }
+
+    /**
+     * Descarga completa de una portada.
+     */
+    @Benchmark
+    public byte[] fotoLibro(Catalogo catalogo) throws Exception {
+        return catalogo.mockMvc.perform(get("/foto/libro/" + catalogo.idLibroConFoto))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    /**
+     * Portada que el navegador ya tiene (responde 304).
+     */
+    @Benchmark
+    public int fotoLibroNoModificada(Catalogo catalogo, Portada portada) throws Exception {
+        return catalogo.mockMvc.perform(get("/foto/libro/" + catalogo.idLibroConFoto).header(HttpHeaders.IF_NONE_MATCH, portada.etag))
+                .andReturn().getResponse().getStatus();
+    }
+
+    /**
+     * Miniatura de la portada, como la pide el catálogo.
+     */
+    @Benchmark
+    public byte[] fotoLibroMiniatura(Catalogo catalogo) throws Exception {
+        return catalogo.mockMvc.perform(get("/foto/libro/" + catalogo.idLibroConFoto).param("w", "200"))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    /**
+     * Primera página del catálogo, renderizada para un usuario logueado.
+     */
+    @Benchmark
+    public String inicio(Catalogo catalogo, ConsultasInicio contador) throws Exception {
+        double antes = contador.total(catalogo);
+        MockHttpServletResponse respuesta = catalogo.mockMvc.perform(get("/inicio")
+                .with(user(catalogo.usuario.getMail()).roles("USUARIO"))
+                .sessionAttr("usuariosession", UsuarioSesion.de(catalogo.usuario)))
+                .andReturn().getResponse();
+        contador.consultas += (long) (contador.total(catalogo) - antes);
+        contador.peticiones++;
+        return respuesta.getContentAsString();
+    }
+
+}
@@ -1,17 +1,22 @@
 package com.egg.libreriaEgg;
 
-import com.egg.libreriaEgg.servicios.UsuarioServicio;
+import com.egg.libreriaEgg.servicios.AutenticacionServicio;
+import com.egg.libreriaEgg.servicios.ClaveServicio;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 @SpringBootApplication
+@EnableScheduling
 public class LibreriaEggApplication {
     
     @Autowired
-    private UsuarioServicio usuarioServicio;
+    private AutenticacionServicio autenticacionServicio;
+
+    @Autowired
+    private ClaveServicio claveServicio;
 
 	public static void main(String[] args) {
 		SpringApplication.run(LibreriaEggApplication.class, args);
@@ -20,8 +25,8 @@ public class LibreriaEggApplication {
         @Autowired
         public void configureGlobal(AuthenticationManagerBuilder auth) throws Exception {
             auth
-                    .userDetailsService(usuarioServicio)
-                    .passwordEncoder(new BCryptPasswordEncoder());
+                    .userDetailsService(autenticacionServicio)
+                    .passwordEncoder(claveServicio);
         }
 
 }
@@ -0,0 +1,211 @@
+package com.egg.libreriaEgg.almacenamiento;
+
+import com.egg.libreriaEgg.dto.FotoMetadatos;
+import com.egg.libreriaEgg.entidades.Foto;
+import com.egg.libreriaEgg.repositorios.FotoRepositorio;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Guarda el contenido de las fotos como archivos en un directorio local
+ * ("foto.directorio"). Cada archivo se nombra por el SHA-256 de su contenido
+ * (repartidos en subdirectorios: ab/cd/abcd...), así que dos fotos iguales
+ * comparten el mismo archivo. Las referencias a un archivo son las fotos que
+ * tienen su hash como clave; cuando la última deja de usarlo, se borra.
+ *
+ * Los archivos se escriben primero con un nombre temporal y después se mueven
+ * a su lugar, así nunca se sirve un archivo escrito a medias.
+ *
+ * Un archivo liberado dentro de la gracia (ver GRACIA_MILIS) no se borra en
+ * ese momento: lo borra después el barrido periódico ("foto.barrido-ms"), si
+ * sigue sin referencias.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Component
+public class ArchivosFotoStore implements FotoStore {
+
+    public static final String NOMBRE = "fs";
+
+    // Un archivo reutilizado hace poco no se borra aunque no tenga referencias:
+    // la foto que lo reutilizó puede no haberse confirmado todavía.
+    private static final long GRACIA_MILIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final Pattern CLAVE_VALIDA = Pattern.compile("[0-9a-f]{64}");
+
+    private static final Logger LOG = Logger.getLogger(ArchivosFotoStore.class.getName());
+
+    @Autowired
+    private FotoRepositorio fotoRepositorio;
+
+    @Value("${foto.directorio:fotos}")
+    private String directorio;
+
+    private Path raiz;
+
+    // Guardar y liberar un mismo archivo no pueden pisarse; se bloquea por
+    // grupos de claves para no serializar todas las subidas.
+    private final Object[] locks = new Object[64];
+
+    public ArchivosFotoStore() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        raiz = Paths.get(directorio).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public String getNombre() {
+        return NOMBRE;
+    }
+
+    @Override
+    public void guardar(Foto foto, InputStreamSource origen) throws IOException {
+        String clave = foto.getHash();
+        Path destino = ruta(clave);
+        synchronized (lock(clave)) {
+            if (Files.exists(destino)) {
+                // Ya hay una foto con el mismo contenido: se reutiliza el archivo.
+                Files.setLastModifiedTime(destino, FileTime.fromMillis(System.currentTimeMillis()));
+            } else {
+                Files.createDirectories(destino.getParent());
+                Path temporal = Files.createTempFile(destino.getParent(), clave, ".tmp");
+                try {
+                    try (InputStream contenido = origen.getInputStream()) {
+                        Files.copy(contenido, temporal, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Otro proceso guardó el mismo contenido.
+                } finally {
+                    Files.deleteIfExists(temporal);
+                }
+            }
+        }
+        foto.setClave(clave);
+        foto.setContenido(null);
+    }
+
+    @Override
+    public boolean contiene(FotoMetadatos foto) {
+        return foto.getClave() != null;
+    }
+
+    @Override
+    public Resource abrir(FotoMetadatos foto) throws IOException {
+        Path archivo = ruta(foto.getClave());
+        if (!Files.isReadable(archivo)) {
+            throw new IOException("No se encontró el archivo de la foto " + foto.getId());
+        }
+        return new FileSystemResource(archivo);
+    }
+
+    @Override
+    public void liberar(String clave) {
+        if (clave != null) {
+            borrarSinReferencias(clave);
+        }
+    }
+
+    /**
+     * Borra los archivos que ya no usa ninguna foto y que no se borraron al
+     * liberarlos, porque estaban dentro de la gracia (o porque la aplicación
+     * se detuvo antes).
+     *
+     * @return la cantidad de archivos borrados
+     */
+    @Scheduled(initialDelayString = "${foto.barrido-ms:3600000}", fixedDelayString = "${foto.barrido-ms:3600000}")
+    public int barrer() {
+        if (!Files.isDirectory(raiz)) {
+            return 0;
+        }
+        List<String> claves;
+        try (Stream<Path> rutas = Files.walk(raiz)) {
+            claves = rutas.filter(Files::isRegularFile)
+                    .map(ruta -> ruta.getFileName().toString())
+                    .filter(nombre -> CLAVE_VALIDA.matcher(nombre).matches())
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "No se pudo recorrer el directorio de fotos " + raiz, e);
+            return 0;
+        }
+        int borrados = 0;
+        for (String clave : claves) {
+            if (borrarSinReferencias(clave)) {
+                borrados++;
+            }
+        }
+        if (borrados > 0) {
+            LOG.info("Barrido de fotos: " + borrados + " archivos sin referencias borrados.");
+        }
+        return borrados;
+    }
+
+    /**
+     * Borra el archivo de una clave si ninguna foto lo usa y no se reutilizó
+     * dentro de la gracia.
+     *
+     * @param clave
+     * @return si se borró
+     */
+    private boolean borrarSinReferencias(String clave) {
+        synchronized (lock(clave)) {
+            try {
+                Path archivo = ruta(clave);
+                if (!Files.exists(archivo)
+                        || System.currentTimeMillis() - Files.getLastModifiedTime(archivo).toMillis() <= GRACIA_MILIS
+                        || fotoRepositorio.contarPorClave(clave) > 0) {
+                    return false;
+                }
+                Files.delete(archivo);
+                return true;
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "No se pudo borrar el archivo de foto " + clave, e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Ruta del archivo correspondiente a una clave (el SHA-256 en hexadecimal).
+     *
+     * @param clave
+     * @return
+     */
+    private Path ruta(String clave) {
+        if (clave == null || !CLAVE_VALIDA.matcher(clave).matches()) {
+            throw new IllegalArgumentException("Clave de foto inválida: " + clave);
+        }
+        return raiz.resolve(clave.substring(0, 2)).resolve(clave.substring(2, 4)).resolve(clave);
+    }
+
+    private Object lock(String clave) {
+        return locks[Math.floorMod(clave.hashCode(), locks.length)];
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.egg.libreriaEgg.almacenamiento;
+
+import com.egg.libreriaEgg.dto.FotoMetadatos;
+import com.egg.libreriaEgg.entidades.Foto;
+import com.egg.libreriaEgg.repositorios.FotoContenidoRepositorio;
+import java.io.IOException;
+import org.hibernate.engine.jdbc.BlobProxy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Guarda el contenido de las fotos en la columna "contenido" de la tabla foto
+ * (es el store por defecto). Cada foto tiene su propia copia del contenido.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Component
+public class BaseDatosFotoStore implements FotoStore {
+
+    public static final String NOMBRE = "db";
+
+    @Autowired
+    private FotoContenidoRepositorio fotoContenidoRepositorio;
+
+    @Override
+    public String getNombre() {
+        return NOMBRE;
+    }
+
+    @Override
+    public void guardar(Foto foto, InputStreamSource origen) throws IOException {
+        // El stream se copia a la DB recién al hacer el INSERT/UPDATE:
+        foto.setContenido(BlobProxy.generateProxy(origen.getInputStream(), foto.getTamanio()));
+        foto.setClave(null);
+    }
+
+    @Override
+    public boolean contiene(FotoMetadatos foto) {
+        return foto.getClave() == null;
+    }
+
+    @Override
+    public Resource abrir(FotoMetadatos foto) {
+        return fotoContenidoRepositorio.abrir(foto.getId(), foto.getHash(), foto.getTamanio(), foto.getId());
+    }
+
+    @Override
+    public void liberar(String clave) {
+        // El contenido se pisa o se borra junto con la fila de la foto.
+    }
+
+}
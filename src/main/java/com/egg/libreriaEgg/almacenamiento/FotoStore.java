@@ -0,0 +1,63 @@
+package com.egg.libreriaEgg.almacenamiento;
+
+import com.egg.libreriaEgg.dto.FotoMetadatos;
+import com.egg.libreriaEgg.entidades.Foto;
+import java.io.IOException;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
+
+/**
+ * (FotoStore) define dónde se guarda el contenido de las fotos. FotoServicio
+ * guarda las fotos nuevas en el store configurado con la propiedad
+ * "foto.store" ("db" o "fs"), y lee cada foto del store que la contiene, así
+ * pueden convivir fotos guardadas en ambos lugares (por ejemplo, mientras se
+ * migran).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public interface FotoStore {
+
+    /**
+     * Nombre con el que se elige el store en "foto.store".
+     *
+     * @return
+     */
+    public String getNombre();
+
+    /**
+     * Guarda el contenido de una foto y lo asocia a la entidad (seteando
+     * "contenido" o "clave", según el store). El hash y el tamaño de la foto
+     * ya tienen que estar calculados.
+     *
+     * @param foto
+     * @param origen
+     * @throws IOException
+     */
+    public void guardar(Foto foto, InputStreamSource origen) throws IOException;
+
+    /**
+     * Indica si el contenido de la foto está guardado en este store.
+     *
+     * @param foto
+     * @return
+     */
+    public boolean contiene(FotoMetadatos foto);
+
+    /**
+     * Devuelve el contenido de una foto, para leerlo como stream.
+     *
+     * @param foto
+     * @return
+     * @throws IOException
+     */
+    public Resource abrir(FotoMetadatos foto) throws IOException;
+
+    /**
+     * Avisa que una foto dejó de usar el contenido guardado con esa clave; si
+     * ninguna otra lo usa, el store lo puede borrar.
+     *
+     * @param clave
+     */
+    public void liberar(String clave);
+
+}
@@ -0,0 +1,149 @@
+package com.egg.libreriaEgg.autenticacion;
+
+import com.egg.libreriaEgg.utilidades.Transacciones;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache de los UserDetails por mail, para que los logins (y la API con HTTP
+ * Basic) no busquen al usuario en la DB cada vez. Igual que CatalogoCache,
+ * está acotada (LRU) y lleva una versión para no guardar lecturas que
+ * empezaron antes de una invalidación; además cada entrada vence a los
+ * autenticacion.cache.ttl-segundos, por si el usuario se modificó por fuera
+ * de UsuarioServicio. El mail se guarda sin espacios y en minúsculas, porque
+ * en MySQL buscarPorMail no distingue mayúsculas: así un login como
+ * "USUARIO@x.com" usa (y se invalida con) la misma entrada que "usuario@x.com".
+ *
+ * UsuarioServicio la invalida al modificar, deshabilitar, cambiar el rol o
+ * eliminar un usuario (y cierra sus sesiones abiertas, ver SesionesUsuario).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Component
+public class CredencialesCache {
+
+    private final int maxEntradas;
+    private final long ttlMilis;
+    private final Map<String, Entrada> entradas;
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+
+    public CredencialesCache(@Value("${autenticacion.cache.max-entradas:10000}") int maxEntradas,
+            @Value("${autenticacion.cache.ttl-segundos:300}") int ttlSegundos) {
+        this.maxEntradas = maxEntradas;
+        this.ttlMilis = ttlSegundos * 1000L;
+        // LinkedHashMap en orden de acceso: el primer elemento es el menos usado.
+        this.entradas = new LinkedHashMap<String, Entrada>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                return size() > CredencialesCache.this.maxEntradas;
+            }
+        };
+    }
+
+    /**
+     * Devuelve (una copia de) los datos guardados para ese mail o, si no están
+     * o vencieron, los carga con el "cargador" y los guarda. Si el usuario no
+     * existe devuelve null, y eso no se guarda.
+     *
+     * @param mail
+     * @param cargador
+     * @return
+     */
+    public UsuarioDetalles obtener(String mail, Supplier<UsuarioDetalles> cargador) {
+        UsuarioDetalles detalles = buscar(mail);
+        if (detalles == null) {
+            fallos.incrementAndGet();
+            long versionLectura = version.get();
+            detalles = cargador.get();
+            if (detalles == null) {
+                return null;
+            }
+            guardar(mail, detalles, versionLectura);
+        } else {
+            aciertos.incrementAndGet();
+        }
+        return detalles.copia();
+    }
+
+    /**
+     * Quita los datos de esos mails ahora y, si hay una transacción en curso,
+     * otra vez al terminar (como CatalogoCache).
+     *
+     * @param mails
+     */
+    public void invalidar(String... mails) {
+        quitar(mails);
+        Transacciones.alTerminar(() -> quitar(mails));
+    }
+
+    /**
+     * Vacía la cache completa.
+     */
+    public synchronized void invalidarTodo() {
+        version.incrementAndGet();
+        entradas.clear();
+    }
+
+    private synchronized UsuarioDetalles buscar(String mail) {
+        Entrada entrada = entradas.get(clave(mail));
+        if (entrada == null) {
+            return null;
+        }
+        if (entrada.vence < System.currentTimeMillis()) {
+            entradas.remove(clave(mail));
+            return null;
+        }
+        return entrada.detalles;
+    }
+
+    private synchronized void guardar(String mail, UsuarioDetalles detalles, long versionLectura) {
+        if (version.get() == versionLectura) {
+            entradas.put(clave(mail), new Entrada(detalles, System.currentTimeMillis() + ttlMilis));
+        }
+    }
+
+    private synchronized void quitar(String... mails) {
+        version.incrementAndGet();
+        for (String mail : mails) {
+            if (mail != null) {
+                entradas.remove(clave(mail));
+            }
+        }
+    }
+
+    private static String clave(String mail) {
+        return mail.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // ------------------------------ MÉTRICAS ------------------------------
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    public synchronized int getEntradas() {
+        return entradas.size();
+    }
+
+    private static final class Entrada {
+
+        private final UsuarioDetalles detalles;
+        private final long vence;
+
+        private Entrada(UsuarioDetalles detalles, long vence) {
+            this.detalles = detalles;
+            this.vence = vence;
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.egg.libreriaEgg.autenticacion;
+
+import com.egg.libreriaEgg.utilidades.Transacciones;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.session.SessionInformation;
+import org.springframework.security.core.session.SessionRegistry;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.session.FindByIndexNameSessionRepository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cierra las sesiones abiertas de un usuario (por su mail), para que quien
+ * fue deshabilitado, eliminado o cambió de rol no siga usando la sesión que
+ * abrió antes, con su UsuarioSesion y sus permisos viejos.
+ *
+ * Con las sesiones en la DB (spring.session.store-type=jdbc) se borran de la
+ * tabla SPRING_SESSION; con las sesiones en memoria se marcan como vencidas
+ * en el SessionRegistry, y el ConcurrentSessionFilter las cierra en la
+ * siguiente petición (ver SecurityConfig).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Component
+public class SesionesUsuario {
+
+    @Autowired
+    private SessionRegistry sessionRegistry;
+
+    @Autowired
+    private ObjectProvider<FindByIndexNameSessionRepository<?>> sesionesJdbc;
+
+    /**
+     * Cierra las sesiones de ese mail menos la indicada (la de quien hace el
+     * cambio, o null para cerrarlas todas). Si hay una transacción en curso,
+     * las cierra al confirmarse.
+     *
+     * @param mail
+     * @param idSesionActual
+     */
+    public void cerrar(String mail, String idSesionActual) {
+        Transacciones.alConfirmar(() -> cerrarAhora(mail, idSesionActual));
+    }
+
+    /**
+     * Registra la sesión con los datos nuevos del usuario (después de que él
+     * mismo los modifica), para que se siga encontrando por su mail.
+     *
+     * @param idSesion
+     * @param detalles
+     */
+    public void registrar(String idSesion, UserDetails detalles) {
+        sessionRegistry.removeSessionInformation(idSesion);
+        sessionRegistry.registerNewSession(idSesion, detalles);
+    }
+
+    private void cerrarAhora(String mail, String idSesionActual) {
+        FindByIndexNameSessionRepository<?> repositorio = sesionesJdbc.getIfAvailable();
+        if (repositorio != null) {
+            for (String id : repositorio.findByPrincipalName(mail).keySet()) {
+                if (!id.equals(idSesionActual)) {
+                    repositorio.deleteById(id);
+                }
+            }
+            return;
+        }
+        for (Object principal : sessionRegistry.getAllPrincipals()) {
+            if (principal instanceof UserDetails && ((UserDetails) principal).getUsername().equals(mail)) {
+                for (SessionInformation sesion : sessionRegistry.getAllSessions(principal, false)) {
+                    if (!sesion.getSessionId().equals(idSesionActual)) {
+                        sesion.expireNow();
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.egg.libreriaEgg.autenticacion;
+
+import com.egg.libreriaEgg.entidades.Usuario;
+import java.util.Collections;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+/**
+ * El UserDetails de un Usuario: mail, clave encriptada y su rol como permiso,
+ * más los datos de la sesión (UsuarioSesion), para no volver a buscarlos
+ * después del login.
+ *
+ * Los datos de la sesión no se serializan: la sesión HTTP ya guarda el
+ * UsuarioSesion aparte, y así el contexto de seguridad que se guarda en ella
+ * (en la DB, con Spring Session JDBC) ocupa menos. Después de leerlo de la
+ * sesión, getSesion() devuelve null.
+ *
+ * Spring Security borra la clave del UserDetails que autenticó
+ * (eraseCredentials), así que la cache nunca entrega el suyo sino una copia.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class UsuarioDetalles extends User {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient UsuarioSesion sesion;
+
+    public UsuarioDetalles(String mail, String clave, UsuarioSesion sesion) {
+        super(mail, clave, Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + sesion.getRol())));
+        this.sesion = sesion;
+    }
+
+    public static UsuarioDetalles de(Usuario usuario) {
+        return new UsuarioDetalles(usuario.getMail(), usuario.getClave(), UsuarioSesion.de(usuario));
+    }
+
+    /**
+     * @return otro UsuarioDetalles con los mismos datos.
+     */
+    public UsuarioDetalles copia() {
+        return new UsuarioDetalles(getUsername(), getPassword(), sesion);
+    }
+
+    public UsuarioSesion getSesion() {
+        return sesion;
+    }
+
+}
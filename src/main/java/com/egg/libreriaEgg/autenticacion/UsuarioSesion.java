@@ -0,0 +1,72 @@
+package com.egg.libreriaEgg.autenticacion;
+
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.enums.Rol;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Lo que se guarda en la sesión del usuario que inició sesión (atributo
+ * "usuariosession"): sólo los datos que usan las vistas y los controladores,
+ * en lugar de la entidad Usuario con su Foto. No se puede modificar: cuando el
+ * usuario cambia sus datos se guarda uno nuevo.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public final class UsuarioSesion implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String id;
+    private final String mail;
+    private final String nombre;
+    private final String apellido;
+    private final Rol rol;
+    private final long alta;
+
+    private UsuarioSesion(String id, String mail, String nombre, String apellido, Rol rol, Date alta) {
+        this.id = id;
+        this.mail = mail;
+        this.nombre = nombre;
+        this.apellido = apellido;
+        this.rol = rol;
+        this.alta = alta == null ? 0 : alta.getTime();
+    }
+
+    public static UsuarioSesion de(Usuario usuario) {
+        return new UsuarioSesion(usuario.getId(), usuario.getMail(), usuario.getNombre(), usuario.getApellido(), usuario.getRol(), usuario.getAlta());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getMail() {
+        return mail;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String getApellido() {
+        return apellido;
+    }
+
+    public Rol getRol() {
+        return rol;
+    }
+
+    /**
+     * @return la fecha de alta (una copia), o null si no tiene.
+     */
+    public Date getAlta() {
+        return alta == 0 ? null : new Date(alta);
+    }
+
+    @Override
+    public String toString() {
+        return "UsuarioSesion{" + "id=" + id + ", mail=" + mail + ", rol=" + rol + '}';
+    }
+
+}
@@ -1,11 +1,26 @@
 package com.egg.libreriaEgg.configuraciones;
 
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.session.SessionRegistry;
+import org.springframework.security.core.session.SessionRegistryImpl;
+import org.springframework.security.web.authentication.www.BasicAuthenticationEntryPoint;
+import org.springframework.security.web.session.ConcurrentSessionFilter;
+import org.springframework.security.web.session.HttpSessionEventPublisher;
+import org.springframework.session.FindByIndexNameSessionRepository;
+import org.springframework.session.Session;
+import org.springframework.session.security.SpringSessionBackedSessionRegistry;
 
 
 @Configuration
@@ -14,6 +29,38 @@ import org.springframework.security.config.annotation.web.configuration.WebSecur
 @Order(1)
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
+    @Autowired
+    private SessionRegistry sessionRegistry;
+
+    /**
+     * Las sesiones abiertas de cada usuario, para poder cerrarlas cuando se lo
+     * deshabilita, se lo elimina o se le cambia el rol (ver SesionesUsuario):
+     * con spring.session.store-type=jdbc, las de la tabla SPRING_SESSION
+     * (buscadas por mail); si no, las que se registran en memoria al iniciar
+     * sesión.
+     *
+     * @param sesionesJdbc
+     * @return
+     */
+    @Bean
+    public static SessionRegistry sessionRegistry(ObjectProvider<FindByIndexNameSessionRepository<? extends Session>> sesionesJdbc) {
+        FindByIndexNameSessionRepository<? extends Session> repositorio = sesionesJdbc.getIfAvailable();
+        if (repositorio != null) {
+            return new SpringSessionBackedSessionRegistry<>(repositorio);
+        }
+        return new SessionRegistryImpl();
+    }
+
+    /**
+     * Avisa al SessionRegistry en memoria cuando vence una sesión.
+     *
+     * @return
+     */
+    @Bean
+    public static HttpSessionEventPublisher httpSessionEventPublisher() {
+        return new HttpSessionEventPublisher();
+    }
+
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http
@@ -30,6 +77,65 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .and().logout() // Aca configuro la salida
                 .logoutUrl("/logout")
                 .logoutSuccessUrl("/?logout")
-                .permitAll().and().csrf().disable();
+                .permitAll()
+                .and().sessionManagement() // Sin límite de sesiones, pero registradas para poder cerrarlas
+                .maximumSessions(-1)
+                .sessionRegistry(sessionRegistry)
+                .expiredUrl("/")
+                .and()
+                .and().csrf().disable();
+    }
+
+    /**
+     * Endpoints de actuator (métricas): sólo el estado es público, el resto
+     * es para los administradores con HTTP Basic (Prometheus). No se crea ni
+     * se usa una sesión: cada lectura de Prometheus llega sin cookie, y si no
+     * abriría una sesión nueva (una fila de SPRING_SESSION) cada vez.
+     */
+    @Configuration
+    @Order(-1)
+    public static class ActuatorSecurityConfig extends WebSecurityConfigurerAdapter {
+
+        @Override
+        protected void configure(HttpSecurity http) throws Exception {
+            BasicAuthenticationEntryPoint entryPoint = new BasicAuthenticationEntryPoint();
+            entryPoint.setRealmName("libreria");
+            http
+                    .requestMatcher(EndpointRequest.toAnyEndpoint())
+                    .authorizeRequests()
+                    .requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+                    .anyRequest().hasRole("ADMIN")
+                    .and().httpBasic().authenticationEntryPoint(entryPoint)
+                    .and().sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                    .and().csrf().disable();
+        }
+    }
+
+    /**
+     * API REST: con la sesión del formulario de login o con HTTP Basic. Usa
+     * la sesión si ya existe, pero no crea una para cada petición con HTTP
+     * Basic. Responde 401 en lugar de redirigir al formulario de login.
+     */
+    @Configuration
+    @Order(0)
+    public static class ApiSecurityConfig extends WebSecurityConfigurerAdapter {
+
+        @Autowired
+        private SessionRegistry sessionRegistry;
+
+        @Override
+        protected void configure(HttpSecurity http) throws Exception {
+            BasicAuthenticationEntryPoint entryPoint = new BasicAuthenticationEntryPoint();
+            entryPoint.setRealmName("libreria");
+            http
+                    .antMatcher("/api/**")
+                    .authorizeRequests().anyRequest().authenticated()
+                    .and().httpBasic().authenticationEntryPoint(entryPoint)
+                    .and().sessionManagement().sessionCreationPolicy(SessionCreationPolicy.NEVER)
+                    .and().csrf().disable()
+                    // Una sesión cerrada con SesionesUsuario tampoco sirve para la API:
+                    .addFilter(new ConcurrentSessionFilter(sessionRegistry, evento
+                            -> evento.getResponse().sendError(HttpServletResponse.SC_UNAUTHORIZED, "La sesión fue cerrada.")));
+        }
     }
 }
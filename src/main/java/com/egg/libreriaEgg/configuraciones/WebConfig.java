@@ -0,0 +1,29 @@
+package com.egg.libreriaEgg.configuraciones;
+
+import com.egg.libreriaEgg.metricas.ConsultasInterceptor;
+import java.util.TimeZone;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private ConsultasInterceptor consultasInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Cuenta las consultas SQL de cada petición:
+        registry.addInterceptor(consultasInterceptor);
+    }
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer zonaHoraria() {
+        // Las fechas de la API (yyyy-MM-dd) en la zona horaria del servidor, como en las vistas:
+        return builder -> builder.timeZone(TimeZone.getDefault());
+    }
+}
@@ -1,5 +1,7 @@
 package com.egg.libreriaEgg.controllers;
 
+import com.egg.libreriaEgg.dto.PrestamoVista;
+import com.egg.libreriaEgg.dto.ResumenPrestamos;
 import com.egg.libreriaEgg.entidades.Libro;
 import com.egg.libreriaEgg.entidades.Prestamo;
 import com.egg.libreriaEgg.entidades.Usuario;
@@ -8,6 +10,7 @@ import com.egg.libreriaEgg.servicios.PrestamoServicio;
 import com.egg.libreriaEgg.servicios.UsuarioServicio;
 import java.text.ParseException;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -143,9 +146,9 @@ public class AdminController {
         model.addAttribute("libros", libros);
         List<Usuario> usuarios = usuarioServicio.buscarActivos();
         model.addAttribute("usuarios", usuarios);
-        List<Prestamo> prestamosAlta = prestamoServicio.listarDeAlta();
+        List<PrestamoVista> prestamosAlta = prestamoServicio.vistaDeAlta();
         model.addAttribute("prestamosAlta", prestamosAlta);
-        List<Prestamo> prestamosBaja = prestamoServicio.listarDeBaja();
+        List<PrestamoVista> prestamosBaja = prestamoServicio.vistaDeBaja();
         model.addAttribute("prestamosBaja", prestamosBaja);
         return "admin-prestamo.html";
     }
@@ -170,17 +173,11 @@ public class AdminController {
             libro = libroServicio.getById(idLibro);
             // Seteo del Usuario:
             usuario = usuarioServicio.getById(idUsuario);
-            // Validación: un usuario no puede exceder los 4 préstamos activos.
-            List<Prestamo> prestamosUsuario = prestamoServicio.listarDeAltaUsuario(idUsuario);
-            if (prestamosUsuario.size() >= 4) {
-                throw new Exception("Límite de 4 prestamos activos alcanzado por el Usuario. Debe registrar una devolución para solicitar un nuevo préstamo.");
-            } else {
-                // Registro del Préstamo:
-                prestamoServicio.agregarPrestamo(fechaPrestamo, fechaDevolucion, libro.getId(), usuario.getId());
-                // Mensaje de éxito:
-                model.addAttribute("success", "El préstamo del libro '" + libro.getTitulo().toUpperCase() + "' al usuario '" + usuario.getNombre().toUpperCase() + " " + usuario.getApellido().toUpperCase() + "' fue registrado exitosamente. "
-                        + "Quedan " + libro.getEjemplaresRestantes() + " ejemplares disponibles.");
-            }
+            // Registro del Préstamo (PrestamoServicio valida el límite de préstamos activos):
+            prestamoServicio.agregarPrestamo(fechaPrestamo, fechaDevolucion, libro.getId(), usuario.getId());
+            // Mensaje de éxito:
+            model.addAttribute("success", "El préstamo del libro '" + libro.getTitulo().toUpperCase() + "' al usuario '" + usuario.getNombre().toUpperCase() + " " + usuario.getApellido().toUpperCase() + "' fue registrado exitosamente. "
+                    + "Quedan " + libro.getEjemplaresRestantes() + " ejemplares disponibles.");
         } catch (Exception e) {
             if (e.getMessage() == null || fechaPrestamo == null || fechaDevolucion == null || idLibro == null) {
                 model.addAttribute("error", "Error al intentar registrar Préstamo: faltó completar algún campo.");
@@ -188,9 +185,9 @@ public class AdminController {
                 model.addAttribute("error", "Error al registrar Préstamo: " + e.getMessage());
             }
         }
-        List<Prestamo> prestamosAlta = prestamoServicio.listarDeAlta();
+        List<PrestamoVista> prestamosAlta = prestamoServicio.vistaDeAlta();
         model.addAttribute("prestamosAlta", prestamosAlta);
-        List<Prestamo> prestamosBaja = prestamoServicio.listarDeBaja();
+        List<PrestamoVista> prestamosBaja = prestamoServicio.vistaDeBaja();
         model.addAttribute("prestamosBaja", prestamosBaja);
         List<Libro> libros = libroServicio.findAll();
         model.addAttribute("libros", libros);
@@ -215,9 +212,9 @@ public class AdminController {
         model.addAttribute("libros", libros);
         List<Usuario> usuarios = usuarioServicio.buscarActivos();
         model.addAttribute("usuarios", usuarios);
-        List<Prestamo> prestamosAlta = prestamoServicio.listarDeAlta();
+        List<PrestamoVista> prestamosAlta = prestamoServicio.vistaDeAlta();
         model.addAttribute("prestamosAlta", prestamosAlta);
-        List<Prestamo> prestamosBaja = prestamoServicio.listarDeBaja();
+        List<PrestamoVista> prestamosBaja = prestamoServicio.vistaDeBaja();
         model.addAttribute("prestamosBaja", prestamosBaja);
         return "admin-prestamo.html";
     }
@@ -238,9 +235,9 @@ public class AdminController {
         model.addAttribute("libros", libros);
         List<Usuario> usuarios = usuarioServicio.buscarActivos();
         model.addAttribute("usuarios", usuarios);
-        List<Prestamo> prestamosAlta = prestamoServicio.listarDeAltaUsuario(id);
+        List<PrestamoVista> prestamosAlta = prestamoServicio.vistaDeAltaUsuario(id);
         model.addAttribute("prestamosAlta", prestamosAlta);
-        List<Prestamo> prestamosBaja = prestamoServicio.listarDeBajaUsuario(id);
+        List<PrestamoVista> prestamosBaja = prestamoServicio.vistaDeBajaUsuario(id);
         model.addAttribute("prestamosBaja", prestamosBaja);
         return "admin-prestamo.html";
     }
@@ -269,9 +266,41 @@ public class AdminController {
                 model.addAttribute("error", "Error al registrar Devolución: " + e.getMessage());
             }
         }
-        List<Prestamo> prestamosAlta = prestamoServicio.listarDeAlta();
+        List<PrestamoVista> prestamosAlta = prestamoServicio.vistaDeAlta();
+        model.addAttribute("prestamosAlta", prestamosAlta);
+        List<PrestamoVista> prestamosBaja = prestamoServicio.vistaDeBaja();
+        model.addAttribute("prestamosBaja", prestamosBaja);
+        List<Libro> libros = libroServicio.findAll();
+        model.addAttribute("libros", libros);
+        List<Usuario> usuarios = usuarioServicio.buscarActivos();
+        model.addAttribute("usuarios", usuarios);
+        return "admin-prestamo.html";
+    }
+
+    /**
+     * Registra la devolución de todos los préstamos marcados en la tabla, en
+     * una sola operación (ver PrestamoServicio.bajaPrestamos).
+     *
+     * @param model
+     * @param idsPrestamos
+     * @return
+     */
+    @PostMapping("/prestamos/registrar-devoluciones")
+    public String registrarDevoluciones(ModelMap model, @RequestParam(required = false) List<String> idsPrestamos) {
+        try {
+            ResumenPrestamos resumen = prestamoServicio.bajaPrestamos(idsPrestamos);
+            if (!resumen.getRealizados().isEmpty()) {
+                model.addAttribute("success", "Se registraron " + resumen.getRealizados().size() + " devoluciones.");
+            }
+            if (!resumen.getRechazados().isEmpty()) {
+                model.addAttribute("error", "No se registraron " + resumen.getRechazados().size() + " devoluciones: " + String.join(" ", new LinkedHashSet<>(resumen.getRechazados().values())));
+            }
+        } catch (Exception e) {
+            model.addAttribute("error", "Error al registrar Devoluciones: " + e.getMessage());
+        }
+        List<PrestamoVista> prestamosAlta = prestamoServicio.vistaDeAlta();
         model.addAttribute("prestamosAlta", prestamosAlta);
-        List<Prestamo> prestamosBaja = prestamoServicio.listarDeBaja();
+        List<PrestamoVista> prestamosBaja = prestamoServicio.vistaDeBaja();
         model.addAttribute("prestamosBaja", prestamosBaja);
         List<Libro> libros = libroServicio.findAll();
         model.addAttribute("libros", libros);
@@ -322,9 +351,9 @@ public class AdminController {
                 model.addAttribute("error", "Error al modificar Préstamo: " + e.getMessage());
             }
         }
-        List<Prestamo> prestamosAlta = prestamoServicio.listarDeAlta();
+        List<PrestamoVista> prestamosAlta = prestamoServicio.vistaDeAlta();
         model.addAttribute("prestamosAlta", prestamosAlta);
-        List<Prestamo> prestamosBaja = prestamoServicio.listarDeBaja();
+        List<PrestamoVista> prestamosBaja = prestamoServicio.vistaDeBaja();
         model.addAttribute("prestamosBaja", prestamosBaja);
         List<Libro> libros = libroServicio.findAll();
         model.addAttribute("libros", libros);
@@ -356,9 +385,9 @@ public class AdminController {
                 model.addAttribute("error", "Error al eliminar Préstamo: " + e.getMessage());
             }
         }
-        List<Prestamo> prestamosAlta = prestamoServicio.listarDeAlta();
+        List<PrestamoVista> prestamosAlta = prestamoServicio.vistaDeAlta();
         model.addAttribute("prestamosAlta", prestamosAlta);
-        List<Prestamo> prestamosBaja = prestamoServicio.listarDeBaja();
+        List<PrestamoVista> prestamosBaja = prestamoServicio.vistaDeBaja();
         model.addAttribute("prestamosBaja", prestamosBaja);
         List<Libro> libros = libroServicio.findAll();
         model.addAttribute("libros", libros);
@@ -84,9 +84,17 @@ public class AutorController {
      */
     @GetMapping("/modificar-autor-datos/{idAutorModif}")
     public String datosAutor(ModelMap model, @PathVariable String idAutorModif) {
-        Autor autor = autorServicio.getById(idAutorModif);
-        model.put("autorModif", autor);
-        return "modif-autor.html";
+        try {
+            Autor autor = buscarAutor(idAutorModif);
+            model.put("autorModif", autor);
+            return "modif-autor.html";
+        } catch (Exception e) {
+            // Mensaje de error inyectado al modelo de "admin-autor.html":
+            model.put("error", "Error al intentar modificar el autor: " + e.getMessage());
+            List<Autor> autores = autorServicio.findAll();
+            model.put("autores", autores);
+            return "admin-autor.html";
+        }
     }
 
     /**
@@ -114,9 +122,14 @@ public class AutorController {
             return "admin-autor.html";
         } catch (Exception e) {
             // Mensaje de error inyectado al modelo:
+            model.put("error", "Error al intentar modificar el autor: " + e.getMessage());
             Autor autor = autorServicio.getById(id);
+            if (autor == null) {
+                List<Autor> autores = autorServicio.findAll();
+                model.put("autores", autores);
+                return "admin-autor.html";
+            }
             model.put("autorModif", autor);
-            model.put("error", "Error al intentar modificar el autor: " + e.getMessage());
             return "modif-autor.html";
         }
     }
@@ -134,7 +147,7 @@ public class AutorController {
     @GetMapping("/eliminar-autor/{id}")
     public String eliminarAutor(ModelMap model, @PathVariable String id) {
         try {
-            String nombre = autorServicio.getById(id).getNombre().toUpperCase();
+            String nombre = buscarAutor(id).getNombre().toUpperCase();
             // Con el id, llamo al método para eliminar el autor:
             autorServicio.eliminarAutor(id);
             model.put("success", "El autor '" + nombre + "' fue eliminado exitosamente.");
@@ -163,7 +176,7 @@ public class AutorController {
         try {
             autorServicio.baja(id);
             // Mensaje de éxito inyectado al modelo:
-            model.put("success", "El autor '" + autorServicio.getById(id).getNombre().toUpperCase() + "' fue dado de baja exitosamente.");
+            model.put("success", "El autor '" + buscarAutor(id).getNombre().toUpperCase() + "' fue dado de baja exitosamente.");
         } catch (Exception e) {
             // Mensaje de error inyectado al modelo:
             model.put("error", "Error al intentar dar de baja el autor: " + e.getMessage());
@@ -189,7 +202,7 @@ public class AutorController {
         try {
             autorServicio.alta(id);
             // Mensaje de éxito inyectado al modelo:
-            model.put("success", "El autor '" + autorServicio.getById(id).getNombre().toUpperCase() + "' fue dado de alta exitosamente.");
+            model.put("success", "El autor '" + buscarAutor(id).getNombre().toUpperCase() + "' fue dado de alta exitosamente.");
         } catch (Exception e) {
             // Mensaje de error inyectado al modelo:
             model.put("error", "Error al intentar dar de alta el autor: " + e.getMessage());
@@ -200,6 +213,22 @@ public class AutorController {
         return "admin-autor.html";
     }
 
+    /**
+     * Busca el autor por id (en la cache del catálogo). Si no existe, lanza
+     * la misma excepción que el servicio.
+     *
+     * @param id
+     * @return
+     * @throws Exception
+     */
+    private Autor buscarAutor(String id) throws Exception {
+        Autor autor = autorServicio.getById(id);
+        if (autor == null) {
+            throw new Exception("No existe el autor con el id indicado.");
+        }
+        return autor;
+    }
+
     // ----------------------------DESDE ACÁ COMIENZAN LOS MÉTODOS DESECHADOS ---------------------------
 //    @PostMapping("/registrar-autor")
 //    public String registrarAutor(ModelMap model, @RequestParam(required = false) String id, @RequestParam String nombre) {
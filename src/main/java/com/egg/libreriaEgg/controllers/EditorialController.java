@@ -87,9 +87,17 @@ public class EditorialController {
      */
     @GetMapping("/modificar-editorial-datos/{idEditorialModif}")
     public String datosEditorial(ModelMap model, @PathVariable String idEditorialModif) {
-        Editorial editorial = editorialRepositorio.getById(idEditorialModif);
-        model.put("editorialModif", editorial);
-        return "modif-editorial.html";
+        try {
+            Editorial editorial = buscarEditorial(idEditorialModif);
+            model.put("editorialModif", editorial);
+            return "modif-editorial.html";
+        } catch (Exception e) {
+            // Mensaje de error inyectado al modelo de "admin-editorial.html":
+            model.put("error", "Error al intentar modificar la editorial: " + e.getMessage());
+            List<Editorial> editoriales = editorialRepositorio.findAll();
+            model.put("editoriales", editoriales);
+            return "admin-editorial.html";
+        }
     }
 
     /**
@@ -116,9 +124,14 @@ public class EditorialController {
             return "admin-editorial.html";
         } catch (Exception e) {
             // Mensaje de error inyectado al modelo:
-            Editorial editorial = editorialRepositorio.getById(id);
-            model.put("editorialModif", editorial);
             model.put("error", "Error al intentar modificar la editorial: " + e.getMessage());
+            Editorial editorial = editorialServicio.getById(id);
+            if (editorial == null) {
+                List<Editorial> editoriales = editorialRepositorio.findAll();
+                model.put("editoriales", editoriales);
+                return "admin-editorial.html";
+            }
+            model.put("editorialModif", editorial);
             return "modif-editorial.html";
         }
     }
@@ -136,7 +149,7 @@ public class EditorialController {
     @GetMapping("/eliminar-editorial/{id}")
     public String eliminarEditorial(ModelMap model, @PathVariable String id) {
         try {
-            String nombre = editorialRepositorio.getById(id).getNombre().toUpperCase();
+            String nombre = buscarEditorial(id).getNombre().toUpperCase();
             // Con el id, llamo al método para eliminar la editorial:
             editorialServicio.eliminarEditorial(id);
             // Mensaje de éxito inyectado al modelo:
@@ -165,7 +178,7 @@ public class EditorialController {
         try {
             editorialServicio.baja(id);
             // Mensaje de éxito inyectado al modelo:
-            model.put("success", "La editorial '" + editorialRepositorio.getOne(id).getNombre().toUpperCase() + "' fue dada de baja exitosamente.");
+            model.put("success", "La editorial '" + buscarEditorial(id).getNombre().toUpperCase() + "' fue dada de baja exitosamente.");
         } catch (Exception e) {
             // Mensaje de error inyectado al modelo:
             model.put("error", "Error al intentar dar de baja la editorial: " + e.getMessage());
@@ -190,7 +203,7 @@ public class EditorialController {
         try {
             editorialServicio.alta(id);
             // Mensaje de éxito inyectado al modelo:
-            model.put("success", "La editorial '" + editorialRepositorio.getById(id).getNombre().toUpperCase() + "' fue dada de alta exitosamente.");
+            model.put("success", "La editorial '" + buscarEditorial(id).getNombre().toUpperCase() + "' fue dada de alta exitosamente.");
         } catch (Exception e) {
             // Mensaje de error inyectado al modelo:
             model.put("error", "Error al intentar dar de alta la editorial: " + e.getMessage());
@@ -199,4 +212,20 @@ public class EditorialController {
         model.put("editoriales", editoriales);
         return "admin-editorial.html";
     }
+
+    /**
+     * Busca la editorial por id (en la cache del catálogo). Si no existe,
+     * lanza la misma excepción que el servicio.
+     *
+     * @param id
+     * @return
+     * @throws Exception
+     */
+    private Editorial buscarEditorial(String id) throws Exception {
+        Editorial editorial = editorialServicio.getById(id);
+        if (editorial == null) {
+            throw new Exception("No existe la editorial con el id indicado.");
+        }
+        return editorial;
+    }
 }
@@ -1,12 +1,17 @@
 package com.egg.libreriaEgg.controllers;
 
-import com.egg.libreriaEgg.entidades.Libro;
-import com.egg.libreriaEgg.entidades.Usuario;
-import com.egg.libreriaEgg.servicios.LibroServicio;
-import com.egg.libreriaEgg.servicios.UsuarioServicio;
+import com.egg.libreriaEgg.dto.FotoMetadatos;
+import com.egg.libreriaEgg.servicios.FotoServicio;
+import com.egg.libreriaEgg.servicios.MiniaturaServicio;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -15,49 +20,74 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.NativeWebRequest;
 
 /**
  * Controlador para gestionar las fotos (de portada de libros y de perfil de
  * usuarios).
  *
+ * Las fotos se sirven con ETag (el hash del contenido), Last-Modified y
+ * Cache-Control, para que los navegadores no vuelvan a descargarlas en cada
+ * vista del catálogo. Si el navegador ya tiene la versión actual, se responde
+ * 304 sin leer el contenido de la DB.
+ *
+ * El contenido se devuelve como Resource: se escribe en la respuesta a medida
+ * que se lee de la DB, y Spring resuelve las peticiones con Range (descargas
+ * parciales o reanudadas) salteando lo que no se pide. Las fotos guardadas en
+ * disco se envían con el sendfile de Tomcat, sin copiarlas a memoria.
+ *
+ * Con el parámetro "w" se pide la foto para mostrarla con ese ancho, y se
+ * devuelve la miniatura más chica que lo cubre (ver MiniaturaServicio).
+ *
+ * Se registran los bytes servidos ("libreria.fotos.bytes", por tipo de foto y
+ * variante: original o miniatura) y las respuestas 304
+ * ("libreria.fotos.no.modificadas").
+ *
  * @author Mauro Montenegro <maumontenegro.s at gmail.com>
  */
 @Controller
 @RequestMapping("/foto")
 public class FotoController {
 
+    // Las portadas son públicas (se pueden guardar en proxies), pero la URL no
+    // cambia cuando se reemplaza la foto: se revalidan siempre con el ETag.
+    private static final CacheControl CACHE_PORTADA = CacheControl.noCache().cachePublic();
+    // Las fotos de perfil sólo en el navegador, y siempre se revalidan.
+    private static final CacheControl CACHE_PERFIL = CacheControl.noCache().cachePrivate();
+
+    // Atributos de la petición con los que Tomcat ofrece y recibe un pedido de sendfile:
+    private static final String SENDFILE_SOPORTADO = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_ARCHIVO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_DESDE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_HASTA = "org.apache.tomcat.sendfile.end";
+
     @Autowired
-    private LibroServicio libroServicio;
+    private FotoServicio fotoServicio;
 
     @Autowired
-    private UsuarioServicio usuarioServicio;
+    private MiniaturaServicio miniaturaServicio;
+
+    @Autowired
+    private MeterRegistry registry;
 
     /**
      * Función que devuelve la foto de portada de un libro con PathVariable.
      *
      * @param id
+     * @param w ancho en píxeles con el que se va a mostrar (opcional)
+     * @param request
      * @return
      * @throws Exception
      */
     @GetMapping("/libro/{id}")
-    public ResponseEntity<byte[]> fotoLibro(@PathVariable String id) throws Exception {
+    public ResponseEntity<Resource> fotoLibro(@PathVariable String id, @RequestParam(required = false) Integer w, NativeWebRequest request) throws Exception {
         try {
-            /*Buscamos el Libro por id, luego almacenamos el contenido
-            de la foto en un arreglo de bytes:*/
-            Libro libro = libroServicio.getById(id);
-            if (libro.getFoto() == null) {
+            FotoMetadatos foto = fotoServicio.metadatosDeLibro(id);
+            if (foto == null) {
                 throw new Exception("El Libro no tiene una foto de portada.");
             }
-            byte[] foto = libro.getFoto().getContenido();
-            /*Para poder mostrar la foto con ResponseEntity, hay que crear
-            los headers, para indicarle que el tipo de contenido será una
-            imagen JPEG:*/
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.IMAGE_JPEG);
-            /*Ahora usamos esos headers para el return; el tercer parámetro del
-            ResponseEntity es el estado en el que se termina el proceso de
-            petición http (código 200 en este caso):*/
-            return new ResponseEntity<>(foto, headers, HttpStatus.OK);
+            return responder("libro", foto, w, request, CACHE_PORTADA);
         } catch (Exception ex) {
             Logger.getLogger(FotoController.class.getName()).log(Level.SEVERE, null, ex);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -68,31 +98,133 @@ public class FotoController {
      * Función que devuelve la foto de perfil de un usuario con PathVariable.
      *
      * @param id
+     * @param w ancho en píxeles con el que se va a mostrar (opcional)
+     * @param request
      * @return
      * @throws Exception
      */
     @GetMapping("/usuario/{id}")
-    public ResponseEntity<byte[]> fotoUsuario(@PathVariable String id) throws Exception {
+    public ResponseEntity<Resource> fotoUsuario(@PathVariable String id, @RequestParam(required = false) Integer w, NativeWebRequest request) throws Exception {
         try {
-            /*Buscamos el Usuario por id, luego almacenamos el contenido
-            de la foto en un arreglo de bytes:*/
-            Usuario usuario = usuarioServicio.getById(id);
-            if (usuario.getFoto() == null) {
+            FotoMetadatos foto = fotoServicio.metadatosDeUsuario(id);
+            if (foto == null) {
                 throw new Exception("El Usuario no tiene una foto de perfil.");
             }
-            byte[] foto = usuario.getFoto().getContenido();
-            /*Para poder mostrar la foto con ResponseEntity, hay que crear
-            los headers, para indicarle que el tipo de contenido será una
-            imagen JPEG:*/
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.IMAGE_JPEG);
-            /*Ahora usamos esos headers para el return; el tercer parámetro del
-            ResponseEntity es el estado en el que se termina el proceso de
-            petición http (código 200 en este caso):*/
-            return new ResponseEntity<>(foto, headers, HttpStatus.OK);
+            return responder("usuario", foto, w, request, CACHE_PERFIL);
         } catch (Exception ex) {
             Logger.getLogger(FotoController.class.getName()).log(Level.SEVERE, null, ex);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
+
+    /**
+     * Arma la respuesta de una foto. Si la petición es condicional y la foto
+     * no cambió, devuelve 304 sin leer el contenido; sino, devuelve el
+     * contenido (como stream) con su tipo real (Foto.mime).
+     *
+     * Si se pide un ancho y ya existe la miniatura que le corresponde, se
+     * devuelve la miniatura; si todavía no existe, se devuelve la original con
+     * el mismo Cache-Control (las portadas siguen públicas y los perfiles
+     * privados). Como las dos políticas revalidan siempre, cuando la miniatura
+     * esté lista cambia el ETag y el navegador la descarga.
+     *
+     * @param tipo "libro" o "usuario" (para las métricas)
+     * @param foto
+     * @param ancho
+     * @param request
+     * @param cacheControl
+     * @return
+     * @throws IOException
+     */
+    private ResponseEntity<Resource> responder(String tipo, FotoMetadatos foto, Integer ancho, NativeWebRequest request, CacheControl cacheControl) throws IOException {
+        String idMiniatura = null;
+        Integer anchoMiniatura = MiniaturaServicio.anchoPara(ancho);
+        if (anchoMiniatura != null) {
+            idMiniatura = miniaturaServicio.buscar(foto, anchoMiniatura);
+        }
+        String etag = "\"" + (idMiniatura != null ? idMiniatura : foto.getHash()) + "\"";
+        long ultimaModificacion = foto.getModificacion() != null ? foto.getModificacion().getTime() : -1;
+        if (request.checkNotModified(etag, ultimaModificacion)) {
+            registry.counter("libreria.fotos.no.modificadas", "tipo", tipo).increment();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        if (ultimaModificacion >= 0) {
+            headers.setLastModified(ultimaModificacion);
+        }
+        headers.setCacheControl(cacheControl);
+        if (idMiniatura != null) {
+            headers.setContentType(MediaType.IMAGE_JPEG);
+            Resource miniatura = miniaturaServicio.contenido(idMiniatura);
+            registrarBytes(tipo, "miniatura", miniatura);
+            return new ResponseEntity<>(miniatura, headers, HttpStatus.OK);
+        }
+        headers.setContentType(tipo(foto.getMime()));
+        Resource contenido = fotoServicio.contenido(foto);
+        registrarBytes(tipo, "original", contenido);
+        if (enviarArchivo(contenido, request)) {
+            // El contenido lo escribe Tomcat directamente desde el archivo.
+            headers.setContentLength(contenido.contentLength());
+            return new ResponseEntity<>(headers, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(contenido, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Si la foto está en un archivo y el servidor lo permite, le pide a Tomcat
+     * que lo envíe con sendfile (el sistema operativo copia el archivo al
+     * socket, sin pasar por la memoria de la aplicación). Las peticiones con
+     * Range se dejan para Spring, que devuelve sólo las partes pedidas.
+     *
+     * @param contenido
+     * @param request
+     * @return true si el archivo se envía con sendfile.
+     * @throws IOException
+     */
+    private boolean enviarArchivo(Resource contenido, NativeWebRequest request) throws IOException {
+        HttpServletRequest servletRequest = request.getNativeRequest(HttpServletRequest.class);
+        if (servletRequest == null || !contenido.isFile() || request.getHeader(HttpHeaders.RANGE) != null
+                || !Boolean.TRUE.equals(servletRequest.getAttribute(SENDFILE_SOPORTADO))) {
+            return false;
+        }
+        servletRequest.setAttribute(SENDFILE_ARCHIVO, contenido.getFile().getAbsolutePath());
+        servletRequest.setAttribute(SENDFILE_DESDE, 0L);
+        servletRequest.setAttribute(SENDFILE_HASTA, contenido.contentLength());
+        return true;
+    }
+
+    /**
+     * Registra el tamaño de la foto que se envía (completo, aunque la
+     * petición pida sólo una parte con Range).
+     *
+     * @param tipo
+     * @param variante "original" o "miniatura"
+     * @param contenido
+     * @throws IOException
+     */
+    private void registrarBytes(String tipo, String variante, Resource contenido) throws IOException {
+        DistributionSummary.builder("libreria.fotos.bytes")
+                .description("Tamaño de las fotos servidas")
+                .baseUnit("bytes")
+                .tag("tipo", tipo)
+                .tag("variante", variante)
+                .register(registry)
+                .record(contenido.contentLength());
+    }
+
+    /**
+     * Tipo de contenido de la foto; si no se guardó o no es válido, se asume
+     * JPEG (como se hacía antes).
+     *
+     * @param mime
+     * @return
+     */
+    private MediaType tipo(String mime) {
+        try {
+            return MediaType.parseMediaType(mime);
+        } catch (Exception e) {
+            return MediaType.IMAGE_JPEG;
+        }
+    }
 }
@@ -3,9 +3,14 @@ package com.egg.libreriaEgg.controllers;
 import com.egg.libreriaEgg.entidades.Autor;
 import com.egg.libreriaEgg.entidades.Libro;
 import com.egg.libreriaEgg.servicios.AutorServicio;
+import com.egg.libreriaEgg.servicios.BuscadorServicio;
 import com.egg.libreriaEgg.servicios.LibroServicio;
 import com.egg.libreriaEgg.servicios.UsuarioServicio;
+import com.egg.libreriaEgg.vistas.CatalogoFragmentos;
+import com.egg.libreriaEgg.vistas.FragmentoHtml;
 import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
@@ -15,6 +20,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.View;
 
 /**
  * Controlador para las vistas de login, registro e inicio de los usuarios.
@@ -29,10 +35,13 @@ public class PortalController {
     private UsuarioServicio usuarioServicio;
 
     @Autowired
-    private LibroServicio libroServicio;
+    private AutorServicio autorServicio;
 
     @Autowired
-    private AutorServicio autorServicio;
+    private BuscadorServicio buscadorServicio;
+
+    @Autowired
+    private CatalogoFragmentos catalogoFragmentos;
 
     /**
      * Devuelve el index. Aquí están las opciones para registrarse o iniciar
@@ -61,18 +70,26 @@ public class PortalController {
      * libros activos disponibles para solicitar préstamos, además del cuadro
      * para filtrar la búsqueda por autor.
      *
-     * @param model
+     * Los libros se muestran de a una página: "titulo" e "id" indican el libro
+     * a partir del cual se arma la página (hacia adelante o, si "anterior" es
+     * true, hacia atrás).
+     *
+     * El catálogo se arma una sola vez por página y se reutiliza (ver
+     * CatalogoFragmentos); sólo la barra de navegación y los mensajes se
+     * renderizan en cada petición.
+     *
+     * @param titulo
+     * @param id
+     * @param anterior
+     * @param request
+     * @param response
      * @return
+     * @throws Exception
      */
     @PreAuthorize("hasAnyRole('ROLE_ADMIN','ROLE_USUARIO')")
     @GetMapping("/inicio")
-    public String inicio(ModelMap model) {
-        List<Autor> autores = autorServicio.findAll();
-        model.addAttribute("autores", autores);
-        model.addAttribute("autorSelected", null);
-        List<Libro> libros = libroServicio.findAll();
-        model.addAttribute("libros", libros);
-        return "inicio.html";
+    public View inicio(@RequestParam(required = false) String titulo, @RequestParam(required = false) String id, @RequestParam(required = false) boolean anterior, HttpServletRequest request, HttpServletResponse response) throws Exception {
+        return catalogo(null, titulo, id, anterior, request, response);
     }
 
     /**
@@ -116,19 +133,59 @@ public class PortalController {
     }
 
     /**
-     * Método para filtrar Libros por Autor en la vista para USUARIO.
+     * Método para filtrar Libros por Autor en la vista para USUARIO. Al igual
+     * que en "/inicio", los libros se muestran de a una página.
      *
-     * @param model
      * @param idAutor
+     * @param titulo
+     * @param id
+     * @param anterior
+     * @param request
+     * @param response
      * @return
+     * @throws Exception
      */
     @GetMapping("/autor")
-    public String autores(ModelMap model, String idAutor) {
-        model.addAttribute("autorSelected", autorServicio.getById(idAutor));
+    public View autores(String idAutor, @RequestParam(required = false) String titulo, @RequestParam(required = false) String id, @RequestParam(required = false) boolean anterior, HttpServletRequest request, HttpServletResponse response) throws Exception {
+        return catalogo(idAutor, titulo, id, anterior, request, response);
+    }
+
+    /**
+     * Búsqueda de libros por texto (título, descripción, autor o editorial) en
+     * la vista para USUARIO. Los resultados se muestran ordenados por
+     * relevancia, en una sola página.
+     *
+     * @param model
+     * @param q texto a buscar
+     * @return
+     */
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN','ROLE_USUARIO')")
+    @GetMapping("/buscar")
+    public String buscar(ModelMap model, @RequestParam(required = false) String q) {
+        if (q == null || q.trim().isEmpty()) {
+            return "redirect:/inicio";
+        }
         List<Autor> autores = autorServicio.findAll();
         model.addAttribute("autores", autores);
-        List<Libro> libros = libroServicio.buscarPorAutor(idAutor);
+        model.addAttribute("autorSelected", null);
+        model.addAttribute("busqueda", q);
+        List<Libro> libros = buscadorServicio.buscar(q, LibroServicio.LIBROS_POR_PAGINA * 4);
         model.addAttribute("libros", libros);
+        if (libros.isEmpty()) {
+            model.addAttribute("error", "No se encontraron libros para la búsqueda '" + q + "'.");
+        }
         return "inicio.html";
     }
+
+    /**
+     * Vista "inicio.html" con el catálogo ya renderizado. Los ADMIN no ven el
+     * catálogo, así que para ellos no se arma.
+     */
+    private View catalogo(String idAutor, String titulo, String id, boolean anterior, HttpServletRequest request, HttpServletResponse response) throws Exception {
+        if (!request.isUserInRole("USUARIO")) {
+            return catalogoFragmentos.vista("inicio.html", null);
+        }
+        FragmentoHtml catalogo = catalogoFragmentos.obtener(idAutor, titulo, id, anterior, request, response);
+        return catalogoFragmentos.vista("inicio.html", catalogo);
+    }
 }
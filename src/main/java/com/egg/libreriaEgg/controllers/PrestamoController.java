@@ -1,9 +1,12 @@
 package com.egg.libreriaEgg.controllers;
 
+import com.egg.libreriaEgg.autenticacion.UsuarioSesion;
+import com.egg.libreriaEgg.dto.PaginaLibros;
 import com.egg.libreriaEgg.entidades.Autor;
 import com.egg.libreriaEgg.entidades.Libro;
 import com.egg.libreriaEgg.entidades.Prestamo;
 import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.servicios.AutenticacionServicio;
 import com.egg.libreriaEgg.servicios.AutorServicio;
 import com.egg.libreriaEgg.servicios.LibroServicio;
 import com.egg.libreriaEgg.servicios.PrestamoServicio;
@@ -11,6 +14,7 @@ import com.egg.libreriaEgg.servicios.UsuarioServicio;
 import java.text.ParseException;
 import java.util.Date;
 import java.util.List;
+import javax.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
@@ -45,6 +49,9 @@ public class PrestamoController {
     @Autowired
     private AutorServicio autorServicio;
 
+    @Autowired
+    private AutenticacionServicio autenticacionServicio;
+
     /**
      * Método para registrar la solicitud de un préstamo por un usuario.
      *
@@ -52,30 +59,27 @@ public class PrestamoController {
      * @param fechaPrestamo
      * @param fechaDevolucion
      * @param idLibro
-     * @param idUsuario
+     * @param session el usuario que pide el préstamo es el de la sesión
      * @return
      * @throws ParseException
      */
     @PostMapping("/registrar-prestamo")
-    public String registrarPrestamo(ModelMap model, @DateTimeFormat(pattern = "yyyy-MM-dd") Date fechaPrestamo, @DateTimeFormat(pattern = "yyyy-MM-dd") Date fechaDevolucion, String idLibro, String idUsuario) throws ParseException, Exception {
+    public String registrarPrestamo(ModelMap model, @DateTimeFormat(pattern = "yyyy-MM-dd") Date fechaPrestamo, @DateTimeFormat(pattern = "yyyy-MM-dd") Date fechaDevolucion, String idLibro, HttpSession session) throws ParseException, Exception {
         Libro libro;
-        Usuario usuario;
+        UsuarioSesion usuario;
         try {
             // Seteo del Libro:
             libro = libroServicio.getById(idLibro);
-            // Seteo del Usuario:
-            usuario = usuarioServicio.getById(idUsuario);
-            // Validación: un usuario no puede exceder los 4 préstamos activos.
-            List<Prestamo> prestamosUsuario = prestamoServicio.listarDeAltaUsuario(idUsuario);
-            if (prestamosUsuario.size() >= 4) {
-                throw new Exception("Límite de 4 prestamos activos alcanzado. Debe registrar una devolución para solicitar un nuevo préstamo.");
-            } else {
-                // Registro del Préstamo:
-                prestamoServicio.agregarPrestamo(fechaPrestamo, fechaDevolucion, libro.getId(), usuario.getId());
-                // Mensaje de éxito:
-                model.addAttribute("success", "El préstamo del libro '" + libro.getTitulo().toUpperCase() + "' fue registrado exitosamente. "
-                        + "Quedan " + libro.getEjemplaresRestantes() + " ejemplares disponibles.");
+            // Seteo del Usuario (el formulario ya no lo envía):
+            usuario = autenticacionServicio.usuarioSesion(session);
+            if (usuario == null) {
+                throw new Exception("Debe iniciar sesión para solicitar un préstamo.");
             }
+            // Registro del Préstamo (PrestamoServicio valida el límite de préstamos activos):
+            prestamoServicio.agregarPrestamo(fechaPrestamo, fechaDevolucion, libro.getId(), usuario.getId());
+            // Mensaje de éxito:
+            model.addAttribute("success", "El préstamo del libro '" + libro.getTitulo().toUpperCase() + "' fue registrado exitosamente. "
+                    + "Quedan " + libro.getEjemplaresRestantes() + " ejemplares disponibles.");
         } catch (Exception e) {
             if (e.getMessage() == null || fechaDevolucion == null || idLibro == null) {
                 model.addAttribute("error", "Error al intentar registrar Préstamo: faltó completar algún campo.");
@@ -85,8 +89,9 @@ public class PrestamoController {
         }
         List<Autor> autores = autorServicio.findAll();
         model.addAttribute("autores", autores);
-        List<Libro> libros = libroServicio.findAll();
-        model.addAttribute("libros", libros);
+        PaginaLibros pagina = libroServicio.paginaCatalogo(null, null, null, false, LibroServicio.LIBROS_POR_PAGINA);
+        model.addAttribute("pagina", pagina);
+        model.addAttribute("libros", pagina.getLibros());
         return "inicio.html";
     }
 
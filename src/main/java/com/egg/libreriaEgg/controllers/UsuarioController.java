@@ -1,6 +1,8 @@
 package com.egg.libreriaEgg.controllers;
 
+import com.egg.libreriaEgg.autenticacion.UsuarioSesion;
 import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.servicios.AutenticacionServicio;
 import com.egg.libreriaEgg.servicios.UsuarioServicio;
 import javax.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,6 +28,9 @@ public class UsuarioController {
     @Autowired
     private UsuarioServicio usuarioServicio;
 
+    @Autowired
+    private AutenticacionServicio autenticacionServicio;
+
     /**
      * Precarga datos con la información del usuario que lo solicita.
      *
@@ -53,7 +58,7 @@ public class UsuarioController {
     @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_USUARIO')")
     @GetMapping("/editar-perfil")
     public String editarPerfil(HttpSession session, @RequestParam String id, ModelMap model) {
-        Usuario login = (Usuario) session.getAttribute("usuariosession");
+        UsuarioSesion login = autenticacionServicio.usuarioSesion(session);
         /*Securización para evitar que el perfil pueda ser editado sólo por el
         usuario logueado, si es que se corresponde su id:*/
         if (login == null) {
@@ -93,13 +98,14 @@ public class UsuarioController {
     public String actualizar(ModelMap model, HttpSession session, MultipartFile archivo, @RequestParam String id, @RequestParam String nombre, @RequestParam String apellido, @RequestParam String dni, @RequestParam String telefono, @RequestParam String mail, @RequestParam String clave, @RequestParam String clave2) {
         Usuario usuario = null;
         try {
-            Usuario login = (Usuario) session.getAttribute("usuariosession");
+            UsuarioSesion login = autenticacionServicio.usuarioSesion(session);
             if (login == null || !login.getId().equals(id)) {
                 return "redirect:/inicio";
             }
             usuario = usuarioServicio.getById(id);
             usuarioServicio.modificar(id, archivo, nombre, apellido, dni, telefono, mail, clave, clave2);
-            session.setAttribute("usuariosession", usuario);
+            // La sesión guarda una copia de los datos: se reemplaza por la nueva.
+            autenticacionServicio.actualizarSesion(session, usuarioServicio.getById(id));
         } catch (Exception e) {
             model.put("error", e.getMessage());
             model.put("perfil", usuario);
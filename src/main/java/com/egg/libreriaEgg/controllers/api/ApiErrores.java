@@ -0,0 +1,75 @@
+package com.egg.libreriaEgg.controllers.api;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.persistence.EntityNotFoundException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Errores de la API REST. Se responden como {"error": "mensaje"}: los
+ * servicios informan los datos inválidos con una Exception y su mensaje (400),
+ * lo que no existe es 404 y lo que el usuario no puede ver es 403.
+ *
+ * Los errores de Spring MVC conservan el estado que les da
+ * ResponseEntityExceptionHandler: un cuerpo que no se puede leer o un
+ * parámetro de otro tipo es 400, un método no soportado 405, un tipo de
+ * contenido no soportado 415 y uno no aceptable 406. Cualquier otra excepción
+ * es un error del servidor (500): se registra y no se muestra su mensaje.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@RestControllerAdvice(basePackageClasses = ApiErrores.class)
+public class ApiErrores extends ResponseEntityExceptionHandler {
+
+    private static final Logger LOG = Logger.getLogger(ApiErrores.class.getName());
+
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<Map<String, String>> estado(ResponseStatusException e) {
+        return error(e.getStatus(), e.getReason());
+    }
+
+    @ExceptionHandler(EntityNotFoundException.class)
+    public ResponseEntity<Map<String, String>> noEncontrado(EntityNotFoundException e) {
+        return error(HttpStatus.NOT_FOUND, "No existe.");
+    }
+
+    @ExceptionHandler(AccessDeniedException.class)
+    public ResponseEntity<Map<String, String>> prohibido(AccessDeniedException e) {
+        return error(HttpStatus.FORBIDDEN, "No tiene permiso para acceder a este recurso.");
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<Map<String, String>> inesperado(Exception e) {
+        // Los servicios informan los datos inválidos con una Exception (sin subclase):
+        if (e.getClass() == Exception.class) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        LOG.log(Level.WARNING, "Error en la API", e);
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, null);
+    }
+
+    @Override
+    protected ResponseEntity<Object> handleExceptionInternal(Exception e, Object cuerpo, HttpHeaders headers, HttpStatus estado, WebRequest request) {
+        if (estado == HttpStatus.NOT_ACCEPTABLE) {
+            // Sin cuerpo: el cliente no acepta ningún tipo en el que escribirlo.
+            return super.handleExceptionInternal(e, cuerpo, headers, estado, request);
+        }
+        String mensaje = estado == HttpStatus.BAD_REQUEST ? "La solicitud no es válida." : null;
+        return super.handleExceptionInternal(e, error(estado, mensaje).getBody(), headers, estado, request);
+    }
+
+    private ResponseEntity<Map<String, String>> error(HttpStatus estado, String mensaje) {
+        return ResponseEntity.status(estado).body(Collections.singletonMap("error", mensaje == null ? estado.getReasonPhrase() : mensaje));
+    }
+
+}
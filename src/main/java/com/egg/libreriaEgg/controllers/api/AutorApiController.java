@@ -0,0 +1,68 @@
+package com.egg.libreriaEgg.controllers.api;
+
+import com.egg.libreriaEgg.dto.AutorDto;
+import com.egg.libreriaEgg.dto.LibroDto;
+import com.egg.libreriaEgg.entidades.Autor;
+import com.egg.libreriaEgg.servicios.AutorServicio;
+import com.egg.libreriaEgg.servicios.LibroServicio;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * API REST de autores (sólo consulta).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@RestController
+@PreAuthorize("hasAnyRole('ROLE_ADMIN','ROLE_USUARIO')")
+@RequestMapping("/api/v1/autores")
+public class AutorApiController {
+
+    @Autowired
+    private AutorServicio autorServicio;
+
+    @Autowired
+    private LibroServicio libroServicio;
+
+    @GetMapping
+    public List<AutorDto> autores() {
+        return autorServicio.findAll().stream()
+                .map(AutorDto::de)
+                .collect(Collectors.toList());
+    }
+
+    @GetMapping("/{id}")
+    public AutorDto autor(@PathVariable String id) {
+        return AutorDto.de(buscar(id));
+    }
+
+    /**
+     * Los libros de un autor (dados de alta o no).
+     *
+     * @param id
+     * @return
+     */
+    @GetMapping("/{id}/libros")
+    public List<LibroDto> libros(@PathVariable String id) {
+        return libroServicio.buscarPorAutor(buscar(id).getId()).stream()
+                .map(LibroDto::de)
+                .collect(Collectors.toList());
+    }
+
+    private Autor buscar(String id) {
+        Autor autor = autorServicio.getById(id);
+        if (autor == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No existe un autor con ese ID.");
+        }
+        return autor;
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.egg.libreriaEgg.controllers.api;
+
+import com.egg.libreriaEgg.dto.EditorialDto;
+import com.egg.libreriaEgg.dto.LibroDto;
+import com.egg.libreriaEgg.entidades.Editorial;
+import com.egg.libreriaEgg.servicios.EditorialServicio;
+import com.egg.libreriaEgg.servicios.LibroServicio;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * API REST de editoriales (sólo consulta).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@RestController
+@PreAuthorize("hasAnyRole('ROLE_ADMIN','ROLE_USUARIO')")
+@RequestMapping("/api/v1/editoriales")
+public class EditorialApiController {
+
+    @Autowired
+    private EditorialServicio editorialServicio;
+
+    @Autowired
+    private LibroServicio libroServicio;
+
+    @GetMapping
+    public List<EditorialDto> editoriales() {
+        return editorialServicio.findAll().stream()
+                .map(EditorialDto::de)
+                .collect(Collectors.toList());
+    }
+
+    @GetMapping("/{id}")
+    public EditorialDto editorial(@PathVariable String id) {
+        return EditorialDto.de(buscar(id));
+    }
+
+    /**
+     * Los libros de una editorial (dados de alta o no).
+     *
+     * @param id
+     * @return
+     */
+    @GetMapping("/{id}/libros")
+    public List<LibroDto> libros(@PathVariable String id) {
+        return libroServicio.buscarPorEditorial(buscar(id).getId()).stream()
+                .map(LibroDto::de)
+                .collect(Collectors.toList());
+    }
+
+    private Editorial buscar(String id) {
+        Editorial editorial = editorialServicio.getById(id);
+        if (editorial == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No existe una editorial con ese ID.");
+        }
+        return editorial;
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.egg.libreriaEgg.controllers.api;
+
+import com.egg.libreriaEgg.importacion.Importacion;
+import com.egg.libreriaEgg.servicios.ImportacionServicio;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * API REST de importación de libros (sólo para los ADMIN). La importación se
+ * hace en segundo plano: el POST devuelve 202 con la importación, y su
+ * progreso se consulta en /{id}.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@RestController
+@PreAuthorize("hasRole('ROLE_ADMIN')")
+@RequestMapping("/api/v1/importaciones")
+public class ImportacionApiController {
+
+    @Autowired
+    private ImportacionServicio importacionServicio;
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Importacion importar(@RequestParam MultipartFile archivo) throws Exception {
+        return importacionServicio.importar(archivo);
+    }
+
+    @GetMapping
+    public List<Importacion> importaciones() {
+        return importacionServicio.listar();
+    }
+
+    @GetMapping("/{id}")
+    public Importacion importacion(@PathVariable String id) {
+        return buscar(id);
+    }
+
+    /**
+     * Las filas que no se importaron, con el motivo (CSV).
+     *
+     * @param id
+     * @return
+     * @throws Exception
+     */
+    @GetMapping("/{id}/errores")
+    public ResponseEntity<Resource> errores(@PathVariable String id) throws Exception {
+        buscar(id);
+        Path reporte = importacionServicio.reporteErrores(id);
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + id + "-errores.csv\"")
+                .body(new FileSystemResource(reporte));
+    }
+
+    @PostMapping("/{id}/reanudar")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Importacion reanudar(@PathVariable String id) throws Exception {
+        buscar(id);
+        return importacionServicio.reanudar(id);
+    }
+
+    private Importacion buscar(String id) {
+        Importacion importacion = importacionServicio.buscar(id);
+        if (importacion == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No existe una importación con ese ID.");
+        }
+        return importacion;
+    }
+
+}
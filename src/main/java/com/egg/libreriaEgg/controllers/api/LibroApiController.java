@@ -0,0 +1,96 @@
+package com.egg.libreriaEgg.controllers.api;
+
+import com.egg.libreriaEgg.dto.LibroDto;
+import com.egg.libreriaEgg.dto.PaginaLibrosDto;
+import com.egg.libreriaEgg.servicios.BuscadorServicio;
+import com.egg.libreriaEgg.servicios.LibroServicio;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * API REST del catálogo de libros. El catálogo completo se envía a medida que
+ * se lee de la DB, como array JSON o como NDJSON (según el encabezado Accept);
+ * para las pantallas, se puede pedir de a una página.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@RestController
+@PreAuthorize("hasAnyRole('ROLE_ADMIN','ROLE_USUARIO')")
+@RequestMapping("/api/v1/libros")
+public class LibroApiController {
+
+    @Autowired
+    private LibroServicio libroServicio;
+
+    @Autowired
+    private BuscadorServicio buscadorServicio;
+
+    @Autowired
+    private RespuestaJson respuestaJson;
+
+    /**
+     * Todos los libros dados de alta, ordenados por título, como array JSON.
+     *
+     * @param response
+     * @throws IOException
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public void libros(HttpServletResponse response) throws IOException {
+        respuestaJson.escribir(response, false, libroServicio::recorrerCatalogo);
+    }
+
+    /**
+     * Todos los libros dados de alta, ordenados por título, como NDJSON.
+     *
+     * @param response
+     * @throws IOException
+     */
+    @GetMapping(produces = RespuestaJson.NDJSON)
+    public void librosNdjson(HttpServletResponse response) throws IOException {
+        respuestaJson.escribir(response, true, libroServicio::recorrerCatalogo);
+    }
+
+    /**
+     * Una página del catálogo (ver LibroServicio.paginaCatalogo()).
+     *
+     * @param idAutor (opcional)
+     * @param titulo
+     * @param id
+     * @param anterior
+     * @return
+     */
+    @GetMapping("/pagina")
+    public PaginaLibrosDto pagina(@RequestParam(required = false) String idAutor, @RequestParam(required = false) String titulo, @RequestParam(required = false) String id, @RequestParam(required = false) boolean anterior) {
+        return new PaginaLibrosDto(libroServicio.paginaCatalogo(idAutor, titulo, id, anterior, LibroServicio.LIBROS_POR_PAGINA));
+    }
+
+    /**
+     * Búsqueda por texto (título, descripción, autor o editorial), ordenada
+     * por relevancia.
+     *
+     * @param q
+     * @return
+     */
+    @GetMapping("/buscar")
+    public List<LibroDto> buscar(@RequestParam String q) {
+        return buscadorServicio.buscar(q, LibroServicio.LIBROS_POR_PAGINA * 4).stream()
+                .map(LibroDto::de)
+                .collect(Collectors.toList());
+    }
+
+    @GetMapping("/{id}")
+    public LibroDto libro(@PathVariable String id) {
+        return LibroDto.de(libroServicio.getById(id));
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.egg.libreriaEgg.controllers.api;
+
+import com.egg.libreriaEgg.dto.PrestamoSolicitud;
+import com.egg.libreriaEgg.dto.PrestamoVista;
+import com.egg.libreriaEgg.dto.PrestamosLoteSolicitud;
+import com.egg.libreriaEgg.dto.ResumenPrestamos;
+import com.egg.libreriaEgg.exportacion.FormatoExportacion;
+import com.egg.libreriaEgg.servicios.ExportacionServicio;
+import com.egg.libreriaEgg.servicios.PrestamoServicio;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.List;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * API REST de préstamos. Los USUARIOS pueden pedir préstamos y ver los
+ * propios; el listado completo, la exportación, las devoluciones y las
+ * operaciones en lote son sólo para los ADMIN.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@RestController
+@PreAuthorize("hasAnyRole('ROLE_ADMIN','ROLE_USUARIO')")
+@RequestMapping("/api/v1/prestamos")
+public class PrestamoApiController {
+
+    @Autowired
+    private PrestamoServicio prestamoServicio;
+
+    @Autowired
+    private ExportacionServicio exportacionServicio;
+
+    @Autowired
+    private UsuarioAutenticado usuarioAutenticado;
+
+    @Autowired
+    private RespuestaJson respuestaJson;
+
+    /**
+     * Todos los préstamos (de alta y de baja), del más reciente al más
+     * antiguo, como array JSON.
+     *
+     * @param response
+     * @throws IOException
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public void prestamos(HttpServletResponse response) throws IOException {
+        respuestaJson.escribir(response, false, prestamoServicio::recorrerPrestamos);
+    }
+
+    /**
+     * Todos los préstamos, como NDJSON.
+     *
+     * @param response
+     * @throws IOException
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping(produces = RespuestaJson.NDJSON)
+    public void prestamosNdjson(HttpServletResponse response) throws IOException {
+        respuestaJson.escribir(response, true, prestamoServicio::recorrerPrestamos);
+    }
+
+    /**
+     * Los préstamos de un usuario: los activos o, con alta=false, los
+     * devueltos.
+     *
+     * @param autenticacion
+     * @param idUsuario
+     * @param alta
+     * @return
+     */
+    @GetMapping("/usuario/{idUsuario}")
+    public List<PrestamoVista> prestamosUsuario(Authentication autenticacion, @PathVariable String idUsuario, @RequestParam(defaultValue = "true") boolean alta) {
+        usuarioAutenticado.validarAcceso(autenticacion, idUsuario);
+        return alta ? prestamoServicio.vistaDeAltaUsuario(idUsuario) : prestamoServicio.vistaDeBajaUsuario(idUsuario);
+    }
+
+    /**
+     * Registra un préstamo para el usuario autenticado.
+     *
+     * @param autenticacion
+     * @param solicitud
+     * @return
+     * @throws Exception
+     */
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public PrestamoVista solicitar(Authentication autenticacion, @RequestBody PrestamoSolicitud solicitud) throws Exception {
+        String idUsuario = usuarioAutenticado.id(autenticacion);
+        // PrestamoServicio valida el límite de préstamos activos.
+        return PrestamoVista.de(prestamoServicio.agregarPrestamo(solicitud.getFechaPrestamo(), solicitud.getFechaDevolucion(), solicitud.getIdLibro(), idUsuario));
+    }
+
+    /**
+     * Registra la devolución de un préstamo.
+     *
+     * @param id
+     * @return
+     * @throws Exception
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/{id}/devolucion")
+    public PrestamoVista devolucion(@PathVariable String id) throws Exception {
+        prestamoServicio.baja(id);
+        return PrestamoVista.de(prestamoServicio.buscarPorId(id));
+    }
+
+    /**
+     * Registra préstamos de varios libros a un usuario (ver
+     * PrestamoServicio.agregarPrestamos).
+     *
+     * @param solicitud
+     * @return
+     * @throws Exception
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/lote")
+    public ResumenPrestamos lote(@RequestBody PrestamosLoteSolicitud solicitud) throws Exception {
+        return prestamoServicio.agregarPrestamos(solicitud.getFechaPrestamo(), solicitud.getFechaDevolucion(), solicitud.getIdUsuario(), solicitud.getIdsLibros());
+    }
+
+    /**
+     * Registra la devolución de varios préstamos, con sus ids en un array
+     * JSON (ver PrestamoServicio.bajaPrestamos).
+     *
+     * @param ids
+     * @return
+     * @throws Exception
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/devoluciones")
+    public ResumenPrestamos devoluciones(@RequestBody List<String> ids) throws Exception {
+        return prestamoServicio.bajaPrestamos(ids);
+    }
+
+    /**
+     * Exporta el historial completo de préstamos como archivo: CSV o, con
+     * formato=columnar, el formato binario por columnas (ver
+     * EscritorColumnar). Se escribe a medida que se lee de la DB.
+     *
+     * @param formato csv o columnar
+     * @param response
+     * @throws Exception
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/exportacion")
+    public void exportacion(@RequestParam(defaultValue = "csv") String formato, HttpServletResponse response) throws Exception {
+        FormatoExportacion formatoExportacion = FormatoExportacion.de(formato);
+        response.setContentType(formatoExportacion.getTipo());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"prestamos." + formatoExportacion.getExtension() + "\"");
+        exportacionServicio.exportarPrestamos(formatoExportacion, Channels.newChannel(response.getOutputStream()));
+        response.flushBuffer();
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.egg.libreriaEgg.controllers.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Escribe colecciones grandes en la respuesta a medida que se leen de la DB,
+ * en lugar de armar una List y serializarla entera: como un array JSON o como
+ * NDJSON (un objeto JSON por línea). La memoria usada no depende de la
+ * cantidad de elementos.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Component
+class RespuestaJson {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Escribe en la respuesta los elementos que produce "recorrido" (por
+     * ejemplo, libroServicio::recorrerCatalogo).
+     *
+     * @param <T>
+     * @param response
+     * @param ndjson true para NDJSON; false para un array JSON
+     * @param recorrido
+     * @throws IOException
+     */
+    <T> void escribir(HttpServletResponse response, boolean ndjson, Consumer<Consumer<T>> recorrido) throws IOException {
+        response.setContentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        // Sin flush por elemento; el contenedor envía la respuesta de a un buffer por vez.
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generador = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generador.setRootValueSeparator(null);
+            if (!ndjson) {
+                generador.writeStartArray();
+            }
+            recorrido.accept(elemento -> {
+                try {
+                    writer.writeValue(generador, elemento);
+                    if (ndjson) {
+                        generador.writeRaw('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (!ndjson) {
+                generador.writeEndArray();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.egg.libreriaEgg.controllers.api;
+
+import com.egg.libreriaEgg.dto.UsuarioDto;
+import com.egg.libreriaEgg.servicios.UsuarioServicio;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * API REST de usuarios (sólo consulta). El listado es para los ADMIN; cada
+ * usuario puede ver sus propios datos.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@RestController
+@PreAuthorize("hasAnyRole('ROLE_ADMIN','ROLE_USUARIO')")
+@RequestMapping("/api/v1/usuarios")
+public class UsuarioApiController {
+
+    @Autowired
+    private UsuarioServicio usuarioServicio;
+
+    @Autowired
+    private UsuarioAutenticado usuarioAutenticado;
+
+    /**
+     * Los usuarios activos o, con activos=false, los dados de baja.
+     *
+     * @param activos
+     * @return
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping
+    public List<UsuarioDto> usuarios(@RequestParam(defaultValue = "true") boolean activos) {
+        return (activos ? usuarioServicio.buscarActivos() : usuarioServicio.buscarInactivos()).stream()
+                .map(UsuarioDto::de)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * El usuario autenticado.
+     *
+     * @param autenticacion
+     * @return
+     */
+    @GetMapping("/yo")
+    public UsuarioDto yo(Authentication autenticacion) {
+        return UsuarioDto.de(usuarioAutenticado.obtener(autenticacion));
+    }
+
+    @GetMapping("/{id}")
+    public UsuarioDto usuario(Authentication autenticacion, @PathVariable String id) {
+        usuarioAutenticado.validarAcceso(autenticacion, id);
+        return UsuarioDto.de(usuarioServicio.getById(id));
+    }
+
+}
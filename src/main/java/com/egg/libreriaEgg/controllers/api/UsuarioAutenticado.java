@@ -0,0 +1,64 @@
+package com.egg.libreriaEgg.controllers.api;
+
+import com.egg.libreriaEgg.autenticacion.UsuarioDetalles;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.servicios.UsuarioServicio;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * El Usuario que hace la petición a la API (autenticado por HTTP Basic o por
+ * la sesión), y qué datos de otros usuarios puede ver.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Component
+class UsuarioAutenticado {
+
+    @Autowired
+    private UsuarioServicio usuarioServicio;
+
+    Usuario obtener(Authentication autenticacion) {
+        Usuario usuario = usuarioServicio.buscarPorMail(autenticacion.getName());
+        if (usuario == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Usuario inexistente.");
+        }
+        return usuario;
+    }
+
+    /**
+     * El id del usuario autenticado. Sale de los datos del login
+     * (UsuarioDetalles), sin consultar la DB; si el principal se leyó de
+     * una sesión, ya no los tiene y se busca el usuario.
+     *
+     * @param autenticacion
+     * @return
+     */
+    String id(Authentication autenticacion) {
+        if (autenticacion.getPrincipal() instanceof UsuarioDetalles
+                && ((UsuarioDetalles) autenticacion.getPrincipal()).getSesion() != null) {
+            return ((UsuarioDetalles) autenticacion.getPrincipal()).getSesion().getId();
+        }
+        return obtener(autenticacion).getId();
+    }
+
+    /**
+     * Los ADMIN pueden ver los datos de cualquier usuario; el resto, sólo los
+     * propios.
+     *
+     * @param autenticacion
+     * @param idUsuario
+     */
+    void validarAcceso(Authentication autenticacion, String idUsuario) {
+        boolean admin = autenticacion.getAuthorities().stream()
+                .anyMatch(permiso -> permiso.getAuthority().equals("ROLE_ADMIN"));
+        if (!admin && !id(autenticacion).equals(idUsuario)) {
+            throw new AccessDeniedException("Sólo puede ver sus propios datos.");
+        }
+    }
+
+}
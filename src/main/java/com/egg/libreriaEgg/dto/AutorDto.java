@@ -0,0 +1,38 @@
+package com.egg.libreriaEgg.dto;
+
+import com.egg.libreriaEgg.entidades.Autor;
+
+/**
+ * Datos de un autor tal como los devuelve la API REST.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class AutorDto {
+
+    private final String id;
+    private final String nombre;
+    private final boolean alta;
+
+    public AutorDto(String id, String nombre, boolean alta) {
+        this.id = id;
+        this.nombre = nombre;
+        this.alta = alta;
+    }
+
+    public static AutorDto de(Autor autor) {
+        return new AutorDto(autor.getId(), autor.getNombre(), autor.isAlta());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public boolean isAlta() {
+        return alta;
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.egg.libreriaEgg.dto;
+
+import com.egg.libreriaEgg.entidades.Editorial;
+
+/**
+ * Datos de una editorial tal como los devuelve la API REST.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class EditorialDto {
+
+    private final String id;
+    private final String nombre;
+    private final boolean alta;
+
+    public EditorialDto(String id, String nombre, boolean alta) {
+        this.id = id;
+        this.nombre = nombre;
+        this.alta = alta;
+    }
+
+    public static EditorialDto de(Editorial editorial) {
+        return new EditorialDto(editorial.getId(), editorial.getNombre(), editorial.isAlta());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public boolean isAlta() {
+        return alta;
+    }
+
+}
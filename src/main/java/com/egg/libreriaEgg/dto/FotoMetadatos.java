@@ -0,0 +1,71 @@
+package com.egg.libreriaEgg.dto;
+
+import java.util.Date;
+
+/**
+ * Datos de una foto sin su contenido. Alcanzan para responder una petición
+ * condicional (ETag / Last-Modified) sin leer el archivo de la DB.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class FotoMetadatos {
+
+    private final String id;
+    private final String mime;
+    private final String hash;
+    private final Date modificacion;
+    private final Long tamanio;
+    private final String clave;
+
+    public FotoMetadatos(String id, String mime, String hash, Date modificacion, Long tamanio, String clave) {
+        this.id = id;
+        this.mime = mime;
+        this.hash = hash;
+        this.modificacion = modificacion;
+        this.tamanio = tamanio;
+        this.clave = clave;
+    }
+
+    /**
+     * @return the id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the mime
+     */
+    public String getMime() {
+        return mime;
+    }
+
+    /**
+     * @return the hash
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * @return the modificacion
+     */
+    public Date getModificacion() {
+        return modificacion;
+    }
+
+    /**
+     * @return the tamanio
+     */
+    public Long getTamanio() {
+        return tamanio;
+    }
+
+    /**
+     * @return the clave (null si el contenido está en la DB)
+     */
+    public String getClave() {
+        return clave;
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.egg.libreriaEgg.dto;
+
+import com.egg.libreriaEgg.entidades.Libro;
+
+/**
+ * Datos de un libro tal como los devuelve la API REST (/api/v1/libros). Del
+ * autor y la editorial sólo se incluyen el id y el nombre. Se arma desde la
+ * entidad (de()) o directamente en la consulta (ver
+ * LibroRepositorio.recorrerCatalogo()), sin cargar las entidades.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class LibroDto {
+
+    private final String id;
+    private final Long isbn;
+    private final String titulo;
+    private final Integer anio;
+    private final String descripcion;
+    private final Integer ejemplares;
+    private final Integer ejemplaresPrestados;
+    private final Integer ejemplaresRestantes;
+    private final boolean alta;
+    private final String idAutor;
+    private final String autor;
+    private final String idEditorial;
+    private final String editorial;
+
+    public LibroDto(String id, Long isbn, String titulo, Integer anio, String descripcion, Integer ejemplares, Integer ejemplaresPrestados, Integer ejemplaresRestantes, boolean alta, String idAutor, String autor, String idEditorial, String editorial) {
+        this.id = id;
+        this.isbn = isbn;
+        this.titulo = titulo;
+        this.anio = anio;
+        this.descripcion = descripcion;
+        this.ejemplares = ejemplares;
+        this.ejemplaresPrestados = ejemplaresPrestados;
+        this.ejemplaresRestantes = ejemplaresRestantes;
+        this.alta = alta;
+        this.idAutor = idAutor;
+        this.autor = autor;
+        this.idEditorial = idEditorial;
+        this.editorial = editorial;
+    }
+
+    public static LibroDto de(Libro libro) {
+        return new LibroDto(libro.getId(), libro.getIsbn(), libro.getTitulo(), libro.getAnio(), libro.getDescripcion(),
+                libro.getEjemplares(), libro.getEjemplaresPrestados(), libro.getEjemplaresRestantes(), libro.isAlta(),
+                libro.getAutor() == null ? null : libro.getAutor().getId(),
+                libro.getAutor() == null ? null : libro.getAutor().getNombre(),
+                libro.getEditorial() == null ? null : libro.getEditorial().getId(),
+                libro.getEditorial() == null ? null : libro.getEditorial().getNombre());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getIsbn() {
+        return isbn;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public Integer getAnio() {
+        return anio;
+    }
+
+    public String getDescripcion() {
+        return descripcion;
+    }
+
+    public Integer getEjemplares() {
+        return ejemplares;
+    }
+
+    public Integer getEjemplaresPrestados() {
+        return ejemplaresPrestados;
+    }
+
+    public Integer getEjemplaresRestantes() {
+        return ejemplaresRestantes;
+    }
+
+    public boolean isAlta() {
+        return alta;
+    }
+
+    /**
+     * @return id del autor (puede ser null)
+     */
+    public String getIdAutor() {
+        return idAutor;
+    }
+
+    /**
+     * @return nombre del autor (puede ser null)
+     */
+    public String getAutor() {
+        return autor;
+    }
+
+    /**
+     * @return id de la editorial (puede ser null)
+     */
+    public String getIdEditorial() {
+        return idEditorial;
+    }
+
+    /**
+     * @return nombre de la editorial (puede ser null)
+     */
+    public String getEditorial() {
+        return editorial;
+    }
+
+}
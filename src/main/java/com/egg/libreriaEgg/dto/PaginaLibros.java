@@ -0,0 +1,61 @@
+package com.egg.libreriaEgg.dto;
+
+import com.egg.libreriaEgg.entidades.Libro;
+import java.util.List;
+
+/**
+ * Modela una página del catálogo de libros paginado por clave (titulo, id).
+ * En lugar de un número de página, cada página conoce el primer y el último
+ * libro que contiene: con ellos se arma el enlace a la página anterior y a la
+ * siguiente, de modo que pedir la página N cuesta lo mismo que pedir la 1.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class PaginaLibros {
+
+    private final List<Libro> libros;
+    private final boolean hayAnterior;
+    private final boolean haySiguiente;
+
+    public PaginaLibros(List<Libro> libros, boolean hayAnterior, boolean haySiguiente) {
+        this.libros = libros;
+        this.hayAnterior = hayAnterior;
+        this.haySiguiente = haySiguiente;
+    }
+
+    /**
+     * @return los libros de la página, ordenados por titulo e id.
+     */
+    public List<Libro> getLibros() {
+        return libros;
+    }
+
+    /**
+     * @return true si existe una página anterior a ésta.
+     */
+    public boolean isHayAnterior() {
+        return hayAnterior && !libros.isEmpty();
+    }
+
+    /**
+     * @return true si existe una página posterior a ésta.
+     */
+    public boolean isHaySiguiente() {
+        return haySiguiente && !libros.isEmpty();
+    }
+
+    /**
+     * @return el primer libro de la página (cursor para ir hacia atrás).
+     */
+    public Libro getPrimero() {
+        return libros.isEmpty() ? null : libros.get(0);
+    }
+
+    /**
+     * @return el último libro de la página (cursor para ir hacia adelante).
+     */
+    public Libro getUltimo() {
+        return libros.isEmpty() ? null : libros.get(libros.size() - 1);
+    }
+
+}
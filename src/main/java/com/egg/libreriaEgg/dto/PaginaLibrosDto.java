@@ -0,0 +1,38 @@
+package com.egg.libreriaEgg.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Una página del catálogo (ver PaginaLibros) en la API REST. Para pedir la
+ * página siguiente se usan el título y el id del último libro; para la
+ * anterior, los del primero (con anterior=true).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class PaginaLibrosDto {
+
+    private final List<LibroDto> libros;
+    private final boolean hayAnterior;
+    private final boolean haySiguiente;
+
+    public PaginaLibrosDto(PaginaLibros pagina) {
+        this.libros = new ArrayList<>(pagina.getLibros().size());
+        pagina.getLibros().forEach(libro -> libros.add(LibroDto.de(libro)));
+        this.hayAnterior = pagina.isHayAnterior();
+        this.haySiguiente = pagina.isHaySiguiente();
+    }
+
+    public List<LibroDto> getLibros() {
+        return libros;
+    }
+
+    public boolean isHayAnterior() {
+        return hayAnterior;
+    }
+
+    public boolean isHaySiguiente() {
+        return haySiguiente;
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.egg.libreriaEgg.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.util.Date;
+
+/**
+ * Cuerpo de la solicitud de un préstamo en la API REST (POST
+ * /api/v1/prestamos). El usuario es el que está autenticado.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class PrestamoSolicitud {
+
+    private String idLibro;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private Date fechaPrestamo;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private Date fechaDevolucion;
+
+    public String getIdLibro() {
+        return idLibro;
+    }
+
+    public void setIdLibro(String idLibro) {
+        this.idLibro = idLibro;
+    }
+
+    public Date getFechaPrestamo() {
+        return fechaPrestamo;
+    }
+
+    public void setFechaPrestamo(Date fechaPrestamo) {
+        this.fechaPrestamo = fechaPrestamo;
+    }
+
+    public Date getFechaDevolucion() {
+        return fechaDevolucion;
+    }
+
+    public void setFechaDevolucion(Date fechaDevolucion) {
+        this.fechaDevolucion = fechaDevolucion;
+    }
+
+}
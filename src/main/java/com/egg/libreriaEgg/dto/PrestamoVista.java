@@ -0,0 +1,131 @@
+package com.egg.libreriaEgg.dto;
+
+import com.egg.libreriaEgg.entidades.Prestamo;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.util.Date;
+
+/**
+ * Datos de un préstamo tal como se muestran en las tablas de
+ * "admin-prestamo.html". Se obtienen con una sola consulta (ver
+ * PrestamoRepositorio), en lugar de cargar cada Prestamo con su Libro, el
+ * Autor y la Editorial del libro, y el Usuario, uno por uno.
+ *
+ * Es también la respuesta de los préstamos en la API REST (/api/v1/prestamos).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class PrestamoVista {
+    private final String id;
+    private final boolean alta;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private final Date fechaPrestamo;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private final Date fechaDevolucion;
+    private final String tituloLibro;
+    private final String autorLibro;
+    private final Integer anioLibro;
+    private final String idUsuario;
+    private final String nombreUsuario;
+    private final String apellidoUsuario;
+    private final String dniUsuario;
+
+    public PrestamoVista(String id, boolean alta, Date fechaPrestamo, Date fechaDevolucion, String tituloLibro, String autorLibro, Integer anioLibro, String idUsuario, String nombreUsuario, String apellidoUsuario, String dniUsuario) {
+        this.id = id;
+        this.alta = alta;
+        this.fechaPrestamo = fechaPrestamo;
+        this.fechaDevolucion = fechaDevolucion;
+        this.tituloLibro = tituloLibro;
+        this.autorLibro = autorLibro;
+        this.anioLibro = anioLibro;
+        this.idUsuario = idUsuario;
+        this.nombreUsuario = nombreUsuario;
+        this.apellidoUsuario = apellidoUsuario;
+        this.dniUsuario = dniUsuario;
+    }
+
+    public static PrestamoVista de(Prestamo prestamo) {
+        return new PrestamoVista(prestamo.getId(), prestamo.isAlta(), prestamo.getFechaPrestamo(), prestamo.getFechaDevolucion(),
+                prestamo.getLibro().getTitulo(),
+                prestamo.getLibro().getAutor() == null ? null : prestamo.getLibro().getAutor().getNombre(),
+                prestamo.getLibro().getAnio(), prestamo.getUsuario().getId(), prestamo.getUsuario().getNombre(),
+                prestamo.getUsuario().getApellido(), prestamo.getUsuario().getDni());
+    }
+
+    /**
+     * @return the id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the alta
+     */
+    public boolean isAlta() {
+        return alta;
+    }
+
+    /**
+     * @return the fechaPrestamo
+     */
+    public Date getFechaPrestamo() {
+        return fechaPrestamo;
+    }
+
+    /**
+     * @return the fechaDevolucion
+     */
+    public Date getFechaDevolucion() {
+        return fechaDevolucion;
+    }
+
+    /**
+     * @return título del libro prestado
+     */
+    public String getTituloLibro() {
+        return tituloLibro;
+    }
+
+    /**
+     * @return nombre del autor del libro (puede ser null)
+     */
+    public String getAutorLibro() {
+        return autorLibro;
+    }
+
+    /**
+     * @return año de publicación del libro
+     */
+    public Integer getAnioLibro() {
+        return anioLibro;
+    }
+
+    /**
+     * @return the idUsuario
+     */
+    public String getIdUsuario() {
+        return idUsuario;
+    }
+
+    /**
+     * @return the nombreUsuario
+     */
+    public String getNombreUsuario() {
+        return nombreUsuario;
+    }
+
+    /**
+     * @return the apellidoUsuario
+     */
+    public String getApellidoUsuario() {
+        return apellidoUsuario;
+    }
+
+    /**
+     * @return the dniUsuario
+     */
+    public String getDniUsuario() {
+        return dniUsuario;
+    }
+
+}
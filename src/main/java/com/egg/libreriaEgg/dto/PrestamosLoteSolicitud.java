@@ -0,0 +1,55 @@
+package com.egg.libreriaEgg.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Cuerpo de la solicitud de préstamos en lote en la API REST (POST
+ * /api/v1/prestamos/lote): varios libros para un mismo usuario, con las
+ * mismas fechas.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class PrestamosLoteSolicitud {
+
+    private String idUsuario;
+    private List<String> idsLibros;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private Date fechaPrestamo;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private Date fechaDevolucion;
+
+    public String getIdUsuario() {
+        return idUsuario;
+    }
+
+    public void setIdUsuario(String idUsuario) {
+        this.idUsuario = idUsuario;
+    }
+
+    public List<String> getIdsLibros() {
+        return idsLibros;
+    }
+
+    public void setIdsLibros(List<String> idsLibros) {
+        this.idsLibros = idsLibros;
+    }
+
+    public Date getFechaPrestamo() {
+        return fechaPrestamo;
+    }
+
+    public void setFechaPrestamo(Date fechaPrestamo) {
+        this.fechaPrestamo = fechaPrestamo;
+    }
+
+    public Date getFechaDevolucion() {
+        return fechaDevolucion;
+    }
+
+    public void setFechaDevolucion(Date fechaDevolucion) {
+        this.fechaDevolucion = fechaDevolucion;
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.egg.libreriaEgg.dto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de una operación en lote de PrestamoServicio (agregarPrestamos o
+ * bajaPrestamos): los préstamos que se registraron o devolvieron y, para cada
+ * pedido que no se pudo hacer (un libro en los préstamos, un préstamo en las
+ * devoluciones), el motivo.
+ *
+ * Es también la respuesta de los préstamos en lote en la API REST.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class ResumenPrestamos {
+
+    private final List<String> realizados = new ArrayList<>();
+    private final Map<String, String> rechazados = new LinkedHashMap<>();
+
+    public void realizado(String idPrestamo) {
+        realizados.add(idPrestamo);
+    }
+
+    public void rechazado(String id, String motivo) {
+        rechazados.put(id, motivo);
+    }
+
+    /**
+     * @return los ids de los préstamos registrados o devueltos
+     */
+    public List<String> getRealizados() {
+        return realizados;
+    }
+
+    /**
+     * @return el motivo de cada pedido rechazado, por id (del libro o del
+     * préstamo), en el orden en que se pidieron
+     */
+    public Map<String, String> getRechazados() {
+        return rechazados;
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.egg.libreriaEgg.dto;
+
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.enums.Rol;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.util.Date;
+
+/**
+ * Datos de un usuario tal como los devuelve la API REST. No incluye la clave
+ * ni la foto.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class UsuarioDto {
+
+    private final String id;
+    private final String nombre;
+    private final String apellido;
+    private final String dni;
+    private final String telefono;
+    private final String mail;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private final Date alta;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private final Date baja;
+    private final Rol rol;
+
+    public UsuarioDto(String id, String nombre, String apellido, String dni, String telefono, String mail, Date alta, Date baja, Rol rol) {
+        this.id = id;
+        this.nombre = nombre;
+        this.apellido = apellido;
+        this.dni = dni;
+        this.telefono = telefono;
+        this.mail = mail;
+        this.alta = alta;
+        this.baja = baja;
+        this.rol = rol;
+    }
+
+    public static UsuarioDto de(Usuario usuario) {
+        return new UsuarioDto(usuario.getId(), usuario.getNombre(), usuario.getApellido(), usuario.getDni(),
+                usuario.getTelefono(), usuario.getMail(), usuario.getAlta(), usuario.getBaja(), usuario.getRol());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String getApellido() {
+        return apellido;
+    }
+
+    public String getDni() {
+        return dni;
+    }
+
+    public String getTelefono() {
+        return telefono;
+    }
+
+    public String getMail() {
+        return mail;
+    }
+
+    public Date getAlta() {
+        return alta;
+    }
+
+    /**
+     * @return fecha de baja (null si el usuario está activo)
+     */
+    public Date getBaja() {
+        return baja;
+    }
+
+    public Rol getRol() {
+        return rol;
+    }
+
+}
@@ -1,22 +1,34 @@
 package com.egg.libreriaEgg.entidades;
 
+import com.egg.libreriaEgg.ids.GeneradorUuid7;
+import com.egg.libreriaEgg.ids.IdBinario;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
 
 
 /**
  * La entidad autor modela los autores de libros.
  *
+ * Se guarda en la cache de segundo nivel de Hibernate (región "autor"):
+ * cada Libro que se muestra carga su autor por id.
+ *
  * @author Mauro Montenegro <maumontenegro.s at gmail.com>
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "autor")
 public class Autor {
 
     @Id
     @GeneratedValue(generator = "uuid")
-    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    @GenericGenerator(name = "uuid", strategy = GeneradorUuid7.ESTRATEGIA)
+    @Type(type = IdBinario.TIPO)
+    @Column(columnDefinition = IdBinario.COLUMNA)
     private String id;
     private String nombre;
     private boolean alta;
@@ -1,12 +1,20 @@
 package com.egg.libreriaEgg.entidades;
 
+import com.egg.libreriaEgg.ids.GeneradorUuid7;
+import com.egg.libreriaEgg.ids.IdBinario;
+import java.sql.Blob;
+import java.util.Date;
 import javax.persistence.Basic;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.Lob;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
 
 /**
  * La entidad foto modela los datos de las fotos que se utilicen en el proyecto.
@@ -20,16 +28,30 @@ public class Foto {
 
     @Id
     @GeneratedValue(generator = "uuid")
-    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    @GenericGenerator(name = "uuid", strategy = GeneradorUuid7.ESTRATEGIA)
+    @Type(type = IdBinario.TIPO)
+    @Column(columnDefinition = IdBinario.COLUMNA)
     private String id;
     private String nombre;
     private String mime; // Asigna el formato del archivo de la foto.
+    private String hash; // SHA-256 del contenido (se usa como ETag al servir la foto).
+
+    private Long tamanio; // Tamaño del contenido en bytes.
+
+    // Si el contenido está guardado fuera de la DB (ver FotoStore), la clave
+    // con la que se lo encuentra; si es null, el contenido está en la columna "contenido".
+    private String clave;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date modificacion; // Fecha en que se guardó el contenido actual.
 
     // "@Lob" Identifica que el tipo de dato es pesado.
     // "@Basic(fetch = FetchType.LAZY)" indica que cargue el contenido sólo cuando lo pidamos.
+    // Se usa Blob (y no byte[]) para poder guardarlo desde un stream, sin
+    // copiar el archivo completo a memoria. Para leerlo, ver FotoContenidoRepositorio.
     @Lob
     @Basic(fetch = FetchType.LAZY)
-    private byte[] contenido; // Guarda el contenido de la foto.
+    private Blob contenido; // Guarda el contenido de la foto.
 
     /**
      * @return the id
@@ -73,17 +95,73 @@ public class Foto {
         this.mime = mime;
     }
 
+    /**
+     * @return the hash
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * @param hash the hash to set
+     */
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * @return the tamanio
+     */
+    public Long getTamanio() {
+        return tamanio;
+    }
+
+    /**
+     * @param tamanio the tamanio to set
+     */
+    public void setTamanio(Long tamanio) {
+        this.tamanio = tamanio;
+    }
+
+    /**
+     * @return the clave
+     */
+    public String getClave() {
+        return clave;
+    }
+
+    /**
+     * @param clave the clave to set
+     */
+    public void setClave(String clave) {
+        this.clave = clave;
+    }
+
+    /**
+     * @return the modificacion
+     */
+    public Date getModificacion() {
+        return modificacion;
+    }
+
+    /**
+     * @param modificacion the modificacion to set
+     */
+    public void setModificacion(Date modificacion) {
+        this.modificacion = modificacion;
+    }
+
     /**
      * @return the contenido
      */
-    public byte[] getContenido() {
+    public Blob getContenido() {
         return contenido;
     }
 
     /**
      * @param contenido the contenido to set
      */
-    public void setContenido(byte[] contenido) {
+    public void setContenido(Blob contenido) {
         this.contenido = contenido;
     }
 
@@ -1,10 +1,18 @@
 package com.egg.libreriaEgg.entidades;
 
+import com.egg.libreriaEgg.ids.GeneradorUuid7;
+import com.egg.libreriaEgg.ids.IdBinario;
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.JoinColumn;
 import javax.persistence.OneToOne;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
 
 
 /**
@@ -15,14 +23,20 @@ import org.hibernate.annotations.GenericGenerator;
  * prestados en este momento y el atributo “ejemplaresRestantes” contiene
  * cuántos de esos ejemplares quedan para prestar.
  *
+ * Se guarda en la cache de segundo nivel de Hibernate (región "libro").
+ * Los UPDATE masivos de los ejemplares (LibroRepositorio) vacían la región.
+ *
  * @author Mauro Montenegro <maumontenegro.s at gmail.com>
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "libro")
 public class Libro {
 
     @Id
     @GeneratedValue(generator = "uuid")
-    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    @GenericGenerator(name = "uuid", strategy = GeneradorUuid7.ESTRATEGIA)
+    @Type(type = IdBinario.TIPO)
+    @Column(columnDefinition = IdBinario.COLUMNA)
     private String id;
     private Long isbn;
     private String titulo;
@@ -33,10 +47,14 @@ public class Libro {
     private Integer ejemplaresRestantes;
     private boolean alta;
     @OneToOne
+    @JoinColumn(columnDefinition = IdBinario.COLUMNA)
     private Autor autor;
     @OneToOne
+    @JoinColumn(columnDefinition = IdBinario.COLUMNA)
     private Editorial editorial;
-    @OneToOne
+    // La foto se carga sólo cuando se la pide (su contenido puede ser pesado).
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(columnDefinition = IdBinario.COLUMNA)
     private Foto foto;
 
     public Libro() {
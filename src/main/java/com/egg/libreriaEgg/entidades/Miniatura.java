@@ -0,0 +1,150 @@
+package com.egg.libreriaEgg.entidades;
+
+import java.util.Date;
+import javax.persistence.Basic;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * La entidad miniatura modela una copia reducida de una foto, con un ancho
+ * fijo, para mostrarla en lugares chicos (como las tarjetas del catálogo) sin
+ * descargar la foto original.
+ *
+ * Las miniaturas se identifican por el hash del contenido original y el
+ * ancho ("hash-ancho"): si la foto cambia, cambia su hash y las miniaturas
+ * anteriores quedan sin uso; si dos fotos son iguales, comparten miniaturas.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Entity
+public class Miniatura {
+
+    @Id
+    private String id;
+    private String hash; // SHA-256 de la foto original.
+    private int ancho; // Ancho en píxeles de la miniatura.
+    private String mime;
+    private Long tamanio; // Tamaño del contenido en bytes.
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date modificacion; // Fecha en que se generó.
+
+    // Las miniaturas son chicas (pocos KB), se guardan siempre en la DB.
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    private byte[] contenido;
+
+    /**
+     * Devuelve el id de la miniatura de un contenido con un ancho dado.
+     *
+     * @param hash
+     * @param ancho
+     * @return
+     */
+    public static String id(String hash, int ancho) {
+        return hash + "-" + ancho;
+    }
+
+    /**
+     * @return the id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @param id the id to set
+     */
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * @return the hash
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * @param hash the hash to set
+     */
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * @return the ancho
+     */
+    public int getAncho() {
+        return ancho;
+    }
+
+    /**
+     * @param ancho the ancho to set
+     */
+    public void setAncho(int ancho) {
+        this.ancho = ancho;
+    }
+
+    /**
+     * @return the mime
+     */
+    public String getMime() {
+        return mime;
+    }
+
+    /**
+     * @param mime the mime to set
+     */
+    public void setMime(String mime) {
+        this.mime = mime;
+    }
+
+    /**
+     * @return the tamanio
+     */
+    public Long getTamanio() {
+        return tamanio;
+    }
+
+    /**
+     * @param tamanio the tamanio to set
+     */
+    public void setTamanio(Long tamanio) {
+        this.tamanio = tamanio;
+    }
+
+    /**
+     * @return the modificacion
+     */
+    public Date getModificacion() {
+        return modificacion;
+    }
+
+    /**
+     * @param modificacion the modificacion to set
+     */
+    public void setModificacion(Date modificacion) {
+        this.modificacion = modificacion;
+    }
+
+    /**
+     * @return the contenido
+     */
+    public byte[] getContenido() {
+        return contenido;
+    }
+
+    /**
+     * @param contenido the contenido to set
+     */
+    public void setContenido(byte[] contenido) {
+        this.contenido = contenido;
+    }
+
+}
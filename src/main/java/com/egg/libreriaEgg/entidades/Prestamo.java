@@ -1,13 +1,18 @@
 package com.egg.libreriaEgg.entidades;
 
+import com.egg.libreriaEgg.ids.GeneradorUuid7;
+import com.egg.libreriaEgg.ids.IdBinario;
 import java.util.Date;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.JoinColumn;
 import javax.persistence.OneToOne;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
 import org.springframework.format.annotation.DateTimeFormat;
 
 /**
@@ -24,7 +29,9 @@ public class Prestamo {
 
     @Id
     @GeneratedValue(generator = "uuid")
-    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    @GenericGenerator(name = "uuid", strategy = GeneradorUuid7.ESTRATEGIA)
+    @Type(type = IdBinario.TIPO)
+    @Column(columnDefinition = IdBinario.COLUMNA)
     private String id;
     private boolean alta;
 
@@ -37,9 +44,11 @@ public class Prestamo {
     private Date fechaDevolucion;
 
     @OneToOne
+    @JoinColumn(columnDefinition = IdBinario.COLUMNA)
     private Libro libro;
 
     @OneToOne
+    @JoinColumn(columnDefinition = IdBinario.COLUMNA)
     private Usuario usuario;
 
     /**
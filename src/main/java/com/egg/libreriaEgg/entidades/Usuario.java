@@ -1,16 +1,22 @@
 package com.egg.libreriaEgg.entidades;
 
 import com.egg.libreriaEgg.enums.Rol;
+import com.egg.libreriaEgg.ids.GeneradorUuid7;
+import com.egg.libreriaEgg.ids.IdBinario;
 import java.util.Date;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.JoinColumn;
 import javax.persistence.OneToOne;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
 import org.springframework.format.annotation.DateTimeFormat;
 
 /**
@@ -24,7 +30,9 @@ public class Usuario {
 
     @Id
     @GeneratedValue(generator = "uuid")
-    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    @GenericGenerator(name = "uuid", strategy = GeneradorUuid7.ESTRATEGIA)
+    @Type(type = IdBinario.TIPO)
+    @Column(columnDefinition = IdBinario.COLUMNA)
     private String id;
     private String nombre;
     private String apellido;
@@ -41,12 +49,19 @@ public class Usuario {
     @DateTimeFormat(pattern = "yyyy-MM-dd")
     private Date baja;
 
-    @OneToOne
+    // La foto se carga sólo cuando se la pide (su contenido puede ser pesado).
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(columnDefinition = IdBinario.COLUMNA)
     private Foto foto;
 
     @Enumerated(EnumType.STRING)
     private Rol rol;
 
+    // Cuántos préstamos de alta tiene. Sólo lo cambian los UPDATE de
+    // PrestamoServicio (nunca se escribe al guardar el usuario).
+    @Column(name = "prestamos_activos", nullable = false, updatable = false)
+    private int prestamosActivos;
+
     /**
      * @return the id
      */
@@ -187,6 +202,20 @@ public class Usuario {
         this.rol = rol;
     }
 
+    /**
+     * @return the prestamosActivos
+     */
+    public int getPrestamosActivos() {
+        return prestamosActivos;
+    }
+
+    /**
+     * @param prestamosActivos the prestamosActivos to set
+     */
+    public void setPrestamosActivos(int prestamosActivos) {
+        this.prestamosActivos = prestamosActivos;
+    }
+
     /**
      * @return the telefono
      */
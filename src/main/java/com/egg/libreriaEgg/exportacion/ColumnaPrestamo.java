@@ -0,0 +1,86 @@
+package com.egg.libreriaEgg.exportacion;
+
+import com.egg.libreriaEgg.dto.PrestamoVista;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.function.Function;
+
+/**
+ * Columnas de la exportación de préstamos, en el orden en que se escriben (el
+ * mismo que el del constructor de PrestamoVista).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public enum ColumnaPrestamo {
+    ID("id", Tipo.TEXTO, PrestamoVista::getId),
+    ALTA("alta", Tipo.BOOLEANO, PrestamoVista::isAlta),
+    FECHA_PRESTAMO("fechaPrestamo", Tipo.FECHA, PrestamoVista::getFechaPrestamo),
+    FECHA_DEVOLUCION("fechaDevolucion", Tipo.FECHA, PrestamoVista::getFechaDevolucion),
+    TITULO_LIBRO("tituloLibro", Tipo.TEXTO, PrestamoVista::getTituloLibro),
+    AUTOR_LIBRO("autorLibro", Tipo.TEXTO, PrestamoVista::getAutorLibro),
+    ANIO_LIBRO("anioLibro", Tipo.ENTERO, PrestamoVista::getAnioLibro),
+    ID_USUARIO("idUsuario", Tipo.TEXTO, PrestamoVista::getIdUsuario),
+    NOMBRE_USUARIO("nombreUsuario", Tipo.TEXTO, PrestamoVista::getNombreUsuario),
+    APELLIDO_USUARIO("apellidoUsuario", Tipo.TEXTO, PrestamoVista::getApellidoUsuario),
+    DNI_USUARIO("dniUsuario", Tipo.TEXTO, PrestamoVista::getDniUsuario);
+
+    public enum Tipo {
+        TEXTO, BOOLEANO, FECHA, ENTERO
+    }
+
+    private final String nombre;
+    private final Tipo tipo;
+    private final Function<PrestamoVista, Object> valor;
+
+    private ColumnaPrestamo(String nombre, Tipo tipo, Function<PrestamoVista, Object> valor) {
+        this.nombre = nombre;
+        this.tipo = tipo;
+        this.valor = valor;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    /**
+     * @param prestamo
+     * @return el valor de la columna (String, Boolean, Date o Integer), o null
+     */
+    public Object valor(PrestamoVista prestamo) {
+        return valor.apply(prestamo);
+    }
+
+    /**
+     * Arma un préstamo con los valores de todas las columnas, en orden.
+     *
+     * @param valores
+     * @return
+     */
+    public static PrestamoVista prestamo(Object[] valores) {
+        return new PrestamoVista((String) valores[0], (Boolean) valores[1], (Date) valores[2], (Date) valores[3],
+                (String) valores[4], (String) valores[5], (Integer) valores[6], (String) valores[7],
+                (String) valores[8], (String) valores[9], (String) valores[10]);
+    }
+
+    /**
+     * El día de una fecha (las fechas de los préstamos no tienen hora).
+     *
+     * @param fecha
+     * @return
+     */
+    static LocalDate dia(Date fecha) {
+        if (fecha instanceof java.sql.Date) {
+            return ((java.sql.Date) fecha).toLocalDate();
+        }
+        return fecha.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    static Date fecha(LocalDate dia) {
+        return java.sql.Date.valueOf(dia);
+    }
+}
@@ -0,0 +1,198 @@
+package com.egg.libreriaEgg.exportacion;
+
+import com.egg.libreriaEgg.dto.PrestamoVista;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escribe los préstamos en un formato binario por columnas (al estilo de
+ * Parquet, pero mucho más simple):
+ *
+ * <pre>
+ * "LPC1"
+ * grupo 1 ... grupo N      (hasta filasPorGrupo filas cada uno)
+ * pie
+ * largo del pie (int32), "LPC1"
+ * </pre>
+ *
+ * Cada grupo tiene un bloque por columna (en el orden de ColumnaPrestamo):
+ * el largo del bloque (int32), un mapa de bits de los valores no nulos y los
+ * valores no nulos. Los booleanos van como mapa de bits; las fechas (días
+ * desde 1970-01-01) y los enteros, como la diferencia con el valor anterior
+ * (varint con zigzag); los textos, como largo (varint) y UTF-8, o con un
+ * diccionario por grupo si se repiten (autores, usuarios).
+ *
+ * El pie tiene las columnas (nombre y tipo) y, por cada grupo, su posición y
+ * su cantidad de filas. Los enteros de largo variable son varint sin signo
+ * (LEB128); los int32 e int64 son big-endian.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+class EscritorColumnar implements EscritorPrestamos {
+
+    static final byte[] MAGIA = "LPC1".getBytes(StandardCharsets.US_ASCII);
+    static final int PLANO = 0;
+    static final int DICCIONARIO = 1;
+
+    private final WritableByteChannel canal;
+    private final int filasPorGrupo;
+    private final List<PrestamoVista> grupo;
+    private final List<long[]> grupos = new ArrayList<>();
+    private long posicion;
+    private boolean terminado;
+
+    EscritorColumnar(WritableByteChannel canal, int filasPorGrupo) throws IOException {
+        this.canal = canal;
+        this.filasPorGrupo = filasPorGrupo;
+        this.grupo = new ArrayList<>(filasPorGrupo);
+        escribir(MAGIA);
+    }
+
+    @Override
+    public void escribir(PrestamoVista prestamo) throws IOException {
+        grupo.add(prestamo);
+        if (grupo.size() >= filasPorGrupo) {
+            escribirGrupo();
+        }
+    }
+
+    @Override
+    public void terminar() throws IOException {
+        if (terminado) {
+            return;
+        }
+        terminado = true;
+        if (!grupo.isEmpty()) {
+            escribirGrupo();
+        }
+        ByteArrayOutputStream pie = new ByteArrayOutputStream();
+        ColumnaPrestamo[] columnas = ColumnaPrestamo.values();
+        varint(pie, columnas.length);
+        for (ColumnaPrestamo columna : columnas) {
+            texto(pie, columna.getNombre());
+            pie.write(columna.getTipo().ordinal());
+        }
+        varint(pie, grupos.size());
+        DataOutputStream datos = new DataOutputStream(pie);
+        for (long[] datosGrupo : grupos) {
+            datos.writeLong(datosGrupo[0]);
+            varint(pie, datosGrupo[1]);
+        }
+        datos.writeInt(pie.size());
+        datos.write(MAGIA);
+        escribir(pie.toByteArray());
+    }
+
+    private void escribirGrupo() throws IOException {
+        ByteArrayOutputStream bloques = new ByteArrayOutputStream(grupo.size() * 64);
+        DataOutputStream datos = new DataOutputStream(bloques);
+        for (ColumnaPrestamo columna : ColumnaPrestamo.values()) {
+            byte[] bloque = codificar(columna);
+            datos.writeInt(bloque.length);
+            datos.write(bloque);
+        }
+        grupos.add(new long[]{posicion, grupo.size()});
+        escribir(bloques.toByteArray());
+        grupo.clear();
+    }
+
+    private byte[] codificar(ColumnaPrestamo columna) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        int filas = grupo.size();
+        byte[] presentes = new byte[(filas + 7) / 8];
+        List<Object> valores = new ArrayList<>(filas);
+        for (int i = 0; i < filas; i++) {
+            Object valor = columna.valor(grupo.get(i));
+            if (valor != null) {
+                presentes[i >> 3] |= 1 << (i & 7);
+                valores.add(valor);
+            }
+        }
+        salida.write(presentes, 0, presentes.length);
+        switch (columna.getTipo()) {
+            case BOOLEANO:
+                byte[] bits = new byte[(valores.size() + 7) / 8];
+                for (int i = 0; i < valores.size(); i++) {
+                    if ((Boolean) valores.get(i)) {
+                        bits[i >> 3] |= 1 << (i & 7);
+                    }
+                }
+                salida.write(bits, 0, bits.length);
+                break;
+            case FECHA:
+            case ENTERO:
+                long anterior = 0;
+                for (Object valor : valores) {
+                    long numero = valor instanceof Date ? ColumnaPrestamo.dia((Date) valor).toEpochDay() : ((Number) valor).longValue();
+                    varint(salida, zigzag(numero - anterior));
+                    anterior = numero;
+                }
+                break;
+            case TEXTO:
+                textos(salida, valores);
+                break;
+            default:
+                throw new IllegalStateException("Tipo no soportado: " + columna.getTipo());
+        }
+        return salida.toByteArray();
+    }
+
+    private void textos(ByteArrayOutputStream salida, List<Object> valores) {
+        Map<Object, Integer> diccionario = new LinkedHashMap<>();
+        for (Object valor : valores) {
+            diccionario.putIfAbsent(valor, diccionario.size());
+        }
+        // El diccionario conviene sólo si los valores se repiten.
+        if (diccionario.size() * 2 <= valores.size()) {
+            salida.write(DICCIONARIO);
+            varint(salida, diccionario.size());
+            for (Object valor : diccionario.keySet()) {
+                texto(salida, (String) valor);
+            }
+            for (Object valor : valores) {
+                varint(salida, diccionario.get(valor));
+            }
+        } else {
+            salida.write(PLANO);
+            for (Object valor : valores) {
+                texto(salida, (String) valor);
+            }
+        }
+    }
+
+    private void escribir(byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        posicion += bytes.length;
+    }
+
+    private static void texto(ByteArrayOutputStream salida, String valor) {
+        byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+        varint(salida, bytes.length);
+        salida.write(bytes, 0, bytes.length);
+    }
+
+    private static long zigzag(long numero) {
+        return (numero << 1) ^ (numero >> 63);
+    }
+
+    private static void varint(ByteArrayOutputStream salida, long numero) {
+        while ((numero & ~0x7FL) != 0) {
+            salida.write((int) ((numero & 0x7F) | 0x80));
+            numero >>>= 7;
+        }
+        salida.write((int) numero);
+    }
+
+}
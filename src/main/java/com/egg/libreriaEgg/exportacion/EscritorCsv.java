@@ -0,0 +1,70 @@
+package com.egg.libreriaEgg.exportacion;
+
+import com.egg.libreriaEgg.dto.PrestamoVista;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Escribe los préstamos como CSV (RFC 4180, separado por ",", en UTF-8).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+class EscritorCsv implements EscritorPrestamos {
+
+    private static final int BUFFER = 64 * 1024;
+
+    private final Writer salida;
+
+    EscritorCsv(WritableByteChannel canal) throws IOException {
+        // Sin cerrar el Writer, para no cerrar el canal (ver terminar()).
+        salida = new BufferedWriter(Channels.newWriter(canal, StandardCharsets.UTF_8.newEncoder(), BUFFER), BUFFER);
+        ColumnaPrestamo[] columnas = ColumnaPrestamo.values();
+        for (int i = 0; i < columnas.length; i++) {
+            if (i > 0) {
+                salida.write(',');
+            }
+            salida.write(columnas[i].getNombre());
+        }
+        salida.write('\n');
+    }
+
+    @Override
+    public void escribir(PrestamoVista prestamo) throws IOException {
+        ColumnaPrestamo[] columnas = ColumnaPrestamo.values();
+        for (int i = 0; i < columnas.length; i++) {
+            if (i > 0) {
+                salida.write(',');
+            }
+            Object valor = columnas[i].valor(prestamo);
+            if (valor instanceof Date) {
+                salida.write(ColumnaPrestamo.dia((Date) valor).toString());
+            } else if (valor instanceof String) {
+                texto((String) valor);
+            } else if (valor != null) {
+                salida.write(valor.toString());
+            }
+        }
+        salida.write('\n');
+    }
+
+    private void texto(String valor) throws IOException {
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            salida.write(valor);
+        } else {
+            salida.write('"');
+            salida.write(valor.replace("\"", "\"\""));
+            salida.write('"');
+        }
+    }
+
+    @Override
+    public void terminar() throws IOException {
+        salida.flush();
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.egg.libreriaEgg.exportacion;
+
+import com.egg.libreriaEgg.dto.PrestamoVista;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Escribe préstamos en un canal (un FileChannel o la respuesta HTTP) de a uno
+ * por vez, sin acumularlos en memoria (salvo un grupo de filas en el formato
+ * columnar).
+ *
+ * terminar() escribe lo que falta (el último grupo y el pie del formato
+ * columnar) y se llama sólo si se escribieron todos los préstamos: si la
+ * exportación falla a mitad de camino, el archivo queda incompleto y no pasa
+ * por uno válido. El canal no se cierra.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public interface EscritorPrestamos {
+
+    void escribir(PrestamoVista prestamo) throws IOException;
+
+    void terminar() throws IOException;
+
+    /**
+     * Abre el escritor que corresponde al formato.
+     *
+     * @param formato
+     * @param canal
+     * @param filasPorGrupo filas de cada grupo del formato columnar
+     * @return
+     * @throws IOException
+     */
+    public static EscritorPrestamos abrir(FormatoExportacion formato, WritableByteChannel canal, int filasPorGrupo) throws IOException {
+        switch (formato) {
+            case CSV:
+                return new EscritorCsv(canal);
+            case COLUMNAR:
+                return new EscritorColumnar(canal, filasPorGrupo);
+            default:
+                throw new IllegalArgumentException("Formato no soportado: " + formato);
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.egg.libreriaEgg.exportacion;
+
+/**
+ * Formatos de la exportación de préstamos.
+ *
+ * CSV: una fila de encabezado con los nombres de las columnas (ver
+ * ColumnaPrestamo) y una fila por préstamo; las fechas como yyyy-MM-dd.
+ *
+ * COLUMNAR: binario, por columnas (ver EscritorColumnar); ocupa mucho menos
+ * que el CSV y se lee con LectorColumnar.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public enum FormatoExportacion {
+    CSV("csv", "text/csv;charset=UTF-8"),
+    COLUMNAR("lpc", "application/octet-stream");
+
+    private final String extension;
+    private final String tipo;
+
+    private FormatoExportacion(String extension, String tipo) {
+        this.extension = extension;
+        this.tipo = tipo;
+    }
+
+    /**
+     * El formato según su nombre ("csv" o "columnar").
+     *
+     * @param nombre
+     * @return
+     * @throws Exception
+     */
+    public static FormatoExportacion de(String nombre) throws Exception {
+        for (FormatoExportacion formato : values()) {
+            if (formato.name().equalsIgnoreCase(nombre)) {
+                return formato;
+            }
+        }
+        throw new Exception("El formato de exportación debe ser csv o columnar.");
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @return el Content-Type de la respuesta
+     */
+    public String getTipo() {
+        return tipo;
+    }
+}
@@ -0,0 +1,184 @@
+package com.egg.libreriaEgg.exportacion;
+
+import com.egg.libreriaEgg.dto.PrestamoVista;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Lee un archivo de préstamos en formato columnar (ver EscritorColumnar), de
+ * a un grupo de filas por vez.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public final class LectorColumnar {
+
+    private static final String NO_VALIDO = "El archivo no es una exportación de préstamos válida.";
+
+    private LectorColumnar() {
+    }
+
+    /**
+     * Lee todos los préstamos del archivo.
+     *
+     * @param canal
+     * @param consumidor recibe cada préstamo, en el orden del archivo
+     * @return la cantidad de préstamos leídos
+     * @throws IOException
+     */
+    public static long leer(SeekableByteChannel canal, Consumer<PrestamoVista> consumidor) throws IOException {
+        long tamanio = canal.size();
+        int magia = EscritorColumnar.MAGIA.length;
+        if (tamanio < 2 * magia + 4 || !Arrays.equals(EscritorColumnar.MAGIA, leer(canal, 0, magia).array())) {
+            throw new IOException(NO_VALIDO);
+        }
+        ByteBuffer cola = leer(canal, tamanio - magia - 4, magia + 4);
+        int largoPie = cola.getInt();
+        byte[] magiaFinal = new byte[magia];
+        cola.get(magiaFinal);
+        if (!Arrays.equals(EscritorColumnar.MAGIA, magiaFinal) || largoPie < 0 || largoPie > tamanio - 2 * magia - 4) {
+            throw new IOException(NO_VALIDO);
+        }
+        long inicioPie = tamanio - magia - 4 - largoPie;
+        ByteBuffer pie = leer(canal, inicioPie, largoPie);
+
+        ColumnaPrestamo[] columnas = ColumnaPrestamo.values();
+        if (varint(pie) != columnas.length) {
+            throw new IOException("El archivo no tiene las columnas esperadas.");
+        }
+        for (ColumnaPrestamo columna : columnas) {
+            if (!columna.getNombre().equals(texto(pie)) || pie.get() != columna.getTipo().ordinal()) {
+                throw new IOException("El archivo no tiene las columnas esperadas.");
+            }
+        }
+        int cantidadGrupos = (int) varint(pie);
+        long[] posiciones = new long[cantidadGrupos];
+        int[] filas = new int[cantidadGrupos];
+        for (int g = 0; g < cantidadGrupos; g++) {
+            posiciones[g] = pie.getLong();
+            filas[g] = (int) varint(pie);
+        }
+
+        long leidos = 0;
+        Object[][] valores = new Object[columnas.length][];
+        for (int g = 0; g < cantidadGrupos; g++) {
+            long fin = g + 1 < cantidadGrupos ? posiciones[g + 1] : inicioPie;
+            ByteBuffer grupo = leer(canal, posiciones[g], (int) (fin - posiciones[g]));
+            for (int c = 0; c < columnas.length; c++) {
+                int largo = grupo.getInt();
+                ByteBuffer bloque = grupo.slice();
+                bloque.limit(largo);
+                valores[c] = decodificar(columnas[c], bloque, filas[g]);
+                grupo.position(grupo.position() + largo);
+            }
+            for (int i = 0; i < filas[g]; i++) {
+                Object[] fila = new Object[columnas.length];
+                for (int c = 0; c < columnas.length; c++) {
+                    fila[c] = valores[c][i];
+                }
+                consumidor.accept(ColumnaPrestamo.prestamo(fila));
+            }
+            leidos += filas[g];
+        }
+        return leidos;
+    }
+
+    private static Object[] decodificar(ColumnaPrestamo columna, ByteBuffer bloque, int filas) {
+        byte[] presentes = new byte[(filas + 7) / 8];
+        bloque.get(presentes);
+        int cantidad = 0;
+        for (int i = 0; i < filas; i++) {
+            if (bit(presentes, i)) {
+                cantidad++;
+            }
+        }
+        Object[] noNulos = new Object[cantidad];
+        switch (columna.getTipo()) {
+            case BOOLEANO:
+                byte[] bits = new byte[(cantidad + 7) / 8];
+                bloque.get(bits);
+                for (int i = 0; i < cantidad; i++) {
+                    noNulos[i] = bit(bits, i);
+                }
+                break;
+            case FECHA:
+            case ENTERO:
+                long anterior = 0;
+                for (int i = 0; i < cantidad; i++) {
+                    long numero = anterior + deZigzag(varint(bloque));
+                    noNulos[i] = columna.getTipo() == ColumnaPrestamo.Tipo.FECHA
+                            ? ColumnaPrestamo.fecha(LocalDate.ofEpochDay(numero)) : (Object) (int) numero;
+                    anterior = numero;
+                }
+                break;
+            case TEXTO:
+                if (bloque.get() == EscritorColumnar.DICCIONARIO) {
+                    String[] diccionario = new String[(int) varint(bloque)];
+                    for (int i = 0; i < diccionario.length; i++) {
+                        diccionario[i] = texto(bloque);
+                    }
+                    for (int i = 0; i < cantidad; i++) {
+                        noNulos[i] = diccionario[(int) varint(bloque)];
+                    }
+                } else {
+                    for (int i = 0; i < cantidad; i++) {
+                        noNulos[i] = texto(bloque);
+                    }
+                }
+                break;
+            default:
+                throw new IllegalStateException("Tipo no soportado: " + columna.getTipo());
+        }
+        Object[] valores = new Object[filas];
+        for (int i = 0, j = 0; i < filas; i++) {
+            if (bit(presentes, i)) {
+                valores[i] = noNulos[j++];
+            }
+        }
+        return valores;
+    }
+
+    private static ByteBuffer leer(SeekableByteChannel canal, long posicion, int largo) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(largo);
+        canal.position(posicion);
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer) < 0) {
+                throw new EOFException(NO_VALIDO);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static boolean bit(byte[] bits, int i) {
+        return (bits[i >> 3] & (1 << (i & 7))) != 0;
+    }
+
+    private static String texto(ByteBuffer buffer) {
+        byte[] bytes = new byte[(int) varint(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long deZigzag(long numero) {
+        return (numero >>> 1) ^ -(numero & 1);
+    }
+
+    private static long varint(ByteBuffer buffer) {
+        long numero = 0;
+        int desplazamiento = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            numero |= (long) (b & 0x7F) << desplazamiento;
+            desplazamiento += 7;
+        } while ((b & 0x80) != 0);
+        return numero;
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.egg.libreriaEgg.ids;
+
+import java.io.Serializable;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+/**
+ * Genera los ids de las entidades como UUID versión 7 (ver Uuid7), en texto;
+ * se guardan en la DB como BINARY(16) (ver IdBinario).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class GeneradorUuid7 implements IdentifierGenerator {
+
+    public static final String ESTRATEGIA = "com.egg.libreriaEgg.ids.GeneradorUuid7";
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        return Uuid7.nuevo().toString();
+    }
+
+}
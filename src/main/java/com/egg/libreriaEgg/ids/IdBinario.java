@@ -0,0 +1,126 @@
+package com.egg.libreriaEgg.ids;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Objects;
+import java.util.UUID;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.usertype.UserType;
+
+/**
+ * Tipo de Hibernate para los ids: en Java son String (el UUID en texto, como
+ * los usan los controladores en las URL), y en la DB se guardan como
+ * BINARY(16), menos de la mitad que el texto (36 caracteres), en la clave
+ * primaria y en cada clave foránea que la referencia.
+ *
+ * Un id que no es un UUID (por ejemplo, uno escrito a mano en una URL) no
+ * existe: se busca como el UUID nulo (todo en cero), que nunca se genera.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class IdBinario implements UserType {
+
+    public static final String TIPO = "com.egg.libreriaEgg.ids.IdBinario";
+    // Para las columnas (las claves foráneas no toman el largo de la primaria):
+    public static final String COLUMNA = "BINARY(16)";
+
+    private static final byte[] NULO = new byte[16];
+
+    /**
+     * @param id UUID en texto
+     * @return los 16 bytes del UUID (o del UUID nulo, si el texto no es un
+     * UUID)
+     */
+    public static byte[] aBytes(String id) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return NULO.clone();
+        }
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    /**
+     * @param bytes
+     * @return el UUID en texto
+     */
+    public static String deBytes(byte[] bytes) {
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("Un id debe tener 16 bytes, no " + bytes.length + ".");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+
+    @Override
+    public int[] sqlTypes() {
+        // VARBINARY y no BINARY para la validación del esquema:
+        // H2 informa las columnas BINARY(16) como VARBINARY, y en MySQL la
+        // validación las reconoce por el nombre del tipo (COLUMNA).
+        return new int[]{Types.VARBINARY};
+    }
+
+    @Override
+    public Class<String> returnedClass() {
+        return String.class;
+    }
+
+    @Override
+    public boolean equals(Object x, Object y) {
+        return Objects.equals(x, y);
+    }
+
+    @Override
+    public int hashCode(Object x) {
+        return Objects.hashCode(x);
+    }
+
+    @Override
+    public Object nullSafeGet(ResultSet rs, String[] names, SharedSessionContractImplementor session, Object owner) throws SQLException {
+        byte[] bytes = rs.getBytes(names[0]);
+        return bytes == null ? null : deBytes(bytes);
+    }
+
+    @Override
+    public void nullSafeSet(PreparedStatement st, Object value, int index, SharedSessionContractImplementor session) throws SQLException {
+        if (value == null) {
+            st.setNull(index, Types.BINARY);
+        } else {
+            st.setBytes(index, aBytes((String) value));
+        }
+    }
+
+    @Override
+    public Object deepCopy(Object value) {
+        return value;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public Serializable disassemble(Object value) {
+        return (Serializable) value;
+    }
+
+    @Override
+    public Object assemble(Serializable cached, Object owner) {
+        return cached;
+    }
+
+    @Override
+    public Object replace(Object original, Object target, Object owner) {
+        return original;
+    }
+
+}
@@ -0,0 +1,403 @@
+package com.egg.libreriaEgg.ids;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Pasa los ids de una DB MySQL existente de VARCHAR(36) a BINARY(16) (ver
+ * IdBinario), sin cambiar su valor: los UUID guardados siguen siendo los
+ * mismos, así que las URL con ids viejos siguen funcionando. Los ids nuevos
+ * son UUID versión 7.
+ *
+ * Se hace en tres fases, para que la aplicación anterior pueda seguir
+ * funcionando mientras se copian los datos:
+ *
+ * 1. preparar: agrega una columna BINARY(16) "[columna]_bin" por cada id y
+ * clave foránea, y triggers que la completan en cada INSERT o UPDATE.
+ *
+ * 2. copiar: completa las columnas nuevas de las filas existentes, de a
+ * "lote" filas por transacción (para no bloquear las tablas). Se puede
+ * interrumpir y volver a ejecutar.
+ *
+ * 3. cambiar: con la aplicación detenida, borra los triggers, las claves
+ * foráneas y las columnas VARCHAR, renombra las nuevas y vuelve a crear la
+ * clave primaria, los índices y las foráneas. Esta fase la ejecuta Flyway al
+ * iniciar la versión nueva (V1_1__IdsBinarios), después del esquema original
+ * y antes de los índices de V2__indices.sql; si ya se hizo, no hace nada.
+ *
+ * Las dos primeras son opcionales (cambiar copia lo que falte), y sólo
+ * sirven en MySQL. Se ejecutan desde el jar de la aplicación:
+ *
+ * java -cp libreriaEgg.jar -Dloader.main=com.egg.libreriaEgg.ids.MigracionIds
+ * org.springframework.boot.loader.PropertiesLauncher [url] [usuario] [clave]
+ * [preparar|copiar|cambiar] [lote]
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public final class MigracionIds {
+
+    private static final Logger LOG = Logger.getLogger(MigracionIds.class.getName());
+    private static final String SUFIJO = "_bin";
+    static final int LOTE = 5000;
+
+    // Por tabla, su clave primaria y sus claves foráneas (en el orden en que se crearon las tablas):
+    private static final String[][] TABLAS = {
+        {"autor", "id"},
+        {"editorial", "id"},
+        {"foto", "id"},
+        {"usuario", "id", "foto_id"},
+        {"libro", "id", "autor_id", "editorial_id", "foto_id"},
+        {"prestamo", "id", "libro_id", "usuario_id"}};
+
+    private final Connection conexion;
+    private final int lote;
+    private final boolean mysql;
+
+    public MigracionIds(Connection conexion, int lote) throws SQLException {
+        this.conexion = conexion;
+        this.lote = lote;
+        this.mysql = conexion.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+    }
+
+    public static void main(String[] args) throws SQLException {
+        if (args.length < 4) {
+            System.err.println("Uso: MigracionIds [url] [usuario] [clave] [preparar|copiar|cambiar] [lote]");
+            System.exit(1);
+        }
+        int lote = args.length > 4 ? Integer.parseInt(args[4]) : LOTE;
+        try (Connection conexion = DriverManager.getConnection(args[0], args[1], args[2])) {
+            MigracionIds migracion = new MigracionIds(conexion, lote);
+            switch (args[3]) {
+                case "preparar":
+                    migracion.preparar();
+                    break;
+                case "copiar":
+                    migracion.copiar();
+                    break;
+                case "cambiar":
+                    migracion.cambiar();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Fase desconocida: " + args[3]);
+            }
+        }
+    }
+
+    // ------------------------------ FASES ------------------------------
+    /**
+     * Agrega las columnas BINARY(16) y los triggers que las mantienen
+     * actualizadas (sólo en MySQL).
+     *
+     * @throws SQLException
+     */
+    public void preparar() throws SQLException {
+        if (!mysql) {
+            throw new IllegalStateException("La fase preparar usa triggers de MySQL.");
+        }
+        for (String[] tabla : TABLAS) {
+            if (!esTexto(tabla[0], "id")) {
+                LOG.info("La tabla " + tabla[0] + " ya tiene ids binarios.");
+                continue;
+            }
+            agregarColumnas(tabla);
+            StringBuilder asignaciones = new StringBuilder();
+            for (String columna : columnas(tabla)) {
+                asignaciones.append(asignaciones.length() == 0 ? "SET " : ", ")
+                        .append("NEW.").append(columna).append(SUFIJO).append(" = ").append(binario("NEW." + columna));
+            }
+            ejecutar("DROP TRIGGER IF EXISTS " + tabla[0] + "_ids_insert");
+            ejecutar("CREATE TRIGGER " + tabla[0] + "_ids_insert BEFORE INSERT ON " + tabla[0] + " FOR EACH ROW " + asignaciones);
+            ejecutar("DROP TRIGGER IF EXISTS " + tabla[0] + "_ids_update");
+            ejecutar("CREATE TRIGGER " + tabla[0] + "_ids_update BEFORE UPDATE ON " + tabla[0] + " FOR EACH ROW " + asignaciones);
+            LOG.info("Tabla " + tabla[0] + " preparada.");
+        }
+    }
+
+    /**
+     * Completa las columnas BINARY(16) de las filas a las que les falta
+     * alguna, de a "lote" filas por vez, recorriendo la clave primaria. Los
+     * valores se calculan acá (IdBinario.aBytes), así funciona también en H2.
+     *
+     * @throws SQLException
+     */
+    public void copiar() throws SQLException {
+        for (String[] tabla : TABLAS) {
+            if (!esTexto(tabla[0], "id")) {
+                continue;
+            }
+            agregarColumnas(tabla);
+            List<String> columnas = columnas(tabla);
+            StringBuilder asignaciones = new StringBuilder();
+            for (String columna : columnas) {
+                asignaciones.append(asignaciones.length() == 0 ? "" : ", ").append(columna).append(SUFIJO).append(" = ?");
+            }
+            String siguientes = "SELECT " + String.join(", ", columnas) + " FROM " + tabla[0]
+                    + " WHERE id > ? AND (" + faltantes(tabla) + ") ORDER BY id LIMIT " + lote;
+            String actualizar = "UPDATE " + tabla[0] + " SET " + asignaciones + " WHERE id = ?";
+            String desde = "";
+            long filas = 0;
+            try (PreparedStatement consulta = conexion.prepareStatement(siguientes);
+                    PreparedStatement sentencia = conexion.prepareStatement(actualizar)) {
+                while (true) {
+                    consulta.setString(1, desde);
+                    int leidas = 0;
+                    try (ResultSet resultado = consulta.executeQuery()) {
+                        while (resultado.next()) {
+                            for (int i = 0; i < columnas.size(); i++) {
+                                String valor = resultado.getString(i + 1);
+                                sentencia.setBytes(i + 1, valor != null ? IdBinario.aBytes(valor) : null);
+                            }
+                            desde = resultado.getString(1);
+                            sentencia.setString(columnas.size() + 1, desde);
+                            sentencia.addBatch();
+                            leidas++;
+                        }
+                    }
+                    if (leidas == 0) {
+                        break;
+                    }
+                    sentencia.executeBatch();
+                    filas += leidas;
+                }
+            }
+            long pendientes = contarFaltantes(tabla);
+            if (pendientes > 0) {
+                throw new IllegalStateException("Quedaron " + pendientes + " filas sin copiar en " + tabla[0] + ".");
+            }
+            LOG.info("Tabla " + tabla[0] + ": " + filas + " filas copiadas.");
+        }
+    }
+
+    /**
+     * Reemplaza las columnas VARCHAR por las BINARY(16). La aplicación tiene
+     * que estar detenida (al iniciar la versión nueva, la ejecuta Flyway: ver
+     * V1_1__IdsBinarios).
+     *
+     * Los índices que usan alguna de las columnas (los de las claves foráneas
+     * en MySQL, o los de V2__indices.sql si ya se habían creado) se borran
+     * antes y se vuelven a crear después, con las mismas columnas: al borrar
+     * una columna, MySQL la quita del índice sin avisar y lo deja con las
+     * demás.
+     *
+     * @throws SQLException
+     */
+    public void cambiar() throws SQLException {
+        boolean pendientes = false;
+        for (String[] tabla : TABLAS) {
+            pendientes |= esTexto(tabla[0], "id");
+        }
+        if (!pendientes) {
+            LOG.info("Los ids ya son binarios.");
+            return;
+        }
+        for (String[] tabla : TABLAS) {
+            ejecutar("DROP TRIGGER IF EXISTS " + tabla[0] + "_ids_insert");
+            ejecutar("DROP TRIGGER IF EXISTS " + tabla[0] + "_ids_update");
+        }
+        // Sin triggers, se copia lo que haya cambiado desde la fase anterior.
+        copiar();
+
+        List<String[]> foraneas = foraneas();
+        if (mysql) {
+            ejecutar("SET foreign_key_checks = 0");
+        }
+        try {
+            for (String[] foranea : foraneas) {
+                ejecutar("ALTER TABLE " + foranea[1] + " DROP FOREIGN KEY " + foranea[0]);
+            }
+            List<Indice> indices = new ArrayList<>();
+            for (String[] tabla : TABLAS) {
+                if (esTexto(tabla[0], "id")) {
+                    indices.addAll(indices(tabla));
+                }
+            }
+            for (Indice indice : indices) {
+                ejecutar("ALTER TABLE " + indice.tabla + " DROP INDEX " + indice.nombre);
+            }
+            for (String[] tabla : TABLAS) {
+                if (!esTexto(tabla[0], "id")) {
+                    continue;
+                }
+                // Primero se cambia la clave primaria y se borran las columnas viejas
+                // (en MySQL en un solo ALTER, así se puede hacer sin copiar la tabla)...
+                List<String> cambios = new ArrayList<>();
+                cambios.add("DROP PRIMARY KEY");
+                cambios.add("MODIFY COLUMN id" + SUFIJO + " " + IdBinario.COLUMNA + " NOT NULL");
+                cambios.add("ADD PRIMARY KEY (id" + SUFIJO + ")");
+                for (String columna : columnas(tabla)) {
+                    cambios.add("DROP COLUMN " + columna);
+                }
+                alterar(tabla[0], cambios);
+                // ... y después se renombran las nuevas.
+                cambios.clear();
+                for (String columna : columnas(tabla)) {
+                    cambios.add("CHANGE COLUMN " + columna + SUFIJO + " " + columna + " " + IdBinario.COLUMNA
+                            + (columna.equals("id") ? " NOT NULL" : " NULL"));
+                }
+                alterar(tabla[0], cambios);
+                LOG.info("Tabla " + tabla[0] + " con ids binarios.");
+            }
+            for (Indice indice : indices) {
+                ejecutar("CREATE " + (indice.unico ? "UNIQUE " : "") + "INDEX " + indice.nombre
+                        + " ON " + indice.tabla + " (" + String.join(", ", indice.columnas) + ")");
+            }
+            for (String[] foranea : foraneas) {
+                ejecutar("ALTER TABLE " + foranea[1] + " ADD CONSTRAINT " + foranea[0]
+                        + " FOREIGN KEY (" + foranea[2] + ") REFERENCES " + foranea[3] + " (id)");
+            }
+        } finally {
+            if (mysql) {
+                ejecutar("SET foreign_key_checks = 1");
+            }
+        }
+    }
+
+    // ------------------------------ SQL ------------------------------
+    private static List<String> columnas(String[] tabla) {
+        return Arrays.asList(tabla).subList(1, tabla.length);
+    }
+
+    // UUID en texto a BINARY(16) (UNHEX de NULL es NULL), para los triggers:
+    private static String binario(String columna) {
+        return "UNHEX(REPLACE(" + columna + ", '-', ''))";
+    }
+
+    // Filas a las que les falta copiar alguna columna:
+    private static String faltantes(String[] tabla) {
+        StringBuilder condicion = new StringBuilder();
+        for (String columna : columnas(tabla)) {
+            condicion.append(condicion.length() == 0 ? "" : " OR ")
+                    .append("(").append(columna).append(" IS NOT NULL AND ").append(columna).append(SUFIJO).append(" IS NULL)");
+        }
+        return condicion.toString();
+    }
+
+    private void agregarColumnas(String[] tabla) throws SQLException {
+        List<String> nuevas = new ArrayList<>();
+        for (String columna : columnas(tabla)) {
+            if (tipo(tabla[0], columna + SUFIJO) == null) {
+                nuevas.add("ADD COLUMN " + columna + SUFIJO + " " + IdBinario.COLUMNA + " NULL");
+            }
+        }
+        if (!nuevas.isEmpty()) {
+            alterar(tabla[0], nuevas);
+        }
+    }
+
+    /**
+     * Aplica los cambios a la tabla: en MySQL en un solo ALTER y sin
+     * bloquearla; en otras bases (H2, en los tests) de a uno.
+     */
+    private void alterar(String tabla, List<String> cambios) throws SQLException {
+        if (mysql) {
+            ejecutar("ALTER TABLE " + tabla + " " + String.join(", ", cambios) + ", ALGORITHM=INPLACE, LOCK=NONE");
+        } else {
+            for (String cambio : cambios) {
+                ejecutar("ALTER TABLE " + tabla + " " + cambio);
+            }
+        }
+    }
+
+    private boolean esTexto(String tabla, String columna) throws SQLException {
+        String tipo = tipo(tabla, columna);
+        return "varchar".equalsIgnoreCase(tipo) || "char".equalsIgnoreCase(tipo);
+    }
+
+    // Tipo de la columna, o null si no existe:
+    private String tipo(String tabla, String columna) throws SQLException {
+        try (ResultSet filas = conexion.getMetaData().getColumns(conexion.getCatalog(), conexion.getSchema(), tabla, columna)) {
+            return filas.next() ? filas.getString("TYPE_NAME") : null;
+        }
+    }
+
+    private long contarFaltantes(String[] tabla) throws SQLException {
+        return Long.parseLong(primero("SELECT COUNT(*) FROM " + tabla[0] + " WHERE " + faltantes(tabla)));
+    }
+
+    /**
+     * @return las claves foráneas hacia las tablas migradas: nombre, tabla,
+     * columna y tabla referenciada
+     */
+    private List<String[]> foraneas() throws SQLException {
+        List<String[]> foraneas = new ArrayList<>();
+        for (String[] tabla : TABLAS) {
+            try (ResultSet filas = conexion.getMetaData().getImportedKeys(conexion.getCatalog(), conexion.getSchema(), tabla[0])) {
+                while (filas.next()) {
+                    String referenciada = filas.getString("PKTABLE_NAME");
+                    if (Arrays.stream(TABLAS).anyMatch(otra -> otra[0].equalsIgnoreCase(referenciada))) {
+                        foraneas.add(new String[]{filas.getString("FK_NAME"), tabla[0], filas.getString("FKCOLUMN_NAME"), referenciada});
+                    }
+                }
+            }
+        }
+        return foraneas;
+    }
+
+    /**
+     * @return los índices de la tabla (menos la clave primaria) que usan
+     * alguna de las columnas que se cambian
+     */
+    private List<Indice> indices(String[] tabla) throws SQLException {
+        Map<String, Indice> indices = new LinkedHashMap<>();
+        try (ResultSet filas = conexion.getMetaData().getIndexInfo(conexion.getCatalog(), conexion.getSchema(), tabla[0], false, false)) {
+            while (filas.next()) {
+                String nombre = filas.getString("INDEX_NAME");
+                if (nombre == null || nombre.equalsIgnoreCase("PRIMARY") || nombre.toUpperCase().startsWith("PRIMARY_KEY")) {
+                    continue;
+                }
+                Indice indice = indices.computeIfAbsent(nombre, n -> new Indice(tabla[0], n));
+                indice.unico = !filas.getBoolean("NON_UNIQUE");
+                // Las filas vienen ordenadas por nombre y posición:
+                indice.columnas.add(filas.getString("COLUMN_NAME"));
+            }
+        }
+        List<Indice> afectados = new ArrayList<>();
+        for (Indice indice : indices.values()) {
+            if (indice.columnas.stream().anyMatch(columna -> columnas(tabla).contains(columna.toLowerCase()))) {
+                afectados.add(indice);
+            }
+        }
+        return afectados;
+    }
+
+    private String primero(String sql, String... parametros) throws SQLException {
+        try (PreparedStatement consulta = conexion.prepareStatement(sql)) {
+            for (int i = 0; i < parametros.length; i++) {
+                consulta.setString(i + 1, parametros[i]);
+            }
+            try (ResultSet filas = consulta.executeQuery()) {
+                return filas.next() ? filas.getString(1) : null;
+            }
+        }
+    }
+
+    private void ejecutar(String sql) throws SQLException {
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute(sql);
+        }
+    }
+
+    private static final class Indice {
+
+        private final String tabla;
+        private final String nombre;
+        private final List<String> columnas = new ArrayList<>();
+        private boolean unico;
+
+        private Indice(String tabla, String nombre) {
+            this.tabla = tabla;
+            this.nombre = nombre;
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.egg.libreriaEgg.ids;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Genera UUID versión 7 (RFC 9562): los primeros 48 bits son los
+ * milisegundos desde 1970, así los ids nuevos quedan ordenados por fecha de
+ * creación y se insertan al final de los índices (y no en cualquier página,
+ * como los UUID aleatorios). El resto son bits aleatorios, salvo los 12
+ * siguientes al tiempo, que son un contador para que los ids generados en el
+ * mismo milisegundo también queden en orden.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public final class Uuid7 {
+
+    private static final SecureRandom AZAR = new SecureRandom();
+    private static final int MAXIMO_CONTADOR = 0xFFF;
+
+    private static long ultimoMilisegundo;
+    private static int contador;
+
+    private Uuid7() {
+    }
+
+    /**
+     * @return un UUID nuevo, mayor que todos los generados antes por esta JVM
+     */
+    public static UUID nuevo() {
+        long milisegundo;
+        int secuencia;
+        synchronized (Uuid7.class) {
+            milisegundo = Math.max(System.currentTimeMillis(), ultimoMilisegundo);
+            if (milisegundo == ultimoMilisegundo) {
+                if (contador == MAXIMO_CONTADOR) {
+                    // Se agotó el contador; se usa el milisegundo siguiente.
+                    milisegundo++;
+                    contador = AZAR.nextInt(MAXIMO_CONTADOR / 2);
+                } else {
+                    contador++;
+                }
+            } else {
+                contador = AZAR.nextInt(MAXIMO_CONTADOR / 2);
+            }
+            ultimoMilisegundo = milisegundo;
+            secuencia = contador;
+        }
+        long altos = (milisegundo << 16) | 0x7000L | secuencia;
+        long bajos = (AZAR.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(altos, bajos);
+    }
+
+    /**
+     * @param id
+     * @return el milisegundo en que se generó un UUID versión 7
+     */
+    public static long milisegundo(UUID id) {
+        return id.getMostSignificantBits() >>> 16;
+    }
+
+}
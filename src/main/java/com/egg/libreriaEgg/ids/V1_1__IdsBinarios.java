@@ -0,0 +1,26 @@
+package com.egg.libreriaEgg.ids;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.stereotype.Component;
+
+/**
+ * Migración de Flyway que pasa los ids de VARCHAR(36) a BINARY(16) (la fase
+ * "cambiar" de MigracionIds), entre el esquema original (V1) y los índices de
+ * V2__indices.sql: así los índices se crean sobre las columnas binarias y no
+ * hay que rehacerlos.
+ *
+ * En una DB grande de MySQL conviene ejecutar antes "preparar" y "copiar" con
+ * la aplicación anterior funcionando; si no, acá se copia todo.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Component
+public class V1_1__IdsBinarios extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        new MigracionIds(context.getConnection(), MigracionIds.LOTE).cambiar();
+    }
+
+}
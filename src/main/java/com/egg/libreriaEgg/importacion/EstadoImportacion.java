@@ -0,0 +1,16 @@
+package com.egg.libreriaEgg.importacion;
+
+/**
+ * Estados de una importación. Una importación INTERRUMPIDA (por ejemplo, al
+ * detener la aplicación) o FALLIDA se puede reanudar desde su último punto de
+ * control.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public enum EstadoImportacion {
+    PENDIENTE, EN_CURSO, TERMINADA, INTERRUMPIDA, FALLIDA;
+
+    public boolean reanudable() {
+        return this == INTERRUMPIDA || this == FALLIDA;
+    }
+}
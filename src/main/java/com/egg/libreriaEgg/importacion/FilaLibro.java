@@ -0,0 +1,138 @@
+package com.egg.libreriaEgg.importacion;
+
+import java.util.function.Function;
+
+/**
+ * Un libro leído de un archivo de importación (una fila del CSV o un objeto
+ * del JSON). Los campos numéricos se convierten al leer la fila; si alguno no
+ * es válido, la fila queda con un error y no se importa.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class FilaLibro {
+
+    // Nombres de los campos (columnas del CSV o propiedades del JSON):
+    public static final String[] CAMPOS = {"isbn", "titulo", "anio", "descripcion", "ejemplares", "autor", "editorial"};
+
+    private final long numero;
+    private Long isbn;
+    private String titulo;
+    private Integer anio;
+    private String descripcion;
+    private Integer ejemplares;
+    private String autor;
+    private String editorial;
+    private String error;
+
+    private FilaLibro(long numero) {
+        this.numero = numero;
+    }
+
+    /**
+     * Arma la fila a partir del valor (como texto) de cada campo.
+     *
+     * @param numero número de la fila en el archivo (desde 1, sin contar el
+     * encabezado)
+     * @param campo devuelve el valor de un campo, o null si no está
+     * @return
+     */
+    public static FilaLibro de(long numero, Function<String, String> campo) {
+        FilaLibro fila = new FilaLibro(numero);
+        fila.titulo = texto(campo.apply("titulo"));
+        fila.descripcion = texto(campo.apply("descripcion"));
+        fila.autor = texto(campo.apply("autor"));
+        fila.editorial = texto(campo.apply("editorial"));
+        try {
+            fila.isbn = numero(campo.apply("isbn"), "ISBN no válido.");
+            fila.anio = entero(campo.apply("anio"), "Año no válido.");
+            fila.ejemplares = entero(campo.apply("ejemplares"), "Cantidad de ejemplares no válidas.");
+        } catch (IllegalArgumentException e) {
+            fila.error = e.getMessage();
+        }
+        return fila;
+    }
+
+    /**
+     * Una fila que no se pudo leer.
+     *
+     * @param numero
+     * @param error
+     * @return
+     */
+    public static FilaLibro conError(long numero, String error) {
+        FilaLibro fila = new FilaLibro(numero);
+        fila.error = error;
+        return fila;
+    }
+
+    private static String texto(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        String recortado = valor.trim();
+        return recortado.isEmpty() ? null : recortado;
+    }
+
+    private static Long numero(String valor, String error) {
+        String recortado = texto(valor);
+        if (recortado == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(recortado);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(error);
+        }
+    }
+
+    private static Integer entero(String valor, String error) {
+        Long numero = numero(valor, error);
+        if (numero == null) {
+            return null;
+        }
+        if (numero > Integer.MAX_VALUE || numero < Integer.MIN_VALUE) {
+            throw new IllegalArgumentException(error);
+        }
+        return numero.intValue();
+    }
+
+    public long getNumero() {
+        return numero;
+    }
+
+    public Long getIsbn() {
+        return isbn;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public Integer getAnio() {
+        return anio;
+    }
+
+    public String getDescripcion() {
+        return descripcion;
+    }
+
+    public Integer getEjemplares() {
+        return ejemplares;
+    }
+
+    public String getAutor() {
+        return autor;
+    }
+
+    public String getEditorial() {
+        return editorial;
+    }
+
+    /**
+     * @return el error al leer la fila, o null si se leyó bien
+     */
+    public String getError() {
+        return error;
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.egg.libreriaEgg.importacion;
+
+/**
+ * Formatos de los archivos de importación.
+ *
+ * CSV: la primera fila tiene los nombres de las columnas (ver
+ * FilaLibro.CAMPOS, en cualquier orden), separadas por "," o por ";".
+ *
+ * JSON: un array de objetos con esas propiedades, o un objeto por línea
+ * (NDJSON).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public enum FormatoImportacion {
+    CSV, JSON;
+
+    /**
+     * El formato según la extensión del archivo (.csv, .json o .ndjson).
+     *
+     * @param nombre
+     * @return
+     * @throws Exception
+     */
+    public static FormatoImportacion de(String nombre) throws Exception {
+        String minusculas = nombre == null ? "" : nombre.toLowerCase();
+        if (minusculas.endsWith(".csv")) {
+            return CSV;
+        }
+        if (minusculas.endsWith(".json") || minusculas.endsWith(".ndjson")) {
+            return JSON;
+        }
+        throw new Exception("El archivo debe ser .csv, .json o .ndjson.");
+    }
+}
@@ -0,0 +1,186 @@
+package com.egg.libreriaEgg.importacion;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.util.Date;
+import java.util.Properties;
+
+/**
+ * Estado y progreso de una importación de libros. Lo modifica sólo el hilo
+ * que la procesa; se puede consultar desde cualquier hilo.
+ *
+ * El punto de control ("checkpoint") es el número de la última fila cuyo lote
+ * ya se guardó en la DB: al reanudar, se sigue desde la fila siguiente. El
+ * estado se guarda en un archivo .properties junto al archivo importado (ver
+ * ImportacionArchivos), así sobrevive a un reinicio de la aplicación.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class Importacion {
+
+    private final String id;
+    private final String archivo;
+    private final FormatoImportacion formato;
+    private volatile EstadoImportacion estado;
+    private volatile long filasLeidas;
+    private volatile long importados;
+    private volatile long errores;
+    private volatile long checkpoint;
+    private volatile long autoresCreados;
+    private volatile long editorialesCreadas;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private volatile Date inicio;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private volatile Date fin;
+    private volatile String mensaje;
+
+    public Importacion(String id, String archivo, FormatoImportacion formato) {
+        this.id = id;
+        this.archivo = archivo;
+        this.formato = formato;
+        this.estado = EstadoImportacion.PENDIENTE;
+        this.inicio = new Date();
+    }
+
+    // ------------------------------ PROGRESO ------------------------------
+    void enCurso() {
+        estado = EstadoImportacion.EN_CURSO;
+        fin = null;
+        mensaje = null;
+    }
+
+    void pendiente() {
+        estado = EstadoImportacion.PENDIENTE;
+    }
+
+    /**
+     * Registra un lote ya guardado en la DB.
+     *
+     * @param leidas filas leídas (válidas o no)
+     * @param guardados libros guardados
+     * @param conError filas con error
+     * @param ultimaFila número de la última fila del lote
+     * @param autores autores creados
+     * @param editoriales editoriales creadas
+     */
+    void lote(long leidas, long guardados, long conError, long ultimaFila, long autores, long editoriales) {
+        filasLeidas += leidas;
+        importados += guardados;
+        errores += conError;
+        checkpoint = ultimaFila;
+        autoresCreados += autores;
+        editorialesCreadas += editoriales;
+    }
+
+    void terminar(EstadoImportacion estadoFinal, String mensaje) {
+        this.estado = estadoFinal;
+        this.mensaje = mensaje;
+        this.fin = new Date();
+    }
+
+    // ------------------------------ PERSISTENCIA ------------------------------
+    Properties aPropiedades() {
+        Properties propiedades = new Properties();
+        propiedades.setProperty("id", id);
+        propiedades.setProperty("archivo", archivo);
+        propiedades.setProperty("formato", formato.name());
+        propiedades.setProperty("estado", estado.name());
+        propiedades.setProperty("filasLeidas", String.valueOf(filasLeidas));
+        propiedades.setProperty("importados", String.valueOf(importados));
+        propiedades.setProperty("errores", String.valueOf(errores));
+        propiedades.setProperty("checkpoint", String.valueOf(checkpoint));
+        propiedades.setProperty("autoresCreados", String.valueOf(autoresCreados));
+        propiedades.setProperty("editorialesCreadas", String.valueOf(editorialesCreadas));
+        propiedades.setProperty("inicio", String.valueOf(inicio.getTime()));
+        if (fin != null) {
+            propiedades.setProperty("fin", String.valueOf(fin.getTime()));
+        }
+        if (mensaje != null) {
+            propiedades.setProperty("mensaje", mensaje);
+        }
+        return propiedades;
+    }
+
+    static Importacion dePropiedades(Properties propiedades) {
+        Importacion importacion = new Importacion(propiedades.getProperty("id"), propiedades.getProperty("archivo"),
+                FormatoImportacion.valueOf(propiedades.getProperty("formato")));
+        importacion.estado = EstadoImportacion.valueOf(propiedades.getProperty("estado"));
+        importacion.filasLeidas = Long.parseLong(propiedades.getProperty("filasLeidas", "0"));
+        importacion.importados = Long.parseLong(propiedades.getProperty("importados", "0"));
+        importacion.errores = Long.parseLong(propiedades.getProperty("errores", "0"));
+        importacion.checkpoint = Long.parseLong(propiedades.getProperty("checkpoint", "0"));
+        importacion.autoresCreados = Long.parseLong(propiedades.getProperty("autoresCreados", "0"));
+        importacion.editorialesCreadas = Long.parseLong(propiedades.getProperty("editorialesCreadas", "0"));
+        importacion.inicio = new Date(Long.parseLong(propiedades.getProperty("inicio")));
+        String fin = propiedades.getProperty("fin");
+        importacion.fin = fin == null ? null : new Date(Long.parseLong(fin));
+        importacion.mensaje = propiedades.getProperty("mensaje");
+        return importacion;
+    }
+
+    // ------------------------------ GETTERS ------------------------------
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return nombre del archivo subido
+     */
+    public String getArchivo() {
+        return archivo;
+    }
+
+    public FormatoImportacion getFormato() {
+        return formato;
+    }
+
+    public EstadoImportacion getEstado() {
+        return estado;
+    }
+
+    public long getFilasLeidas() {
+        return filasLeidas;
+    }
+
+    public long getImportados() {
+        return importados;
+    }
+
+    public long getErrores() {
+        return errores;
+    }
+
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    public long getAutoresCreados() {
+        return autoresCreados;
+    }
+
+    public long getEditorialesCreadas() {
+        return editorialesCreadas;
+    }
+
+    public Date getInicio() {
+        return inicio;
+    }
+
+    public Date getFin() {
+        return fin;
+    }
+
+    /**
+     * @return el motivo si la importación falló o se interrumpió
+     */
+    public String getMensaje() {
+        return mensaje;
+    }
+
+    /**
+     * @return true si se puede reanudar
+     */
+    public boolean isReanudable() {
+        return estado.reanudable();
+    }
+
+}
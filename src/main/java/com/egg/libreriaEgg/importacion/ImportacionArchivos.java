@@ -0,0 +1,173 @@
+package com.egg.libreriaEgg.importacion;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Archivos de las importaciones, en una carpeta: por cada una, el archivo
+ * importado ([id].csv o [id].json), su estado ([id].properties) y el reporte
+ * de errores ([id]-errores.csv). Cada cambio de estado de una importación se
+ * hace a través de esta clase, que lo guarda en el .properties.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class ImportacionArchivos {
+
+    private static final Logger LOG = Logger.getLogger(ImportacionArchivos.class.getName());
+    private static final String ENCABEZADO_ERRORES = "fila,isbn,titulo,error\n";
+
+    private final Path carpeta;
+
+    public ImportacionArchivos(String directorio) throws IOException {
+        this.carpeta = Paths.get(directorio);
+        Files.createDirectories(carpeta);
+    }
+
+    /**
+     * Lee el estado de todas las importaciones guardadas.
+     *
+     * @return
+     * @throws IOException
+     */
+    public List<Importacion> cargar() throws IOException {
+        List<Importacion> importaciones = new ArrayList<>();
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(carpeta, "*.properties")) {
+            for (Path archivo : archivos) {
+                try (Reader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+                    Properties propiedades = new Properties();
+                    propiedades.load(lector);
+                    importaciones.add(Importacion.dePropiedades(propiedades));
+                } catch (IOException | RuntimeException e) {
+                    LOG.log(Level.WARNING, "No se pudo leer la importación " + archivo, e);
+                }
+            }
+        }
+        return importaciones;
+    }
+
+    /**
+     * Guarda el archivo a importar, el estado inicial y el encabezado del
+     * reporte de errores.
+     *
+     * @param importacion
+     * @param contenido
+     * @throws IOException
+     */
+    public void crear(Importacion importacion, InputStream contenido) throws IOException {
+        Files.copy(contenido, datos(importacion), StandardCopyOption.REPLACE_EXISTING);
+        Files.write(errores(importacion.getId()), ENCABEZADO_ERRORES.getBytes(StandardCharsets.UTF_8));
+        guardar(importacion);
+    }
+
+    /**
+     * @param importacion
+     * @return el archivo importado
+     */
+    public Path datos(Importacion importacion) {
+        return carpeta.resolve(importacion.getId() + "." + importacion.getFormato().name().toLowerCase());
+    }
+
+    /**
+     * @param id
+     * @return el reporte de errores (CSV)
+     */
+    public Path errores(String id) {
+        return carpeta.resolve(id + "-errores.csv");
+    }
+
+    /**
+     * Abre el reporte de errores para agregarle filas.
+     *
+     * @param id
+     * @return
+     * @throws IOException
+     */
+    public Writer escribirErrores(String id) throws IOException {
+        return Files.newBufferedWriter(errores(id), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Una línea del reporte de errores.
+     *
+     * @param fila
+     * @param error
+     * @return
+     */
+    public static String lineaError(FilaLibro fila, String error) {
+        return fila.getNumero() + "," + (fila.getIsbn() == null ? "" : fila.getIsbn()) + ","
+                + csv(fila.getTitulo()) + "," + csv(error) + "\n";
+    }
+
+    private static String csv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return "\"" + valor.replace("\"", "\"\"") + "\"";
+    }
+
+    // ------------------------------ ESTADO ------------------------------
+    public void pendiente(Importacion importacion) {
+        importacion.pendiente();
+        guardar(importacion);
+    }
+
+    public void enCurso(Importacion importacion) {
+        importacion.enCurso();
+        guardar(importacion);
+    }
+
+    /**
+     * Registra un lote ya guardado en la DB (ver Importacion.lote()).
+     */
+    public void lote(Importacion importacion, long leidas, long guardados, long conError, long ultimaFila, long autores, long editoriales) {
+        importacion.lote(leidas, guardados, conError, ultimaFila, autores, editoriales);
+        guardar(importacion);
+    }
+
+    public void interrumpida(Importacion importacion, String mensaje) {
+        terminar(importacion, EstadoImportacion.INTERRUMPIDA, mensaje);
+    }
+
+    public void terminar(Importacion importacion, EstadoImportacion estado, String mensaje) {
+        importacion.terminar(estado, mensaje);
+        guardar(importacion);
+    }
+
+    /**
+     * Guarda el estado en [id].properties. Se escribe en un archivo temporal
+     * y se lo renombra, para no dejar un estado a medio escribir.
+     *
+     * @param importacion
+     */
+    private void guardar(Importacion importacion) {
+        Path destino = carpeta.resolve(importacion.getId() + ".properties");
+        Path temporal = carpeta.resolve(importacion.getId() + ".properties.tmp");
+        try {
+            try (Writer escritor = Files.newBufferedWriter(temporal, StandardCharsets.UTF_8)) {
+                importacion.aPropiedades().store(escritor, null);
+            }
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo guardar el estado de la importación " + importacion.getId(), e);
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.egg.libreriaEgg.importacion;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Lee un CSV (RFC 4180: los valores pueden ir entre comillas, con comillas
+ * dobles y saltos de línea dentro). La primera fila son los nombres de las
+ * columnas; el separador ("," o ";") se toma de esa fila.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+class LectorCsv implements LectorFilas {
+
+    private static final char BOM = '\uFEFF';
+
+    private final BufferedReader entrada;
+    private final char separador;
+    private final Map<String, Integer> columnas = new HashMap<>();
+    private long numero;
+    private List<String> siguiente;
+
+    LectorCsv(Path archivo) throws IOException {
+        entrada = Files.newBufferedReader(archivo, StandardCharsets.UTF_8);
+        entrada.mark(1);
+        if (entrada.read() != BOM) {
+            entrada.reset();
+        }
+        entrada.mark(64 * 1024);
+        String primeraLinea = entrada.readLine();
+        entrada.reset();
+        separador = primeraLinea != null && primeraLinea.indexOf(';') >= 0 && primeraLinea.indexOf(',') < 0 ? ';' : ',';
+        List<String> encabezado = leerRegistro();
+        if (encabezado == null) {
+            throw new IOException("El archivo está vacío.");
+        }
+        for (int i = 0; i < encabezado.size(); i++) {
+            String nombre = encabezado.get(i).trim().toLowerCase();
+            columnas.put(nombre.equals("año") ? "anio" : nombre, i);
+        }
+        for (String campo : FilaLibro.CAMPOS) {
+            if (!columnas.containsKey(campo)) {
+                throw new IOException("Falta la columna '" + campo + "'.");
+            }
+        }
+        siguiente = leerRegistro();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return siguiente != null;
+    }
+
+    @Override
+    public FilaLibro next() {
+        if (siguiente == null) {
+            throw new NoSuchElementException();
+        }
+        List<String> valores = siguiente;
+        numero++;
+        try {
+            siguiente = leerRegistro();
+        } catch (IOException e) {
+            siguiente = null;
+            return FilaLibro.conError(numero, "No se pudo leer el archivo: " + e.getMessage());
+        }
+        return FilaLibro.de(numero, campo -> {
+            Integer columna = columnas.get(campo);
+            return columna == null || columna >= valores.size() ? null : valores.get(columna);
+        });
+    }
+
+    /**
+     * Lee el próximo registro (que puede ocupar varias líneas si tiene saltos
+     * de línea entre comillas). Se saltean las líneas vacías.
+     *
+     * @return los valores, o null al final del archivo
+     * @throws IOException
+     */
+    private List<String> leerRegistro() throws IOException {
+        List<String> valores = new ArrayList<>();
+        StringBuilder valor = new StringBuilder();
+        boolean entreComillas = false;
+        boolean leyo = false;
+        int c;
+        while ((c = entrada.read()) != -1) {
+            leyo = true;
+            char caracter = (char) c;
+            if (entreComillas) {
+                if (caracter == '"') {
+                    entrada.mark(1);
+                    int proximo = entrada.read();
+                    if (proximo == '"') {
+                        valor.append('"');
+                    } else {
+                        entreComillas = false;
+                        if (proximo != -1) {
+                            entrada.reset();
+                        }
+                    }
+                } else {
+                    valor.append(caracter);
+                }
+            } else if (caracter == '"') {
+                entreComillas = true;
+            } else if (caracter == separador) {
+                valores.add(valor.toString());
+                valor.setLength(0);
+            } else if (caracter == '\n' || caracter == '\r') {
+                if (caracter == '\r') {
+                    entrada.mark(1);
+                    if (entrada.read() != '\n') {
+                        entrada.reset();
+                    }
+                }
+                if (valores.isEmpty() && valor.length() == 0) {
+                    // Línea vacía.
+                    leyo = false;
+                    continue;
+                }
+                break;
+            } else {
+                valor.append(caracter);
+            }
+        }
+        if (!leyo) {
+            return null;
+        }
+        valores.add(valor.toString());
+        return valores;
+    }
+
+    @Override
+    public void close() throws IOException {
+        entrada.close();
+    }
+
+}
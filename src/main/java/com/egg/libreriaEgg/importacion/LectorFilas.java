@@ -0,0 +1,37 @@
+package com.egg.libreriaEgg.importacion;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Lee un archivo de importación de a una fila por vez, sin cargarlo entero en
+ * memoria.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public interface LectorFilas extends Iterator<FilaLibro>, Closeable {
+
+    /**
+     * Abre un archivo con el lector que corresponde a su formato.
+     *
+     * @param archivo
+     * @param formato
+     * @param objectMapper (para JSON)
+     * @return
+     * @throws IOException
+     */
+    public static LectorFilas abrir(Path archivo, FormatoImportacion formato, ObjectMapper objectMapper) throws IOException {
+        switch (formato) {
+            case CSV:
+                return new LectorCsv(archivo);
+            case JSON:
+                return new LectorJson(archivo, objectMapper);
+            default:
+                throw new IllegalArgumentException("Formato no soportado: " + formato);
+        }
+    }
+
+}
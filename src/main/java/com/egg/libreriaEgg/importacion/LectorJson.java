@@ -0,0 +1,63 @@
+package com.egg.libreriaEgg.importacion;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+
+/**
+ * Lee un array JSON de libros, o un libro por línea (NDJSON), de a un objeto
+ * por vez. Cada objeto se lee como árbol y se convierte con las mismas reglas
+ * que el CSV, así un valor inválido sólo invalida su fila.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+class LectorJson implements LectorFilas {
+
+    private final MappingIterator<JsonNode> objetos;
+    private long numero;
+
+    LectorJson(Path archivo, ObjectMapper objectMapper) throws IOException {
+        // Si el archivo es un array, MappingIterator recorre sus elementos.
+        objetos = objectMapper.readerFor(JsonNode.class).readValues(Files.newInputStream(archivo));
+    }
+
+    @Override
+    public boolean hasNext() {
+        return objetos.hasNext();
+    }
+
+    @Override
+    public FilaLibro next() {
+        if (!objetos.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        numero++;
+        JsonNode objeto;
+        try {
+            objeto = objetos.next();
+        } catch (RuntimeException e) {
+            // JSON mal formado; no se puede seguir leyendo.
+            throw new IllegalStateException("JSON no válido cerca del libro " + numero + ": " + e.getMessage(), e);
+        }
+        if (!objeto.isObject()) {
+            return FilaLibro.conError(numero, "Se esperaba un objeto JSON.");
+        }
+        return FilaLibro.de(numero, campo -> {
+            JsonNode valor = objeto.get(campo);
+            if (valor == null && campo.equals("anio")) {
+                valor = objeto.get("año");
+            }
+            return valor == null || valor.isNull() ? null : valor.asText();
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        objetos.close();
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.egg.libreriaEgg.metricas;
+
+import com.egg.libreriaEgg.servicios.CatalogoCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publica las estadísticas de la CatalogoCache: aciertos, fallos y desalojos
+ * (contadores), y tamaño, máximo y versión del catálogo (gauges).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Component
+public class CatalogoCacheMetricas implements MeterBinder {
+
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("libreria.catalogo.cache.aciertos", catalogoCache, CatalogoCache::getAciertos)
+                .description("Lecturas del catálogo resueltas por la cache")
+                .register(registry);
+        FunctionCounter.builder("libreria.catalogo.cache.fallos", catalogoCache, CatalogoCache::getFallos)
+                .description("Lecturas del catálogo que fueron a la DB")
+                .register(registry);
+        FunctionCounter.builder("libreria.catalogo.cache.desalojos", catalogoCache, CatalogoCache::getDesalojos)
+                .description("Entradas quitadas por superar el máximo")
+                .register(registry);
+        Gauge.builder("libreria.catalogo.cache.tamanio", catalogoCache, CatalogoCache::getTamanio)
+                .description("Entradas guardadas en la cache")
+                .register(registry);
+        Gauge.builder("libreria.catalogo.cache.max", catalogoCache, CatalogoCache::getMaxEntradas)
+                .description("Máximo de entradas de la cache")
+                .register(registry);
+        Gauge.builder("libreria.catalogo.version", catalogoCache, CatalogoCache::getVersion)
+                .description("Versión del catálogo (cambia con cada modificación)")
+                .register(registry);
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.egg.libreriaEgg.metricas;
+
+import java.util.Map;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registra en Hibernate el ConsultasInspector y el ConsultasSessionListener,
+ * con los que se cuentan y miden las consultas de cada petición.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Component
+public class ConsultasHibernate implements HibernatePropertiesCustomizer {
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, new ConsultasInspector());
+        hibernateProperties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, ConsultasSessionListener.class.getName());
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.egg.libreriaEgg.metricas;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Cuenta cada consulta que Hibernate prepara en la petición en curso (no
+ * modifica el SQL).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class ConsultasInspector implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public String inspect(String sql) {
+        ConsultasPeticion peticion = ConsultasPeticion.actual();
+        if (peticion != null) {
+            peticion.preparada(sql);
+        }
+        return sql;
+    }
+
+}
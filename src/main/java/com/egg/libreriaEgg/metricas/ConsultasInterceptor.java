@@ -0,0 +1,142 @@
+package com.egg.libreriaEgg.metricas;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Cuenta las consultas SQL de cada petición (incluidas las que se hacen al
+ * renderizar la vista) y las registra por método del controlador:
+ * "libreria.peticion.consultas" (cantidad) y "libreria.peticion.db" (tiempo
+ * total en la DB), con el tag "handler" (por ejemplo
+ * "LibroController.modificarLibro").
+ *
+ * Cada handler tiene un presupuesto de consultas y de tiempo en la DB. Si una
+ * petición lo supera, se escribe un aviso en el log con la consulta más lenta
+ * y se incrementa "libreria.peticion.excesos" (tags "handler" y "motivo"). Los
+ * presupuestos por defecto son consultas.presupuesto.maximo y
+ * consultas.presupuesto.tiempo-ms, y se pueden cambiar para un handler con
+ * consultas.presupuesto.[handler].maximo y .tiempo-ms.
+ *
+ * Además, cada ejecución que tarde más de consultas.lenta-ms se cuenta en
+ * "libreria.consultas.lentas" y se avisa en el log (hasta
+ * ConsultasPeticion.MAXIMO_LENTAS por petición).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Component
+public class ConsultasInterceptor implements AsyncHandlerInterceptor {
+
+    private static final Logger LOG = Logger.getLogger(ConsultasInterceptor.class.getName());
+    private static final String PRESUPUESTO = "consultas.presupuesto.";
+    // Largo máximo del SQL que se escribe en el log:
+    private static final int LARGO_SQL = 500;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${consultas.presupuesto.maximo:20}")
+    private int maximoPorDefecto;
+
+    @Value("${consultas.presupuesto.tiempo-ms:500}")
+    private long tiempoPorDefecto;
+
+    @Value("${consultas.lenta-ms:200}")
+    private long lentaMs;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            ConsultasPeticion.iniciar(TimeUnit.MILLISECONDS.toNanos(lentaMs));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // La respuesta sigue en otro hilo; acá no se puede medir completa.
+        ConsultasPeticion.terminar();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ConsultasPeticion peticion = ConsultasPeticion.terminar();
+        if (peticion == null || !(handler instanceof HandlerMethod)) {
+            return;
+        }
+        HandlerMethod metodo = (HandlerMethod) handler;
+        String nombre = metodo.getBeanType().getSimpleName() + "." + metodo.getMethod().getName();
+        registrar(nombre, peticion);
+    }
+
+    /**
+     * Registra las métricas de la petición y avisa si superó su presupuesto o
+     * si tuvo consultas lentas.
+     *
+     * @param handler
+     * @param peticion
+     */
+    private void registrar(String handler, ConsultasPeticion peticion) {
+        DistributionSummary.builder("libreria.peticion.consultas")
+                .description("Consultas SQL por petición")
+                .tag("handler", handler)
+                .register(registry)
+                .record(peticion.getConsultas());
+        Timer.builder("libreria.peticion.db")
+                .description("Tiempo en la DB por petición")
+                .tag("handler", handler)
+                .register(registry)
+                .record(peticion.getNanosTotal(), TimeUnit.NANOSECONDS);
+
+        int maximo = environment.getProperty(PRESUPUESTO + handler + ".maximo", Integer.class, maximoPorDefecto);
+        long tiempoMs = environment.getProperty(PRESUPUESTO + handler + ".tiempo-ms", Long.class, tiempoPorDefecto);
+        long ms = TimeUnit.NANOSECONDS.toMillis(peticion.getNanosTotal());
+        if (peticion.getConsultas() > maximo) {
+            exceso(handler, "consultas");
+            LOG.warning(handler + " hizo " + peticion.getConsultas() + " consultas (presupuesto: " + maximo + "). Más lenta: " + sql(peticion));
+        }
+        if (ms > tiempoMs) {
+            exceso(handler, "tiempo");
+            LOG.warning(handler + " estuvo " + ms + " ms en la DB (presupuesto: " + tiempoMs + " ms). Más lenta: " + sql(peticion));
+        }
+        if (peticion.getCantidadLentas() > 0) {
+            registry.counter("libreria.consultas.lentas", "handler", handler).increment(peticion.getCantidadLentas());
+            for (ConsultasPeticion.Lenta lenta : peticion.getLentas()) {
+                LOG.warning("Consulta lenta en " + handler + " (" + TimeUnit.NANOSECONDS.toMillis(lenta.getNanos()) + " ms): " + recortar(lenta.getSql()));
+            }
+            int omitidas = peticion.getCantidadLentas() - peticion.getLentas().size();
+            if (omitidas > 0) {
+                LOG.warning(handler + " tuvo otras " + omitidas + " consultas lentas.");
+            }
+        }
+    }
+
+    private void exceso(String handler, String motivo) {
+        registry.counter("libreria.peticion.excesos", "handler", handler, "motivo", motivo).increment();
+    }
+
+    private String sql(ConsultasPeticion peticion) {
+        return recortar(peticion.getMasLenta());
+    }
+
+    private String recortar(String sql) {
+        if (sql == null) {
+            return "-";
+        }
+        return sql.length() > LARGO_SQL ? sql.substring(0, LARGO_SQL) + "..." : sql;
+    }
+
+}
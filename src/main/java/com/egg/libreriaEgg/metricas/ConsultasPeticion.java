@@ -0,0 +1,157 @@
+package com.egg.libreriaEgg.metricas;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Consultas SQL ejecutadas durante una petición HTTP: cantidad, tiempo total
+ * en la DB, la consulta más lenta y cada ejecución que superó el umbral de
+ * consulta lenta (se guardan las primeras MAXIMO_LENTAS, pero se cuentan
+ * todas).
+ *
+ * La petición en curso se guarda en un ThreadLocal (ConsultasInterceptor la
+ * abre y la cierra); ConsultasInspector y ConsultasSessionListener, que
+ * Hibernate llama en el mismo hilo, le van sumando cada consulta. Lo que se
+ * ejecuta en otros hilos (miniaturas, migraciones) no se cuenta.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class ConsultasPeticion {
+
+    private static final ThreadLocal<ConsultasPeticion> ACTUAL = new ThreadLocal<>();
+    // Cuántas consultas lentas se guardan (para el log) por petición:
+    static final int MAXIMO_LENTAS = 10;
+
+    private final long nanosLenta;
+    private int consultas;
+    private long nanosTotal;
+    private long nanosMasLenta;
+    private String masLenta;
+    private int cantidadLentas;
+    private final List<Lenta> lentas = new ArrayList<>();
+    // Consulta preparada más reciente (la que se está por ejecutar):
+    private String ultima;
+    private long inicioEjecucion;
+
+    private ConsultasPeticion(long nanosLenta) {
+        this.nanosLenta = nanosLenta;
+    }
+
+    /**
+     * Empieza a contar las consultas del hilo actual.
+     *
+     * @param nanosLenta a partir de cuánto una ejecución es lenta
+     * @return
+     */
+    public static ConsultasPeticion iniciar(long nanosLenta) {
+        ConsultasPeticion peticion = new ConsultasPeticion(nanosLenta);
+        ACTUAL.set(peticion);
+        return peticion;
+    }
+
+    /**
+     * @return las consultas de la petición en curso en este hilo, o null si
+     * no hay ninguna.
+     */
+    public static ConsultasPeticion actual() {
+        return ACTUAL.get();
+    }
+
+    /**
+     * Deja de contar y devuelve lo que se contó (o null).
+     *
+     * @return
+     */
+    public static ConsultasPeticion terminar() {
+        ConsultasPeticion peticion = ACTUAL.get();
+        ACTUAL.remove();
+        return peticion;
+    }
+
+    void preparada(String sql) {
+        consultas++;
+        ultima = sql;
+    }
+
+    void inicioEjecucion() {
+        inicioEjecucion = System.nanoTime();
+    }
+
+    void finEjecucion() {
+        if (inicioEjecucion == 0) {
+            return;
+        }
+        long nanos = System.nanoTime() - inicioEjecucion;
+        inicioEjecucion = 0;
+        nanosTotal += nanos;
+        if (nanos > nanosMasLenta) {
+            nanosMasLenta = nanos;
+            masLenta = ultima;
+        }
+        if (nanos > nanosLenta) {
+            cantidadLentas++;
+            if (lentas.size() < MAXIMO_LENTAS) {
+                lentas.add(new Lenta(ultima, nanos));
+            }
+        }
+    }
+
+    public int getConsultas() {
+        return consultas;
+    }
+
+    public long getNanosTotal() {
+        return nanosTotal;
+    }
+
+    public long getNanosMasLenta() {
+        return nanosMasLenta;
+    }
+
+    public String getMasLenta() {
+        return masLenta;
+    }
+
+    /**
+     * @return cuántas ejecuciones superaron el umbral de consulta lenta.
+     */
+    public int getCantidadLentas() {
+        return cantidadLentas;
+    }
+
+    /**
+     * @return las primeras consultas lentas, en el orden en que se ejecutaron.
+     */
+    public List<Lenta> getLentas() {
+        return Collections.unmodifiableList(lentas);
+    }
+
+    @Override
+    public String toString() {
+        return "ConsultasPeticion{" + "consultas=" + consultas + ", ms=" + nanosTotal / 1000000 + ", msMasLenta=" + nanosMasLenta / 1000000 + ", masLenta=" + masLenta + ", lentas=" + cantidadLentas + '}';
+    }
+
+    /**
+     * Una ejecución que superó el umbral de consulta lenta.
+     */
+    public static final class Lenta {
+
+        private final String sql;
+        private final long nanos;
+
+        private Lenta(String sql, long nanos) {
+            this.sql = sql;
+            this.nanos = nanos;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.egg.libreriaEgg.metricas;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Mide el tiempo de ejecución de cada consulta en la DB y se lo suma a la
+ * petición en curso. Hibernate crea uno por sesión (ver ConsultasHibernate).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class ConsultasSessionListener extends BaseSessionEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        iniciar();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        terminar();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        iniciar();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        terminar();
+    }
+
+    private void iniciar() {
+        ConsultasPeticion peticion = ConsultasPeticion.actual();
+        if (peticion != null) {
+            peticion.inicioEjecucion();
+        }
+    }
+
+    private void terminar() {
+        ConsultasPeticion peticion = ConsultasPeticion.actual();
+        if (peticion != null) {
+            peticion.finEjecucion();
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.egg.libreriaEgg.metricas;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mide el tiempo de todos los métodos públicos de los servicios (las clases
+ * *Servicio). Cada llamada se registra en el timer "libreria.servicios" con
+ * la clase, el método y la excepción (o "none" si terminó bien), y con
+ * histograma, para poder calcular percentiles en Prometheus.
+ *
+ * Las consultas de los repositorios de Spring Data ya las mide Spring Boot
+ * (timer "spring.data.repository.invocations").
+ *
+ * Sólo se miden las llamadas que pasan por el proxy del servicio: las
+ * llamadas de un método a otro del mismo servicio quedan dentro del tiempo
+ * del primero.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Aspect
+@Component
+public class ServiciosAspecto {
+
+    public static final String TIMER = "libreria.servicios";
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Around("execution(public * com.egg.libreriaEgg.servicios.*Servicio.*(..))")
+    public Object medir(ProceedingJoinPoint punto) throws Throwable {
+        Timer.Sample muestra = Timer.start(registry);
+        String excepcion = "none";
+        try {
+            return punto.proceed();
+        } catch (Throwable t) {
+            excepcion = t.getClass().getSimpleName();
+            throw t;
+        } finally {
+            muestra.stop(Timer.builder(TIMER)
+                    .description("Tiempo de los métodos de los servicios")
+                    .tag("clase", punto.getSignature().getDeclaringType().getSimpleName())
+                    .tag("metodo", punto.getSignature().getName())
+                    .tag("excepcion", excepcion)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+}
@@ -2,8 +2,10 @@ package com.egg.libreriaEgg.repositorios;
 
 import com.egg.libreriaEgg.entidades.Autor;
 import java.util.List;
+import javax.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -26,7 +28,14 @@ public interface AutorRepositorio extends JpaRepository<Autor, String> {
     public Autor buscarPorNombre(@Param("nombre") String nombre);
     
     // Método que devuelve todos los autores, ordenados alfabéticamente.
+    // (Se guarda en la cache de consultas de Hibernate.)
     @Query("SELECT a FROM Autor a ORDER BY a.nombre ASC")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     @Override
     public List<Autor> findAll();
+
+    // Devuelve nombre, id y alta de todos (sin cargar las entidades), para
+    // resolver los nombres de un archivo de importación:
+    @Query("SELECT a.nombre, a.id, a.alta FROM Autor a")
+    public List<Object[]> nombresEIds();
 }
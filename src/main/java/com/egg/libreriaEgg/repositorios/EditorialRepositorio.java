@@ -2,8 +2,11 @@ package com.egg.libreriaEgg.repositorios;
 
 import com.egg.libreriaEgg.entidades.Editorial;
 import java.util.List;
+import javax.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -26,7 +29,20 @@ public interface EditorialRepositorio extends JpaRepository<Editorial, String> {
     public Editorial buscarPorNombre(@Param("nombre") String nombre);
     
     // Método que devuelve todos las editoriales, ordenadas alfabéticamente.
+    // (Se guarda en la cache de consultas de Hibernate.)
     @Query("SELECT e FROM Editorial e ORDER BY e.nombre ASC")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     @Override
     public List<Editorial> findAll();
+
+    // Devuelve nombre, id y alta de todos (sin cargar las entidades), para
+    // resolver los nombres de un archivo de importación:
+    @Query("SELECT e.nombre, e.id, e.alta FROM Editorial e")
+    public List<Object[]> nombresEIds();
+
+    // Da de alta las editoriales dadas de baja de los libros de un Autor,
+    // cuando se da de alta el Autor (ver LibroServicio.altaPorAutor):
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Editorial e SET e.alta = true WHERE e.alta = false AND e.id IN (SELECT lib.editorial.id FROM Libro lib WHERE lib.autor.id = :idAutor)")
+    public int altaPorAutor(@Param("idAutor") String idAutor);
 }
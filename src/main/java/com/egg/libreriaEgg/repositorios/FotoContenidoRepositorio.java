@@ -0,0 +1,212 @@
+package com.egg.libreriaEgg.repositorios;
+
+import com.egg.libreriaEgg.ids.IdBinario;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * (FotoContenidoRepositorio) lee el contenido de las fotos de a bloques, sin
+ * cargar nunca el archivo completo en memoria. Cada bloque se pide con
+ * SUBSTRING sobre la columna LOB, de modo que la memoria usada por una
+ * descarga queda acotada al tamaño de un bloque, sin importar el tamaño de la
+ * foto (el driver de MySQL trae cada fila completa, por eso no alcanza con
+ * pedir el LOB como stream).
+ *
+ * Cada bloque se pide también por el hash del contenido que se empezó a leer:
+ * si la foto se reemplaza (o se borra) a mitad de la lectura, la lectura
+ * falla en lugar de mezclar bloques de dos contenidos distintos.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Repository
+public class FotoContenidoRepositorio {
+
+    // Los ids se guardan como BINARY(16) (ver IdBinario).
+    private static final String SQL_BLOQUE = "SELECT SUBSTRING(contenido, ?, ?) FROM foto WHERE id = ? AND hash = ?";
+    // Las fotos guardadas antes de que existiera el hash:
+    private static final String SQL_BLOQUE_SIN_HASH = "SELECT SUBSTRING(contenido, ?, ?) FROM foto WHERE id = ? AND hash IS NULL";
+    private static final String SQL_TAMANIO = "SELECT LENGTH(contenido) FROM foto WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${foto.bloque-bytes:262144}")
+    private int bloqueBytes;
+
+    /**
+     * Devuelve el contenido de una foto como un Resource que se lee de a
+     * bloques. Si no se conoce el tamaño, se consulta a la DB.
+     *
+     * @param idFoto
+     * @param hash el hash del contenido que se quiere leer (null en las fotos
+     * que todavía no lo tienen)
+     * @param tamanio (puede ser null)
+     * @param nombre
+     * @return
+     */
+    public Resource abrir(String idFoto, String hash, Long tamanio, String nombre) {
+        long largo = tamanio != null ? tamanio : tamanio(idFoto);
+        return new ContenidoResource(idFoto, hash, largo, nombre);
+    }
+
+    /**
+     * Devuelve el tamaño en bytes del contenido de una foto.
+     *
+     * @param idFoto
+     * @return
+     */
+    public long tamanio(String idFoto) {
+        Long largo = jdbcTemplate.queryForObject(SQL_TAMANIO, Long.class, (Object) IdBinario.aBytes(idFoto));
+        return largo != null ? largo : 0L;
+    }
+
+    /**
+     * Lee un bloque del contenido. "desde" empieza en 0.
+     *
+     * @param idFoto
+     * @param hash
+     * @param desde
+     * @param largo
+     * @return el bloque, o null si la foto ya no tiene ese contenido
+     */
+    private byte[] bloque(String idFoto, String hash, long desde, int largo) {
+        // En SQL, SUBSTRING empieza a contar desde 1:
+        List<byte[]> bloques = hash != null
+                ? jdbcTemplate.query(SQL_BLOQUE, (fila, n) -> fila.getBytes(1), desde + 1, largo, IdBinario.aBytes(idFoto), hash)
+                : jdbcTemplate.query(SQL_BLOQUE_SIN_HASH, (fila, n) -> fila.getBytes(1), desde + 1, largo, IdBinario.aBytes(idFoto));
+        return bloques.isEmpty() ? null : bloques.get(0);
+    }
+
+    /**
+     * Resource con el contenido de una foto. Conoce su tamaño de antemano, así
+     * Spring puede responder peticiones con Range sin leer la foto completa.
+     */
+    private class ContenidoResource extends AbstractResource {
+
+        private final String idFoto;
+        private final String hash;
+        private final long tamanio;
+        private final String nombre;
+
+        ContenidoResource(String idFoto, String hash, long tamanio, String nombre) {
+            this.idFoto = idFoto;
+            this.hash = hash;
+            this.tamanio = tamanio;
+            this.nombre = nombre;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new ContenidoInputStream(idFoto, hash, tamanio);
+        }
+
+        @Override
+        public long contentLength() {
+            return tamanio;
+        }
+
+        @Override
+        public String getFilename() {
+            return nombre;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Contenido de la foto [" + idFoto + "]";
+        }
+    }
+
+    /**
+     * InputStream que pide el contenido a la DB de a un bloque por vez. El
+     * "skip" sólo avanza la posición, sin leer lo salteado.
+     */
+    private class ContenidoInputStream extends InputStream {
+
+        private final String idFoto;
+        private final String hash;
+        private final long tamanio;
+        private long posicion;
+        private byte[] bloque = new byte[0];
+        private int posicionBloque;
+
+        ContenidoInputStream(String idFoto, String hash, long tamanio) {
+            this.idFoto = idFoto;
+            this.hash = hash;
+            this.tamanio = tamanio;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!cargar()) {
+                return -1;
+            }
+            posicion++;
+            return bloque[posicionBloque++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] destino, int desde, int largo) throws IOException {
+            if (largo == 0) {
+                return 0;
+            }
+            if (!cargar()) {
+                return -1;
+            }
+            int leidos = Math.min(largo, bloque.length - posicionBloque);
+            System.arraycopy(bloque, posicionBloque, destino, desde, leidos);
+            posicionBloque += leidos;
+            posicion += leidos;
+            return leidos;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long salteados = Math.max(0, Math.min(n, tamanio - posicion));
+            posicion += salteados;
+            // Se descarta el bloque actual; el próximo read pide el que corresponda.
+            bloque = new byte[0];
+            posicionBloque = 0;
+            return salteados;
+        }
+
+        @Override
+        public int available() {
+            return bloque.length - posicionBloque;
+        }
+
+        /**
+         * Se asegura de que haya bytes pendientes en el bloque actual.
+         *
+         * @return false si se llegó al final del contenido.
+         * @throws IOException si la foto cambió o se borró, o si el contenido
+         * es más corto que el tamaño esperado
+         */
+        private boolean cargar() throws IOException {
+            if (posicionBloque < bloque.length) {
+                return true;
+            }
+            if (posicion >= tamanio) {
+                return false;
+            }
+            int largo = (int) Math.min(bloqueBytes, tamanio - posicion);
+            byte[] leido = bloque(idFoto, hash, posicion, largo);
+            if (leido == null) {
+                throw new IOException("La foto " + idFoto + " cambió o se borró mientras se leía.");
+            }
+            if (leido.length == 0) {
+                throw new IOException("El contenido de la foto " + idFoto + " terminó antes de los " + tamanio + " bytes esperados.");
+            }
+            bloque = leido;
+            posicionBloque = 0;
+            return true;
+        }
+    }
+
+}
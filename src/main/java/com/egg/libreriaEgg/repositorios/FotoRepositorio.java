@@ -1,7 +1,17 @@
 package com.egg.libreriaEgg.repositorios;
 
+import com.egg.libreriaEgg.dto.FotoMetadatos;
 import com.egg.libreriaEgg.entidades.Foto;
+import java.sql.Blob;
+import java.util.Date;
+import java.util.List;
+import javax.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -17,4 +27,52 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface FotoRepositorio extends JpaRepository<Foto, String> {
 
+    // Los datos de las fotos se guardan en la cache de consultas de Hibernate
+    // (la entidad Foto no, porque tiene el contenido). Se invalidan al
+    // modificar cualquier foto (o el libro/usuario, según la consulta).
+
+    // Devuelve los datos (sin el contenido) de la foto de portada de un Libro:
+    @Query("SELECT new com.egg.libreriaEgg.dto.FotoMetadatos(f.id, f.mime, f.hash, f.modificacion, f.tamanio, f.clave) FROM Libro lib JOIN lib.foto f WHERE lib.id = :idLibro")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    public FotoMetadatos metadatosDeLibro(@Param("idLibro") String idLibro);
+
+    // Devuelve los datos (sin el contenido) de la foto de perfil de un Usuario:
+    @Query("SELECT new com.egg.libreriaEgg.dto.FotoMetadatos(f.id, f.mime, f.hash, f.modificacion, f.tamanio, f.clave) FROM Usuario u JOIN u.foto f WHERE u.id = :idUsuario")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    public FotoMetadatos metadatosDeUsuario(@Param("idUsuario") String idUsuario);
+
+    // Devuelve los datos (sin el contenido) de una foto:
+    @Query("SELECT new com.egg.libreriaEgg.dto.FotoMetadatos(f.id, f.mime, f.hash, f.modificacion, f.tamanio, f.clave) FROM Foto f WHERE f.id = :id")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    public FotoMetadatos metadatos(@Param("id") String id);
+
+    // Reemplaza el contenido de una foto sin cargar la entidad (y por lo
+    // tanto sin leer el contenido anterior):
+    @Modifying
+    @Query("UPDATE Foto f SET f.nombre = :nombre, f.mime = :mime, f.hash = :hash, f.modificacion = :modificacion, f.tamanio = :tamanio, f.clave = :clave, f.contenido = :contenido WHERE f.id = :id")
+    public int actualizarContenido(@Param("id") String id, @Param("nombre") String nombre, @Param("mime") String mime, @Param("hash") String hash, @Param("modificacion") Date modificacion, @Param("tamanio") Long tamanio, @Param("clave") String clave, @Param("contenido") Blob contenido);
+
+    // Devuelve la clave (en el FotoStore) del contenido actual de una foto:
+    @Query("SELECT f.clave FROM Foto f WHERE f.id = :id")
+    public String buscarClave(@Param("id") String id);
+
+    // Cuenta las fotos que usan un mismo contenido guardado fuera de la DB
+    // (las referencias a ese contenido):
+    @Query("SELECT COUNT(f) FROM Foto f WHERE f.clave = :clave")
+    public long contarPorClave(@Param("clave") String clave);
+
+    // Ids de las fotos cuyo contenido todavía está en la DB (para migrarlas):
+    @Query("SELECT f.id FROM Foto f WHERE f.clave IS NULL AND f.contenido IS NOT NULL")
+    public List<String> idsEnBaseDeDatos(Pageable pageable);
+
+    // Pasa el contenido de una foto fuera de la DB, vaciando la columna:
+    @Modifying
+    @Query("UPDATE Foto f SET f.hash = :hash, f.tamanio = :tamanio, f.clave = :clave, f.contenido = NULL WHERE f.id = :id AND f.clave IS NULL")
+    public int moverContenido(@Param("id") String id, @Param("hash") String hash, @Param("tamanio") Long tamanio, @Param("clave") String clave);
+
+    // Completa el hash, la fecha de modificación y el tamaño de una foto:
+    @Modifying
+    @Query("UPDATE Foto f SET f.hash = :hash, f.modificacion = :modificacion, f.tamanio = :tamanio WHERE f.id = :id")
+    public int completarDatos(@Param("id") String id, @Param("hash") String hash, @Param("modificacion") Date modificacion, @Param("tamanio") Long tamanio);
+
 }
@@ -1,9 +1,18 @@
 package com.egg.libreriaEgg.repositorios;
 
+import com.egg.libreriaEgg.dto.LibroDto;
 import com.egg.libreriaEgg.entidades.Libro;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -33,13 +42,144 @@ public interface LibroRepositorio extends JpaRepository<Libro, String> {
     @Query("SELECT lib FROM Libro lib WHERE lib.editorial.id = :id")
     public List<Libro> buscarPorEditorial(@Param("id") String id);
     
+    // Las consultas marcadas con @QueryHints se guardan en la cache de
+    // consultas de Hibernate (se invalidan al modificar cualquier libro).
+
     // Método que sólo devuelve los libros dados de alta.
     @Override
     @Query("SELECT lib FROM Libro lib WHERE lib.alta IS true ORDER BY lib.titulo ASC")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     public List<Libro> findAll();
     
     // Método que sólo devuelve los libros dados de baja.
     @Query("SELECT lib FROM Libro lib WHERE lib.alta IS false ORDER BY lib.titulo ASC")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     public List<Libro> listarDeBaja();
+
+    // Método que devuelve id, titulo, descripcion, nombre del autor y nombre de
+    // la editorial de los libros dados de alta (sin cargar las entidades), para
+    // construir el índice de búsqueda:
+    @Query("SELECT lib.id, lib.titulo, lib.descripcion, a.nombre, e.nombre FROM Libro lib LEFT JOIN lib.autor a LEFT JOIN lib.editorial e WHERE lib.alta IS true")
+    public List<Object[]> datosIndexables();
+
+    // Recorre todos los libros dados de alta (para la API REST) sin armar una
+    // List: las filas se leen de la DB de a "fetchSize" por vez y se
+    // convierten en LibroDto, que no quedan en el contexto de persistencia.
+    // Debe usarse dentro de una transacción y cerrarse al terminar.
+    @Query("SELECT new com.egg.libreriaEgg.dto.LibroDto(lib.id, lib.isbn, lib.titulo, lib.anio, lib.descripcion, lib.ejemplares, lib.ejemplaresPrestados, lib.ejemplaresRestantes, lib.alta, a.id, a.nombre, e.id, e.nombre) "
+            + "FROM Libro lib LEFT JOIN lib.autor a LEFT JOIN lib.editorial e WHERE lib.alta IS true ORDER BY lib.titulo ASC, lib.id ASC")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    public Stream<LibroDto> recorrerCatalogo();
+
+    // Devuelve los ISBN de todos los libros (para no importar libros repetidos):
+    @Query("SELECT lib.isbn FROM Libro lib WHERE lib.isbn IS NOT NULL")
+    public List<Long> isbns();
+
+    // ---------------------- PAGINACIÓN POR CLAVE (titulo, id) ----------------------
+    // El Pageable sólo se usa para limitar la cantidad de filas (sin OFFSET):
+    // cada página arranca a continuación del último (titulo, id) mostrado.
     
-}
\ No newline at end of file
+    // Primera página de los libros dados de alta.
+    @Query("SELECT lib FROM Libro lib WHERE lib.alta IS true ORDER BY lib.titulo ASC, lib.id ASC")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    public List<Libro> paginaInicial(Pageable limite);
+
+    // Página de libros dados de alta posteriores al par (titulo, id) indicado.
+    @Query("SELECT lib FROM Libro lib WHERE lib.alta IS true AND (lib.titulo > :titulo OR (lib.titulo = :titulo AND lib.id > :id)) ORDER BY lib.titulo ASC, lib.id ASC")
+    public List<Libro> paginaSiguiente(@Param("titulo") String titulo, @Param("id") String id, Pageable limite);
+
+    // Página de libros dados de alta anteriores al par (titulo, id) indicado (en orden inverso).
+    @Query("SELECT lib FROM Libro lib WHERE lib.alta IS true AND (lib.titulo < :titulo OR (lib.titulo = :titulo AND lib.id < :id)) ORDER BY lib.titulo DESC, lib.id DESC")
+    public List<Libro> paginaAnterior(@Param("titulo") String titulo, @Param("id") String id, Pageable limite);
+
+    // Primera página de los libros de un Autor.
+    @Query("SELECT lib FROM Libro lib WHERE lib.autor.id = :idAutor ORDER BY lib.titulo ASC, lib.id ASC")
+    public List<Libro> paginaInicialAutor(@Param("idAutor") String idAutor, Pageable limite);
+
+    // Página de libros de un Autor posteriores al par (titulo, id) indicado.
+    @Query("SELECT lib FROM Libro lib WHERE lib.autor.id = :idAutor AND (lib.titulo > :titulo OR (lib.titulo = :titulo AND lib.id > :id)) ORDER BY lib.titulo ASC, lib.id ASC")
+    public List<Libro> paginaSiguienteAutor(@Param("idAutor") String idAutor, @Param("titulo") String titulo, @Param("id") String id, Pageable limite);
+
+    // Página de libros de un Autor anteriores al par (titulo, id) indicado (en orden inverso).
+    @Query("SELECT lib FROM Libro lib WHERE lib.autor.id = :idAutor AND (lib.titulo < :titulo OR (lib.titulo = :titulo AND lib.id < :id)) ORDER BY lib.titulo DESC, lib.id DESC")
+    public List<Libro> paginaAnteriorAutor(@Param("idAutor") String idAutor, @Param("titulo") String titulo, @Param("id") String id, Pageable limite);
+
+    // ---------------------- EJEMPLARES (préstamos y devoluciones) ----------------------
+    // Se modifican con un único UPDATE condicional, así dos préstamos
+    // simultáneos no pueden llevarse el mismo ejemplar: la DB evalúa la
+    // condición y modifica la fila en un solo paso. Devuelven la cantidad de
+    // filas modificadas (0 si no se cumplió la condición).
+
+    // Reserva un ejemplar, si queda alguno disponible.
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Libro lib SET lib.ejemplaresPrestados = lib.ejemplaresPrestados + 1, lib.ejemplaresRestantes = lib.ejemplaresRestantes - 1 WHERE lib.id = :id AND lib.ejemplaresRestantes > 0")
+    public int reservarEjemplar(@Param("id") String id);
+
+    // Devuelve un ejemplar, si hay alguno prestado.
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Libro lib SET lib.ejemplaresPrestados = lib.ejemplaresPrestados - 1, lib.ejemplaresRestantes = lib.ejemplaresRestantes + 1 WHERE lib.id = :id AND lib.ejemplaresPrestados > 0")
+    public int devolverEjemplar(@Param("id") String id);
+
+    // Cambia la cantidad total de ejemplares (al modificar el libro), si no
+    // es menor que la cantidad de ejemplares prestados en ese momento.
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Libro lib SET lib.ejemplares = :ejemplares, lib.ejemplaresRestantes = :ejemplares - lib.ejemplaresPrestados WHERE lib.id = :id AND lib.ejemplaresPrestados <= :ejemplares")
+    public int cambiarEjemplares(@Param("id") String id, @Param("ejemplares") int ejemplares);
+
+    // Lo mismo para varios libros a la vez (préstamos y devoluciones en lote):
+    // la cantidad se suma o resta en cada uno de ellos. Devuelven cuántos
+    // libros se modificaron.
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Libro lib SET lib.ejemplaresPrestados = lib.ejemplaresPrestados + :cantidad, lib.ejemplaresRestantes = lib.ejemplaresRestantes - :cantidad WHERE lib.id IN :ids AND lib.ejemplaresRestantes >= :cantidad")
+    public int reservarEjemplares(@Param("ids") Collection<String> ids, @Param("cantidad") int cantidad);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Libro lib SET lib.ejemplaresPrestados = lib.ejemplaresPrestados - :cantidad, lib.ejemplaresRestantes = lib.ejemplaresRestantes + :cantidad WHERE lib.id IN :ids AND lib.ejemplaresPrestados >= :cantidad")
+    public int devolverEjemplares(@Param("ids") Collection<String> ids, @Param("cantidad") int cantidad);
+
+    // Los ids de esos libros a los que les quedan ejemplares, bloqueados
+    // (SELECT ... FOR UPDATE) hasta el final de la transacción, para saber
+    // cuáles se pueden prestar antes de reservarlos en lote:
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT lib.id FROM Libro lib WHERE lib.id IN :ids AND lib.ejemplaresRestantes > 0 ORDER BY lib.id")
+    public List<String> bloquearDisponibles(@Param("ids") Collection<String> ids);
+
+    // Los ids de los libros de esos préstamos, bloqueados: las devoluciones
+    // en lote bloquean primero los libros y después los préstamos, en el
+    // mismo orden que los préstamos y las bajas de un Autor o una Editorial.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT lib.id FROM Libro lib WHERE lib.id IN (SELECT p.libro.id FROM Prestamo p WHERE p.id IN :ids) ORDER BY lib.id")
+    public List<String> bloquearPorPrestamos(@Param("ids") Collection<String> ids);
+
+    // ---------------------- BAJA Y ALTA DE UN AUTOR O UNA EDITORIAL ----------------------
+    // Se dan de baja (o de alta) todos sus libros con unos pocos UPDATE, en
+    // lugar de uno o más por libro y por préstamo (ver LibroServicio.bajaPorAutor).
+
+    // Los ids de los libros de alta del Autor (o la Editorial), bloqueados
+    // (SELECT ... FOR UPDATE) hasta el final de la transacción:
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT lib.id FROM Libro lib WHERE lib.autor.id = :id AND lib.alta = true ORDER BY lib.id")
+    public List<String> bloquearDeAltaPorAutor(@Param("id") String id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT lib.id FROM Libro lib WHERE lib.editorial.id = :id AND lib.alta = true ORDER BY lib.id")
+    public List<String> bloquearDeAltaPorEditorial(@Param("id") String id);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Libro lib SET lib.alta = false WHERE lib.autor.id = :id AND lib.alta = true")
+    public int bajaPorAutor(@Param("id") String id);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Libro lib SET lib.alta = false WHERE lib.editorial.id = :id AND lib.alta = true")
+    public int bajaPorEditorial(@Param("id") String id);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Libro lib SET lib.alta = true WHERE lib.autor.id = :id AND lib.alta = false")
+    public int altaPorAutor(@Param("id") String id);
+
+    // Los libros del Autor con su Autor y su Editorial, en una sola consulta
+    // (para indexarlos en el buscador después de darlos de alta):
+    @Query("SELECT lib FROM Libro lib LEFT JOIN FETCH lib.autor LEFT JOIN FETCH lib.editorial WHERE lib.autor.id = :id")
+    public List<Libro> buscarPorAutorConDatos(@Param("id") String id);
+
+}
@@ -0,0 +1,38 @@
+package com.egg.libreriaEgg.repositorios;
+
+import com.egg.libreriaEgg.entidades.Miniatura;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * (MiniaturaRepositorio) debe contener los métodos necesarios para guardar y
+ * consultar las miniaturas de las fotos. Extiende de JpaRepository: será un
+ * repositorio de Miniatura con la Primary Key de tipo String.
+ *
+ * Los métodos save(), findById() y delete() se implementan por JpaRepository.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Repository
+public interface MiniaturaRepositorio extends JpaRepository<Miniatura, String> {
+
+    // Devuelve los anchos ya generados para un contenido:
+    @Query("SELECT m.ancho FROM Miniatura m WHERE m.hash = :hash")
+    public List<Integer> anchosGenerados(@Param("hash") String hash);
+
+    // Devuelve sólo el contenido de una miniatura:
+    @Query("SELECT m.contenido FROM Miniatura m WHERE m.id = :id")
+    public byte[] buscarContenido(@Param("id") String id);
+
+    // Borra las miniaturas de contenidos que ya no usa ninguna foto:
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Miniatura m WHERE NOT EXISTS (SELECT f.id FROM Foto f WHERE f.hash = m.hash)")
+    public int borrarHuerfanas();
+
+}
@@ -1,9 +1,18 @@
 package com.egg.libreriaEgg.repositorios;
 
+import com.egg.libreriaEgg.dto.PrestamoVista;
 import com.egg.libreriaEgg.entidades.Prestamo;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -43,4 +52,47 @@ public interface PrestamoRepositorio extends JpaRepository<Prestamo, String> {
     @Query("SELECT p FROM Prestamo p WHERE p.alta = false AND p.usuario.id = :idUsuario")
     public List<Prestamo> buscarPrestamosBajaUsuario(@Param("idUsuario") String idUsuario);
 
+    // Devuelve los datos que muestran las tablas de préstamos (de alta o de
+    // baja) en una sola consulta, sin cargar las entidades relacionadas:
+    @Query("SELECT new com.egg.libreriaEgg.dto.PrestamoVista(p.id, p.alta, p.fechaPrestamo, p.fechaDevolucion, lib.titulo, a.nombre, lib.anio, u.id, u.nombre, u.apellido, u.dni) "
+            + "FROM Prestamo p LEFT JOIN p.libro lib LEFT JOIN lib.autor a LEFT JOIN p.usuario u WHERE p.alta = :alta")
+    public List<PrestamoVista> vistaPrestamos(@Param("alta") boolean alta);
+
+    // Lo mismo, sólo para los préstamos de un Usuario:
+    @Query("SELECT new com.egg.libreriaEgg.dto.PrestamoVista(p.id, p.alta, p.fechaPrestamo, p.fechaDevolucion, lib.titulo, a.nombre, lib.anio, u.id, u.nombre, u.apellido, u.dni) "
+            + "FROM Prestamo p LEFT JOIN p.libro lib LEFT JOIN lib.autor a LEFT JOIN p.usuario u WHERE p.alta = :alta AND u.id = :idUsuario")
+    public List<PrestamoVista> vistaPrestamosUsuario(@Param("alta") boolean alta, @Param("idUsuario") String idUsuario);
+
+    // Recorre todos los préstamos (para la API REST), de a "fetchSize" filas
+    // por vez; igual que LibroRepositorio.recorrerCatalogo().
+    @Query("SELECT new com.egg.libreriaEgg.dto.PrestamoVista(p.id, p.alta, p.fechaPrestamo, p.fechaDevolucion, lib.titulo, a.nombre, lib.anio, u.id, u.nombre, u.apellido, u.dni) "
+            + "FROM Prestamo p LEFT JOIN p.libro lib LEFT JOIN lib.autor a LEFT JOIN p.usuario u ORDER BY p.fechaPrestamo DESC, p.id ASC")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    public Stream<PrestamoVista> recorrerPrestamos();
+
+    // Da de baja un Prestamo (registra la devolución) sólo si estaba de alta;
+    // devuelve 0 si ya estaba dado de baja (por ejemplo, por una devolución
+    // simultánea del mismo préstamo):
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Prestamo p SET p.alta = false, p.fechaDevolucion = :fechaDevolucion WHERE p.id = :id AND p.alta = true")
+    public int registrarDevolucion(@Param("id") String id, @Param("fechaDevolucion") Date fechaDevolucion);
+
+    // Los préstamos de alta entre esos ids, como [id, id del libro, id del
+    // usuario], bloqueados (SELECT ... FOR UPDATE) hasta el final de la
+    // transacción, para devolverlos en lote:
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p.id, p.libro.id, p.usuario.id FROM Prestamo p WHERE p.id IN :ids AND p.alta = true ORDER BY p.id")
+    public List<Object[]> bloquearDeAlta(@Param("ids") Collection<String> ids);
+
+    // Lo mismo, con los préstamos de alta de esos libros (para dar de baja
+    // los libros de un Autor o una Editorial, ver LibroServicio.bajaPorAutor):
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p.id, p.libro.id, p.usuario.id FROM Prestamo p WHERE p.libro.id IN :idsLibros AND p.alta = true ORDER BY p.id")
+    public List<Object[]> bloquearDeAltaPorLibros(@Param("idsLibros") Collection<String> idsLibros);
+
+    // Da de baja todos esos préstamos que sigan de alta; devuelve cuántos:
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Prestamo p SET p.alta = false, p.fechaDevolucion = :fechaDevolucion WHERE p.id IN :ids AND p.alta = true")
+    public int registrarDevoluciones(@Param("ids") Collection<String> ids, @Param("fechaDevolucion") Date fechaDevolucion);
+
 }
@@ -1,8 +1,12 @@
 package com.egg.libreriaEgg.repositorios;
 
 import com.egg.libreriaEgg.entidades.Usuario;
+import java.util.Collection;
 import java.util.List;
+import javax.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -31,4 +35,32 @@ public interface UsuarioRepositorio extends JpaRepository<Usuario, String> {
     // Devuelve una Lista con Usuarios dados de baja.
     @Query("SELECT u FROM Usuario u WHERE u.baja IS NOT null")
     public List<Usuario> buscarInactivos();
+
+    // Reemplaza la clave encriptada de un Usuario (al volver a encriptarla
+    // con otro costo, ver ClaveServicio):
+    @Modifying
+    @Query("UPDATE Usuario u SET u.clave = :clave WHERE u.mail = :mail")
+    public int actualizarClave(@Param("mail") String mail, @Param("clave") String clave);
+
+    // ---------------------- PRÉSTAMOS ACTIVOS ----------------------
+    // Igual que los ejemplares de Libro: un único UPDATE condicional, así dos
+    // préstamos simultáneos no pueden pasar el límite. Devuelven la cantidad
+    // de filas modificadas (0 si no se cumplió la condición).
+
+    // Suma esa cantidad de préstamos activos, si el usuario no pasa el límite.
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Usuario u SET u.prestamosActivos = u.prestamosActivos + :cantidad WHERE u.id = :id AND u.prestamosActivos + :cantidad <= :limite")
+    public int sumarPrestamos(@Param("id") String id, @Param("cantidad") int cantidad, @Param("limite") int limite);
+
+    // Resta esa cantidad de préstamos activos a cada uno de esos usuarios
+    // (si tienen al menos esa cantidad); devuelve a cuántos.
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Usuario u SET u.prestamosActivos = u.prestamosActivos - :cantidad WHERE u.id IN :ids AND u.prestamosActivos >= :cantidad")
+    public int restarPrestamos(@Param("ids") Collection<String> ids, @Param("cantidad") int cantidad);
+
+    // Los préstamos activos del usuario, bloqueando su fila (SELECT ... FOR
+    // UPDATE) hasta el final de la transacción (préstamos en lote):
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u.prestamosActivos FROM Usuario u WHERE u.id = :id")
+    public Integer bloquearPrestamosActivos(@Param("id") String id);
 }
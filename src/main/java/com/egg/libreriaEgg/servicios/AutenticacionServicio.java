@@ -0,0 +1,173 @@
+package com.egg.libreriaEgg.servicios;
+
+import com.egg.libreriaEgg.autenticacion.CredencialesCache;
+import com.egg.libreriaEgg.autenticacion.SesionesUsuario;
+import com.egg.libreriaEgg.autenticacion.UsuarioDetalles;
+import com.egg.libreriaEgg.autenticacion.UsuarioSesion;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.repositorios.UsuarioRepositorio;
+import javax.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.event.InteractiveAuthenticationSuccessEvent;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Autenticación de los usuarios: busca sus datos por mail (a través de la
+ * CredencialesCache) y, cuando alguien inicia sesión desde el formulario,
+ * guarda un UsuarioSesion en su sesión como "usuariosession".
+ *
+ * Las peticiones a la API con HTTP Basic también pasan por
+ * loadUserByUsername, pero no abren una sesión.
+ *
+ * Cuando la clave de quien inicia sesión se encriptó con un costo menor al
+ * actual (ver ClaveServicio), Spring Security la vuelve a encriptar y la
+ * guarda con updatePassword.
+ *
+ * UsuarioServicio descarta los datos guardados y cierra las sesiones abiertas
+ * de un usuario cuando lo modifica, lo deshabilita, le cambia el rol o lo
+ * elimina (invalidar y cerrarSesiones).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Service
+public class AutenticacionServicio implements UserDetailsService, UserDetailsPasswordService {
+
+    // Nombre del atributo de sesión que usan las vistas y los controladores:
+    public static final String ATRIBUTO_SESION = "usuariosession";
+
+    @Autowired
+    private UsuarioRepositorio usuarioRepositorio;
+
+    @Autowired
+    private CredencialesCache credencialesCache;
+
+    @Autowired
+    private SesionesUsuario sesionesUsuario;
+
+    /**
+     * Método que se llamará cuando el usuario quiere autenticarse en la
+     * plataforma.
+     *
+     * @param mail
+     * @return
+     * @throws UsernameNotFoundException
+     */
+    @Override
+    public UserDetails loadUserByUsername(String mail) throws UsernameNotFoundException {
+        UsuarioDetalles detalles = credencialesCache.obtener(mail, () -> {
+            Usuario usuario = usuarioRepositorio.buscarPorMail(mail);
+            return usuario == null ? null : UsuarioDetalles.de(usuario);
+        });
+        if (detalles == null) {
+            throw new UsernameNotFoundException("No existe un usuario con el mail " + mail + ".");
+        }
+        return detalles;
+    }
+
+    /**
+     * Guarda la clave que Spring Security volvió a encriptar al iniciar
+     * sesión.
+     *
+     * @param usuario
+     * @param nuevaClave la clave ya encriptada
+     * @return
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails usuario, String nuevaClave) {
+        usuarioRepositorio.actualizarClave(usuario.getUsername(), nuevaClave);
+        credencialesCache.invalidar(usuario.getUsername());
+        UsuarioDetalles detalles = (UsuarioDetalles) usuario;
+        return new UsuarioDetalles(detalles.getUsername(), nuevaClave, detalles.getSesion());
+    }
+
+    /**
+     * Al iniciar sesión con el formulario (no con HTTP Basic), guarda los
+     * datos del usuario en la sesión.
+     *
+     * @param evento
+     */
+    @EventListener
+    public void inicioDeSesion(InteractiveAuthenticationSuccessEvent evento) {
+        Object principal = evento.getAuthentication().getPrincipal();
+        RequestAttributes atributos = RequestContextHolder.getRequestAttributes();
+        if (principal instanceof UsuarioDetalles && atributos instanceof ServletRequestAttributes) {
+            HttpSession session = ((ServletRequestAttributes) atributos).getRequest().getSession(true);
+            session.setAttribute(ATRIBUTO_SESION, ((UsuarioDetalles) principal).getSesion());
+        }
+    }
+
+    /**
+     * Guarda en la sesión los datos actuales del usuario (después de que él
+     * mismo los modifica), también en el contexto de seguridad: si cambió el
+     * mail, la sesión se sigue encontrando con cerrarSesiones.
+     *
+     * @param session
+     * @param usuario
+     */
+    public void actualizarSesion(HttpSession session, Usuario usuario) {
+        session.setAttribute(ATRIBUTO_SESION, UsuarioSesion.de(usuario));
+        UsuarioDetalles detalles = UsuarioDetalles.de(usuario);
+        detalles.eraseCredentials();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(detalles, null, detalles.getAuthorities()));
+        sesionesUsuario.registrar(session.getId(), detalles);
+    }
+
+    /**
+     * Los datos del usuario que inició sesión, o null.
+     *
+     * @param session
+     * @return
+     */
+    public UsuarioSesion usuarioSesion(HttpSession session) {
+        return (UsuarioSesion) session.getAttribute(ATRIBUTO_SESION);
+    }
+
+    /**
+     * Descarta los datos guardados de esos mails (ver CredencialesCache).
+     *
+     * @param mails
+     */
+    public void invalidar(String... mails) {
+        credencialesCache.invalidar(mails);
+    }
+
+    /**
+     * Cierra las sesiones abiertas con ese mail (ver SesionesUsuario): en la
+     * siguiente petición, quien las usaba tiene que volver a iniciar sesión.
+     *
+     * @param mail
+     */
+    public void cerrarSesiones(String mail) {
+        sesionesUsuario.cerrar(mail, null);
+    }
+
+    /**
+     * Igual que cerrarSesiones, pero deja abierta la sesión de la petición
+     * actual (la del usuario que modificó sus propios datos).
+     *
+     * @param mail
+     */
+    public void cerrarOtrasSesiones(String mail) {
+        String actual = null;
+        RequestAttributes atributos = RequestContextHolder.getRequestAttributes();
+        if (atributos instanceof ServletRequestAttributes) {
+            HttpSession session = ((ServletRequestAttributes) atributos).getRequest().getSession(false);
+            actual = session == null ? null : session.getId();
+        }
+        sesionesUsuario.cerrar(mail, actual);
+    }
+
+}
@@ -3,7 +3,6 @@ package com.egg.libreriaEgg.servicios;
 import com.egg.libreriaEgg.entidades.Autor;
 import com.egg.libreriaEgg.entidades.Libro;
 import com.egg.libreriaEgg.repositorios.AutorRepositorio;
-import com.egg.libreriaEgg.repositorios.LibroRepositorio;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,10 +23,13 @@ public class AutorServicio {
     private AutorRepositorio autorRepositorio;
 
     @Autowired
-    private LibroRepositorio libroRepositorio;
+    private LibroServicio libroServicio;
 
     @Autowired
-    private LibroServicio libroServicio;
+    private CatalogoCache catalogoCache;
+
+    @Autowired
+    private BuscadorServicio buscadorServicio;
 
     /**
      * Método para registrar un autor.
@@ -46,6 +48,7 @@ public class AutorServicio {
             autor.setNombre(nombre);
             // Persistencia en la DB:
             autorRepositorio.save(autor);
+            catalogoCache.invalidarAutores();
         } catch (Exception e) {
             throw new Exception(e.getMessage());
         }
@@ -70,6 +73,11 @@ public class AutorServicio {
                 autor.setNombre(nombre);
                 // Persistencia en la DB:
                 autorRepositorio.save(autor);
+                catalogoCache.invalidarAutores();
+                // Los libros se indexan con el nombre de su autor:
+                for (Libro libro : libroServicio.buscarPorAutor(id)) {
+                    buscadorServicio.indexar(libro);
+                }
             } else { // El autor con ese id NO existe en la DB
                 throw new Exception("No existe el autor con el id indicado.");
             }
@@ -96,6 +104,7 @@ public class AutorServicio {
                 }
                 // Persistencia en la DB:
                 autorRepositorio.delete(autor);
+                catalogoCache.invalidarAutores();
             } else { // El autor con ese id NO existe en la DB
                 throw new Exception("No existe el autor con el id indicado.");
             }
@@ -111,23 +120,17 @@ public class AutorServicio {
      * @param id
      * @throws Exception
      */
-    @Transactional
+    @Transactional(rollbackFor = Exception.class)
     public void baja(String id) throws Exception {
         try {
             Autor autor = autorRepositorio.getById(id);
             if (autor != null) { // El autor con ese id SI existe en la DB
-                // Dar de baja todos sus libros:
-                List<Libro> libros = libroServicio.buscarPorAutor(id);
-                if (libros != null) {
-                    for (Libro libro : libros) {
-                        if (libro.isAlta()) {
-                            libroServicio.baja(libro.getId());
-                        }
-                    }
-                }
+                // Dar de baja todos sus libros (y sus préstamos), con unos pocos UPDATE:
+                libroServicio.bajaPorAutor(id);
                 autor.setAlta(false);
                 // Persistencia en la DB:
                 autorRepositorio.save(autor);
+                catalogoCache.invalidarAutores();
             } else { // El autor con ese id NO existe en la DB
                 throw new Exception("No existe el autor con el id indicado.");
             }
@@ -151,11 +154,9 @@ public class AutorServicio {
                 autor.setAlta(true);
                 // Persistencia en la DB:
                 autorRepositorio.save(autor);
-                // Dar de alta todos sus libros:
-                List<Libro> libros = libroRepositorio.buscarPorAutor(id);
-                for (Libro libro : libros) {
-                    libroServicio.alta(libro.getId());
-                }
+                catalogoCache.invalidarAutores();
+                // Dar de alta todos sus libros (y sus editoriales), con unos pocos UPDATE:
+                libroServicio.altaPorAutor(id);
             } else { // El autor con ese id NO existe en la DB
                 throw new Exception("No existe el autor con el id indicado.");
             }
@@ -190,7 +191,7 @@ public class AutorServicio {
      * @return
      */
     public List<Autor> findAll() {
-        return autorRepositorio.findAll();
+        return catalogoCache.lista(CatalogoCache.AUTORES + "todos", autorRepositorio::findAll);
     }
 
     /**
@@ -199,6 +200,6 @@ public class AutorServicio {
      * @return
      */
     public Autor getById(String id) {
-        return autorRepositorio.getById(id);
+        return catalogoCache.porId(CatalogoCache.AUTORES, id, () -> autorRepositorio.findById(id).orElse(null));
     }
 }
@@ -0,0 +1,320 @@
+package com.egg.libreriaEgg.servicios;
+
+import com.egg.libreriaEgg.entidades.Libro;
+import com.egg.libreriaEgg.repositorios.LibroRepositorio;
+import com.egg.libreriaEgg.utilidades.Transacciones;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Esta clase tiene la responsabilidad de buscar libros por texto. Mantiene en
+ * memoria un índice invertido (término → libros que lo contienen) armado con
+ * el título, la descripción, el nombre del autor y el de la editorial de cada
+ * libro dado de alta.
+ *
+ * Los textos se normalizan sin tildes ni mayúsculas, y se descartan las
+ * palabras vacías del español. Cada término de la consulta se busca como
+ * prefijo ("cerv" encuentra "Cervantes"), y los resultados se ordenan por
+ * relevancia: pesa más una coincidencia en el título que en la descripción, y
+ * pesa más un término poco frecuente que uno que aparece en muchos libros.
+ *
+ * El índice se construye al iniciar la aplicación (y después de cada
+ * importación) y luego se actualiza desde los servicios cada vez que se
+ * modifica un libro, autor o editorial. Las actualizaciones que llegan
+ * mientras se reconstruye se guardan y se vuelven a aplicar sobre el índice
+ * nuevo, porque los datos que leyó construir() pueden no incluirlas.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Service
+public class BuscadorServicio {
+
+    // Peso de cada campo en el puntaje de un libro:
+    private static final int PESO_TITULO = 4;
+    private static final int PESO_AUTOR = 3;
+    private static final int PESO_EDITORIAL = 2;
+    private static final int PESO_DESCRIPCION = 1;
+
+    // Palabras que no se indexan por ser demasiado frecuentes:
+    private static final Set<String> PALABRAS_VACIAS = new HashSet<>(Arrays.asList(
+            "a", "al", "con", "de", "del", "el", "en", "es", "la", "las", "lo", "los",
+            "o", "para", "por", "que", "se", "su", "sus", "un", "una", "unos", "unas", "y"));
+
+    private static final Logger LOG = Logger.getLogger(BuscadorServicio.class.getName());
+
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+
+    // término → (id de libro → peso del término en ese libro). Ordenado para
+    // poder recorrer todos los términos que empiezan con un prefijo.
+    private final TreeMap<String, Map<String, Integer>> indice = new TreeMap<>();
+    // id de libro → términos indexados (para poder quitarlo del índice).
+    private final Map<String, Set<String>> terminosPorLibro = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Las actualizaciones aplicadas mientras construir() lee los libros (null
+    // si no se está reconstruyendo). Se modifica con el lock de escritura.
+    private List<Runnable> pendientes;
+    // Para que no se reconstruya el índice dos veces a la vez:
+    private final Object reconstruccion = new Object();
+
+    /**
+     * Construye el índice con todos los libros dados de alta.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void construir() {
+        synchronized (reconstruccion) {
+            // Desde acá, cada actualización del índice también se guarda:
+            guardarActualizaciones(new ArrayList<>());
+            try {
+                List<Object[]> filas = libroRepositorio.datosIndexables();
+                lock.writeLock().lock();
+                try {
+                    indice.clear();
+                    terminosPorLibro.clear();
+                    for (Object[] fila : filas) {
+                        agregar((String) fila[0], (String) fila[1], (String) fila[2], (String) fila[3], (String) fila[4]);
+                    }
+                    // Las que llegaron durante la lectura, en el mismo orden
+                    // (cada una reemplaza el libro entero: repetirla no cambia nada):
+                    for (Runnable actualizacion : pendientes) {
+                        actualizacion.run();
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                LOG.info("Índice de búsqueda construido: " + filas.size() + " libros, " + indice.size() + " términos.");
+            } finally {
+                guardarActualizaciones(null);
+            }
+        }
+    }
+
+    /**
+     * Agrega (o vuelve a indexar) un libro. Si el libro está dado de baja, se
+     * lo quita del índice. El cambio se aplica cuando se confirma la
+     * transacción en curso.
+     *
+     * @param libro
+     */
+    public void indexar(Libro libro) {
+        final String id = libro.getId();
+        if (!libro.isAlta()) {
+            quitar(id);
+            return;
+        }
+        // Se toman los textos ahora, mientras la entidad está disponible:
+        final String titulo = libro.getTitulo();
+        final String descripcion = libro.getDescripcion();
+        final String autor = libro.getAutor() != null ? libro.getAutor().getNombre() : null;
+        final String editorial = libro.getEditorial() != null ? libro.getEditorial().getNombre() : null;
+        Transacciones.alConfirmar(() -> actualizar(() -> {
+            sacar(id);
+            agregar(id, titulo, descripcion, autor, editorial);
+        }));
+    }
+
+    /**
+     * Quita un libro del índice cuando se confirma la transacción en curso.
+     *
+     * @param idLibro
+     */
+    public void quitar(String idLibro) {
+        Transacciones.alConfirmar(() -> actualizar(() -> sacar(idLibro)));
+    }
+
+    /**
+     * Devuelve los libros que contienen todos los términos de la consulta,
+     * ordenados por relevancia.
+     *
+     * @param consulta
+     * @param maximo cantidad máxima de resultados
+     * @return
+     */
+    @Transactional(readOnly = true)
+    public List<Libro> buscar(String consulta, int maximo) {
+        List<String> ids = buscarIds(consulta, maximo);
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<String, Libro> porId = new HashMap<>();
+        for (Libro libro : libroRepositorio.findAllById(ids)) {
+            porId.put(libro.getId(), libro);
+        }
+        List<Libro> libros = new ArrayList<>();
+        for (String id : ids) {
+            Libro libro = porId.get(id);
+            if (libro != null) {
+                libros.add(libro);
+            }
+        }
+        return libros;
+    }
+
+    /**
+     * Devuelve los ids de los libros que contienen todos los términos de la
+     * consulta (como palabra completa o como prefijo), ordenados por puntaje.
+     *
+     * @param consulta
+     * @param maximo
+     * @return
+     */
+    public List<String> buscarIds(String consulta, int maximo) {
+        List<String> terminos = tokenizar(consulta);
+        if (terminos.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<String, Double> puntajes = null;
+        lock.readLock().lock();
+        try {
+            double totalLibros = terminosPorLibro.size();
+            for (String termino : terminos) {
+                Map<String, Double> parcial = new HashMap<>();
+                // Todos los términos del índice que empiezan con "termino":
+                for (Map.Entry<String, Map<String, Integer>> entrada : indice.subMap(termino, true, termino + Character.MAX_VALUE, true).entrySet()) {
+                    // Una palabra completa vale el doble que un prefijo:
+                    double factor = entrada.getKey().equals(termino) ? 2.0 : 1.0;
+                    double idf = Math.log(1.0 + totalLibros / entrada.getValue().size());
+                    for (Map.Entry<String, Integer> libro : entrada.getValue().entrySet()) {
+                        parcial.merge(libro.getKey(), libro.getValue() * factor * idf, Math::max);
+                    }
+                }
+                if (puntajes == null) {
+                    puntajes = parcial;
+                } else {
+                    // Sólo quedan los libros que contienen todos los términos:
+                    puntajes.keySet().retainAll(parcial.keySet());
+                    for (Map.Entry<String, Double> libro : puntajes.entrySet()) {
+                        libro.setValue(libro.getValue() + parcial.get(libro.getKey()));
+                    }
+                }
+                if (puntajes.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Map.Entry<String, Double>> ordenados = new ArrayList<>(puntajes.entrySet());
+        ordenados.sort((a, b) -> {
+            int comparacion = Double.compare(b.getValue(), a.getValue());
+            return comparacion != 0 ? comparacion : a.getKey().compareTo(b.getKey());
+        });
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < ordenados.size() && i < maximo; i++) {
+            ids.add(ordenados.get(i).getKey());
+        }
+        return ids;
+    }
+
+    /**
+     * Separa un texto en términos: sin tildes, en minúsculas, sin signos de
+     * puntuación y sin palabras vacías.
+     *
+     * @param texto
+     * @return
+     */
+    public static List<String> tokenizar(String texto) {
+        List<String> terminos = new ArrayList<>();
+        if (texto == null || texto.isEmpty()) {
+            return terminos;
+        }
+        String normalizado = Normalizer.normalize(texto, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(new Locale("es"));
+        for (String termino : normalizado.split("[^a-z0-9]+")) {
+            if (!termino.isEmpty() && !PALABRAS_VACIAS.contains(termino)) {
+                terminos.add(termino);
+            }
+        }
+        return terminos;
+    }
+
+    /**
+     * @return cantidad de libros indexados.
+     */
+    public int cantidadLibros() {
+        lock.readLock().lock();
+        try {
+            return terminosPorLibro.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void guardarActualizaciones(List<Runnable> actualizaciones) {
+        lock.writeLock().lock();
+        try {
+            pendientes = actualizaciones;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Aplica la actualización con el lock de escritura, y la guarda si se
+    // está reconstruyendo el índice (ver construir()).
+    private void actualizar(Runnable actualizacion) {
+        lock.writeLock().lock();
+        try {
+            actualizacion.run();
+            if (pendientes != null) {
+                pendientes.add(actualizacion);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Debe llamarse con el lock de escritura tomado.
+    private void agregar(String id, String titulo, String descripcion, String autor, String editorial) {
+        Map<String, Integer> pesos = new HashMap<>();
+        sumar(pesos, titulo, PESO_TITULO);
+        sumar(pesos, autor, PESO_AUTOR);
+        sumar(pesos, editorial, PESO_EDITORIAL);
+        sumar(pesos, descripcion, PESO_DESCRIPCION);
+        for (Map.Entry<String, Integer> peso : pesos.entrySet()) {
+            indice.computeIfAbsent(peso.getKey(), t -> new HashMap<>()).put(id, peso.getValue());
+        }
+        terminosPorLibro.put(id, pesos.keySet());
+    }
+
+    // Debe llamarse con el lock de escritura tomado.
+    private void sacar(String id) {
+        Set<String> terminos = terminosPorLibro.remove(id);
+        if (terminos != null) {
+            for (String termino : terminos) {
+                Map<String, Integer> libros = indice.get(termino);
+                if (libros != null) {
+                    libros.remove(id);
+                    if (libros.isEmpty()) {
+                        indice.remove(termino);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void sumar(Map<String, Integer> pesos, String texto, int peso) {
+        for (String termino : tokenizar(texto)) {
+            pesos.merge(termino, peso, Integer::sum);
+        }
+    }
+
+}
@@ -0,0 +1,209 @@
+package com.egg.libreriaEgg.servicios;
+
+import com.egg.libreriaEgg.utilidades.Transacciones;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache en memoria del catálogo (listas ordenadas y búsquedas por id de
+ * Autores, Editoriales y Libros). Los servicios leen a través de la cache y,
+ * al modificar datos, invalidan las regiones afectadas; así las vistas de
+ * administración no vuelven a consultar la DB en cada render.
+ *
+ * La cache está acotada a una cantidad máxima de entradas: al superarla se
+ * desaloja la entrada usada hace más tiempo (LRU). Lleva la cuenta de
+ * aciertos, fallos y desalojos.
+ *
+ * Cada invalidación incrementa la "versión" del catálogo. Una lectura que
+ * empezó antes de una invalidación no guarda su resultado, para no volver a
+ * dejar en la cache datos anteriores a la modificación.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Component
+public class CatalogoCache {
+
+    // Prefijos de las claves de cada región:
+    public static final String LIBROS = "libros:";
+    public static final String AUTORES = "autores:";
+    public static final String EDITORIALES = "editoriales:";
+
+    private final int maxEntradas;
+    private final Map<String, Object> entradas;
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong desalojos = new AtomicLong();
+
+    public CatalogoCache(@Value("${catalogo.cache.max-entradas:500}") int maxEntradas) {
+        this.maxEntradas = maxEntradas;
+        // LinkedHashMap en orden de acceso: el primer elemento es el menos usado.
+        this.entradas = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                if (size() > CatalogoCache.this.maxEntradas) {
+                    desalojos.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Devuelve la lista guardada con esa clave o, si no está, la carga con el
+     * "cargador" y la guarda. La lista devuelta no se puede modificar.
+     *
+     * @param <T>
+     * @param clave
+     * @param cargador
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> lista(String clave, Supplier<List<T>> cargador) {
+        List<T> lista = (List<T>) obtener(clave);
+        if (lista == null) {
+            long versionLectura = version.get();
+            lista = Collections.unmodifiableList(cargador.get());
+            guardar(clave, lista, versionLectura);
+        }
+        return lista;
+    }
+
+    /**
+     * Devuelve la entidad guardada con ese id en la región o, si no está, la
+     * carga con el "cargador" y la guarda. No se guardan resultados nulos.
+     *
+     * @param <T>
+     * @param region
+     * @param id
+     * @param cargador
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T porId(String region, String id, Supplier<T> cargador) {
+        String clave = region + "id:" + id;
+        T entidad = (T) obtener(clave);
+        if (entidad == null) {
+            long versionLectura = version.get();
+            entidad = cargador.get();
+            if (entidad != null) {
+                guardar(clave, entidad, versionLectura);
+            }
+        }
+        return entidad;
+    }
+
+    /**
+     * Invalida los libros (listas de alta y de baja).
+     */
+    public void invalidarLibros() {
+        invalidar(LIBROS);
+    }
+
+    /**
+     * Invalida los autores y, como los libros muestran a su autor, también los
+     * libros.
+     */
+    public void invalidarAutores() {
+        invalidar(AUTORES, LIBROS);
+    }
+
+    /**
+     * Invalida las editoriales y, como los libros muestran a su editorial,
+     * también los libros.
+     */
+    public void invalidarEditoriales() {
+        invalidar(EDITORIALES, LIBROS);
+    }
+
+    /**
+     * Vacía la cache completa.
+     */
+    public void invalidarTodo() {
+        invalidar("");
+    }
+
+    /**
+     * Quita las regiones indicadas ahora y, si hay una transacción en curso,
+     * otra vez al terminar (para descartar lo que se haya leído mientras la
+     * transacción no estaba confirmada).
+     *
+     * @param regiones
+     */
+    private void invalidar(String... regiones) {
+        quitar(regiones);
+        Transacciones.alTerminar(() -> quitar(regiones));
+    }
+
+    private synchronized void quitar(String... regiones) {
+        version.incrementAndGet();
+        Iterator<String> claves = entradas.keySet().iterator();
+        while (claves.hasNext()) {
+            String clave = claves.next();
+            for (String region : regiones) {
+                if (clave.startsWith(region)) {
+                    claves.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    private synchronized Object obtener(String clave) {
+        Object valor = entradas.get(clave);
+        if (valor != null) {
+            aciertos.incrementAndGet();
+        } else {
+            fallos.incrementAndGet();
+        }
+        return valor;
+    }
+
+    private synchronized void guardar(String clave, Object valor, long versionLectura) {
+        if (version.get() == versionLectura) {
+            entradas.put(clave, valor);
+        }
+    }
+
+    // ------------------------------ MÉTRICAS ------------------------------
+    /**
+     * @return la versión actual del catálogo (cambia con cada invalidación).
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    public long getDesalojos() {
+        return desalojos.get();
+    }
+
+    public synchronized int getTamanio() {
+        return entradas.size();
+    }
+
+    public int getMaxEntradas() {
+        return maxEntradas;
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogoCache{" + "tamanio=" + getTamanio() + ", maxEntradas=" + maxEntradas + ", aciertos=" + aciertos + ", fallos=" + fallos + ", desalojos=" + desalojos + ", version=" + version + '}';
+    }
+
+}
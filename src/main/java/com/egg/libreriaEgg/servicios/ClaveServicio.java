@@ -0,0 +1,229 @@
+package com.egg.libreriaEgg.servicios;
+
+import com.egg.libreriaEgg.utilidades.Ejecutores;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+/**
+ * Encriptación de las claves de los usuarios (BCrypt), compartida por el
+ * registro, la modificación de usuarios y el login.
+ *
+ * BCrypt tarda a propósito y usa un núcleo entero: para que una ráfaga de
+ * registros o logins no ocupe todos los hilos de Tomcat con eso, se calcula
+ * en un pool propio de clave.hilos hilos, con una cola acotada. Cuando la cola
+ * se llena, o cuando un pedido espera más de clave.espera-ms, se rechaza en
+ * lugar de esperar indefinidamente.
+ *
+ * Mientras tanto, cada pedido en la cola ocupa un hilo de Tomcat que lo
+ * espera: clave.hilos más clave.cola tiene que ser bastante menor que
+ * server.tomcat.threads.max, para que queden hilos para el resto de las
+ * peticiones (si ocupan más de la mitad, se avisa en el log al iniciar).
+ *
+ * El costo de BCrypt (cada punto duplica el tiempo) se fija con clave.costo
+ * o, si es 0, se calibra al iniciar: el mayor costo que tarde como mucho
+ * clave.calibracion.objetivo-ms en este servidor, y nunca menos que
+ * clave.costo-minimo. Las claves guardadas con un costo menor al actual se
+ * vuelven a encriptar al iniciar sesión (ver upgradeEncoding y
+ * AutenticacionServicio.updatePassword).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Service
+public class ClaveServicio implements PasswordEncoder {
+
+    // Costo máximo que acepta BCrypt:
+    private static final int COSTO_MAXIMO = 31;
+    // $2a$10$...: versión y costo de una clave encriptada con BCrypt.
+    private static final Pattern BCRYPT = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private static final String DEMASIADAS_SOLICITUDES = "Hay demasiadas solicitudes en curso. Intente nuevamente en unos segundos.";
+
+    private static final Logger LOG = Logger.getLogger(ClaveServicio.class.getName());
+
+    @Value("${clave.costo:0}")
+    private int costoConfigurado;
+
+    @Value("${clave.costo-minimo:10}")
+    private int costoMinimo;
+
+    @Value("${clave.calibracion.objetivo-ms:250}")
+    private long objetivoMs;
+
+    @Value("${clave.hilos:0}")
+    private int hilos;
+
+    @Value("${clave.cola:50}")
+    private int cola;
+
+    @Value("${clave.espera-ms:2000}")
+    private long esperaMs;
+
+    @Value("${server.tomcat.threads.max:200}")
+    private int hilosTomcat;
+
+    private ThreadPoolExecutor executor;
+    private int costo;
+    private BCryptPasswordEncoder encoder;
+
+    @PostConstruct
+    public void iniciar() {
+        // Un hilo por núcleo, salvo que se configure otra cosa.
+        int cantidad = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        if (cantidad + cola > hilosTomcat / 2) {
+            LOG.warning("clave.hilos + clave.cola (" + (cantidad + cola) + ") es más de la mitad de server.tomcat.threads.max ("
+                    + hilosTomcat + "): una ráfaga de logins puede ocupar los hilos de Tomcat.");
+        }
+        executor = Ejecutores.acotado("claves", cantidad, cola);
+        if (costoConfigurado > 0) {
+            costo = costoConfigurado;
+        } else {
+            costo = calibrar(costoMinimo, objetivoMs);
+            LOG.info("Costo de BCrypt calibrado: " + costo + " (objetivo: " + objetivoMs + " ms por clave).");
+        }
+        encoder = new BCryptPasswordEncoder(costo);
+    }
+
+    @PreDestroy
+    public void detener() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * El mayor costo (desde "minimo") con el que encriptar una clave tarda
+     * como mucho "objetivoMs". Como cada punto duplica el tiempo, se mide un
+     * costo y se sube mientras el siguiente siga dentro del objetivo.
+     *
+     * @param minimo
+     * @param objetivoMs
+     * @return
+     */
+    static int calibrar(int minimo, long objetivoMs) {
+        // Una primera vez sin medir, para que la JVM compile BCrypt:
+        medir(minimo);
+        int costo = minimo;
+        long ms = medir(costo);
+        while (costo < COSTO_MAXIMO && ms * 2 <= objetivoMs) {
+            costo++;
+            ms = medir(costo);
+        }
+        return costo;
+    }
+
+    private static long medir(int costo) {
+        BCryptPasswordEncoder prueba = new BCryptPasswordEncoder(costo);
+        long inicio = System.nanoTime();
+        prueba.encode("calibracion");
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+    }
+
+    /**
+     * Encripta una clave con el costo actual.
+     *
+     * @param clave
+     * @return
+     * @throws Exception si hay demasiadas claves esperando o se esperó más de
+     * clave.espera-ms
+     */
+    public String encriptar(String clave) throws Exception {
+        return ejecutar(() -> encoder.encode(clave));
+    }
+
+    /**
+     * @param clave
+     * @param encriptada
+     * @return si la clave corresponde a la encriptada
+     * @throws Exception si hay demasiadas claves esperando o se esperó más de
+     * clave.espera-ms
+     */
+    public boolean coincide(String clave, String encriptada) throws Exception {
+        return ejecutar(() -> encoder.matches(clave, encriptada));
+    }
+
+    /**
+     * @return el costo de BCrypt con el que se encriptan las claves nuevas.
+     */
+    public int getCosto() {
+        return costo;
+    }
+
+    /**
+     * @param encriptada
+     * @return el costo con el que se encriptó una clave, o -1 si no es BCrypt.
+     */
+    public static int costo(String encriptada) {
+        if (encriptada == null) {
+            return -1;
+        }
+        Matcher matcher = BCRYPT.matcher(encriptada);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    private <T> T ejecutar(Callable<T> tarea) throws Exception {
+        Future<T> resultado;
+        try {
+            resultado = executor.submit(tarea);
+        } catch (RejectedExecutionException e) {
+            throw new Exception(DEMASIADAS_SOLICITUDES);
+        }
+        try {
+            return resultado.get(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Si todavía no empezó, sale de la cola:
+            resultado.cancel(false);
+            throw new Exception(DEMASIADAS_SOLICITUDES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Exception("Se interrumpió la encriptación de la clave.");
+        } catch (ExecutionException e) {
+            throw new Exception(e.getCause().getMessage());
+        }
+    }
+
+    // ------------------------------ PasswordEncoder (Spring Security) ------------------------------
+    @Override
+    public String encode(CharSequence clave) {
+        try {
+            return encriptar(clave.toString());
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean matches(CharSequence clave, String encriptada) {
+        try {
+            return coincide(clave.toString(), encriptada);
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Una clave se vuelve a encriptar (al iniciar sesión) si se guardó con
+     * un costo menor que el actual. Con un costo mayor no: bajar clave.costo
+     * no debilita las claves ya guardadas.
+     *
+     * @param encriptada
+     * @return
+     */
+    @Override
+    public boolean upgradeEncoding(String encriptada) {
+        int guardado = costo(encriptada);
+        return guardado >= 0 && guardado < costo;
+    }
+
+}
@@ -25,6 +25,12 @@ public class EditorialServicio {
     @Autowired
     private LibroServicio libroServicio;
 
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    @Autowired
+    private BuscadorServicio buscadorServicio;
+
     /**
      * Método para registrar una Editorial.
      *
@@ -42,6 +48,7 @@ public class EditorialServicio {
             editorial.setNombre(nombre);
             // Persistencia en la DB:
             editorialRepositorio.save(editorial);
+            catalogoCache.invalidarEditoriales();
         } catch (Exception e) {
             throw new Exception("Error al intentar guardar la editorial.");
         }
@@ -66,6 +73,11 @@ public class EditorialServicio {
                 editorial.setNombre(nombre);
                 // Persistencia en la DB:
                 editorialRepositorio.save(editorial);
+                catalogoCache.invalidarEditoriales();
+                // Los libros se indexan con el nombre de su editorial:
+                for (Libro libro : libroServicio.buscarPorEditorial(id)) {
+                    buscadorServicio.indexar(libro);
+                }
             } else { // La Editorial con ese id NO existe en la DB
                 throw new Exception("No existe la Editorial con el id indicado.");
             }
@@ -92,6 +104,7 @@ public class EditorialServicio {
                 }
                 // Persistencia en la DB:
                 editorialRepositorio.delete(editorial);
+                catalogoCache.invalidarEditoriales();
             } else { // La editorial con ese id NO existe en la DB
                 throw new Exception("No existe la editorial con el id indicado.");
             }
@@ -106,23 +119,17 @@ public class EditorialServicio {
      * @param id
      * @throws Exception
      */
-    @Transactional
+    @Transactional(rollbackFor = Exception.class)
     public void baja(String id) throws Exception {
         try {
             Editorial editorial = editorialRepositorio.getById(id);
             if (editorial != null) { // la editorial con ese id SI existe en la DB
-                // Dar de baja todos sus libros:
-                List<Libro> libros = libroServicio.buscarPorEditorial(id);
-                if (libros != null) {
-                    for (Libro libro : libros) {
-                        if (libro.isAlta()) {
-                            libroServicio.baja(libro.getId());
-                        }
-                    }
-                }
+                // Dar de baja todos sus libros (y sus préstamos), con unos pocos UPDATE:
+                libroServicio.bajaPorEditorial(id);
                 editorial.setAlta(false);
                 // Persistencia en la DB:
                 editorialRepositorio.save(editorial);
+                catalogoCache.invalidarEditoriales();
             } else { // La editorial con ese id NO existe en la DB
                 throw new Exception("No existe la editorial con el id indicado.");
             }
@@ -145,6 +152,7 @@ public class EditorialServicio {
                 editorial.setAlta(true);
                 // Persistencia en la DB:
                 editorialRepositorio.save(editorial);
+                catalogoCache.invalidarEditoriales();
             } else { // La editorial con ese id NO existe en la DB
                 throw new Exception("No existe la editorial con el id indicado.");
             }
@@ -179,7 +187,7 @@ public class EditorialServicio {
      * @return
      */
     public List<Editorial> findAll() {
-        return editorialRepositorio.findAll();
+        return catalogoCache.lista(CatalogoCache.EDITORIALES + "todos", editorialRepositorio::findAll);
     }
 
     /**
@@ -188,7 +196,7 @@ public class EditorialServicio {
      * @return
      */
     public Editorial getById(String id) {
-        return editorialRepositorio.getById(id);
+        return catalogoCache.porId(CatalogoCache.EDITORIALES, id, () -> editorialRepositorio.findById(id).orElse(null));
     }
 
 }
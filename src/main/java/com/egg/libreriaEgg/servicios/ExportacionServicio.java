@@ -0,0 +1,76 @@
+package com.egg.libreriaEgg.servicios;
+
+import com.egg.libreriaEgg.dto.PrestamoVista;
+import com.egg.libreriaEgg.exportacion.EscritorPrestamos;
+import com.egg.libreriaEgg.exportacion.FormatoExportacion;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Esta clase tiene la responsabilidad de exportar el historial completo de
+ * préstamos (de alta y de baja), para auditoría.
+ *
+ * Los préstamos se recorren con un cursor de sólo avance (ScrollableResults,
+ * leyendo de a FETCH filas de la DB) y se escriben directamente en el canal de
+ * salida (un archivo o la respuesta HTTP) a medida que se leen, así la memoria
+ * usada no depende de la cantidad de préstamos. Cada exportacion.lote filas
+ * se vacía el contexto de persistencia, y es también el tamaño de los grupos
+ * del formato columnar.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Service
+public class ExportacionServicio {
+
+    // Filas que se traen de la DB por vez (con useCursorFetch en MySQL):
+    private static final int FETCH = 500;
+    private static final String PRESTAMOS = "SELECT new com.egg.libreriaEgg.dto.PrestamoVista(p.id, p.alta, p.fechaPrestamo, p.fechaDevolucion, lib.titulo, a.nombre, lib.anio, u.id, u.nombre, u.apellido, u.dni) "
+            + "FROM Prestamo p LEFT JOIN p.libro lib LEFT JOIN lib.autor a LEFT JOIN p.usuario u ORDER BY p.fechaPrestamo ASC, p.id ASC";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${exportacion.lote:1000}")
+    private int tamanioLote;
+
+    /**
+     * Escribe todos los préstamos, del más antiguo al más reciente.
+     *
+     * @param formato
+     * @param canal no se cierra
+     * @return la cantidad de préstamos exportados
+     * @throws IOException
+     */
+    @Transactional(readOnly = true)
+    public long exportarPrestamos(FormatoExportacion formato, WritableByteChannel canal) throws IOException {
+        Session sesion = entityManager.unwrap(Session.class);
+        long filas = 0;
+        try (ScrollableResults prestamos = sesion.createQuery(PRESTAMOS)
+                .setReadOnly(true)
+                .setFetchSize(FETCH)
+                .setCacheMode(CacheMode.IGNORE)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            EscritorPrestamos escritor = EscritorPrestamos.abrir(formato, canal, tamanioLote);
+            while (prestamos.next()) {
+                escritor.escribir((PrestamoVista) prestamos.get(0));
+                if (++filas % tamanioLote == 0) {
+                    // No se acumula nada en la sesión mientras dura la exportación.
+                    sesion.clear();
+                }
+            }
+            // Sólo si se leyeron todos: si algo falla antes, el archivo queda sin pie.
+            escritor.terminar();
+        }
+        return filas;
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.egg.libreriaEgg.servicios;
+
+/**
+ * Evento que publica FotoServicio cada vez que se guarda o se reemplaza el
+ * contenido de una foto (lo escucha MiniaturaServicio para generar las
+ * miniaturas, una vez confirmada la transacción).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class FotoGuardada {
+
+    private final String idFoto;
+
+    public FotoGuardada(String idFoto) {
+        this.idFoto = idFoto;
+    }
+
+    /**
+     * @return the idFoto
+     */
+    public String getIdFoto() {
+        return idFoto;
+    }
+
+}
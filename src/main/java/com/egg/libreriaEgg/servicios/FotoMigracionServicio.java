@@ -0,0 +1,122 @@
+package com.egg.libreriaEgg.servicios;
+
+import com.egg.libreriaEgg.almacenamiento.BaseDatosFotoStore;
+import com.egg.libreriaEgg.dto.FotoMetadatos;
+import com.egg.libreriaEgg.repositorios.FotoContenidoRepositorio;
+import com.egg.libreriaEgg.repositorios.FotoRepositorio;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+/**
+ * Esta clase tiene la responsabilidad de pasar el contenido de las fotos que
+ * todavía están en la DB al store configurado en "foto.store". Se ejecuta al
+ * iniciar la aplicación si "foto.migrar" es true, en segundo plano y de a
+ * lotes ("foto.migracion.lote"), así la aplicación sigue atendiendo mientras
+ * tanto: cada foto se sigue sirviendo desde la DB hasta que se mueve.
+ *
+ * Cada foto se mueve en su propia transacción; si una falla, se informa y se
+ * sigue con las demás.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Service
+public class FotoMigracionServicio {
+
+    private static final Logger LOG = Logger.getLogger(FotoMigracionServicio.class.getName());
+
+    @Autowired
+    private FotoServicio fotoServicio;
+
+    @Autowired
+    private FotoRepositorio fotoRepositorio;
+
+    @Autowired
+    private FotoContenidoRepositorio fotoContenidoRepositorio;
+
+    @Value("${foto.migrar:false}")
+    private boolean migrar;
+
+    @Value("${foto.migracion.lote:50}")
+    private int lote;
+
+    /**
+     * Inicia la migración en segundo plano, si está habilitada.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (!migrar) {
+            return;
+        }
+        if (BaseDatosFotoStore.NOMBRE.equals(fotoServicio.getNombreStore())) {
+            LOG.warning("foto.migrar está habilitado, pero foto.store es \"db\": no hay nada que migrar.");
+            return;
+        }
+        Thread hilo = new Thread(this::migrar, "migracion-fotos");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Mueve todas las fotos que tienen el contenido en la DB.
+     *
+     * @return la cantidad de fotos movidas.
+     */
+    public int migrar() {
+        Set<String> fallidas = new HashSet<>();
+        int movidas = 0;
+        while (true) {
+            // Las que fallaron siguen en la DB, por eso se piden de más:
+            List<String> ids = new ArrayList<>(fotoRepositorio.idsEnBaseDeDatos(PageRequest.of(0, lote + fallidas.size())));
+            ids.removeAll(fallidas);
+            if (ids.isEmpty()) {
+                break;
+            }
+            for (String id : ids) {
+                try {
+                    if (mover(id)) {
+                        movidas++;
+                    }
+                } catch (Exception e) {
+                    LOG.log(Level.WARNING, "No se pudo migrar la foto " + id, e);
+                    fallidas.add(id);
+                }
+            }
+            LOG.log(Level.INFO, "Migración de fotos: {0} movidas, {1} con error.", new Object[]{movidas, fallidas.size()});
+        }
+        return movidas;
+    }
+
+    /**
+     * Mueve una foto: primero se lee el contenido para calcular el hash, y
+     * después se vuelve a leer para copiarlo al store (siempre de a bloques).
+     *
+     * @param id
+     * @return
+     * @throws Exception
+     */
+    private boolean mover(String id) throws Exception {
+        FotoMetadatos metadatos = fotoRepositorio.metadatos(id);
+        if (metadatos == null) {
+            throw new Exception("No se encontró la foto " + id);
+        }
+        Resource contenido = fotoContenidoRepositorio.abrir(id, metadatos.getHash(), metadatos.getTamanio(), id);
+        FotoServicio.Digesto digesto;
+        try (InputStream entrada = contenido.getInputStream()) {
+            digesto = FotoServicio.sha256(entrada);
+        }
+        return fotoServicio.mover(id, contenido, digesto);
+    }
+
+}
@@ -1,9 +1,22 @@
 package com.egg.libreriaEgg.servicios;
 
+import com.egg.libreriaEgg.almacenamiento.FotoStore;
+import com.egg.libreriaEgg.dto.FotoMetadatos;
 import com.egg.libreriaEgg.entidades.Foto;
 import com.egg.libreriaEgg.repositorios.FotoRepositorio;
+import com.egg.libreriaEgg.utilidades.Transacciones;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.List;
+import javax.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -12,6 +25,11 @@ import org.springframework.web.multipart.MultipartFile;
  * Esta clase tiene la responsabilidad de llevar adelante las funcionalidades
  * necesarias para administrar fotos (creación y modificación).
  *
+ * El contenido de las fotos nunca se copia completo a memoria: al guardar se
+ * pasa directamente desde el stream del archivo subido al FotoStore
+ * configurado en "foto.store" (la DB o el disco), y al servir se lee como
+ * stream desde el store donde esté guardado.
+ *
  * @author Mauro Montenegro <maumontenegro.s at gmail.com>
  */
 @Service
@@ -20,6 +38,23 @@ public class FotoServicio {
     @Autowired
     private FotoRepositorio fotoRepositorio;
 
+    @Autowired
+    private List<FotoStore> stores;
+
+    @Autowired
+    private ApplicationEventPublisher eventos;
+
+    @Value("${foto.store:db}")
+    private String nombreStore;
+
+    // Store donde se guardan las fotos nuevas:
+    private FotoStore store;
+
+    @PostConstruct
+    public void iniciar() {
+        store = store(nombreStore);
+    }
+
     /**
      * Método para guardar la foto; "multipartfile" es la interfaz que modela el
      * archivo donde se almacena la foto.
@@ -36,8 +71,11 @@ public class FotoServicio {
                 foto.setMime(archivo.getContentType());
                 foto.setNombre(archivo.getName());
                 // La lectura del contenido es la que puede generar un error, por eso está todo en un try/catch:
-                foto.setContenido(archivo.getBytes());
-                return fotoRepositorio.save(foto);
+                setContenido(foto, archivo);
+                foto = fotoRepositorio.save(foto);
+                // Las miniaturas se generan cuando se confirma la transacción.
+                eventos.publishEvent(new FotoGuardada(foto.getId()));
+                return foto;
             } catch (IOException e) {
                 System.err.println(e.getMessage());
             }
@@ -58,15 +96,24 @@ public class FotoServicio {
         if (archivo != null) {
             try {
                 Foto foto = new Foto();
-                if (idFoto != null) {
-                    foto = fotoRepositorio.getById(idFoto);
-                }
                 // Se actualizan los datos de la foto:
                 foto.setMime(archivo.getContentType());
                 foto.setNombre(archivo.getName());
                 // La lectura del contenido es la que puede generar un error, por eso está todo en un try/catch:
-                foto.setContenido(archivo.getBytes());
-                return fotoRepositorio.save(foto);
+                setContenido(foto, archivo);
+                if (idFoto != null) {
+                    // Se reemplaza con un UPDATE, sin cargar la foto anterior:
+                    String claveAnterior = fotoRepositorio.buscarClave(idFoto);
+                    fotoRepositorio.actualizarContenido(idFoto, foto.getNombre(), foto.getMime(), foto.getHash(), foto.getModificacion(), foto.getTamanio(), foto.getClave(), foto.getContenido());
+                    if (claveAnterior != null && !claveAnterior.equals(foto.getClave())) {
+                        liberarAlConfirmar(storeDe(new FotoMetadatos(idFoto, null, null, null, null, claveAnterior)), claveAnterior);
+                    }
+                    eventos.publishEvent(new FotoGuardada(idFoto));
+                    return fotoRepositorio.getById(idFoto);
+                }
+                foto = fotoRepositorio.save(foto);
+                eventos.publishEvent(new FotoGuardada(foto.getId()));
+                return foto;
             } catch (IOException e) {
                 System.err.println(e.getMessage());
             }
@@ -74,4 +121,213 @@ public class FotoServicio {
         return null;
     }
 
+    /**
+     * Devuelve los datos (sin contenido) de una foto, o null si no existe.
+     *
+     * @param idFoto
+     * @return
+     */
+    @Transactional
+    public FotoMetadatos metadatos(String idFoto) {
+        return completarHash(fotoRepositorio.metadatos(idFoto));
+    }
+
+    /**
+     * Devuelve los datos (sin contenido) de la portada de un libro, o null si
+     * el libro no tiene foto.
+     *
+     * @param idLibro
+     * @return
+     */
+    @Transactional
+    public FotoMetadatos metadatosDeLibro(String idLibro) {
+        return completarHash(fotoRepositorio.metadatosDeLibro(idLibro));
+    }
+
+    /**
+     * Devuelve los datos (sin contenido) de la foto de perfil de un usuario, o
+     * null si el usuario no tiene foto.
+     *
+     * @param idUsuario
+     * @return
+     */
+    @Transactional
+    public FotoMetadatos metadatosDeUsuario(String idUsuario) {
+        return completarHash(fotoRepositorio.metadatosDeUsuario(idUsuario));
+    }
+
+    /**
+     * Devuelve el contenido de una foto, para leerlo como stream.
+     *
+     * @param foto
+     * @return
+     */
+    public Resource contenido(FotoMetadatos foto) throws IOException {
+        return storeDe(foto).abrir(foto);
+    }
+
+    /**
+     * Pasa el contenido de una foto guardada en otro store al store
+     * configurado (lo usa FotoMigracionServicio). Devuelve false si la foto ya
+     * estaba en el store configurado.
+     *
+     * @param id
+     * @param contenido
+     * @param digesto
+     * @return
+     * @throws IOException
+     */
+    @Transactional
+    public boolean mover(String id, InputStreamSource contenido, Digesto digesto) throws IOException {
+        Foto foto = new Foto();
+        foto.setId(id);
+        foto.setHash(digesto.hash);
+        foto.setTamanio(digesto.tamanio);
+        store.guardar(foto, contenido);
+        if (foto.getClave() == null) {
+            return false;
+        }
+        if (fotoRepositorio.moverContenido(id, foto.getHash(), foto.getTamanio(), foto.getClave()) == 0) {
+            // La foto cambió mientras tanto: el contenido copiado puede quedar sin uso.
+            liberarAlConfirmar(store, foto.getClave());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Devuelve el nombre del store donde se guardan las fotos nuevas.
+     *
+     * @return
+     */
+    public String getNombreStore() {
+        return store.getNombre();
+    }
+
+    /**
+     * Las fotos guardadas antes de que existieran el hash y el tamaño no los
+     * tienen: se calculan una única vez (leyendo el contenido de a bloques),
+     * la primera vez que se sirven.
+     *
+     * @param metadatos
+     * @return
+     */
+    private FotoMetadatos completarHash(FotoMetadatos metadatos) {
+        if (metadatos == null || (metadatos.getHash() != null && metadatos.getTamanio() != null)) {
+            return metadatos;
+        }
+        try (InputStream contenido = storeDe(metadatos).abrir(metadatos).getInputStream()) {
+            Digesto digesto = sha256(contenido);
+            Date modificacion = metadatos.getModificacion() != null ? metadatos.getModificacion() : new Date();
+            fotoRepositorio.completarDatos(metadatos.getId(), digesto.hash, modificacion, digesto.tamanio);
+            return new FotoMetadatos(metadatos.getId(), metadatos.getMime(), digesto.hash, modificacion, digesto.tamanio, metadatos.getClave());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Setea el contenido de la foto junto con su hash, tamaño y fecha de
+     * modificación. El archivo se lee dos veces como stream: una para
+     * calcular el hash y otra (al guardarlo en el store) para copiar el
+     * contenido.
+     *
+     * @param foto
+     * @param archivo
+     * @throws IOException
+     */
+    private void setContenido(Foto foto, MultipartFile archivo) throws IOException {
+        try (InputStream contenido = archivo.getInputStream()) {
+            Digesto digesto = sha256(contenido);
+            foto.setHash(digesto.hash);
+            foto.setTamanio(digesto.tamanio);
+        }
+        store.guardar(foto, archivo);
+        foto.setModificacion(new Date());
+    }
+
+    /**
+     * Cuando se confirma la transacción, avisa al store que la foto ya no usa
+     * el contenido anterior (si ninguna otra foto lo usa, se borra).
+     *
+     * @param anterior
+     * @param clave
+     */
+    private void liberarAlConfirmar(final FotoStore anterior, final String clave) {
+        Transacciones.alConfirmar(() -> anterior.liberar(clave));
+    }
+
+    /**
+     * Devuelve el store donde está guardado el contenido de una foto.
+     *
+     * @param foto
+     * @return
+     */
+    private FotoStore storeDe(FotoMetadatos foto) {
+        for (FotoStore s : stores) {
+            if (s.contiene(foto)) {
+                return s;
+            }
+        }
+        throw new IllegalStateException("Ningún store contiene la foto " + foto.getId());
+    }
+
+    /**
+     * Devuelve el store con ese nombre.
+     *
+     * @param nombre
+     * @return
+     */
+    private FotoStore store(String nombre) {
+        for (FotoStore s : stores) {
+            if (s.getNombre().equals(nombre)) {
+                return s;
+            }
+        }
+        throw new IllegalStateException("No existe el store de fotos \"" + nombre + "\" (foto.store)");
+    }
+
+    /**
+     * Calcula el SHA-256 (en hexadecimal) y la cantidad de bytes de un stream.
+     *
+     * @param contenido
+     * @return
+     * @throws IOException
+     */
+    public static Digesto sha256(InputStream contenido) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            long tamanio = 0;
+            int leidos;
+            while ((leidos = contenido.read(buffer)) != -1) {
+                digest.update(buffer, 0, leidos);
+                tamanio += leidos;
+            }
+            byte[] hash = digest.digest();
+            StringBuilder hexa = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hexa.append(String.format("%02x", b));
+            }
+            return new Digesto(hexa.toString(), tamanio);
+        } catch (NoSuchAlgorithmException e) {
+            // Todas las JVM están obligadas a implementar SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Resultado de sha256(): el hash y el tamaño del contenido leído.
+     */
+    public static class Digesto {
+
+        public final String hash;
+        public final long tamanio;
+
+        Digesto(String hash, long tamanio) {
+            this.hash = hash;
+            this.tamanio = tamanio;
+        }
+    }
+
 }
@@ -0,0 +1,522 @@
+package com.egg.libreriaEgg.servicios;
+
+import com.egg.libreriaEgg.entidades.Autor;
+import com.egg.libreriaEgg.entidades.Editorial;
+import com.egg.libreriaEgg.entidades.Libro;
+import com.egg.libreriaEgg.importacion.EstadoImportacion;
+import com.egg.libreriaEgg.importacion.FilaLibro;
+import com.egg.libreriaEgg.importacion.FormatoImportacion;
+import com.egg.libreriaEgg.importacion.Importacion;
+import com.egg.libreriaEgg.importacion.ImportacionArchivos;
+import com.egg.libreriaEgg.importacion.LectorFilas;
+import com.egg.libreriaEgg.repositorios.AutorRepositorio;
+import com.egg.libreriaEgg.repositorios.EditorialRepositorio;
+import com.egg.libreriaEgg.repositorios.LibroRepositorio;
+import com.egg.libreriaEgg.utilidades.Ejecutores;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Esta clase tiene la responsabilidad de importar libros en cantidad desde un
+ * archivo CSV o JSON (ver FormatoImportacion).
+ *
+ * El archivo se guarda en importacion.directorio y se procesa en segundo plano
+ * (de a una importación por vez; las demás esperan en una cola acotada,
+ * importacion.cola), leyéndolo de a una fila por vez. Los autores y las
+ * editoriales se buscan por nombre en un mapa que se arma una sola vez con
+ * una consulta; los que no existen se crean. Los nombres se comparan sin
+ * espacios alrededor, mayúsculas ni acentos, igual que los índices únicos de
+ * autor.nombre y editorial.nombre en MySQL (ver clave()). Cada fila se valida con
+ * LibroServicio.validar() y los libros se guardan de a lotes de
+ * importacion.lote filas, cada lote en una transacción con los INSERT
+ * agrupados en batch de JDBC (hibernate.jdbc.batch_size).
+ *
+ * Las filas inválidas no detienen la importación: se escriben en un reporte
+ * de errores (CSV). Si un lote falla al guardarse, se vuelve a guardar de a un
+ * libro por vez para separar los que fallan. Después de cada lote se guarda el
+ * progreso y el punto de control; una importación interrumpida o fallida se
+ * puede reanudar desde allí. Al terminar se invalida la cache del catálogo y
+ * se reconstruye el índice de búsqueda.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Service
+public class ImportacionServicio {
+
+    private static final Logger LOG = Logger.getLogger(ImportacionServicio.class.getName());
+
+    @Autowired
+    private LibroServicio libroServicio;
+
+    @Autowired
+    private AutorServicio autorServicio;
+
+    @Autowired
+    private EditorialServicio editorialServicio;
+
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+
+    @Autowired
+    private AutorRepositorio autorRepositorio;
+
+    @Autowired
+    private EditorialRepositorio editorialRepositorio;
+
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    @Autowired
+    private BuscadorServicio buscadorServicio;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${importacion.directorio:importaciones}")
+    private String directorio;
+
+    @Value("${importacion.lote:500}")
+    private int tamanioLote;
+
+    @Value("${importacion.cola:10}")
+    private int cola;
+
+    private ImportacionArchivos archivos;
+    private TransactionTemplate transaccion;
+    private ThreadPoolExecutor executor;
+    private final Map<String, Importacion> importaciones = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void iniciar() throws IOException {
+        archivos = new ImportacionArchivos(directorio);
+        transaccion = new TransactionTemplate(transactionManager);
+        // Un solo hilo: las importaciones se hacen de a una.
+        executor = Ejecutores.acotado("importacion", 1, cola);
+        // Las importaciones que no terminaron antes de detener la aplicación quedan para reanudar:
+        for (Importacion importacion : archivos.cargar()) {
+            if (importacion.getEstado() == EstadoImportacion.PENDIENTE || importacion.getEstado() == EstadoImportacion.EN_CURSO) {
+                archivos.interrumpida(importacion, "La aplicación se detuvo durante la importación.");
+            }
+            importaciones.put(importacion.getId(), importacion);
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Guarda el archivo y programa su importación.
+     *
+     * @param archivo CSV o JSON
+     * @return la importación (en estado PENDIENTE)
+     * @throws Exception
+     */
+    public Importacion importar(MultipartFile archivo) throws Exception {
+        if (archivo == null || archivo.isEmpty()) {
+            throw new Exception("Debe seleccionar un archivo.");
+        }
+        FormatoImportacion formato = FormatoImportacion.de(archivo.getOriginalFilename());
+        Importacion importacion = new Importacion(UUID.randomUUID().toString(), archivo.getOriginalFilename(), formato);
+        try (InputStream contenido = archivo.getInputStream()) {
+            archivos.crear(importacion, contenido);
+        }
+        importaciones.put(importacion.getId(), importacion);
+        programar(importacion);
+        return importacion;
+    }
+
+    /**
+     * Reanuda una importación interrumpida o fallida desde su último punto de
+     * control.
+     *
+     * @param id
+     * @return
+     * @throws Exception
+     */
+    public synchronized Importacion reanudar(String id) throws Exception {
+        Importacion importacion = buscar(id);
+        if (importacion == null) {
+            throw new Exception("No existe la importación indicada.");
+        }
+        if (!importacion.isReanudable()) {
+            throw new Exception("Sólo se puede reanudar una importación interrumpida o fallida.");
+        }
+        programar(importacion);
+        return importacion;
+    }
+
+    /**
+     *
+     * @param id
+     * @return la importación, o null si no existe
+     */
+    public Importacion buscar(String id) {
+        return importaciones.get(id);
+    }
+
+    /**
+     * @return todas las importaciones, de la más reciente a la más antigua
+     */
+    public List<Importacion> listar() {
+        return importaciones.values().stream()
+                .sorted(Comparator.comparing(Importacion::getInicio).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Devuelve el reporte de errores de una importación (CSV con la fila, el
+     * ISBN, el título y el error).
+     *
+     * @param id
+     * @return
+     * @throws Exception
+     */
+    public Path reporteErrores(String id) throws Exception {
+        if (buscar(id) == null) {
+            throw new Exception("No existe la importación indicada.");
+        }
+        return archivos.errores(id);
+    }
+
+    private synchronized void programar(Importacion importacion) throws Exception {
+        archivos.pendiente(importacion);
+        try {
+            executor.execute(() -> procesar(importacion));
+        } catch (RejectedExecutionException e) {
+            archivos.interrumpida(importacion, "No se pudo programar: había demasiadas importaciones en espera.");
+            throw new Exception("Hay demasiadas importaciones en espera. Vuelva a intentarlo más tarde.");
+        }
+    }
+
+    // ------------------------------ PROCESAMIENTO ------------------------------
+    /**
+     * Importa el archivo, desde la fila siguiente al punto de control.
+     *
+     * @param importacion
+     */
+    void procesar(Importacion importacion) {
+        long importadosAntes = importacion.getImportados();
+        try (LectorFilas lector = LectorFilas.abrir(archivos.datos(importacion), importacion.getFormato(), objectMapper);
+                Writer errores = archivos.escribirErrores(importacion.getId())) {
+            archivos.enCurso(importacion);
+            Nombres nombres = cargarNombres();
+            List<FilaLibro> lote = new ArrayList<>(tamanioLote);
+            while (lector.hasNext()) {
+                FilaLibro fila = lector.next();
+                // Al reanudar, las filas hasta el punto de control ya se importaron.
+                if (fila.getNumero() <= importacion.getCheckpoint()) {
+                    continue;
+                }
+                lote.add(fila);
+                if (lote.size() >= tamanioLote) {
+                    procesarLote(importacion, nombres, lote, errores);
+                    lote.clear();
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+            }
+            if (!lote.isEmpty()) {
+                procesarLote(importacion, nombres, lote, errores);
+            }
+            archivos.terminar(importacion, EstadoImportacion.TERMINADA, null);
+            LOG.info("Importación " + importacion.getId() + " terminada: " + importacion.getImportados() + " libros importados, " + importacion.getErrores() + " filas con errores.");
+        } catch (InterruptedException e) {
+            archivos.interrumpida(importacion, "La importación se detuvo; se puede reanudar.");
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Falló la importación " + importacion.getId(), e);
+            archivos.terminar(importacion, EstadoImportacion.FALLIDA, e.getMessage());
+        } finally {
+            if (importacion.getImportados() > importadosAntes) {
+                catalogoCache.invalidarTodo();
+                buscadorServicio.construir();
+            }
+        }
+    }
+
+    /**
+     * Valida las filas del lote y guarda las válidas en una transacción.
+     */
+    private void procesarLote(Importacion importacion, Nombres nombres, List<FilaLibro> filas, Writer errores) throws IOException {
+        List<String> lineasError = new ArrayList<>();
+        List<FilaLibro> validas = new ArrayList<>(filas.size());
+        Set<Long> isbnsLote = new HashSet<>();
+        for (FilaLibro fila : filas) {
+            String error = validar(fila, nombres, isbnsLote);
+            if (error == null) {
+                validas.add(fila);
+                isbnsLote.add(fila.getIsbn());
+            } else {
+                lineasError.add(ImportacionArchivos.lineaError(fila, error));
+            }
+        }
+
+        Nuevos nuevos = new Nuevos();
+        try {
+            nuevos = transaccion.execute(estado -> guardar(validas, nombres));
+            nombres.confirmar(nuevos);
+        } catch (RuntimeException e) {
+            // Algún libro del lote no se pudo guardar; se guardan de a uno para encontrarlo.
+            LOG.log(Level.FINE, "Falló un lote de la importación " + importacion.getId(), e);
+            for (FilaLibro fila : validas) {
+                try {
+                    Nuevos uno = transaccion.execute(estado -> guardar(Collections.singletonList(fila), nombres));
+                    nombres.confirmar(uno);
+                    nuevos.sumar(uno);
+                } catch (RuntimeException e2) {
+                    lineasError.add(ImportacionArchivos.lineaError(fila, causa(e2)));
+                }
+            }
+        }
+
+        for (String linea : lineasError) {
+            errores.write(linea);
+        }
+        errores.flush();
+        archivos.lote(importacion, filas.size(), nuevos.libros, lineasError.size(), filas.get(filas.size() - 1).getNumero(),
+                nuevos.autores.size(), nuevos.editoriales.size());
+        // El catálogo muestra los libros nuevos a medida que se importan.
+        catalogoCache.invalidarTodo();
+    }
+
+    /**
+     * @return el error de la fila, o null si es válida
+     */
+    private String validar(FilaLibro fila, Nombres nombres, Set<Long> isbnsLote) {
+        if (fila.getError() != null) {
+            return fila.getError();
+        }
+        try {
+            libroServicio.validar(fila.getIsbn(), fila.getTitulo(), fila.getAnio(), fila.getDescripcion(), fila.getEjemplares());
+        } catch (Exception e) {
+            return e.getMessage();
+        }
+        if (fila.getAutor() == null) {
+            return "Debe indicar un Autor.";
+        }
+        if (fila.getEditorial() == null) {
+            return "Debe indicar una Editorial.";
+        }
+        if (nombres.isbns.contains(fila.getIsbn()) || isbnsLote.contains(fila.getIsbn())) {
+            return "Ya existe un libro con el ISBN " + fila.getIsbn() + ".";
+        }
+        return null;
+    }
+
+    /**
+     * Guarda los libros (dentro de una transacción), creando o dando de alta
+     * los autores y editoriales que hagan falta.
+     *
+     * @return lo que se creó
+     */
+    private Nuevos guardar(List<FilaLibro> filas, Nombres nombres) {
+        Nuevos nuevos = new Nuevos();
+        for (FilaLibro fila : filas) {
+            Libro libro = new Libro();
+            libro.setAlta(true);
+            libro.setIsbn(fila.getIsbn());
+            libro.setTitulo(fila.getTitulo());
+            libro.setAnio(fila.getAnio());
+            libro.setDescripcion(fila.getDescripcion());
+            libro.setEjemplares(fila.getEjemplares());
+            libro.setEjemplaresPrestados(0);
+            libro.setEjemplaresRestantes(fila.getEjemplares());
+            libro.setAutor(entityManager.getReference(Autor.class, idAutor(fila.getAutor(), nombres, nuevos)));
+            libro.setEditorial(entityManager.getReference(Editorial.class, idEditorial(fila.getEditorial(), nombres, nuevos)));
+            entityManager.persist(libro);
+            nuevos.isbns.add(fila.getIsbn());
+            nuevos.libros++;
+        }
+        // Los INSERT se envían en batch; después se vacía el contexto para no acumular entidades.
+        entityManager.flush();
+        entityManager.clear();
+        return nuevos;
+    }
+
+    private String idAutor(String nombre, Nombres nombres, Nuevos nuevos) {
+        String clave = clave(nombre);
+        String id = nuevos.autores.get(clave);
+        if (id != null) {
+            return id;
+        }
+        id = nombres.autores.get(clave);
+        if (id == null) {
+            Autor autor = new Autor();
+            autor.setNombre(nombre);
+            autor.setAlta(true);
+            entityManager.persist(autor);
+            nuevos.autores.put(clave, autor.getId());
+            return autor.getId();
+        }
+        // Como en LibroServicio.agregarLibro(): se da de alta el autor en caso de que esté dado de baja.
+        if (nombres.autoresDeBaja.contains(id) && nuevos.autoresDeAlta.add(id)) {
+            try {
+                autorServicio.alta(id);
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
+        return id;
+    }
+
+    private String idEditorial(String nombre, Nombres nombres, Nuevos nuevos) {
+        String clave = clave(nombre);
+        String id = nuevos.editoriales.get(clave);
+        if (id != null) {
+            return id;
+        }
+        id = nombres.editoriales.get(clave);
+        if (id == null) {
+            Editorial editorial = new Editorial();
+            editorial.setNombre(nombre);
+            editorial.setAlta(true);
+            entityManager.persist(editorial);
+            nuevos.editoriales.put(clave, editorial.getId());
+            return editorial.getId();
+        }
+        if (nombres.editorialesDeBaja.contains(id) && nuevos.editorialesDeAlta.add(id)) {
+            try {
+                editorialServicio.alta(id);
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Arma los mapas nombre → id de autores y editoriales y el conjunto de
+     * ISBN existentes, con una consulta cada uno.
+     */
+    private Nombres cargarNombres() {
+        Nombres nombres = new Nombres();
+        for (Object[] fila : autorRepositorio.nombresEIds()) {
+            cargar((String) fila[0], (String) fila[1], (Boolean) fila[2], nombres.autores, nombres.autoresDeBaja);
+        }
+        for (Object[] fila : editorialRepositorio.nombresEIds()) {
+            cargar((String) fila[0], (String) fila[1], (Boolean) fila[2], nombres.editoriales, nombres.editorialesDeBaja);
+        }
+        nombres.isbns.addAll(libroRepositorio.isbns());
+        return nombres;
+    }
+
+    private void cargar(String nombre, String id, Boolean alta, Map<String, String> ids, Set<String> deBaja) {
+        if (nombre == null) {
+            return;
+        }
+        String clave = clave(nombre);
+        String anterior = ids.get(clave);
+        // Con nombres repetidos se prefiere el que está de alta.
+        if (anterior == null || (deBaja.contains(anterior) && Boolean.TRUE.equals(alta))) {
+            ids.put(clave, id);
+            if (!Boolean.TRUE.equals(alta)) {
+                deBaja.add(id);
+            }
+        }
+    }
+
+    /**
+     * La clave de un nombre en los mapas de autores y editoriales: sin
+     * espacios alrededor, en minúsculas y sin acentos. MySQL compara así los
+     * nombres en los índices únicos (collation *_ai_ci), así que "BORGES" es
+     * el mismo autor que "Borges" y no se vuelve a crear.
+     *
+     * @param nombre
+     * @return
+     */
+    static String clave(String nombre) {
+        return Normalizer.normalize(nombre.trim(), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    private String causa(Throwable e) {
+        Throwable causa = e;
+        while (causa.getCause() != null && causa.getCause() != causa) {
+            causa = causa.getCause();
+        }
+        return causa.getMessage() == null ? "Error al intentar guardar el libro." : causa.getMessage();
+    }
+
+    /**
+     * Autores, editoriales e ISBN que ya están en la DB.
+     */
+    private static class Nombres {
+
+        final Map<String, String> autores = new HashMap<>();
+        final Set<String> autoresDeBaja = new HashSet<>();
+        final Map<String, String> editoriales = new HashMap<>();
+        final Set<String> editorialesDeBaja = new HashSet<>();
+        final Set<Long> isbns = new HashSet<>();
+
+        // Incorpora lo que guardó un lote (sólo una vez confirmada su transacción).
+        void confirmar(Nuevos nuevos) {
+            autores.putAll(nuevos.autores);
+            autoresDeBaja.removeAll(nuevos.autoresDeAlta);
+            editoriales.putAll(nuevos.editoriales);
+            editorialesDeBaja.removeAll(nuevos.editorialesDeAlta);
+            isbns.addAll(nuevos.isbns);
+        }
+    }
+
+    /**
+     * Lo que crea o da de alta un lote.
+     */
+    private static class Nuevos {
+
+        final Map<String, String> autores = new HashMap<>();
+        final Set<String> autoresDeAlta = new HashSet<>();
+        final Map<String, String> editoriales = new HashMap<>();
+        final Set<String> editorialesDeAlta = new HashSet<>();
+        final List<Long> isbns = new ArrayList<>();
+        int libros;
+
+        void sumar(Nuevos otro) {
+            autores.putAll(otro.autores);
+            autoresDeAlta.addAll(otro.autoresDeAlta);
+            editoriales.putAll(otro.editoriales);
+            editorialesDeAlta.addAll(otro.editorialesDeAlta);
+            isbns.addAll(otro.isbns);
+            libros += otro.libros;
+        }
+    }
+
+}
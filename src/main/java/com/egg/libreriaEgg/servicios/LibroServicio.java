@@ -1,5 +1,7 @@
 package com.egg.libreriaEgg.servicios;
 
+import com.egg.libreriaEgg.dto.LibroDto;
+import com.egg.libreriaEgg.dto.PaginaLibros;
 import com.egg.libreriaEgg.entidades.Autor;
 import com.egg.libreriaEgg.entidades.Editorial;
 import com.egg.libreriaEgg.entidades.Foto;
@@ -8,9 +10,16 @@ import com.egg.libreriaEgg.entidades.Prestamo;
 import com.egg.libreriaEgg.repositorios.AutorRepositorio;
 import com.egg.libreriaEgg.repositorios.EditorialRepositorio;
 import com.egg.libreriaEgg.repositorios.LibroRepositorio;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -25,6 +34,9 @@ import org.springframework.web.multipart.MultipartFile;
 @Service
 public class LibroServicio {
 
+    // Cantidad de libros por página del catálogo:
+    public static final int LIBROS_POR_PAGINA = 12;
+
     @Autowired
     private LibroRepositorio libroRepositorio;
 
@@ -46,6 +58,15 @@ public class LibroServicio {
     @Autowired
     private FotoServicio fotoServicio;
 
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    @Autowired
+    private BuscadorServicio buscadorServicio;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     /**
      * Método para registrar un libro.
      *
@@ -88,6 +109,8 @@ public class LibroServicio {
             libro.setFoto(foto);
             // Persistencia en la DB:
             libroRepositorio.save(libro);
+            catalogoCache.invalidarLibros();
+            buscadorServicio.indexar(libro);
         } catch (Exception e) {
             throw new Exception(e.getMessage());
 //            throw new Exception("Error al intentar guardar el Libro.");
@@ -108,7 +131,7 @@ public class LibroServicio {
      * @param editorial
      * @throws Exception
      */
-    @Transactional
+    @Transactional(rollbackFor = Exception.class)
     public void modificarLibro(String id, MultipartFile archivo, Long isbn, String titulo, Integer anio, String descripcion, Integer ejemplares, Autor autor, Editorial editorial) throws Exception {
         try {
             // Valido los datos ingresados:
@@ -117,20 +140,19 @@ public class LibroServicio {
             Optional<Libro> respuesta = libroRepositorio.findById(id);
             if (respuesta.isPresent()) { // El Libro con ese id SI existe en la DB
                 Libro libro = respuesta.get();
+                // Los ejemplares se cambian con un UPDATE condicional (ver
+                // LibroRepositorio.cambiarEjemplares), que bloquea el libro
+                // hasta el final de la transacción: un préstamo o una
+                // devolución simultáneos no se pierden.
+                if (libroRepositorio.cambiarEjemplares(id, ejemplares) == 0) {
+                    throw new Exception("Existen más préstamos vigentes que la cantidad de ejemplares que se indicó. Revise por favor los datos ingresados.");
+                }
+                actualizarEjemplares(libro);
                 // Seteo de atributos:
                 libro.setIsbn(isbn);
                 libro.setTitulo(titulo);
                 libro.setAnio(anio);
                 libro.setDescripcion(descripcion);
-                // Contar los préstamos existentes al momento de la modificación:
-                List<Prestamo> prestados = prestamoServicio.buscarPorLibro(id);
-                libro.setEjemplaresPrestados(prestados.size());
-                if (libro.getEjemplaresPrestados() > ejemplares) {
-                    throw new Exception("Existen más préstamos vigentes que la cantidad de ejemplares que se indicó. Revise por favor los datos ingresados.");
-                } else {
-                    libro.setEjemplares(ejemplares);
-                }
-                libro.setEjemplaresRestantes(ejemplares - libro.getEjemplaresPrestados());
                 // Seteo de Autor y Editorial:
                 libro.setAutor(autor);
                 libro.setEditorial(editorial);
@@ -144,6 +166,8 @@ public class LibroServicio {
                 }
                 // Persistencia en la DB:
                 libroRepositorio.save(libro);
+                catalogoCache.invalidarLibros();
+                buscadorServicio.indexar(libro);
             } else { // El libro con ese id NO existe en la DB
                 throw new Exception("No existe el Libro con el id indicado.");
             }
@@ -159,7 +183,7 @@ public class LibroServicio {
      * @param id
      * @throws java.lang.Exception
      */
-    @Transactional
+    @Transactional(rollbackFor = Exception.class)
     public void eliminarLibro(String id) throws Exception {
         try {
             // Usamos el repositorio para que busque el libro cuyo id sea el pasado como parámetro.
@@ -173,6 +197,8 @@ public class LibroServicio {
                 }
                 // Persistencia en la DB:
                 libroRepositorio.delete(libro);
+                catalogoCache.invalidarLibros();
+                buscadorServicio.quitar(id);
             } else { // El libro con ese id NO existe en la DB
                 throw new Exception("No existe el Libro con el id indicado.");
             }
@@ -187,7 +213,7 @@ public class LibroServicio {
      * @param id
      * @throws Exception
      */
-    @Transactional
+    @Transactional(rollbackFor = Exception.class)
     public void baja(String id) throws Exception {
         try {
             // Usamos el repositorio para que busque el libro cuyo id sea el pasado como parámetro.
@@ -202,6 +228,8 @@ public class LibroServicio {
                 }
                 libro.setAlta(false);
                 libroRepositorio.save(libro);
+                catalogoCache.invalidarLibros();
+                buscadorServicio.quitar(id);
             } else { // El libro con ese id NO existe en la DB
                 throw new Exception("No existe el Libro con el id indicado.");
             }
@@ -226,6 +254,8 @@ public class LibroServicio {
                 Libro libro = respuesta.get();
                 libro.setAlta(true);
                 libroRepositorio.save(libro);
+                catalogoCache.invalidarLibros();
+                buscadorServicio.indexar(libro);
                 // Da de alta el autor y/o editorial (en caso de que estén dados de baja):
                 if (!libro.getAutor().isAlta()) {
                     autorServicio.alta(libro.getAutor().getId());
@@ -242,18 +272,90 @@ public class LibroServicio {
         }
     }
 
+    /**
+     * Da de baja todos los libros de alta de un Autor, junto con sus
+     * préstamos de alta: el mismo resultado que llamar a baja() con cada uno,
+     * pero con unos pocos UPDATE (ver PrestamoServicio.bajaPrestamosDeLibros)
+     * en lugar de varios por libro y por préstamo. Bloquea los libros, los
+     * préstamos y los usuarios en el mismo orden que los préstamos y las
+     * devoluciones.
+     *
+     * @param idAutor
+     * @return cuántos libros se dieron de baja
+     * @throws Exception
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int bajaPorAutor(String idAutor) throws Exception {
+        // Se bloquean los libros, así nadie pide un préstamo de ellos mientras tanto:
+        List<String> ids = libroRepositorio.bloquearDeAltaPorAutor(idAutor);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        prestamoServicio.bajaPrestamosDeLibros(ids);
+        libroRepositorio.bajaPorAutor(idAutor);
+        quitarLibros(ids);
+        return ids.size();
+    }
+
+    /**
+     * Lo mismo que bajaPorAutor, para los libros de una Editorial.
+     *
+     * @param idEditorial
+     * @return cuántos libros se dieron de baja
+     * @throws Exception
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int bajaPorEditorial(String idEditorial) throws Exception {
+        List<String> ids = libroRepositorio.bloquearDeAltaPorEditorial(idEditorial);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        prestamoServicio.bajaPrestamosDeLibros(ids);
+        libroRepositorio.bajaPorEditorial(idEditorial);
+        quitarLibros(ids);
+        return ids.size();
+    }
+
+    private void quitarLibros(List<String> ids) {
+        catalogoCache.invalidarLibros();
+        for (String id : ids) {
+            buscadorServicio.quitar(id);
+        }
+    }
+
+    /**
+     * Da de alta todos los libros de un Autor y las Editoriales de esos
+     * libros que estén dadas de baja: el mismo resultado que llamar a alta()
+     * con cada uno, con un UPDATE para los libros y otro para las editoriales.
+     *
+     * @param idAutor
+     */
+    @Transactional
+    public void altaPorAutor(String idAutor) {
+        libroRepositorio.altaPorAutor(idAutor);
+        if (editorialRepositorio.altaPorAutor(idAutor) > 0) {
+            catalogoCache.invalidarEditoriales();
+        }
+        catalogoCache.invalidarLibros();
+        for (Libro libro : libroRepositorio.buscarPorAutorConDatos(idAutor)) {
+            buscadorServicio.indexar(libro);
+        }
+    }
+
     /**
      * El método modifica los ejemplares prestados y restantes en caso de que
-     * sea válido registrar el préstamo.
+     * sea válido registrar el préstamo. El ejemplar se reserva con un UPDATE
+     * condicional (ver LibroRepositorio.reservarEjemplar): si otro préstamo se
+     * llevó el último ejemplar al mismo tiempo, éste falla.
      *
      * @param libro
      * @throws Exception
      */
     @Transactional
     public void prestamoLibro(Libro libro) throws Exception {
-        if (libro.getEjemplaresRestantes() >= 1) {
-            libro.setEjemplaresPrestados(libro.getEjemplaresPrestados() + 1);
-            libro.setEjemplaresRestantes(libro.getEjemplares() - libro.getEjemplaresPrestados());
+        if (libroRepositorio.reservarEjemplar(libro.getId()) == 1) {
+            actualizarEjemplares(libro);
+            catalogoCache.invalidarLibros();
         } else {
             throw new Exception("No hay suficientes ejemplares disponibles para realizar el préstamo.");
         }
@@ -261,21 +363,88 @@ public class LibroServicio {
 
     /**
      * El método modifica los ejemplares prestados y restantes al realizar una
-     * devolución.
+     * devolución (con un UPDATE condicional, igual que prestamoLibro).
      *
      * @param libro
      * @throws Exception
      */
     @Transactional
     public void devolucionLibro(Libro libro) throws Exception {
-        if (libro.getEjemplaresPrestados() >= 1) {
-            libro.setEjemplaresPrestados(libro.getEjemplaresPrestados() - 1);
-            libro.setEjemplaresRestantes(libro.getEjemplares() - libro.getEjemplaresPrestados());
+        if (libroRepositorio.devolverEjemplar(libro.getId()) == 1) {
+            actualizarEjemplares(libro);
+            catalogoCache.invalidarLibros();
         } else {
             throw new Exception("No hay préstamos registrados para este Libro.");
         }
     }
 
+    /**
+     * Bloquea los libros de esos ids a los que les quedan ejemplares, hasta el
+     * final de la transacción (ver LibroRepositorio.bloquearDisponibles).
+     *
+     * @param ids
+     * @return los ids de los libros que se pueden prestar
+     */
+    @Transactional
+    public List<String> bloquearDisponibles(Collection<String> ids) {
+        return libroRepositorio.bloquearDisponibles(ids);
+    }
+
+    /**
+     * Bloquea los libros de esos préstamos hasta el final de la transacción
+     * (ver LibroRepositorio.bloquearPorPrestamos).
+     *
+     * @param idsPrestamos
+     */
+    @Transactional
+    public void bloquearPorPrestamos(Collection<String> idsPrestamos) {
+        libroRepositorio.bloquearPorPrestamos(idsPrestamos);
+    }
+
+    /**
+     * Reserva un ejemplar de cada uno de esos libros con un solo UPDATE (para
+     * los préstamos en lote). Falla si a alguno no le quedan ejemplares.
+     *
+     * @param ids
+     * @throws Exception
+     */
+    @Transactional
+    public void prestamoLibros(Collection<String> ids) throws Exception {
+        if (libroRepositorio.reservarEjemplares(ids, 1) != ids.size()) {
+            throw new Exception("No hay suficientes ejemplares disponibles para realizar los préstamos.");
+        }
+        catalogoCache.invalidarLibros();
+    }
+
+    /**
+     * Devuelve esa cantidad de ejemplares de cada uno de esos libros con un
+     * solo UPDATE (para las devoluciones en lote).
+     *
+     * @param ids
+     * @param cantidad
+     * @throws Exception
+     */
+    @Transactional
+    public void devolucionLibros(Collection<String> ids, int cantidad) throws Exception {
+        if (libroRepositorio.devolverEjemplares(ids, cantidad) != ids.size()) {
+            throw new Exception("No hay préstamos registrados para alguno de los Libros.");
+        }
+        catalogoCache.invalidarLibros();
+    }
+
+    /**
+     * Vuelve a leer el libro de la DB después de modificar sus ejemplares con
+     * un UPDATE, para que la entidad no quede con los valores anteriores (y no
+     * los vuelva a guardar si después se modifica otro atributo).
+     *
+     * @param libro
+     */
+    private void actualizarEjemplares(Libro libro) {
+        if (entityManager.contains(libro)) {
+            entityManager.refresh(libro);
+        }
+    }
+
     /**
      * No se tienen en cuenta ni el Autor ni la Editorial, ya que se podrán
      * seleccionar de una lista.
@@ -289,13 +458,13 @@ public class LibroServicio {
      */
     public void validar(Long isbn, String titulo, Integer anio, String descripcion, Integer ejemplares) throws Exception {
 
-        if (isbn <= 0 || isbn == null) {
+        if (isbn == null || isbn <= 0) {
             throw new Exception("ISBN no válido.");
         }
         if (titulo == null || titulo.isEmpty()) {
             throw new Exception("Título no válido.");
         }
-        if (anio <= 0 || anio == null) {
+        if (anio == null || anio <= 0) {
             throw new Exception("Año no válido.");
         }
         if (descripcion == null || descripcion.isEmpty()) {
@@ -304,7 +473,7 @@ public class LibroServicio {
         if (descripcion.length() > 255) {
             throw new Exception("La descripción no puede tener más de 200 caracteres.");
         }
-        if (ejemplares < 0 || ejemplares == null) {
+        if (ejemplares == null || ejemplares < 0) {
             throw new Exception("Cantidad de ejemplares no válidas.");
         }
     }
@@ -347,20 +516,77 @@ public class LibroServicio {
     }
 
     /**
-     * Sólo devuelve los libros dados de alta.
+     * Sólo devuelve los libros dados de alta (a través de la cache del
+     * catálogo).
      *
      * @return
      */
     public List<Libro> findAll() {
-        return libroRepositorio.findAll();
+        return catalogoCache.lista(CatalogoCache.LIBROS + "alta", libroRepositorio::findAll);
     }
 
     /**
-     * Sólo devuelve los libros dados de baja.
+     * Sólo devuelve los libros dados de baja (a través de la cache del
+     * catálogo).
      *
      * @return
      */
     public List<Libro> listarDeBaja() {
-        return libroRepositorio.listarDeBaja();
+        return catalogoCache.lista(CatalogoCache.LIBROS + "baja", libroRepositorio::listarDeBaja);
+    }
+
+    /**
+     * Devuelve una página del catálogo usando paginación por clave sobre
+     * (titulo, id). Sin cursor se devuelve la primera página; con cursor se
+     * devuelve la página siguiente (o la anterior, si "anterior" es true) al
+     * libro indicado. Si se indica un autor, sólo se listan sus libros; sino,
+     * sólo los libros dados de alta.
+     *
+     * Se pide un libro de más para saber si existe otra página en el mismo
+     * sentido del recorrido, sin necesidad de contar filas.
+     *
+     * @param idAutor (opcional)
+     * @param titulo titulo del libro cursor (opcional)
+     * @param id id del libro cursor (opcional)
+     * @param anterior
+     * @param tamanio
+     * @return
+     */
+    public PaginaLibros paginaCatalogo(String idAutor, String titulo, String id, boolean anterior, int tamanio) {
+        PageRequest limite = PageRequest.of(0, tamanio + 1);
+        boolean conAutor = idAutor != null && !idAutor.isEmpty();
+        boolean conCursor = titulo != null && id != null && !id.isEmpty();
+        List<Libro> libros;
+        if (!conCursor) {
+            libros = conAutor ? libroRepositorio.paginaInicialAutor(idAutor, limite) : libroRepositorio.paginaInicial(limite);
+        } else if (anterior) {
+            libros = conAutor ? libroRepositorio.paginaAnteriorAutor(idAutor, titulo, id, limite) : libroRepositorio.paginaAnterior(titulo, id, limite);
+        } else {
+            libros = conAutor ? libroRepositorio.paginaSiguienteAutor(idAutor, titulo, id, limite) : libroRepositorio.paginaSiguiente(titulo, id, limite);
+        }
+        boolean hayMas = libros.size() > tamanio;
+        if (hayMas) {
+            libros = libros.subList(0, tamanio);
+        }
+        if (conCursor && anterior) {
+            // La consulta hacia atrás viene en orden inverso:
+            Collections.reverse(libros);
+            return new PaginaLibros(libros, hayMas, true);
+        }
+        return new PaginaLibros(libros, conCursor, hayMas);
+    }
+
+    /**
+     * Recorre todos los libros dados de alta, ordenados por título, sin
+     * cargarlos todos en memoria: cada libro se pasa al consumidor a medida
+     * que se lee de la DB (ver LibroRepositorio.recorrerCatalogo()).
+     *
+     * @param consumidor
+     */
+    @Transactional(readOnly = true)
+    public void recorrerCatalogo(Consumer<LibroDto> consumidor) {
+        try (Stream<LibroDto> libros = libroRepositorio.recorrerCatalogo()) {
+            libros.forEach(consumidor);
+        }
     }
 }
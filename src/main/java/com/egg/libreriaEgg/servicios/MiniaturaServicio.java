@@ -0,0 +1,309 @@
+package com.egg.libreriaEgg.servicios;
+
+import com.egg.libreriaEgg.dto.FotoMetadatos;
+import com.egg.libreriaEgg.entidades.Miniatura;
+import com.egg.libreriaEgg.repositorios.MiniaturaRepositorio;
+import com.egg.libreriaEgg.utilidades.Ejecutores;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Esta clase tiene la responsabilidad de generar y devolver las miniaturas de
+ * las fotos: copias en JPEG con algunos anchos fijos (ANCHOS), para que el
+ * catálogo no descargue las fotos originales para mostrarlas en tarjetas.
+ *
+ * Las miniaturas se generan en segundo plano, en un grupo acotado de hilos
+ * ("foto.miniaturas.hilos") con una cola acotada ("foto.miniaturas.cola"):
+ * cuando se guarda una foto y cuando se pide una miniatura que todavía no
+ * existe (por ejemplo, de fotos anteriores). Mientras tanto se sirve la foto
+ * original. Si la cola está llena, el pedido se descarta y se vuelve a
+ * intentar la próxima vez que se pida la miniatura.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Service
+public class MiniaturaServicio {
+
+    // Anchos (en píxeles) que se generan, de menor a mayor:
+    public static final int[] ANCHOS = {200, 400, 800};
+
+    private static final String MIME = "image/jpeg";
+    private static final float CALIDAD = 0.8f;
+
+    private static final Logger LOG = Logger.getLogger(MiniaturaServicio.class.getName());
+
+    @Autowired
+    private FotoServicio fotoServicio;
+
+    @Autowired
+    private MiniaturaRepositorio miniaturaRepositorio;
+
+    @Value("${foto.miniaturas.hilos:2}")
+    private int hilos;
+
+    @Value("${foto.miniaturas.cola:100}")
+    private int cola;
+
+    private ThreadPoolExecutor executor;
+
+    // Fotos con una generación pendiente (para no encolarlas dos veces):
+    private final Set<String> pendientes = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void iniciar() {
+        executor = Ejecutores.acotado("miniaturas", hilos, cola);
+    }
+
+    @PreDestroy
+    public void detener() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Devuelve el ancho de miniatura que corresponde a un ancho pedido (el
+     * menor que lo cubre), o null si hay que servir la foto original.
+     *
+     * @param pedido
+     * @return
+     */
+    public static Integer anchoPara(Integer pedido) {
+        if (pedido == null || pedido <= 0) {
+            return null;
+        }
+        for (int ancho : ANCHOS) {
+            if (ancho >= pedido) {
+                return ancho;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Devuelve el id de la miniatura de una foto con ese ancho, o null si
+     * todavía no se generó (en ese caso, se programa su generación).
+     *
+     * @param foto
+     * @param ancho
+     * @return
+     */
+    public String buscar(FotoMetadatos foto, int ancho) {
+        String id = Miniatura.id(foto.getHash(), ancho);
+        if (miniaturaRepositorio.existsById(id)) {
+            return id;
+        }
+        programar(foto.getId(), false);
+        return null;
+    }
+
+    /**
+     * Devuelve el contenido de una miniatura.
+     *
+     * @param id
+     * @return
+     */
+    public Resource contenido(String id) {
+        return new ByteArrayResource(miniaturaRepositorio.buscarContenido(id));
+    }
+
+    /**
+     * Cuando se confirma el guardado de una foto, se generan sus miniaturas
+     * (y se borran las que quedaron sin uso, si la foto se reemplazó).
+     *
+     * @param evento
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void fotoGuardada(FotoGuardada evento) {
+        programar(evento.getIdFoto(), true);
+    }
+
+    /**
+     * Encola la generación de las miniaturas de una foto.
+     *
+     * @param idFoto
+     * @param limpiar si además hay que borrar las miniaturas sin uso.
+     */
+    private void programar(final String idFoto, final boolean limpiar) {
+        if (!pendientes.add(idFoto)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    if (limpiar) {
+                        miniaturaRepositorio.borrarHuerfanas();
+                    }
+                    generar(idFoto);
+                } catch (Exception e) {
+                    LOG.log(Level.WARNING, "No se pudieron generar las miniaturas de la foto " + idFoto, e);
+                } finally {
+                    pendientes.remove(idFoto);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // La cola está llena; se reintenta cuando se pida la miniatura.
+            pendientes.remove(idFoto);
+        }
+    }
+
+    /**
+     * Genera las miniaturas que le falten a una foto. La foto original se lee
+     * una sola vez, submuestreada al decodificarla para no ocupar más memoria
+     * de la necesaria para la miniatura más grande.
+     *
+     * @param idFoto
+     * @throws IOException
+     */
+    void generar(String idFoto) throws IOException {
+        FotoMetadatos foto = fotoServicio.metadatos(idFoto);
+        if (foto == null) {
+            return;
+        }
+        List<Integer> generados = miniaturaRepositorio.anchosGenerados(foto.getHash());
+        List<Integer> faltantes = new ArrayList<>();
+        for (int ancho : ANCHOS) {
+            if (!generados.contains(ancho)) {
+                faltantes.add(ancho);
+            }
+        }
+        if (faltantes.isEmpty()) {
+            return;
+        }
+        BufferedImage imagen = leer(fotoServicio.contenido(foto), faltantes.get(faltantes.size() - 1));
+        if (imagen == null) {
+            LOG.log(Level.INFO, "La foto {0} no tiene un formato de imagen soportado.", idFoto);
+            return;
+        }
+        // De mayor a menor, así cada miniatura se reduce a partir de la anterior:
+        for (int i = faltantes.size() - 1; i >= 0; i--) {
+            int ancho = faltantes.get(i);
+            imagen = reducir(imagen, ancho);
+            byte[] contenido = codificar(imagen);
+            Miniatura miniatura = new Miniatura();
+            miniatura.setId(Miniatura.id(foto.getHash(), ancho));
+            miniatura.setHash(foto.getHash());
+            miniatura.setAncho(ancho);
+            miniatura.setMime(MIME);
+            miniatura.setTamanio((long) contenido.length);
+            miniatura.setModificacion(new Date());
+            miniatura.setContenido(contenido);
+            miniaturaRepositorio.save(miniatura);
+        }
+    }
+
+    /**
+     * Decodifica una imagen salteando píxeles (submuestreo) mientras el ancho
+     * resultante siga siendo al menos "anchoMinimo".
+     *
+     * @param contenido
+     * @param anchoMinimo
+     * @return la imagen, o null si el formato no es soportado.
+     * @throws IOException
+     */
+    private BufferedImage leer(Resource contenido, int anchoMinimo) throws IOException {
+        try (InputStream entrada = contenido.getInputStream();
+                ImageInputStream imagen = ImageIO.createImageInputStream(entrada)) {
+            Iterator<ImageReader> lectores = ImageIO.getImageReaders(imagen);
+            if (!lectores.hasNext()) {
+                return null;
+            }
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(imagen, true, true);
+                int paso = Math.max(1, lector.getWidth(0) / anchoMinimo);
+                ImageReadParam parametros = lector.getDefaultReadParam();
+                parametros.setSourceSubsampling(paso, paso, 0, 0);
+                return lector.read(0, parametros);
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
+
+    /**
+     * Reduce una imagen a un ancho dado, manteniendo la proporción. Se reduce
+     * a la mitad por pasos (y al final al ancho exacto), que da mejor calidad
+     * que una sola reducción grande. Las imágenes más chicas no se agrandan.
+     *
+     * @param imagen
+     * @param ancho
+     * @return
+     */
+    private static BufferedImage reducir(BufferedImage imagen, int ancho) {
+        BufferedImage actual = imagen;
+        do {
+            int siguiente = Math.max(ancho, actual.getWidth() / 2);
+            if (siguiente >= actual.getWidth()) {
+                siguiente = actual.getWidth();
+            }
+            int alto = Math.max(1, (int) Math.round((double) actual.getHeight() * siguiente / actual.getWidth()));
+            BufferedImage reducida = new BufferedImage(siguiente, alto, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = reducida.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                // Fondo blanco para las imágenes con transparencia (JPEG no la admite):
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, siguiente, alto);
+                g.drawImage(actual, 0, 0, siguiente, alto, null);
+            } finally {
+                g.dispose();
+            }
+            actual = reducida;
+        } while (actual.getWidth() > ancho);
+        return actual;
+    }
+
+    /**
+     * Codifica una imagen como JPEG.
+     *
+     * @param imagen
+     * @return
+     * @throws IOException
+     */
+    private static byte[] codificar(BufferedImage imagen) throws IOException {
+        ImageWriter escritor = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (ImageOutputStream destino = ImageIO.createImageOutputStream(salida)) {
+            escritor.setOutput(destino);
+            ImageWriteParam parametros = escritor.getDefaultWriteParam();
+            parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            parametros.setCompressionQuality(CALIDAD);
+            escritor.write(null, new IIOImage(imagen, null, null), parametros);
+        } finally {
+            escritor.dispose();
+        }
+        return salida.toByteArray();
+    }
+
+}
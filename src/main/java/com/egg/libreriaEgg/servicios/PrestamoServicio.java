@@ -1,11 +1,30 @@
 package com.egg.libreriaEgg.servicios;
 
+import com.egg.libreriaEgg.dto.PrestamoVista;
+import com.egg.libreriaEgg.dto.ResumenPrestamos;
 import com.egg.libreriaEgg.entidades.Libro;
 import com.egg.libreriaEgg.entidades.Prestamo;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.enums.Rol;
 import com.egg.libreriaEgg.repositorios.PrestamoRepositorio;
+import com.egg.libreriaEgg.repositorios.UsuarioRepositorio;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,6 +33,22 @@ import org.springframework.transaction.annotation.Transactional;
  * necesarias para administrar préstamos (consulta, préstamo, modificación y dar
  * de baja).
  *
+ * Cada usuario puede tener como mucho prestamos.limite.{rol} préstamos de alta
+ * (prestamos.limite, si no se configuró para su rol). La cantidad se lleva en
+ * Usuario.prestamosActivos y se modifica con un UPDATE condicional, en la
+ * misma transacción que el ejemplar del libro: si no se puede una de las dos
+ * cosas, no se hace ninguna.
+ *
+ * agregarPrestamos y bajaPrestamos registran o devuelven muchos préstamos en
+ * una sola transacción (por ejemplo, una pila de devoluciones en el
+ * mostrador): bloquean las filas que van a modificar y las actualizan con un
+ * UPDATE por tabla, en lugar de uno o más por préstamo.
+ *
+ * Todos los métodos que modifican préstamos (también las bajas de un Autor o
+ * una Editorial en LibroServicio) bloquean las filas en el mismo orden:
+ * primero los libros, después los préstamos y por último los usuarios. Así
+ * dos transacciones simultáneas se esperan, pero no se bloquean entre sí.
+ *
  * @author Mauro Montenegro <maumontenegro.s at gmail.com>
  */
 @Service
@@ -28,6 +63,18 @@ public class PrestamoServicio {
     @Autowired
     private UsuarioServicio usuarioServicio;
 
+    @Autowired
+    private UsuarioRepositorio usuarioRepositorio;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${prestamos.limite:4}")
+    private int limitePorDefecto;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     /**
      * Método para registrar un Préstamo.
      *
@@ -35,10 +82,11 @@ public class PrestamoServicio {
      * @param fechaDevolucion
      * @param idLibro
      * @param idUsuario
+     * @return el préstamo registrado
      * @throws Exception
      */
-    @Transactional
-    public void agregarPrestamo(Date fechaPrestamo, Date fechaDevolucion, String idLibro, String idUsuario) throws Exception {
+    @Transactional(rollbackFor = Exception.class)
+    public Prestamo agregarPrestamo(Date fechaPrestamo, Date fechaDevolucion, String idLibro, String idUsuario) throws Exception {
         Prestamo prestamo = new Prestamo();
         try {
             // Valido los datos ingresados:
@@ -46,7 +94,6 @@ public class PrestamoServicio {
             // Seteo de atributos:
             prestamo.setFechaPrestamo(fechaPrestamo);
             prestamo.setFechaDevolucion(fechaDevolucion);
-            prestamo.setUsuario(usuarioServicio.getById(idUsuario));
             prestamo.setAlta(true);
             // Validación de ejemplares y seteo del Libro:
             try {
@@ -56,13 +103,196 @@ public class PrestamoServicio {
             } catch (Exception e) {
                 throw new Exception(e.getMessage());
             }
+            // Validación del límite de préstamos activos (después del
+            // ejemplar, en el mismo orden que las devoluciones, para que dos
+            // transacciones no se bloqueen entre sí):
+            Usuario usuario = usuarioServicio.getById(idUsuario);
+            sumarPrestamoActivo(usuario);
+            prestamo.setUsuario(usuario);
             // Persistencia en la DB:
-            prestamoRepositorio.save(prestamo);
+            return prestamoRepositorio.save(prestamo);
         } catch (Exception e) {
             throw new Exception(e.getMessage());
         }
     }
 
+    /**
+     * Registra préstamos de varios libros a un mismo usuario, en una sola
+     * transacción. Se prestan, en el orden pedido, los libros a los que les
+     * quedan ejemplares, hasta llegar al límite de préstamos activos del
+     * usuario; el resto se informa como rechazado en el resumen.
+     *
+     * @param fechaPrestamo
+     * @param fechaDevolucion
+     * @param idUsuario
+     * @param idsLibros
+     * @return los préstamos registrados (y los libros rechazados, con el
+     * motivo)
+     * @throws Exception si los datos no son válidos
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public ResumenPrestamos agregarPrestamos(Date fechaPrestamo, Date fechaDevolucion, String idUsuario, List<String> idsLibros) throws Exception {
+        validarFechas(fechaPrestamo, fechaDevolucion);
+        if (idUsuario == null || !usuarioRepositorio.existsById(idUsuario)) {
+            throw new Exception("Id de Usuario no válido.");
+        }
+        if (idsLibros == null || idsLibros.isEmpty()) {
+            throw new Exception("Debe indicar al menos un Libro.");
+        }
+        ResumenPrestamos resumen = new ResumenPrestamos();
+        Set<String> pedidos = new LinkedHashSet<>();
+        for (String idLibro : idsLibros) {
+            if (idLibro != null && !pedidos.add(idLibro)) {
+                resumen.rechazado(idLibro, "El Libro está repetido.");
+            }
+        }
+        // Se bloquean primero los libros y después el usuario, en el mismo
+        // orden que agregarPrestamo y baja:
+        Set<String> disponibles = new HashSet<>(libroServicio.bloquearDisponibles(pedidos));
+        Usuario usuario = usuarioServicio.getById(idUsuario);
+        int limite = limitePrestamos(usuario.getRol());
+        int cupo = limite - usuarioRepositorio.bloquearPrestamosActivos(idUsuario);
+        List<String> aceptados = new ArrayList<>();
+        for (String idLibro : pedidos) {
+            if (!disponibles.contains(idLibro)) {
+                resumen.rechazado(idLibro, "No hay ejemplares disponibles de este Libro (o no existe).");
+            } else if (aceptados.size() >= cupo) {
+                resumen.rechazado(idLibro, "Límite de " + limite + " préstamos activos alcanzado.");
+            } else {
+                aceptados.add(idLibro);
+            }
+        }
+        if (aceptados.isEmpty()) {
+            return resumen;
+        }
+        libroServicio.prestamoLibros(aceptados);
+        if (usuarioRepositorio.sumarPrestamos(idUsuario, aceptados.size(), limite) == 0) {
+            throw new Exception("Límite de " + limite + " préstamos activos alcanzado.");
+        }
+        // Los préstamos se insertan en lote (hibernate.jdbc.batch_size); el
+        // libro y el usuario son referencias, sin consultarlos:
+        List<Prestamo> prestamos = new ArrayList<>(aceptados.size());
+        for (String idLibro : aceptados) {
+            Prestamo prestamo = new Prestamo();
+            prestamo.setFechaPrestamo(fechaPrestamo);
+            prestamo.setFechaDevolucion(fechaDevolucion);
+            prestamo.setLibro(libroServicio.getById(idLibro));
+            prestamo.setUsuario(usuario);
+            prestamo.setAlta(true);
+            prestamos.add(prestamo);
+        }
+        for (Prestamo prestamo : prestamoRepositorio.saveAll(prestamos)) {
+            resumen.realizado(prestamo.getId());
+        }
+        return resumen;
+    }
+
+    /**
+     * Registra la devolución de varios préstamos en una sola transacción: da
+     * de baja los préstamos y devuelve los ejemplares de los libros y los
+     * préstamos activos de los usuarios con un UPDATE por tabla (uno por cada
+     * cantidad distinta, si un libro o un usuario aparece más de una vez). Los
+     * préstamos que no existen o ya estaban dados de baja se informan como
+     * rechazados en el resumen.
+     *
+     * @param idsPrestamos
+     * @return los préstamos devueltos (y los rechazados, con el motivo)
+     * @throws Exception
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public ResumenPrestamos bajaPrestamos(List<String> idsPrestamos) throws Exception {
+        if (idsPrestamos == null || idsPrestamos.isEmpty()) {
+            throw new Exception("Debe indicar al menos un Préstamo.");
+        }
+        ResumenPrestamos resumen = new ResumenPrestamos();
+        Set<String> pedidos = new LinkedHashSet<>();
+        for (String id : idsPrestamos) {
+            if (id != null && !pedidos.add(id)) {
+                resumen.rechazado(id, "El Préstamo está repetido.");
+            }
+        }
+        // Se bloquean primero los libros y después los préstamos (ver arriba):
+        libroServicio.bloquearPorPrestamos(pedidos);
+        List<Object[]> prestamos = prestamoRepositorio.bloquearDeAlta(pedidos);
+        Set<String> devueltos = new HashSet<>();
+        for (Object[] fila : prestamos) {
+            devueltos.add((String) fila[0]);
+        }
+        for (String id : pedidos) {
+            if (devueltos.contains(id)) {
+                resumen.realizado(id);
+            } else {
+                resumen.rechazado(id, "El préstamo no existe o ya fue dado de baja.");
+            }
+        }
+        registrarDevoluciones(prestamos);
+        return resumen;
+    }
+
+    /**
+     * Da de baja todos los préstamos de alta de esos libros (para dar de baja
+     * los libros de un Autor o una Editorial, ver LibroServicio.bajaPorAutor),
+     * igual que bajaPrestamos. Los libros ya tienen que estar bloqueados.
+     *
+     * @param idsLibros
+     * @throws Exception
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void bajaPrestamosDeLibros(Collection<String> idsLibros) throws Exception {
+        registrarDevoluciones(prestamoRepositorio.bloquearDeAltaPorLibros(idsLibros));
+    }
+
+    /**
+     * Da de baja esos préstamos, ya bloqueados, como [id, id del libro, id
+     * del usuario], y devuelve los ejemplares de los libros y los préstamos
+     * activos de los usuarios con un UPDATE por tabla (uno por cada cantidad
+     * distinta, si un libro o un usuario aparece más de una vez).
+     *
+     * @param prestamos
+     * @throws Exception
+     */
+    private void registrarDevoluciones(List<Object[]> prestamos) throws Exception {
+        if (prestamos.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> porLibro = new LinkedHashMap<>();
+        Map<String, Integer> porUsuario = new LinkedHashMap<>();
+        Set<String> ids = new LinkedHashSet<>();
+        for (Object[] fila : prestamos) {
+            ids.add((String) fila[0]);
+            if (fila[1] != null) {
+                porLibro.merge((String) fila[1], 1, Integer::sum);
+            }
+            if (fila[2] != null) {
+                porUsuario.merge((String) fila[2], 1, Integer::sum);
+            }
+        }
+        if (prestamoRepositorio.registrarDevoluciones(ids, new Date()) != ids.size()) {
+            throw new Exception("Alguno de los préstamos ya fue dado de baja.");
+        }
+        for (Map.Entry<Integer, List<String>> grupo : porCantidad(porLibro).entrySet()) {
+            libroServicio.devolucionLibros(grupo.getValue(), grupo.getKey());
+        }
+        for (Map.Entry<Integer, List<String>> grupo : porCantidad(porUsuario).entrySet()) {
+            usuarioRepositorio.restarPrestamos(grupo.getValue(), grupo.getKey());
+        }
+    }
+
+    /**
+     * Agrupa los ids según su cantidad, para modificar con un mismo UPDATE
+     * todos los que tienen la misma (casi siempre, 1).
+     *
+     * @param cantidades
+     * @return
+     */
+    private static Map<Integer, List<String>> porCantidad(Map<String, Integer> cantidades) {
+        Map<Integer, List<String>> grupos = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> cantidad : cantidades.entrySet()) {
+            grupos.computeIfAbsent(cantidad.getValue(), c -> new ArrayList<>()).add(cantidad.getKey());
+        }
+        return grupos;
+    }
+
     /**
      * SÓLO SIRVE PARA RENOVAR EL PRÉSTAMO (fecha de préstamo y fecha de
      * devolución). No se puede modificar libro ni usuario.
@@ -101,16 +331,22 @@ public class PrestamoServicio {
      * @param id
      * @throws Exception
      */
-    @Transactional
+    @Transactional(rollbackFor = Exception.class)
     public void eliminarPrestamo(String id) throws Exception {
         try {
             // Usamos el repositorio para que busque el prestamo cuyo id sea el pasado como parámetro.
             Prestamo prestamo = prestamoRepositorio.getById(id);
-            if (prestamo.isAlta()) {
+            // Primero se bloquea el libro, después se registra la devolución
+            // con un UPDATE condicional (como en baja) y por último se
+            // modifica el usuario: si el préstamo ya estaba devuelto (por
+            // ejemplo, por una devolución simultánea), sólo se elimina.
+            libroServicio.bloquearPorPrestamos(Collections.singletonList(id));
+            if (prestamoRepositorio.registrarDevolucion(id, new Date()) == 1) {
                 Libro libro = prestamo.getLibro();
                 libroServicio.devolucionLibro(libro);
-                // Persistencia en la DB:
+                // Persistencia en la DB (el UPDATE del usuario envía antes el DELETE del préstamo):
                 prestamoRepositorio.delete(prestamo);
+                restarPrestamoActivo(prestamo.getUsuario());
             } else {
                 // Persistencia en la DB:
                 prestamoRepositorio.delete(prestamo);
@@ -129,18 +365,22 @@ public class PrestamoServicio {
      * @param id
      * @throws Exception
      */
-    @Transactional
+    @Transactional(rollbackFor = Exception.class)
     public void baja(String id) throws Exception {
         try {
             // Usamos el repositorio para que busque el prestamo cuyo id sea el pasado como parámetro.
             Prestamo prestamo = prestamoRepositorio.getById(id);
             if (prestamo != null) {
+                // Primero se devuelve el ejemplar (se bloquea el libro) y
+                // después se registra la baja con un UPDATE condicional: si el
+                // préstamo ya estaba devuelto, falla y se deshace todo.
                 Libro libro = prestamo.getLibro();
                 libroServicio.devolucionLibro(libro);
-                prestamo.setFechaDevolucion(new Date());
-                prestamo.setAlta(false);
-                // Persistencia en la DB:
-                prestamoRepositorio.save(prestamo);
+                if (prestamoRepositorio.registrarDevolucion(id, new Date()) == 0) {
+                    throw new Exception("El préstamo ya fue dado de baja.");
+                }
+                restarPrestamoActivo(prestamo.getUsuario());
+                entityManager.refresh(prestamo);
             } else {
                 throw new Exception("No existe el prestamo vinculado a ese ID.");
             }
@@ -156,15 +396,19 @@ public class PrestamoServicio {
      * @param id
      * @throws Exception
      */
-    @Transactional
+    @Transactional(rollbackFor = Exception.class)
     public void alta(String id) throws Exception {
         try {
             // Usamos el repositorio para que busque el prestamo cuyo id sea el pasado como parámetro.
             Prestamo prestamo = prestamoRepositorio.getById(id);
             if (prestamo != null) {
+                boolean estabaDeBaja = !prestamo.isAlta();
                 prestamo.setAlta(true);
-                // Persistencia en la DB:
-                prestamoRepositorio.save(prestamo);
+                // Persistencia en la DB (antes que el usuario, ver arriba):
+                prestamoRepositorio.saveAndFlush(prestamo);
+                if (estabaDeBaja) {
+                    sumarPrestamoActivo(prestamo.getUsuario());
+                }
             } else {
                 throw new Exception("No existe el prestamo vinculado a ese ID.");
             }
@@ -235,6 +479,53 @@ public class PrestamoServicio {
         }
     }
 
+    /**
+     * Cuántos préstamos de alta puede tener un usuario con ese rol.
+     *
+     * @param rol
+     * @return
+     */
+    public int limitePrestamos(Rol rol) {
+        return environment.getProperty("prestamos.limite." + rol.name().toLowerCase(), Integer.class, limitePorDefecto);
+    }
+
+    /**
+     * Suma un préstamo activo al usuario, o lanza una excepción si ya llegó a
+     * su límite.
+     *
+     * @param usuario
+     * @throws Exception
+     */
+    private void sumarPrestamoActivo(Usuario usuario) throws Exception {
+        int limite = limitePrestamos(usuario.getRol());
+        if (usuarioRepositorio.sumarPrestamos(usuario.getId(), 1, limite) == 0) {
+            throw new Exception("Límite de " + limite + " préstamos activos alcanzado. Debe registrar una devolución para solicitar un nuevo préstamo.");
+        }
+        actualizarPrestamosActivos(usuario);
+    }
+
+    /**
+     * Resta un préstamo activo al usuario.
+     *
+     * @param usuario
+     */
+    private void restarPrestamoActivo(Usuario usuario) {
+        usuarioRepositorio.restarPrestamos(Collections.singletonList(usuario.getId()), 1);
+        actualizarPrestamosActivos(usuario);
+    }
+
+    /**
+     * Vuelve a leer el usuario de la DB después del UPDATE (igual que los
+     * ejemplares en LibroServicio).
+     *
+     * @param usuario
+     */
+    private void actualizarPrestamosActivos(Usuario usuario) {
+        if (entityManager.contains(usuario)) {
+            entityManager.refresh(usuario);
+        }
+    }
+
     // ------------------------------ MÉTODOS DEL REPOSITORIO ------------------------------
     /**
      *
@@ -305,4 +596,58 @@ public class PrestamoServicio {
         return prestamoRepositorio.buscarPrestamosBajaUsuario(idUsuario);
     }
 
+    /**
+     * Datos de los préstamos de alta, para las tablas del administrador.
+     *
+     * @return
+     */
+    public List<PrestamoVista> vistaDeAlta() {
+        return prestamoRepositorio.vistaPrestamos(true);
+    }
+
+    /**
+     * Datos de los préstamos de baja, para las tablas del administrador.
+     *
+     * @return
+     */
+    public List<PrestamoVista> vistaDeBaja() {
+        return prestamoRepositorio.vistaPrestamos(false);
+    }
+
+    /**
+     * Datos de los préstamos de alta de un usuario, para las tablas del
+     * administrador.
+     *
+     * @param idUsuario
+     * @return
+     */
+    public List<PrestamoVista> vistaDeAltaUsuario(String idUsuario) {
+        return prestamoRepositorio.vistaPrestamosUsuario(true, idUsuario);
+    }
+
+    /**
+     * Datos de los préstamos de baja de un usuario, para las tablas del
+     * administrador.
+     *
+     * @param idUsuario
+     * @return
+     */
+    public List<PrestamoVista> vistaDeBajaUsuario(String idUsuario) {
+        return prestamoRepositorio.vistaPrestamosUsuario(false, idUsuario);
+    }
+
+    /**
+     * Recorre los datos de todos los préstamos, de los más recientes a los más
+     * antiguos, sin cargarlos todos en memoria (ver
+     * PrestamoRepositorio.recorrerPrestamos()).
+     *
+     * @param consumidor
+     */
+    @Transactional(readOnly = true)
+    public void recorrerPrestamos(Consumer<PrestamoVista> consumidor) {
+        try (Stream<PrestamoVista> prestamos = prestamoRepositorio.recorrerPrestamos()) {
+            prestamos.forEach(consumidor);
+        }
+    }
+
 }
@@ -6,33 +6,22 @@ import com.egg.libreriaEgg.entidades.Usuario;
 import com.egg.libreriaEgg.enums.Rol;
 import com.egg.libreriaEgg.repositorios.UsuarioRepositorio;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import javax.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.multipart.MultipartFile;
 
 /**
  * Esta clase tiene la responsabilidad de llevar adelante las funcionalidades
  * necesarias para administrar usuarios (consulta, creación, modificación y dar
- * de baja).
+ * de baja). La autenticación está en AutenticacionServicio.
  *
  * @author Mauro Montenegro <maumontenegro.s at gmail.com>
  */
 @Service
-public class UsuarioServicio implements UserDetailsService {
+public class UsuarioServicio {
 
     @Autowired
     private UsuarioRepositorio usuarioRepositorio;
@@ -43,6 +32,12 @@ public class UsuarioServicio implements UserDetailsService {
     @Autowired
     private PrestamoServicio prestamoServicio;
 
+    @Autowired
+    private AutenticacionServicio autenticacionServicio;
+
+    @Autowired
+    private ClaveServicio claveServicio;
+
     /**
      * Método de Registro de Usuario:
      *
@@ -72,7 +67,7 @@ public class UsuarioServicio implements UserDetailsService {
         //Seteo de forma automática el rol de USUARIO:
         usuario.setRol(Rol.USUARIO);
         // Encriptación de la clave:
-        String encriptada = new BCryptPasswordEncoder().encode(clave);
+        String encriptada = claveServicio.encriptar(clave);
         usuario.setClave(encriptada);
         // Seteo de la foto:
         Foto foto = fotoServicio.guardar(archivo);
@@ -95,21 +90,25 @@ public class UsuarioServicio implements UserDetailsService {
      * @param clave2
      * @throws Exception
      */
-    @Transactional
+    @Transactional(rollbackFor = Exception.class)
     public void modificar(String id, MultipartFile archivo, String nombre, String apellido, String dni, String telefono, String mail, String clave, String clave2) throws Exception {
         // Antes de persistir, hay que asegurarse de que los datos obligatorios no lleguen vacíos (sean válidos).
         validar(nombre, apellido, dni, telefono, mail, clave, clave2);
+        // Encriptación de la clave (antes de modificar el usuario, por si falla):
+        String encriptada = claveServicio.encriptar(clave);
         // Usamos el repositorio para que busque el usuario cuyo id sea el pasado como parámetro.
         Usuario usuario = usuarioRepositorio.getById(id);
         if (usuario != null) {
             // El usuario con ese id SI existe en la DB
+            // Los datos de login cambian (también el mail, si lo modificó):
+            autenticacionServicio.invalidar(usuario.getMail(), mail);
+            // Las otras sesiones abiertas (con la clave anterior) se cierran; la actual la actualiza el controlador:
+            autenticacionServicio.cerrarOtrasSesiones(usuario.getMail());
             usuario.setNombre(nombre);
             usuario.setApellido(apellido);
             usuario.setDni(dni);
             usuario.setMail(mail);
             usuario.setTelefono(telefono);
-            // Encriptación de la clave:
-            String encriptada = new BCryptPasswordEncoder().encode(clave);
             usuario.setClave(encriptada);
             // Seteo de la foto (en caso de haberla modificado):
             if (!archivo.isEmpty()) {
@@ -134,7 +133,7 @@ public class UsuarioServicio implements UserDetailsService {
      * @param id
      * @throws Exception
      */
-    @Transactional
+    @Transactional(rollbackFor = Exception.class)
     public void eliminar(String id) throws Exception {
         try {
             // Usamos el repositorio para que busque el usuario cuyo id sea el pasado como parámetro.
@@ -147,6 +146,8 @@ public class UsuarioServicio implements UserDetailsService {
                 }
             }
             if (usuario != null) {
+                autenticacionServicio.invalidar(usuario.getMail());
+                autenticacionServicio.cerrarSesiones(usuario.getMail());
                 // Persistencia en la DB:
                 usuarioRepositorio.delete(usuario);
             } else {
@@ -169,6 +170,8 @@ public class UsuarioServicio implements UserDetailsService {
         if (usuario != null) {
             // El usuario con ese id SI existe en la DB
             usuario.setBaja(new Date());
+            autenticacionServicio.invalidar(usuario.getMail());
+            autenticacionServicio.cerrarSesiones(usuario.getMail());
             // El repositorio actualiza el objeto tipo usuario en la DB:
             usuarioRepositorio.save(usuario);
         } else {
@@ -192,6 +195,7 @@ public class UsuarioServicio implements UserDetailsService {
                 throw new Exception("El usuario no se encuentra dado de baja.");
             } else {
                 usuario.setBaja(null); // Le borramos la fecha de baja!!
+                autenticacionServicio.invalidar(usuario.getMail());
                 // El repositorio actualiza el objeto tipo usuario en la DB:
                 usuarioRepositorio.save(usuario);
             }
@@ -216,6 +220,9 @@ public class UsuarioServicio implements UserDetailsService {
             } else if (usuario.getRol().equals(Rol.ADMIN)) {
                 usuario.setRol(Rol.USUARIO);
             }
+            // El rol es el permiso con el que inicia sesión (también el de sus sesiones abiertas):
+            autenticacionServicio.invalidar(usuario.getMail());
+            autenticacionServicio.cerrarSesiones(usuario.getMail());
         }
     }
 
@@ -256,35 +263,6 @@ public class UsuarioServicio implements UserDetailsService {
         }
     }
 
-    /**
-     * Método que se llamará cuando el usuario quiere atentificarse en la
-     * plataforma
-     *
-     * @param mail
-     * @return
-     * @throws UsernameNotFoundException
-     */
-    @Override
-    public UserDetails loadUserByUsername(String mail) throws UsernameNotFoundException {
-        Usuario usuario = usuarioRepositorio.buscarPorMail(mail);
-        if (usuario != null) {
-            List<GrantedAuthority> permisos = new ArrayList<>();
-            // Incorporo a la lista de permisos el de USUARIO:
-            GrantedAuthority p1 = new SimpleGrantedAuthority("ROLE_" + usuario.getRol());
-            permisos.add(p1);
-
-            // Esto me permite guardar el OBJETO USUARIO LOG, para luego ser utilizado:
-            ServletRequestAttributes attr = (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
-            HttpSession session = attr.getRequest().getSession(true);
-            session.setAttribute("usuariosession", usuario);
-            // Traigo mail y clave del usuario para iniciar sesión; también la lista de permisos
-            User user = new User(usuario.getMail(), usuario.getClave(), permisos);
-            return user;
-        } else {
-            return null;
-        }
-    }
-
 // ------------------------------ MÉTODOS DEL REPOSITORIO ------------------------------
     /**
      * Busca un usuario por id.
@@ -296,6 +274,16 @@ public class UsuarioServicio implements UserDetailsService {
         return usuarioRepositorio.getById(id);
     }
 
+    /**
+     * Busca un usuario por su mail (el nombre con el que inicia sesión).
+     *
+     * @param mail
+     * @return el usuario, o null si no existe
+     */
+    public Usuario buscarPorMail(String mail) {
+        return usuarioRepositorio.buscarPorMail(mail);
+    }
+
     /**
      * Devuelve todos los usuarios registrados en la DB.
      *
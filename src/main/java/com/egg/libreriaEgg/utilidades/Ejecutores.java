@@ -0,0 +1,40 @@
+package com.egg.libreriaEgg.utilidades;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pools de hilos para el trabajo en segundo plano de los servicios (claves,
+ * miniaturas, importaciones).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public final class Ejecutores {
+
+    private Ejecutores() {
+    }
+
+    /**
+     * Un pool con una cantidad fija de hilos daemon (no impiden que se
+     * detenga la aplicación), llamados "nombre-1", "nombre-2", etc., y una
+     * cola acotada: con la cola llena, execute() y submit() lanzan
+     * RejectedExecutionException en lugar de acumular tareas sin límite.
+     *
+     * @param nombre
+     * @param hilos
+     * @param cola
+     * @return
+     */
+    public static ThreadPoolExecutor acotado(String nombre, int hilos, int cola) {
+        final AtomicInteger numero = new AtomicInteger();
+        return new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(cola), r -> {
+                    Thread hilo = new Thread(r, nombre + "-" + numero.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.egg.libreriaEgg.utilidades;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Acciones que dependen del resultado de la transacción en curso: actualizar
+ * índices o caches en memoria, borrar archivos o cerrar sesiones sólo cuando
+ * lo que se guardó en la DB ya es visible para los demás.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public final class Transacciones {
+
+    private Transacciones() {
+    }
+
+    /**
+     * Ejecuta la acción cuando se confirma la transacción en curso (si no hay
+     * transacción, la ejecuta inmediatamente). Si la transacción se revierte,
+     * no se ejecuta.
+     *
+     * @param accion
+     */
+    public static void alConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    /**
+     * Ejecuta la acción cuando termina la transacción en curso, se confirme o
+     * se revierta (si no hay transacción, no hace nada).
+     *
+     * @param accion
+     */
+    public static void alTerminar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    accion.run();
+                }
+            });
+        }
+    }
+
+}
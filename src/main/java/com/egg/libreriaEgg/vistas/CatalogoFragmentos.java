@@ -0,0 +1,158 @@
+package com.egg.libreriaEgg.vistas;
+
+import com.egg.libreriaEgg.dto.PaginaLibros;
+import com.egg.libreriaEgg.servicios.AutorServicio;
+import com.egg.libreriaEgg.servicios.CatalogoCache;
+import com.egg.libreriaEgg.servicios.LibroServicio;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.ui.ModelMap;
+import org.springframework.web.servlet.View;
+import org.thymeleaf.spring5.view.ThymeleafViewResolver;
+
+/**
+ * Cache del catálogo de la vista para USUARIO ya renderizado
+ * ("fragments/catalogo :: catalogo"), por filtro y página. Como el catálogo es
+ * igual para todos los usuarios, una página se arma (consultas y Thymeleaf) y
+ * se comprime una sola vez; el resto de "inicio.html" (barra de navegación,
+ * mensajes), que depende de la sesión, se sigue renderizando en cada petición
+ * (ver FragmentoView).
+ *
+ * Cada fragmento guarda la versión de la CatalogoCache con la que se armó:
+ * cualquier cambio en libros, autores o editoriales (incluidos los préstamos y
+ * devoluciones) cambia la versión y el fragmento se vuelve a armar. La
+ * cantidad de fragmentos se limita con catalogo.fragmentos.max-entradas; al
+ * llegar al límite se quita el usado hace más tiempo.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Component
+public class CatalogoFragmentos {
+
+    public static final String FRAGMENTO = "fragments/catalogo :: catalogo";
+
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    @Autowired
+    private LibroServicio libroServicio;
+
+    @Autowired
+    private AutorServicio autorServicio;
+
+    @Autowired
+    private ThymeleafViewResolver thymeleafViewResolver;
+
+    private final Map<String, FragmentoHtml> fragmentos;
+
+    public CatalogoFragmentos(@Value("${catalogo.fragmentos.max-entradas:200}") int maxEntradas) {
+        // LinkedHashMap con orden de acceso: el primero es el usado hace más tiempo.
+        this.fragmentos = new LinkedHashMap<String, FragmentoHtml>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FragmentoHtml> eldest) {
+                return size() > maxEntradas;
+            }
+        };
+    }
+
+    /**
+     * Devuelve el catálogo renderizado para un filtro (idAutor, puede ser null)
+     * y una página (como en LibroServicio.paginaCatalogo). Si no está en la
+     * cache, o es de una versión anterior del catálogo, lo arma.
+     *
+     * @param idAutor
+     * @param titulo
+     * @param id
+     * @param anterior
+     * @param request
+     * @param response
+     * @return
+     * @throws Exception
+     */
+    public FragmentoHtml obtener(String idAutor, String titulo, String id, boolean anterior, HttpServletRequest request, HttpServletResponse response) throws Exception {
+        String clave = idAutor + "|" + titulo + "|" + id + "|" + anterior;
+        // La versión se lee antes de consultar; si cambia mientras se arma, el fragmento ya nace viejo.
+        long version = catalogoCache.getVersion();
+        FragmentoHtml fragmento = buscar(clave);
+        if (fragmento != null && fragmento.getVersion() == version) {
+            return fragmento;
+        }
+        ModelMap model = new ModelMap();
+        model.addAttribute("autorSelected", idAutor == null ? null : autorServicio.getById(idAutor));
+        model.addAttribute("autores", autorServicio.findAll());
+        PaginaLibros pagina = libroServicio.paginaCatalogo(idAutor, titulo, id, anterior, LibroServicio.LIBROS_POR_PAGINA);
+        model.addAttribute("pagina", pagina);
+        model.addAttribute("libros", pagina.getLibros());
+        fragmento = FragmentoHtml.de(version, renderizar(FRAGMENTO, model, request, response));
+        guardar(clave, fragmento);
+        return fragmento;
+    }
+
+    /**
+     * Devuelve la vista para "template" con el catálogo ya renderizado (en la
+     * variable "catalogoHtml"). Si "catalogo" es null, la vista se renderiza
+     * como siempre.
+     *
+     * @param template
+     * @param catalogo
+     * @return
+     */
+    public View vista(String template, FragmentoHtml catalogo) {
+        return new FragmentoView(this, template, catalogo);
+    }
+
+    /**
+     * Renderiza una vista de Thymeleaf y devuelve el HTML, sin escribir nada en
+     * la respuesta.
+     *
+     * @param vista
+     * @param model
+     * @param request
+     * @param response
+     * @return
+     * @throws Exception
+     */
+    String renderizar(String vista, Map<String, ?> model, HttpServletRequest request, HttpServletResponse response) throws Exception {
+        RespuestaCapturada captura = new RespuestaCapturada(response);
+        resolver(vista).render(model, request, captura);
+        return captura.getContenido();
+    }
+
+    View resolver(String vista) throws Exception {
+        View view = thymeleafViewResolver.resolveViewName(vista, LocaleContextHolder.getLocale());
+        if (view == null) {
+            throw new Exception("No se encontró la vista " + vista + ".");
+        }
+        return view;
+    }
+
+    /**
+     * Quita todos los fragmentos.
+     */
+    public synchronized void invalidarTodo() {
+        fragmentos.clear();
+    }
+
+    public synchronized int getTamanio() {
+        return fragmentos.size();
+    }
+
+    private synchronized FragmentoHtml buscar(String clave) {
+        return fragmentos.get(clave);
+    }
+
+    private synchronized void guardar(String clave, FragmentoHtml fragmento) {
+        FragmentoHtml actual = fragmentos.get(clave);
+        // No se pisa uno más nuevo armado por otra petición.
+        if (actual == null || actual.getVersion() <= fragmento.getVersion()) {
+            fragmentos.put(clave, fragmento);
+        }
+    }
+
+}
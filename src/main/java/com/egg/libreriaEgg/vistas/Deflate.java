@@ -0,0 +1,94 @@
+package com.egg.libreriaEgg.vistas;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Armado de respuestas gzip por partes. Cada parte se comprime por separado
+ * (deflate sin encabezado) y las que no son la última terminan con
+ * SYNC_FLUSH, así quedan alineadas a un byte y se pueden concatenar: un
+ * fragmento comprimido una sola vez se puede insertar tal cual entre partes
+ * que se comprimen en cada petición.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+final class Deflate {
+
+    // Encabezado gzip mínimo: método deflate, sin nombre ni fecha, SO desconocido.
+    private static final byte[] ENCABEZADO = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private Deflate() {
+    }
+
+    /**
+     * Comprime los datos como una parte de un stream deflate.
+     *
+     * @param datos
+     * @param nivel nivel de compresión (Deflater.BEST_SPEED ...
+     * Deflater.BEST_COMPRESSION)
+     * @param ultima si es la última parte del stream
+     * @return
+     */
+    static byte[] comprimir(byte[] datos, int nivel, boolean ultima) {
+        Deflater deflater = new Deflater(nivel, true);
+        try {
+            deflater.setInput(datos);
+            ByteArrayOutputStream salida = new ByteArrayOutputStream(datos.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            if (ultima) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    salida.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                int n;
+                do {
+                    // Si llena el buffer, hay que volver a llamarlo con el mismo flush.
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    salida.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+            return salida.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Arma un gzip completo con "antes", el fragmento ya comprimido (con
+     * comprimir(..., false)) y "despues".
+     *
+     * @param antes
+     * @param fragmento
+     * @param fragmentoComprimido
+     * @param despues
+     * @return
+     */
+    static byte[] gzip(byte[] antes, byte[] fragmento, byte[] fragmentoComprimido, byte[] despues) {
+        byte[] antesComprimido = comprimir(antes, Deflater.BEST_SPEED, false);
+        byte[] despuesComprimido = comprimir(despues, Deflater.BEST_SPEED, true);
+        CRC32 crc = new CRC32();
+        crc.update(antes);
+        crc.update(fragmento);
+        crc.update(despues);
+        long largo = (long) antes.length + fragmento.length + despues.length;
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(ENCABEZADO.length + antesComprimido.length
+                + fragmentoComprimido.length + despuesComprimido.length + 8);
+        salida.write(ENCABEZADO, 0, ENCABEZADO.length);
+        salida.write(antesComprimido, 0, antesComprimido.length);
+        salida.write(fragmentoComprimido, 0, fragmentoComprimido.length);
+        salida.write(despuesComprimido, 0, despuesComprimido.length);
+        escribirEntero(salida, crc.getValue());
+        escribirEntero(salida, largo);
+        return salida.toByteArray();
+    }
+
+    // Entero de 32 bits, little-endian (como los pide gzip).
+    private static void escribirEntero(ByteArrayOutputStream salida, long valor) {
+        for (int i = 0; i < 4; i++) {
+            salida.write((int) (valor >>> (8 * i)) & 0xff);
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.egg.libreriaEgg.vistas;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+
+/**
+ * Un fragmento de HTML ya renderizado, en texto y comprimido (deflate, para
+ * insertarlo en una respuesta gzip; ver Deflate), junto con la versión del
+ * catálogo con la que se armó.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class FragmentoHtml {
+
+    private final long version;
+    private final String html;
+    private final byte[] bytes;
+    private final byte[] comprimido;
+
+    private FragmentoHtml(long version, String html) {
+        this.version = version;
+        this.html = html;
+        this.bytes = html.getBytes(StandardCharsets.UTF_8);
+        this.comprimido = Deflate.comprimir(bytes, Deflater.BEST_COMPRESSION, false);
+    }
+
+    /**
+     * Arma el fragmento y lo comprime (una sola vez).
+     *
+     * @param version
+     * @param html
+     * @return
+     */
+    public static FragmentoHtml de(long version, String html) {
+        return new FragmentoHtml(version, html);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getHtml() {
+        return html;
+    }
+
+    /**
+     * @return el HTML en UTF-8.
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return el HTML comprimido (deflate sin encabezado, terminado con
+     * SYNC_FLUSH).
+     */
+    public byte[] getComprimido() {
+        return comprimido;
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.egg.libreriaEgg.vistas;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.View;
+
+/**
+ * Vista de Thymeleaf con el catálogo ya renderizado (ver CatalogoFragmentos).
+ *
+ * Si el navegador acepta gzip, la página se renderiza con una marca en el
+ * lugar del catálogo; sólo lo que está antes y después de la marca se
+ * comprime en cada petición, y el catálogo se inserta ya comprimido. Si no,
+ * el catálogo se inserta como texto.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+public class FragmentoView implements View {
+
+    public static final String VARIABLE = "catalogoHtml";
+    private static final String CONTENT_TYPE = "text/html;charset=UTF-8";
+    // Una marca que no puede aparecer en el HTML:
+    private static final String MARCA = "<!--catalogo-" + UUID.randomUUID() + "-->";
+
+    private final CatalogoFragmentos catalogoFragmentos;
+    private final String template;
+    private final FragmentoHtml catalogo;
+
+    FragmentoView(CatalogoFragmentos catalogoFragmentos, String template, FragmentoHtml catalogo) {
+        this.catalogoFragmentos = catalogoFragmentos;
+        this.template = template;
+        this.catalogo = catalogo;
+    }
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public void render(Map<String, ?> model, HttpServletRequest request, HttpServletResponse response) throws Exception {
+        Map<String, Object> modelo = new HashMap<>();
+        if (model != null) {
+            modelo.putAll(model);
+        }
+        if (catalogo == null || !aceptaGzip(request)) {
+            modelo.put(VARIABLE, catalogo == null ? null : catalogo.getHtml());
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            catalogoFragmentos.resolver(template).render(modelo, request, response);
+            return;
+        }
+
+        modelo.put(VARIABLE, MARCA);
+        String pagina = catalogoFragmentos.renderizar(template, modelo, request, response);
+        int posicion = pagina.indexOf(MARCA);
+        byte[] gzip;
+        if (posicion < 0) {
+            // La página no muestra el catálogo (por ejemplo, para un ADMIN).
+            gzip = Deflate.gzip(pagina.getBytes(StandardCharsets.UTF_8), new byte[0], new byte[0], new byte[0]);
+        } else {
+            byte[] antes = pagina.substring(0, posicion).getBytes(StandardCharsets.UTF_8);
+            byte[] despues = pagina.substring(posicion + MARCA.length()).getBytes(StandardCharsets.UTF_8);
+            gzip = Deflate.gzip(antes, catalogo.getBytes(), catalogo.getComprimido(), despues);
+        }
+        response.setContentType(CONTENT_TYPE);
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setContentLength(gzip.length);
+        response.getOutputStream().write(gzip);
+    }
+
+    private boolean aceptaGzip(HttpServletRequest request) {
+        String aceptadas = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return aceptadas != null && aceptadas.toLowerCase().contains("gzip");
+    }
+
+}
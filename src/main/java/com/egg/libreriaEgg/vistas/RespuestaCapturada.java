@@ -0,0 +1,52 @@
+package com.egg.libreriaEgg.vistas;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Respuesta que guarda lo que escribe una vista, en lugar de enviarlo, para
+ * usarlo después (guardarlo en la cache o comprimirlo).
+ *
+ * Las URLs no se reescriben con el id de la sesión (";jsessionid=..."): lo
+ * que se renderiza puede compartirse entre usuarios.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+class RespuestaCapturada extends HttpServletResponseWrapper {
+
+    private final StringWriter contenido = new StringWriter(16 * 1024);
+    private final PrintWriter writer = new PrintWriter(contenido);
+
+    RespuestaCapturada(HttpServletResponse response) {
+        super(response);
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() {
+        // No se envía nada todavía.
+        writer.flush();
+    }
+
+    @Override
+    public String encodeURL(String url) {
+        return url;
+    }
+
+    @Override
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+
+    String getContenido() {
+        writer.flush();
+        return contenido.toString();
+    }
+
+}
@@ -0,0 +1,9 @@
+-- Datos de las fotos para servirlas sin leer el contenido (hash para el ETag,
+-- modificación y tamaño) y la clave del contenido cuando se guarda en
+-- archivos. En las fotos que ya estaban quedan en NULL: el hash y el tamaño
+-- los completa FotoServicio la primera vez que se sirve cada una.
+
+alter table foto add column clave varchar(255);
+alter table foto add column hash varchar(255);
+alter table foto add column modificacion datetime;
+alter table foto add column tamanio bigint;
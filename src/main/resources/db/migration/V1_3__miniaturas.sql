@@ -0,0 +1,12 @@
+-- Miniaturas de las fotos, por hash del original y ancho.
+
+create table miniatura (
+    id varchar(255) not null,
+    ancho integer not null,
+    contenido longblob,
+    hash varchar(255),
+    mime varchar(255),
+    modificacion datetime,
+    tamanio bigint,
+    primary key (id)
+) engine=InnoDB;
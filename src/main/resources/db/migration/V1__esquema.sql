@@ -0,0 +1,77 @@
+-- Esquema original: el que generaba Hibernate con ddl-auto=update antes de
+-- usar Flyway (ids VARCHAR). En una DB que ya tenía las tablas, Flyway la toma
+-- como base (baseline-on-migrate) y no ejecuta este script, así que tiene que
+-- quedar igual; los cambios posteriores van en las migraciones siguientes:
+-- V1_1 (com.egg.libreriaEgg.ids.V1_1__IdsBinarios) pasa los ids a BINARY(16),
+-- V1_2 agrega los datos de las fotos y V1_3 crea las miniaturas.
+
+create table autor (
+    id varchar(255) not null,
+    alta bit not null,
+    nombre varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table editorial (
+    id varchar(255) not null,
+    alta bit not null,
+    nombre varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table foto (
+    id varchar(255) not null,
+    contenido longblob,
+    mime varchar(255),
+    nombre varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table libro (
+    id varchar(255) not null,
+    alta bit not null,
+    anio integer,
+    descripcion varchar(255),
+    ejemplares integer,
+    ejemplares_prestados integer,
+    ejemplares_restantes integer,
+    isbn bigint,
+    titulo varchar(255),
+    autor_id varchar(255),
+    editorial_id varchar(255),
+    foto_id varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table prestamo (
+    id varchar(255) not null,
+    alta bit not null,
+    fecha_devolucion date,
+    fecha_prestamo date,
+    libro_id varchar(255),
+    usuario_id varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table usuario (
+    id varchar(255) not null,
+    alta date,
+    apellido varchar(255),
+    baja date,
+    clave varchar(255),
+    dni varchar(255),
+    mail varchar(255),
+    nombre varchar(255),
+    rol varchar(255),
+    telefono varchar(255),
+    foto_id varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+-- Las claves foráneas con los mismos nombres que les daba Hibernate:
+alter table libro add constraint FKe1ss87ymon6qj17bhr6jfh0c4 foreign key (autor_id) references autor (id);
+alter table libro add constraint FK79q7g2604hcmfdxw6ek3jt4el foreign key (editorial_id) references editorial (id);
+alter table libro add constraint FK9odp6c22s87v285oi3iw7wmx3 foreign key (foto_id) references foto (id);
+alter table prestamo add constraint FKk7uwwn2ov4su2plcn1jh4dbi0 foreign key (libro_id) references libro (id);
+alter table prestamo add constraint FKqxhq6d4w6fuv27c7j3af28wdu foreign key (usuario_id) references usuario (id);
+alter table usuario add constraint FKfwvsqymdg4nmop6xhb9b1p3oc foreign key (foto_id) references foto (id);
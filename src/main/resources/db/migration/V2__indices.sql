@@ -0,0 +1,26 @@
+-- Índices de las consultas de los repositorios (las claves foráneas ya
+-- tienen el suyo). RepositoriosIndicesTest revisa con EXPLAIN que ninguna
+-- consulta recorra una tabla entera salvo las que la listan completa.
+--
+-- Los únicos fallan si ya hay datos repetidos: buscarPorIsbn, buscarPorMail
+-- y buscarPorNombre devuelven un solo resultado, así que los repetidos hay
+-- que resolverlos a mano antes de migrar.
+
+create unique index uk_libro_isbn on libro (isbn);
+create unique index uk_usuario_mail on usuario (mail);
+create unique index uk_autor_nombre on autor (nombre);
+create unique index uk_editorial_nombre on editorial (nombre);
+
+-- Préstamos de alta / de baja, y los de un usuario (el índice de la clave
+-- foránea usuario_id queda cubierto por este):
+create index idx_prestamo_alta on prestamo (alta);
+create index idx_prestamo_usuario_alta on prestamo (usuario_id, alta);
+
+-- Paginación por clave del catálogo (título, id), general y por autor:
+create index idx_libro_alta_titulo on libro (alta, titulo, id);
+create index idx_libro_autor_titulo on libro (autor_id, titulo, id);
+
+-- Fotos por contenido (deduplicación) y miniaturas por foto original:
+create index idx_foto_clave on foto (clave);
+create index idx_foto_hash on foto (hash);
+create index idx_miniatura_hash on miniatura (hash);
@@ -0,0 +1,9 @@
+-- Cantidad de préstamos de alta de cada usuario (ver PrestamoServicio): el
+-- límite se controla con un UPDATE condicional sobre esta columna, en lugar
+-- de contar los préstamos.
+
+alter table usuario add column prestamos_activos integer not null default 0;
+
+update usuario u set prestamos_activos = (
+    select count(*) from prestamo p where p.usuario_id = u.id and p.alta = true
+);
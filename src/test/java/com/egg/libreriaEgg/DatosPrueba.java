@@ -0,0 +1,240 @@
+package com.egg.libreriaEgg;
+
+import com.egg.libreriaEgg.autenticacion.CredencialesCache;
+import com.egg.libreriaEgg.entidades.Autor;
+import com.egg.libreriaEgg.entidades.Editorial;
+import com.egg.libreriaEgg.entidades.Libro;
+import com.egg.libreriaEgg.entidades.Prestamo;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.enums.Rol;
+import com.egg.libreriaEgg.repositorios.AutorRepositorio;
+import com.egg.libreriaEgg.repositorios.EditorialRepositorio;
+import com.egg.libreriaEgg.repositorios.LibroRepositorio;
+import com.egg.libreriaEgg.repositorios.PrestamoRepositorio;
+import com.egg.libreriaEgg.repositorios.UsuarioRepositorio;
+import com.egg.libreriaEgg.servicios.BuscadorServicio;
+import com.egg.libreriaEgg.servicios.CatalogoCache;
+import com.egg.libreriaEgg.vistas.CatalogoFragmentos;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.test.jdbc.JdbcTestUtils;
+
+/**
+ * Crea y guarda los datos de las pruebas (autores, editoriales, libros,
+ * usuarios y préstamos) con valores válidos. Los que tienen que ser únicos
+ * (el DNI y el mail de un usuario, y el nombre del autor y la editorial que no
+ * indica la prueba) se generan con un número que no se repite en toda la
+ * ejecución, así que las pruebas no necesitan elegir prefijos distintos.
+ *
+ * Las migraciones no cargan datos, así que cada prueba empieza con la base
+ * vacía: las que no necesitan confirmar sus datos son @Transactional (y se
+ * deshacen), y las que sí (las de concurrencia, las que esperan algo al
+ * confirmar la transacción o cuentan consultas) llaman a borrarTodo() al
+ * terminar.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@Component
+public class DatosPrueba {
+
+    // En el orden de las claves foráneas: cada tabla antes de las que referencia.
+    private static final String[] TABLAS = {"spring_session_attributes", "spring_session",
+        "prestamo", "libro", "usuario", "autor", "editorial", "miniatura", "foto"};
+
+    private static final AtomicInteger SECUENCIA = new AtomicInteger();
+
+    @Autowired
+    private AutorRepositorio autorRepositorio;
+
+    @Autowired
+    private EditorialRepositorio editorialRepositorio;
+
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+
+    @Autowired
+    private UsuarioRepositorio usuarioRepositorio;
+
+    @Autowired
+    private PrestamoRepositorio prestamoRepositorio;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    @Autowired
+    private CatalogoFragmentos catalogoFragmentos;
+
+    @Autowired
+    private CredencialesCache credencialesCache;
+
+    @Autowired
+    private BuscadorServicio buscadorServicio;
+
+    /**
+     * @return un número que no se repite en toda la ejecución de las pruebas.
+     */
+    public static int unico() {
+        return SECUENCIA.incrementAndGet();
+    }
+
+    public Autor autor(String nombre) {
+        return autor(nombre, true);
+    }
+
+    public Autor autor(String nombre, boolean alta) {
+        Autor autor = new Autor();
+        autor.setNombre(nombre);
+        autor.setAlta(alta);
+        return autorRepositorio.save(autor);
+    }
+
+    public Editorial editorial(String nombre) {
+        return editorial(nombre, true);
+    }
+
+    public Editorial editorial(String nombre, boolean alta) {
+        Editorial editorial = new Editorial();
+        editorial.setNombre(nombre);
+        editorial.setAlta(alta);
+        return editorialRepositorio.save(editorial);
+    }
+
+    /**
+     * Un libro de alta con 5 ejemplares, con su propio autor y su propia
+     * editorial.
+     *
+     * @param titulo
+     * @return
+     */
+    public Libro libro(String titulo) {
+        return libro(titulo, 5);
+    }
+
+    /**
+     * Un libro de alta con esos ejemplares, con su propio autor y su propia
+     * editorial.
+     *
+     * @param titulo
+     * @param ejemplares
+     * @return
+     */
+    public Libro libro(String titulo, int ejemplares) {
+        return libro(titulo, ejemplares, autor("Autor " + unico()), editorial("Editorial " + unico()));
+    }
+
+    /**
+     * Un libro de alta con 5 ejemplares, de ese autor y con su propia
+     * editorial.
+     *
+     * @param titulo
+     * @param autor
+     * @return
+     */
+    public Libro libro(String titulo, Autor autor) {
+        return libro(titulo, 5, autor, editorial("Editorial " + unico()));
+    }
+
+    public Libro libro(String titulo, Autor autor, Editorial editorial) {
+        return libro(titulo, 5, autor, editorial);
+    }
+
+    public Libro libro(String titulo, int ejemplares, Autor autor, Editorial editorial) {
+        Libro libro = new Libro();
+        libro.setTitulo(titulo);
+        libro.setAnio(2021);
+        libro.setEjemplares(ejemplares);
+        libro.setEjemplaresPrestados(0);
+        libro.setEjemplaresRestantes(ejemplares);
+        libro.setAlta(true);
+        libro.setAutor(autor);
+        libro.setEditorial(editorial);
+        return libroRepositorio.save(libro);
+    }
+
+    public Usuario usuario(String nombre) {
+        return usuario(nombre, Rol.USUARIO);
+    }
+
+    public Usuario usuario(String nombre, Rol rol) {
+        return usuario(nombre, rol, null, null);
+    }
+
+    /**
+     * Un usuario de alta, con un DNI único.
+     *
+     * @param nombre
+     * @param rol
+     * @param mail el mail, o null para generar uno único
+     * @param clave la clave ya encriptada, o null
+     * @return
+     */
+    public Usuario usuario(String nombre, Rol rol, String mail, String clave) {
+        int numero = unico();
+        Usuario usuario = new Usuario();
+        usuario.setNombre(nombre);
+        usuario.setApellido("Apellido");
+        usuario.setDni(String.valueOf(10000000 + numero));
+        usuario.setMail(mail != null ? mail : "usuario" + numero + "@prueba.com");
+        usuario.setClave(clave);
+        usuario.setAlta(new Date());
+        usuario.setRol(rol);
+        return usuarioRepositorio.save(usuario);
+    }
+
+    /**
+     * Un préstamo de ese libro a ese usuario. Si está de alta, también
+     * descuenta el ejemplar del libro y suma el préstamo activo del usuario,
+     * como PrestamoServicio.
+     *
+     * @param libro
+     * @param usuario
+     * @param desde
+     * @param hasta
+     * @param alta
+     * @return
+     */
+    public Prestamo prestamo(Libro libro, Usuario usuario, Date desde, Date hasta, boolean alta) {
+        if (alta) {
+            libro.setEjemplaresPrestados(libro.getEjemplaresPrestados() + 1);
+            libro.setEjemplaresRestantes(libro.getEjemplaresRestantes() - 1);
+            libroRepositorio.save(libro);
+            usuario.setPrestamosActivos(usuario.getPrestamosActivos() + 1);
+            usuarioRepositorio.save(usuario);
+        }
+        Prestamo prestamo = new Prestamo();
+        prestamo.setLibro(libro);
+        prestamo.setUsuario(usuario);
+        prestamo.setFechaPrestamo(desde);
+        prestamo.setFechaDevolucion(hasta);
+        prestamo.setAlta(alta);
+        return prestamoRepositorio.save(prestamo);
+    }
+
+    /**
+     * Borra todas las filas que dejó la prueba (también las que guardaron los
+     * servicios: préstamos, sesiones, fotos y miniaturas), y vacía lo que las
+     * recuerda en memoria: la cache de segundo nivel (con las consultas, que
+     * comparten todos los contextos de las pruebas), las caches del catálogo y
+     * de credenciales, y el índice del buscador.
+     */
+    public void borrarTodo() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, TABLAS);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        catalogoCache.invalidarTodo();
+        catalogoFragmentos.invalidarTodo();
+        credencialesCache.invalidarTodo();
+        buscadorServicio.construir();
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.egg.libreriaEgg;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.egg.libreriaEgg.ids.IdBinario;
+import com.egg.libreriaEgg.ids.V1_1__IdsBinarios;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Verifica que una DB creada por la aplicación original (con Hibernate y
+ * ddl-auto=update, ids VARCHAR) se actualice con las migraciones de Flyway:
+ * se toma como base en la versión 1, recibe las siguientes y queda con el
+ * mismo esquema (columnas, claves e índices) que una DB nueva, sin perder los
+ * datos.
+ *
+ * Cada DB es una H2 aparte de la que usan los demás tests.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+class MigracionesTest {
+
+    // El esquema que generaba Hibernate con las entidades originales:
+    private static final String[] ESQUEMA_ORIGINAL = {
+        "create table autor (id varchar(255) not null, alta bit not null, nombre varchar(255), primary key (id)) engine=InnoDB",
+        "create table editorial (id varchar(255) not null, alta bit not null, nombre varchar(255), primary key (id)) engine=InnoDB",
+        "create table foto (id varchar(255) not null, contenido longblob, mime varchar(255), nombre varchar(255), primary key (id)) engine=InnoDB",
+        "create table libro (id varchar(255) not null, alta bit not null, anio integer, descripcion varchar(255), ejemplares integer, ejemplares_prestados integer, ejemplares_restantes integer, isbn bigint, titulo varchar(255), autor_id varchar(255), editorial_id varchar(255), foto_id varchar(255), primary key (id)) engine=InnoDB",
+        "create table prestamo (id varchar(255) not null, alta bit not null, fecha_devolucion date, fecha_prestamo date, libro_id varchar(255), usuario_id varchar(255), primary key (id)) engine=InnoDB",
+        "create table usuario (id varchar(255) not null, alta date, apellido varchar(255), baja date, clave varchar(255), dni varchar(255), mail varchar(255), nombre varchar(255), rol varchar(255), telefono varchar(255), foto_id varchar(255), primary key (id)) engine=InnoDB",
+        "alter table libro add constraint FKe1ss87ymon6qj17bhr6jfh0c4 foreign key (autor_id) references autor (id)",
+        "alter table libro add constraint FK79q7g2604hcmfdxw6ek3jt4el foreign key (editorial_id) references editorial (id)",
+        "alter table libro add constraint FK9odp6c22s87v285oi3iw7wmx3 foreign key (foto_id) references foto (id)",
+        "alter table prestamo add constraint FKk7uwwn2ov4su2plcn1jh4dbi0 foreign key (libro_id) references libro (id)",
+        "alter table prestamo add constraint FKqxhq6d4w6fuv27c7j3af28wdu foreign key (usuario_id) references usuario (id)",
+        "alter table usuario add constraint FKfwvsqymdg4nmop6xhb9b1p3oc foreign key (foto_id) references foto (id)"};
+
+    @Test
+    void unaDbOriginalQuedaIgualQueUnaNueva() throws SQLException {
+        String nueva = "jdbc:h2:mem:migraciones_nueva;MODE=MySQL;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE";
+        String original = "jdbc:h2:mem:migraciones_original;MODE=MySQL;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE";
+        String autor = UUID.randomUUID().toString();
+        String foto = UUID.randomUUID().toString();
+        String libro = UUID.randomUUID().toString();
+        String usuario = UUID.randomUUID().toString();
+        String prestamo = UUID.randomUUID().toString();
+        byte[] contenido = "contenido de la foto".getBytes(StandardCharsets.UTF_8);
+        try (Connection conexionNueva = DriverManager.getConnection(nueva, "sa", "");
+                Connection conexionOriginal = DriverManager.getConnection(original, "sa", "")) {
+            for (String sentencia : ESQUEMA_ORIGINAL) {
+                ejecutar(conexionOriginal, sentencia);
+            }
+            ejecutar(conexionOriginal, "insert into autor values ('" + autor + "', true, 'Autor Original')");
+            try (PreparedStatement sentencia = conexionOriginal.prepareStatement("insert into foto (id, contenido, mime, nombre) values (?, ?, 'image/png', 'tapa.png')")) {
+                sentencia.setString(1, foto);
+                sentencia.setBytes(2, contenido);
+                sentencia.executeUpdate();
+            }
+            ejecutar(conexionOriginal, "insert into libro (id, alta, isbn, titulo, autor_id, foto_id) values ('" + libro + "', true, 9780001900001, 'Libro Original', '"
+                    + autor + "', '" + foto + "')");
+            ejecutar(conexionOriginal, "insert into usuario (id, mail, nombre) values ('" + usuario + "', 'original@libreria.com', 'Usuario')");
+            ejecutar(conexionOriginal, "insert into prestamo (id, alta, libro_id, usuario_id) values ('" + prestamo + "', true, '" + libro + "', '" + usuario + "')");
+
+            flyway(nueva).migrate();
+            flyway(original).migrate();
+            flyway(original).validate();
+
+            assertEquals(esquema(conexionNueva), esquema(conexionOriginal));
+
+            // Los datos siguen ahí, con los mismos ids:
+            try (Statement sentencia = conexionOriginal.createStatement();
+                    ResultSet filas = sentencia.executeQuery("select l.id, l.autor_id, f.id, f.contenido, f.hash, u.prestamos_activos"
+                            + " from prestamo p join libro l on p.libro_id = l.id join foto f on l.foto_id = f.id join usuario u on p.usuario_id = u.id")) {
+                filas.next();
+                assertEquals(libro, IdBinario.deBytes(filas.getBytes(1)));
+                assertEquals(autor, IdBinario.deBytes(filas.getBytes(2)));
+                assertEquals(foto, IdBinario.deBytes(filas.getBytes(3)));
+                assertArrayEquals(contenido, filas.getBytes(4));
+                // El hash lo completa FotoServicio al servirla:
+                assertNull(filas.getString(5));
+                assertEquals(1, filas.getInt(6));
+            }
+        }
+    }
+
+    private static Flyway flyway(String url) {
+        return Flyway.configure()
+                .dataSource(url, "sa", "")
+                .javaMigrations(new V1_1__IdsBinarios())
+                .baselineOnMigrate(true)
+                .load();
+    }
+
+    /**
+     * @return por tabla, sus columnas (con tipo y si aceptan NULL), su clave
+     * primaria, sus claves foráneas y sus índices (sin los que H2 crea para
+     * las claves, que cambian de nombre)
+     */
+    private static Map<String, Set<String>> esquema(Connection conexion) throws SQLException {
+        Map<String, Set<String>> esquema = new TreeMap<>();
+        List<String> tablas = new ArrayList<>();
+        try (ResultSet filas = conexion.getMetaData().getTables(conexion.getCatalog(), conexion.getSchema(), "%", new String[]{"TABLE"})) {
+            while (filas.next()) {
+                if (!filas.getString("TABLE_NAME").equalsIgnoreCase("flyway_schema_history")) {
+                    tablas.add(filas.getString("TABLE_NAME"));
+                }
+            }
+        }
+        for (String tabla : tablas) {
+            Set<String> elementos = new TreeSet<>();
+            try (ResultSet filas = conexion.getMetaData().getColumns(conexion.getCatalog(), conexion.getSchema(), tabla, "%")) {
+                while (filas.next()) {
+                    elementos.add("columna " + filas.getString("COLUMN_NAME") + " " + filas.getString("TYPE_NAME")
+                            + "(" + filas.getInt("COLUMN_SIZE") + ") " + filas.getString("IS_NULLABLE"));
+                }
+            }
+            try (ResultSet filas = conexion.getMetaData().getPrimaryKeys(conexion.getCatalog(), conexion.getSchema(), tabla)) {
+                while (filas.next()) {
+                    elementos.add("primaria " + filas.getString("COLUMN_NAME"));
+                }
+            }
+            try (ResultSet filas = conexion.getMetaData().getImportedKeys(conexion.getCatalog(), conexion.getSchema(), tabla)) {
+                while (filas.next()) {
+                    elementos.add("foranea " + filas.getString("FK_NAME").toLowerCase() + " " + filas.getString("FKCOLUMN_NAME")
+                            + " " + filas.getString("PKTABLE_NAME"));
+                }
+            }
+            try (ResultSet filas = conexion.getMetaData().getIndexInfo(conexion.getCatalog(), conexion.getSchema(), tabla, false, false)) {
+                while (filas.next()) {
+                    String indice = filas.getString("INDEX_NAME").toLowerCase();
+                    if (!indice.startsWith("primary_key") && !indice.startsWith("fk")) {
+                        elementos.add("indice " + indice + " " + filas.getShort("ORDINAL_POSITION") + " " + filas.getString("COLUMN_NAME"));
+                    }
+                }
+            }
+            esquema.put(tabla, elementos);
+        }
+        return esquema;
+    }
+
+    private static void ejecutar(Connection conexion, String sql) throws SQLException {
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute(sql);
+        }
+    }
+
+}
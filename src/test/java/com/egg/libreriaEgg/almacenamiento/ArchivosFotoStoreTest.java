@@ -0,0 +1,182 @@
+package com.egg.libreriaEgg.almacenamiento;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.egg.libreriaEgg.entidades.Foto;
+import com.egg.libreriaEgg.repositorios.FotoRepositorio;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Verifica el almacenamiento de fotos en archivos: dos fotos con el mismo
+ * contenido comparten el archivo, y éste se borra recién cuando ninguna foto
+ * lo usa (ni lo reutilizó hace poco), o después en el barrido si se liberó
+ * dentro de la gracia; y si falla la escritura no queda el archivo temporal
+ * ni uno a medias.
+ *
+ * Cada test usa su propio directorio, con un ArchivosFotoStore aparte del que
+ * usa la aplicación.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+@Transactional
+class ArchivosFotoStoreTest {
+
+    @Autowired
+    private FotoRepositorio fotoRepositorio;
+
+    @TempDir
+    Path carpeta;
+
+    private ArchivosFotoStore store;
+
+    @BeforeEach
+    void crearStore() {
+        store = new ArchivosFotoStore();
+        ReflectionTestUtils.setField(store, "fotoRepositorio", fotoRepositorio);
+        ReflectionTestUtils.setField(store, "directorio", carpeta.toString());
+        store.iniciar();
+    }
+
+    @Test
+    void dosFotosConElMismoContenidoCompartenElArchivo() throws Exception {
+        byte[] contenido = "contenido compartido".getBytes(StandardCharsets.UTF_8);
+        Foto primera = guardar(contenido);
+        Foto segunda = guardar(contenido);
+        assertEquals(primera.getClave(), segunda.getClave());
+        List<Path> archivos = archivos();
+        assertEquals(1, archivos.size());
+        assertArrayEquals(contenido, Files.readAllBytes(archivos.get(0)));
+        assertArrayEquals(contenido, Files.readAllBytes(store.abrir(fotoRepositorio.metadatos(segunda.getId())).getFile().toPath()));
+
+        // Se vence la gracia, así el archivo se puede borrar si no tiene referencias:
+        envejecer(archivos.get(0));
+
+        // Borrar una de las fotos no borra el archivo que usa la otra:
+        fotoRepositorio.delete(primera);
+        store.liberar(primera.getClave());
+        assertTrue(Files.exists(archivos.get(0)));
+        assertArrayEquals(contenido, Files.readAllBytes(store.abrir(fotoRepositorio.metadatos(segunda.getId())).getFile().toPath()));
+
+        // Con la última referencia, sí:
+        fotoRepositorio.delete(segunda);
+        store.liberar(segunda.getClave());
+        assertFalse(Files.exists(archivos.get(0)));
+    }
+
+    @Test
+    void unArchivoReutilizadoHacePocoNoSeBorra() throws Exception {
+        byte[] contenido = "contenido reutilizado".getBytes(StandardCharsets.UTF_8);
+        Foto foto = guardar(contenido);
+        Path archivo = archivos().get(0);
+        envejecer(archivo);
+        // Otra foto reutiliza el archivo, pero todavía no se guardó en la DB:
+        Foto sinConfirmar = new Foto();
+        sinConfirmar.setHash(foto.getHash());
+        store.guardar(sinConfirmar, new ByteArrayResource(contenido));
+
+        fotoRepositorio.delete(foto);
+        store.liberar(foto.getClave());
+        assertTrue(Files.exists(archivo));
+    }
+
+    @Test
+    void unArchivoLiberadoDentroDeLaGraciaSeBorraEnElBarrido() throws Exception {
+        byte[] reemplazado = "contenido reemplazado".getBytes(StandardCharsets.UTF_8);
+        byte[] usado = "contenido que se sigue usando".getBytes(StandardCharsets.UTF_8);
+        Foto foto = guardar(reemplazado);
+        Foto otra = guardar(usado);
+        Path archivo = archivos().stream().filter(ruta -> ruta.endsWith(foto.getClave())).findFirst().get();
+
+        // La foto se reemplaza enseguida: el archivo está dentro de la gracia y no se borra.
+        fotoRepositorio.delete(foto);
+        store.liberar(foto.getClave());
+        assertTrue(Files.exists(archivo));
+        assertEquals(0, store.barrer());
+        assertTrue(Files.exists(archivo));
+
+        // Vencida la gracia, el barrido lo borra (y no el que sigue en uso):
+        for (Path ruta : archivos()) {
+            envejecer(ruta);
+        }
+        assertEquals(1, store.barrer());
+        assertFalse(Files.exists(archivo));
+        assertEquals(1, archivos().size());
+        assertArrayEquals(usado, Files.readAllBytes(store.abrir(fotoRepositorio.metadatos(otra.getId())).getFile().toPath()));
+    }
+
+    @Test
+    void siFallaLaEscrituraNoQuedaNingunArchivo() throws Exception {
+        byte[] contenido = "contenido que no se termina de leer".getBytes(StandardCharsets.UTF_8);
+        Foto foto = new Foto();
+        foto.setHash(hash(contenido));
+        InputStreamSource cortado = () -> new SequenceInputStream(new ByteArrayInputStream(contenido), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Se cortó la subida.");
+            }
+        });
+
+        IOException e = assertThrows(IOException.class, () -> store.guardar(foto, cortado));
+        assertEquals("Se cortó la subida.", e.getMessage());
+        assertNull(foto.getClave());
+        assertTrue(archivos().isEmpty(), archivos().toString());
+
+        // Y el mismo contenido se puede guardar después:
+        store.guardar(foto, new ByteArrayResource(contenido));
+        assertEquals(1, archivos().size());
+        assertArrayEquals(contenido, Files.readAllBytes(archivos().get(0)));
+    }
+
+    private Foto guardar(byte[] contenido) throws Exception {
+        Foto foto = new Foto();
+        foto.setHash(hash(contenido));
+        store.guardar(foto, new ByteArrayResource(contenido));
+        return fotoRepositorio.save(foto);
+    }
+
+    private List<Path> archivos() throws IOException {
+        try (Stream<Path> rutas = Files.walk(carpeta)) {
+            return rutas.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+
+    private static void envejecer(Path archivo) throws IOException {
+        Files.setLastModifiedTime(archivo, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1)));
+    }
+
+    private static String hash(byte[] contenido) throws Exception {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(contenido)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.egg.libreriaEgg.autenticacion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestBuilders.formLogin;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.enums.Rol;
+import com.egg.libreriaEgg.servicios.ClaveServicio;
+import com.egg.libreriaEgg.servicios.UsuarioServicio;
+import java.util.Map;
+import javax.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Verifica las sesiones guardadas en la DB (spring.session.store-type=jdbc):
+ * el login crea la fila en SPRING_SESSION, otra petición con la cookie la
+ * recupera, lo que se guarda de cada sesión es chico, y al deshabilitar al
+ * usuario sus sesiones se borran.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest(properties = "spring.session.store-type=jdbc")
+@AutoConfigureMockMvc
+class SesionesJdbcTest {
+
+    private static final String CLAVE = "clave123";
+
+    // El contexto de seguridad (~1,4 KB) y el UsuarioSesion (~350
+    // bytes), serializados; con el UsuarioSesion también dentro del contexto
+    // de seguridad eran ~2,1 KB.
+    private static final int MAXIMO_BYTES = 1900;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ClaveServicio claveServicio;
+
+    @Autowired
+    private UsuarioServicio usuarioServicio;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @AfterEach
+    void borrarDatos() {
+        datos.borrarTodo();
+    }
+
+    @Test
+    void laSesionSeGuardaEnLaDbYOcupaPoco() throws Exception {
+        Usuario usuario = usuario("sesion@jdbc.com");
+        Cookie cookie = iniciarSesion(usuario);
+
+        Map<String, Object> sesion = jdbcTemplate.queryForMap(
+                "SELECT PRIMARY_ID, PRINCIPAL_NAME FROM SPRING_SESSION WHERE PRINCIPAL_NAME = ?", usuario.getMail());
+        Integer bytes = jdbcTemplate.queryForObject(
+                "SELECT SUM(LENGTH(ATTRIBUTE_BYTES)) FROM SPRING_SESSION_ATTRIBUTES WHERE SESSION_PRIMARY_ID = ?",
+                Integer.class, sesion.get("PRIMARY_ID"));
+        assertTrue(bytes <= MAXIMO_BYTES, "La sesión ocupa " + bytes + " bytes");
+
+        // Otra petición recupera la sesión de la DB (la barra de navegación usa el UsuarioSesion):
+        mockMvc.perform(get("/inicio").cookie(cookie))
+                .andExpect(status().isOk());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM SPRING_SESSION WHERE PRINCIPAL_NAME = ?", Integer.class, usuario.getMail()));
+    }
+
+    @Test
+    void deshabilitarAlUsuarioBorraSusSesiones() throws Exception {
+        Usuario usuario = usuario("baja@jdbc.com");
+        Cookie cookie = iniciarSesion(usuario);
+        mockMvc.perform(get("/api/v1/usuarios/yo").cookie(cookie))
+                .andExpect(status().isOk());
+
+        usuarioServicio.deshabilitar(usuario.getId());
+
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM SPRING_SESSION WHERE PRINCIPAL_NAME = ?", Integer.class, usuario.getMail()));
+        mockMvc.perform(get("/api/v1/usuarios/yo").cookie(cookie))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private Cookie iniciarSesion(Usuario usuario) throws Exception {
+        Cookie cookie = mockMvc.perform(formLogin("/logincheck").user(usuario.getMail()).password(CLAVE))
+                .andExpect(redirectedUrl("/inicio"))
+                .andReturn().getResponse().getCookie("SESSION");
+        assertNotNull(cookie, "El login no devolvió la cookie de la sesión");
+        return cookie;
+    }
+
+    private Usuario usuario(String mail) throws Exception {
+        return datos.usuario("Sesion", Rol.USUARIO, mail, claveServicio.encriptar(CLAVE));
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.egg.libreriaEgg.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.autenticacion.UsuarioSesion;
+import com.egg.libreriaEgg.entidades.Libro;
+import com.egg.libreriaEgg.entidades.Prestamo;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.enums.Rol;
+import com.egg.libreriaEgg.repositorios.PrestamoRepositorio;
+import com.egg.libreriaEgg.servicios.CatalogoCache;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Verifica que las tablas de préstamos del administrador se arman con una
+ * cantidad fija de consultas, sin importar cuántos préstamos, libros y
+ * usuarios distintos haya (sin N+1), y que las devoluciones en lote tampoco
+ * hacen más consultas cuantos más préstamos se devuelven.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser(roles = "ADMIN")
+class AdminControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    @Autowired
+    private PrestamoRepositorio prestamoRepositorio;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @AfterEach
+    void borrarDatos() {
+        datos.borrarTodo();
+    }
+
+    @Test
+    void administradorPrestamosNoHaceUnaConsultaPorPrestamo() throws Exception {
+        Usuario admin = datos.usuario("admin", Rol.ADMIN);
+        cargarPrestamos("a", 3);
+        long consultasPocos = consultasAlRenderizar(admin);
+
+        cargarPrestamos("b", 15);
+        long consultasMuchos = consultasAlRenderizar(admin);
+
+        assertEquals(consultasPocos, consultasMuchos, "La cantidad de consultas crece con la cantidad de préstamos.");
+        // Usuarios activos, préstamos de alta y préstamos de baja:
+        assertTrue(consultasMuchos <= 3, "Se hicieron " + consultasMuchos + " consultas.");
+    }
+
+    @Test
+    void lasDevolucionesEnLoteNoHacenUnaConsultaPorPrestamo() throws Exception {
+        Usuario admin = datos.usuario("admin-lote", Rol.ADMIN);
+        List<String> pocos = cargarPrestamos("c", 4);
+        List<String> muchos = cargarPrestamos("d", 30);
+
+        long consultasPocos = consultasAlDevolver(admin, pocos);
+        long consultasMuchos = consultasAlDevolver(admin, muchos);
+
+        assertEquals(consultasPocos, consultasMuchos, "La cantidad de consultas crece con la cantidad de devoluciones.");
+        for (String id : muchos) {
+            assertFalse(prestamoRepositorio.findById(id).get().isAlta());
+        }
+    }
+
+    /**
+     * Devuelve esos préstamos en lote desde la página del administrador y
+     * devuelve cuántas consultas se ejecutaron.
+     */
+    private long consultasAlDevolver(Usuario admin, List<String> ids) throws Exception {
+        catalogoCache.invalidarTodo();
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+        mockMvc.perform(post("/admin/prestamos/registrar-devoluciones").param("idsPrestamos", ids.toArray(new String[0]))
+                .sessionAttr("usuariosession", UsuarioSesion.de(admin)))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("success", "Se registraron " + ids.size() + " devoluciones."));
+        return estadisticas.getPrepareStatementCount();
+    }
+
+    /**
+     * Renderiza la página (con el catálogo ya en cache) y devuelve cuántas
+     * consultas se ejecutaron.
+     */
+    private long consultasAlRenderizar(Usuario admin) throws Exception {
+        catalogoCache.invalidarTodo();
+        mockMvc.perform(get("/admin/prestamos/admin-prestamos").sessionAttr("usuariosession", UsuarioSesion.de(admin)))
+                .andExpect(status().isOk());
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+        mockMvc.perform(get("/admin/prestamos/admin-prestamos").sessionAttr("usuariosession", UsuarioSesion.de(admin)))
+                .andExpect(status().isOk());
+        return estadisticas.getPrepareStatementCount();
+    }
+
+    /**
+     * Carga "cantidad" préstamos, cada uno con su propio libro, autor,
+     * editorial y usuario; la mitad dados de baja. Devuelve los ids de los de
+     * alta.
+     */
+    private List<String> cargarPrestamos(String prefijo, int cantidad) {
+        List<String> deAlta = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            Libro libro = datos.libro("Libro " + prefijo + i);
+            Usuario usuario = datos.usuario(prefijo + i);
+            Prestamo prestamo = datos.prestamo(libro, usuario, new Date(), new Date(), i % 2 == 0);
+            if (prestamo.isAlta()) {
+                deAlta.add(prestamo.getId());
+            }
+        }
+        return deAlta;
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.egg.libreriaEgg.controllers;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+import com.egg.libreriaEgg.autenticacion.UsuarioSesion;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.enums.Rol;
+import java.util.Date;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+/**
+ * Verifica que un id de Autor o de Editorial que no existe muestre el mismo
+ * mensaje que el servicio ("No existe ..."), en lugar de fallar al leer el
+ * nombre.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser(roles = "ADMIN")
+class AutorControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void unAutorQueNoExisteMuestraElMensajeDelServicio() throws Exception {
+        String id = UUID.randomUUID().toString();
+        mockMvc.perform(pagina("/admin/autores/eliminar-autor/" + id))
+                .andExpect(status().isOk())
+                .andExpect(view().name("admin-autor.html"))
+                .andExpect(model().attribute("error", "Error al intentar eliminar el autor: No existe el autor con el id indicado."));
+        mockMvc.perform(pagina("/admin/autores/modificar-autor-datos/" + id))
+                .andExpect(status().isOk())
+                .andExpect(view().name("admin-autor.html"))
+                .andExpect(model().attribute("error", "Error al intentar modificar el autor: No existe el autor con el id indicado."));
+    }
+
+    @Test
+    void unaEditorialQueNoExisteMuestraElMensajeDelServicio() throws Exception {
+        String id = UUID.randomUUID().toString();
+        mockMvc.perform(pagina("/admin/editoriales/eliminar-editorial/" + id))
+                .andExpect(status().isOk())
+                .andExpect(view().name("admin-editorial.html"))
+                .andExpect(model().attribute("error", "Error al intentar eliminar la editorial: No existe la editorial con el id indicado."));
+        mockMvc.perform(pagina("/admin/editoriales/modificar-editorial-datos/" + id))
+                .andExpect(status().isOk())
+                .andExpect(view().name("admin-editorial.html"))
+                .andExpect(model().attribute("error", "Error al intentar modificar la editorial: No existe la editorial con el id indicado."));
+    }
+
+    // Las páginas del administrador muestran el usuario de la sesión:
+    private static MockHttpServletRequestBuilder pagina(String url) {
+        Usuario admin = new Usuario();
+        admin.setId(UUID.randomUUID().toString());
+        admin.setNombre("Admin");
+        admin.setApellido("Apellido");
+        admin.setMail("admin@controladores.com");
+        admin.setAlta(new Date());
+        admin.setRol(Rol.ADMIN);
+        return get(url).sessionAttr("usuariosession", UsuarioSesion.de(admin));
+    }
+
+}
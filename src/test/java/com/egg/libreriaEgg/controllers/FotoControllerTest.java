@@ -0,0 +1,109 @@
+package com.egg.libreriaEgg.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.entidades.Foto;
+import com.egg.libreriaEgg.entidades.Libro;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.repositorios.LibroRepositorio;
+import com.egg.libreriaEgg.repositorios.UsuarioRepositorio;
+import com.egg.libreriaEgg.servicios.FotoServicio;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Verifica los encabezados de cache de las fotos: 200 con ETag y
+ * Last-Modified, 304 si el navegador ya tiene la versión actual, las portadas
+ * públicas y las fotos de perfil privadas (las dos se revalidan siempre).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class FotoControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FotoServicio fotoServicio;
+
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+
+    @Autowired
+    private UsuarioRepositorio usuarioRepositorio;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @Test
+    void laPortadaSeSirveConEtagYSeRevalida() throws Exception {
+        Foto foto = foto("portada");
+        Libro libro = datos.libro("Con portada");
+        libro.setFoto(foto);
+        libro = libroRepositorio.save(libro);
+
+        MvcResult respuesta = mockMvc.perform(get("/foto/libro/" + libro.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, public"))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(content().bytes("portada".getBytes(StandardCharsets.UTF_8)))
+                .andReturn();
+        String etag = respuesta.getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals("\"" + fotoServicio.metadatos(foto.getId()).getHash() + "\"", etag);
+
+        // El navegador ya tiene esa versión: 304, sin contenido y con la misma política.
+        mockMvc.perform(get("/foto/libro/" + libro.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, public"))
+                .andExpect(content().bytes(new byte[0]));
+        // Con otra versión, se vuelve a enviar:
+        mockMvc.perform(get("/foto/libro/" + libro.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"otra\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    @Test
+    void laFotoDePerfilEsPrivada() throws Exception {
+        Usuario usuario = datos.usuario("Con foto");
+        usuario.setFoto(foto("perfil"));
+        usuario = usuarioRepositorio.save(usuario);
+
+        String etag = mockMvc.perform(get("/foto/usuario/" + usuario.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/foto/usuario/" + usuario.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"));
+    }
+
+    @Test
+    void sinFotoEs404() throws Exception {
+        Libro libro = datos.libro("Sin portada");
+
+        mockMvc.perform(get("/foto/libro/" + libro.getId()))
+                .andExpect(status().isNotFound());
+    }
+
+    // El contenido no es una imagen: no se generan miniaturas.
+    private Foto foto(String contenido) throws Exception {
+        return fotoServicio.guardar(new MockMultipartFile("archivo", "foto.png", "image/png", contenido.getBytes(StandardCharsets.UTF_8)));
+    }
+
+}
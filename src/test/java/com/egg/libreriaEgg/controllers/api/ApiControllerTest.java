@@ -0,0 +1,201 @@
+package com.egg.libreriaEgg.controllers.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.entidades.Libro;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.enums.Rol;
+import com.egg.libreriaEgg.repositorios.LibroRepositorio;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Verifica la API REST: el catálogo completo como NDJSON y como array JSON,
+ * los permisos y la solicitud de un préstamo.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class ApiControllerTest {
+
+    private static final String MAIL = "api@mail.com";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @Test
+    @WithMockUser(roles = "USUARIO")
+    void elCatalogoSeEnviaComoNdjsonYComoArray() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            datos.libro("Api " + i);
+        }
+
+        String ndjson = mockMvc.perform(get("/api/v1/libros").accept(RespuestaJson.NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", RespuestaJson.NDJSON + ";charset=UTF-8"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertTrue(ndjson.endsWith("\n"));
+        List<String> titulosNdjson = new ArrayList<>();
+        for (String linea : ndjson.split("\n")) {
+            titulosNdjson.add(objectMapper.readTree(linea).get("titulo").asText());
+        }
+
+        String json = mockMvc.perform(get("/api/v1/libros").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        List<String> titulosArray = new ArrayList<>();
+        for (JsonNode libro : objectMapper.readTree(json)) {
+            titulosArray.add(libro.get("titulo").asText());
+        }
+
+        assertEquals(titulosArray, titulosNdjson);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(titulosArray.contains("Api " + i));
+        }
+        assertEquals(libroRepositorio.findAll().size(), titulosArray.size());
+    }
+
+    @Test
+    void sinAutenticacionResponde401() throws Exception {
+        mockMvc.perform(get("/api/v1/libros"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(header().exists("WWW-Authenticate"));
+    }
+
+    @Test
+    @WithMockUser(username = MAIL, roles = "USUARIO")
+    void unUsuarioPidePrestamosYSoloVeLosPropios() throws Exception {
+        Usuario usuario = datos.usuario("Api", Rol.USUARIO, MAIL, null);
+        Usuario otro = datos.usuario("Api", Rol.USUARIO, "otro-api@mail.com", null);
+        Libro libro = datos.libro("Api prestado");
+
+        mockMvc.perform(post("/api/v1/prestamos").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"idLibro\": \"" + libro.getId() + "\", \"fechaPrestamo\": \"2021-11-01\", \"fechaDevolucion\": \"2021-11-15\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.idUsuario").value(usuario.getId()))
+                .andExpect(jsonPath("$.tituloLibro").value("Api prestado"))
+                .andExpect(jsonPath("$.fechaPrestamo").value("2021-11-01"));
+        mockMvc.perform(get("/api/v1/prestamos/usuario/" + usuario.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+
+        mockMvc.perform(get("/api/v1/prestamos/usuario/" + otro.getId()))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/v1/prestamos").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isForbidden());
+        String yo = mockMvc.perform(get("/api/v1/usuarios/yo"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mail").value(MAIL))
+                .andReturn().getResponse().getContentAsString();
+        assertFalse(yo.contains("clave"));
+
+        // Datos inválidos:
+        mockMvc.perform(post("/api/v1/prestamos").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"idLibro\": \"" + libro.getId() + "\", \"fechaPrestamo\": \"2021-11-15\", \"fechaDevolucion\": \"2021-11-01\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("La fecha de retiro del Libro ingresada es posterior a la de devolución."));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void elAdminExportaLosPrestamos() throws Exception {
+        mockMvc.perform(get("/api/v1/prestamos/exportacion").param("formato", "csv"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"prestamos.csv\""));
+        mockMvc.perform(get("/api/v1/prestamos/exportacion").param("formato", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void elAdminPrestaYRecibeDevolucionesEnLote() throws Exception {
+        Usuario usuario = datos.usuario("Api", Rol.USUARIO, "lote-api@mail.com", null);
+        Libro primero = datos.libro("Api lote 1");
+        Libro segundo = datos.libro("Api lote 2");
+
+        String resumen = mockMvc.perform(post("/api/v1/prestamos/lote").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"idUsuario\": \"" + usuario.getId() + "\", \"idsLibros\": [\"" + primero.getId() + "\", \"" + segundo.getId() + "\", \"" + primero.getId() + "\"], "
+                        + "\"fechaPrestamo\": \"2021-11-01\", \"fechaDevolucion\": \"2021-11-15\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.realizados.length()").value(2))
+                .andExpect(jsonPath("$.rechazados.length()").value(1))
+                .andReturn().getResponse().getContentAsString();
+        JsonNode realizados = new ObjectMapper().readTree(resumen).get("realizados");
+
+        mockMvc.perform(post("/api/v1/prestamos/devoluciones").contentType(MediaType.APPLICATION_JSON)
+                .content(realizados.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.realizados.length()").value(2))
+                .andExpect(jsonPath("$.rechazados.length()").value(0));
+        mockMvc.perform(post("/api/v1/prestamos/devoluciones").contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(roles = "USUARIO")
+    void unUsuarioNoUsaLasOperacionesEnLote() throws Exception {
+        mockMvc.perform(post("/api/v1/prestamos/devoluciones").contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(roles = "USUARIO")
+    void unAutorInexistenteResponde404() throws Exception {
+        mockMvc.perform(get("/api/v1/autores/no-existe"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").exists());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void losErroresDeLaSolicitudConservanSuEstado() throws Exception {
+        // Un cuerpo que no es JSON y un parámetro de otro tipo:
+        mockMvc.perform(post("/api/v1/prestamos").contentType(MediaType.APPLICATION_JSON).content("{no es json"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("La solicitud no es válida."));
+        mockMvc.perform(get("/api/v1/usuarios").param("activos", "quizas"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("La solicitud no es válida."));
+        // Un método, un tipo de contenido o un tipo aceptado que no se soportan:
+        mockMvc.perform(post("/api/v1/usuarios"))
+                .andExpect(status().isMethodNotAllowed());
+        mockMvc.perform(post("/api/v1/prestamos").contentType(MediaType.TEXT_PLAIN).content("texto"))
+                .andExpect(status().isUnsupportedMediaType());
+        mockMvc.perform(get("/api/v1/prestamos").accept(MediaType.APPLICATION_XML))
+                .andExpect(status().isNotAcceptable());
+    }
+
+}
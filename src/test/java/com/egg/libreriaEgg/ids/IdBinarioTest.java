@@ -0,0 +1,83 @@
+package com.egg.libreriaEgg.ids;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.entidades.Autor;
+import com.egg.libreriaEgg.repositorios.AutorRepositorio;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Verifica los ids: se generan como UUID versión 7 en orden, se guardan como
+ * BINARY(16) (también en las claves foráneas) y se siguen usando como texto.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+@Transactional
+class IdBinarioTest {
+
+    @Autowired
+    private AutorRepositorio autorRepositorio;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @Test
+    void losUuid7SonVersion7YQuedanEnOrden() {
+        List<String> ids = new ArrayList<>();
+        long antes = System.currentTimeMillis();
+        for (int i = 0; i < 10000; i++) {
+            UUID id = Uuid7.nuevo();
+            assertEquals(7, id.version());
+            assertEquals(2, id.variant());
+            ids.add(id.toString());
+        }
+        assertTrue(Uuid7.milisegundo(UUID.fromString(ids.get(0))) >= antes);
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, "Los ids no quedaron en orden.");
+        }
+    }
+
+    @Test
+    void elTextoYLosBytesSonElMismoId() {
+        String id = "0189f7e4-8c2a-7b3d-9e4f-0123456789ab";
+        byte[] bytes = IdBinario.aBytes(id);
+        assertEquals(16, bytes.length);
+        assertEquals(id, IdBinario.deBytes(bytes));
+        // Un texto que no es un UUID se busca como el UUID nulo:
+        assertArrayEquals(new byte[16], IdBinario.aBytes("no-existe"));
+    }
+
+    @Test
+    void losIdsSeGuardanComoBinary16() {
+        Autor autor = datos.autor("Autor binario");
+        // Para leerlo con JDBC, el INSERT tiene que llegar a la DB:
+        autorRepositorio.flush();
+
+        assertEquals(7, UUID.fromString(autor.getId()).version());
+        assertEquals("Autor binario", autorRepositorio.findById(autor.getId()).get().getNombre());
+        byte[] guardado = jdbcTemplate.queryForObject("SELECT id FROM autor WHERE nombre = ?", byte[].class, "Autor binario");
+        assertEquals(autor.getId(), IdBinario.deBytes(guardado));
+        for (String[] columna : new String[][]{{"libro", "id"}, {"libro", "autor_id"}, {"prestamo", "usuario_id"}, {"usuario", "foto_id"}}) {
+            Map<String, Object> tipo = jdbcTemplate.queryForMap("SELECT type_name, character_maximum_length FROM information_schema.columns "
+                    + "WHERE table_name = ? AND column_name = ?", columna[0], columna[1]);
+            assertTrue(tipo.get("type_name").toString().toUpperCase().contains("BINARY"), columna[0] + "." + columna[1] + ": " + tipo);
+            assertEquals(16, ((Number) tipo.get("character_maximum_length")).intValue(), columna[0] + "." + columna[1]);
+        }
+    }
+
+}
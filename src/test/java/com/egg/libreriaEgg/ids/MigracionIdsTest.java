@@ -0,0 +1,134 @@
+package com.egg.libreriaEgg.ids;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Verifica el cambio de los ids de VARCHAR(36) a BINARY(16) sobre una DB con
+ * el esquema original (en una H2 aparte): los valores no cambian, las claves
+ * foráneas se vuelven a crear, y un índice que ya usaba una de las columnas
+ * (como los de V2__indices.sql) queda con todas sus columnas.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+class MigracionIdsTest {
+
+    private static final String[] ESQUEMA = {
+        "create table autor (id varchar(255) not null, alta bit not null, nombre varchar(255), primary key (id))",
+        "create table editorial (id varchar(255) not null, alta bit not null, nombre varchar(255), primary key (id))",
+        "create table foto (id varchar(255) not null, contenido longblob, mime varchar(255), nombre varchar(255), primary key (id))",
+        "create table libro (id varchar(255) not null, alta bit not null, anio integer, descripcion varchar(255), ejemplares integer, ejemplares_prestados integer, ejemplares_restantes integer, isbn bigint, titulo varchar(255), autor_id varchar(255), editorial_id varchar(255), foto_id varchar(255), primary key (id))",
+        "create table prestamo (id varchar(255) not null, alta bit not null, fecha_devolucion date, fecha_prestamo date, libro_id varchar(255), usuario_id varchar(255), primary key (id))",
+        "create table usuario (id varchar(255) not null, alta date, apellido varchar(255), baja date, clave varchar(255), dni varchar(255), mail varchar(255), nombre varchar(255), rol varchar(255), telefono varchar(255), foto_id varchar(255), primary key (id))",
+        "alter table libro add constraint fk_libro_autor foreign key (autor_id) references autor (id)",
+        "alter table libro add constraint fk_libro_editorial foreign key (editorial_id) references editorial (id)",
+        "alter table libro add constraint fk_libro_foto foreign key (foto_id) references foto (id)",
+        "alter table prestamo add constraint fk_prestamo_libro foreign key (libro_id) references libro (id)",
+        "alter table prestamo add constraint fk_prestamo_usuario foreign key (usuario_id) references usuario (id)",
+        "alter table usuario add constraint fk_usuario_foto foreign key (foto_id) references foto (id)",
+        // Un índice que usa una clave foránea y otras columnas:
+        "create index idx_libro_autor_titulo on libro (autor_id, titulo, id)"};
+
+    private Connection conexion;
+
+    @BeforeEach
+    void crearEsquema() throws SQLException {
+        conexion = DriverManager.getConnection("jdbc:h2:mem:migracion_ids;MODE=MySQL;DATABASE_TO_LOWER=TRUE", "sa", "");
+        for (String sentencia : ESQUEMA) {
+            ejecutar(sentencia);
+        }
+    }
+
+    @AfterEach
+    void cerrar() throws SQLException {
+        ejecutar("drop all objects");
+        conexion.close();
+    }
+
+    @Test
+    void losIdsPasanABinarioSinCambiarDeValor() throws SQLException {
+        String autor = UUID.randomUUID().toString();
+        String editorial = UUID.randomUUID().toString();
+        List<String> libros = new ArrayList<>();
+        ejecutar("insert into autor values ('" + autor + "', true, 'Autor')");
+        ejecutar("insert into editorial values ('" + editorial + "', true, 'Editorial')");
+        // Más libros que el lote, para copiarlos en varias vueltas:
+        for (int i = 0; i < 7; i++) {
+            String libro = UUID.randomUUID().toString();
+            libros.add(libro);
+            ejecutar("insert into libro (id, alta, titulo, autor_id, editorial_id) values ('" + libro + "', true, 'Libro " + i + "', '"
+                    + autor + "', '" + editorial + "')");
+        }
+        // Uno sin editorial (la clave foránea queda en NULL):
+        ejecutar("update libro set editorial_id = null where id = '" + libros.get(0) + "'");
+
+        new MigracionIds(conexion, 3).cambiar();
+
+        // (H2 informa las BINARY como VARBINARY)
+        assertTrue(tipo("libro", "id").toLowerCase().endsWith("binary"));
+        assertTrue(tipo("libro", "autor_id").toLowerCase().endsWith("binary"));
+        assertTrue(tipo("autor", "id").toLowerCase().endsWith("binary"));
+        try (Statement sentencia = conexion.createStatement();
+                ResultSet filas = sentencia.executeQuery("select id, autor_id, editorial_id from libro")) {
+            int leidas = 0;
+            while (filas.next()) {
+                String libro = IdBinario.deBytes(filas.getBytes(1));
+                assertTrue(libros.contains(libro), libro);
+                assertArrayEquals(IdBinario.aBytes(autor), filas.getBytes(2));
+                assertArrayEquals(libro.equals(libros.get(0)) ? null : IdBinario.aBytes(editorial), filas.getBytes(3));
+                leidas++;
+            }
+            assertEquals(libros.size(), leidas);
+        }
+
+        // El índice conserva todas sus columnas:
+        assertEquals(Arrays.asList("autor_id", "titulo", "id"), columnasDelIndice("libro", "idx_libro_autor_titulo"));
+        // Y las claves foráneas se siguen controlando:
+        assertThrows(SQLException.class, () -> ejecutar("insert into libro (id, alta, autor_id) values (x'00000000000000000000000000000001', true, x'00000000000000000000000000000002')"));
+
+        // Una segunda vez no hace nada:
+        new MigracionIds(conexion, 3).cambiar();
+        assertEquals(Arrays.asList("autor_id", "titulo", "id"), columnasDelIndice("libro", "idx_libro_autor_titulo"));
+    }
+
+    private String tipo(String tabla, String columna) throws SQLException {
+        try (ResultSet filas = conexion.getMetaData().getColumns(conexion.getCatalog(), conexion.getSchema(), tabla, columna)) {
+            filas.next();
+            return filas.getString("TYPE_NAME");
+        }
+    }
+
+    private List<String> columnasDelIndice(String tabla, String indice) throws SQLException {
+        List<String> columnas = new ArrayList<>();
+        try (ResultSet filas = conexion.getMetaData().getIndexInfo(conexion.getCatalog(), conexion.getSchema(), tabla, false, false)) {
+            while (filas.next()) {
+                if (indice.equalsIgnoreCase(filas.getString("INDEX_NAME"))) {
+                    columnas.add(filas.getString("COLUMN_NAME").toLowerCase());
+                }
+            }
+        }
+        return columnas;
+    }
+
+    private void ejecutar(String sql) throws SQLException {
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute(sql);
+        }
+    }
+
+}
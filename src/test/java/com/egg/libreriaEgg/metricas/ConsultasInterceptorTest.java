@@ -0,0 +1,120 @@
+package com.egg.libreriaEgg.metricas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.autenticacion.UsuarioSesion;
+import com.egg.libreriaEgg.entidades.Autor;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.enums.Rol;
+import com.egg.libreriaEgg.servicios.CatalogoCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Verifica que se cuentan las consultas de cada petición por handler, que se
+ * registra un exceso cuando se supera el presupuesto configurado y que se
+ * cuentan todas las consultas lentas de la petición, no sólo la más lenta
+ * (con consultas.lenta-ms = 0, todas lo son).
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest(properties = {
+    "consultas.presupuesto.AutorController.administradorAutores.maximo = 0",
+    "consultas.lenta-ms = 0"})
+@AutoConfigureMockMvc
+@WithMockUser(roles = "ADMIN")
+class ConsultasInterceptorTest {
+
+    private static final String HANDLER = "AutorController.administradorAutores";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @AfterEach
+    void borrarDatos() {
+        datos.borrarTodo();
+    }
+
+    @Test
+    void registraLasConsultasYLosExcesosPorHandler() throws Exception {
+        datos.autor("Autor medido");
+        Usuario admin = datos.usuario("Admin", Rol.ADMIN);
+        catalogoCache.invalidarTodo();
+
+        mockMvc.perform(get("/admin/autores/admin-autores").sessionAttr("usuariosession", UsuarioSesion.de(admin)))
+                .andExpect(status().isOk());
+
+        DistributionSummary consultas = registry.get("libreria.peticion.consultas").tag("handler", HANDLER).summary();
+        assertEquals(1, consultas.count());
+        assertTrue(consultas.totalAmount() >= 1, "No se contó ninguna consulta.");
+        assertEquals(1, registry.get("libreria.peticion.db").tag("handler", HANDLER).timer().count());
+        Counter excesos = registry.get("libreria.peticion.excesos").tag("handler", HANDLER).tag("motivo", "consultas").counter();
+        assertEquals(1, excesos.count());
+        Counter lentas = registry.get("libreria.consultas.lentas").tag("handler", HANDLER).counter();
+        assertEquals(consultas.totalAmount(), lentas.count());
+        // La petición terminó: el hilo ya no está contando.
+        assertNull(ConsultasPeticion.actual());
+    }
+
+    @Test
+    void seCuentaCadaConsultaLentaDeLaPeticion() throws Exception {
+        ConsultasPeticion peticion = ConsultasPeticion.iniciar(TimeUnit.MILLISECONDS.toNanos(1));
+        try {
+            ejecutar(peticion, "select rapida 1", 0);
+            ejecutar(peticion, "select lenta 1", 5);
+            ejecutar(peticion, "select rapida 2", 0);
+            ejecutar(peticion, "select lenta 2", 5);
+        } finally {
+            ConsultasPeticion.terminar();
+        }
+        assertEquals(4, peticion.getConsultas());
+        assertEquals(2, peticion.getCantidadLentas());
+        assertEquals("select lenta 1", peticion.getLentas().get(0).getSql());
+        assertEquals("select lenta 2", peticion.getLentas().get(1).getSql());
+
+        // Se cuentan todas, pero sólo se guardan las primeras:
+        peticion = ConsultasPeticion.iniciar(-1);
+        try {
+            for (int i = 0; i < ConsultasPeticion.MAXIMO_LENTAS + 3; i++) {
+                ejecutar(peticion, "select " + i, 0);
+            }
+        } finally {
+            ConsultasPeticion.terminar();
+        }
+        assertEquals(ConsultasPeticion.MAXIMO_LENTAS + 3, peticion.getCantidadLentas());
+        assertEquals(ConsultasPeticion.MAXIMO_LENTAS, peticion.getLentas().size());
+    }
+
+    private static void ejecutar(ConsultasPeticion peticion, String sql, long ms) throws InterruptedException {
+        peticion.preparada(sql);
+        peticion.inicioEjecucion();
+        if (ms > 0) {
+            Thread.sleep(ms);
+        }
+        peticion.finEjecucion();
+    }
+
+}
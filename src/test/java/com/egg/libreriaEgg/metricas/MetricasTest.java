@@ -0,0 +1,82 @@
+package com.egg.libreriaEgg.metricas;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.enums.Rol;
+import com.egg.libreriaEgg.servicios.AutorServicio;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Verifica que las métricas se publican en /actuator/prometheus y que sólo
+ * las puede leer un administrador, con HTTP Basic y sin abrir una sesión. (En
+ * los tests, Spring Boot no publica las
+ * métricas salvo con @AutoConfigureMetrics.)
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+@Transactional
+class MetricasTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AutorServicio autorServicio;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @Test
+    void prometheusPublicaLasMetricasDeServiciosRepositoriosEHibernate() throws Exception {
+        autorServicio.findAll();
+
+        mockMvc.perform(get("/actuator/prometheus").with(user("admin").roles("ADMIN")))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("libreria_servicios_seconds_count{clase=\"AutorServicio\",excepcion=\"none\",metodo=\"findAll\",}")))
+                .andExpect(content().string(containsString("spring_data_repository_invocations_seconds_count")))
+                .andExpect(content().string(containsString("hibernate_statements_total")))
+                .andExpect(content().string(containsString("libreria_catalogo_cache_aciertos_total")));
+    }
+
+    @Test
+    void lasMetricasNoSonPublicas() throws Exception {
+        int estado = mockMvc.perform(get("/actuator/prometheus")).andReturn().getResponse().getStatus();
+        Assertions.assertNotEquals(200, estado);
+        mockMvc.perform(get("/actuator/prometheus").with(user("usuario").roles("USUARIO")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void prometheusLeeConHttpBasicSinAbrirSesiones() throws Exception {
+        Usuario admin = datos.usuario("Prometheus", Rol.ADMIN, null, new BCryptPasswordEncoder().encode("clave123"));
+
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertNull(mockMvc.perform(get("/actuator/prometheus").with(httpBasic(admin.getMail(), "clave123")))
+                    .andExpect(status().isOk())
+                    .andReturn().getRequest().getSession(false));
+        }
+        mockMvc.perform(get("/actuator/prometheus").with(httpBasic(admin.getMail(), "otra-clave")))
+                .andExpect(status().isUnauthorized());
+    }
+
+}
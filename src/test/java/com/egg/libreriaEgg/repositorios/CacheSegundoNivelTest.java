@@ -0,0 +1,145 @@
+package com.egg.libreriaEgg.repositorios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.autenticacion.UsuarioSesion;
+import com.egg.libreriaEgg.dto.FotoMetadatos;
+import com.egg.libreriaEgg.entidades.Autor;
+import com.egg.libreriaEgg.entidades.Editorial;
+import com.egg.libreriaEgg.entidades.Foto;
+import com.egg.libreriaEgg.entidades.Libro;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.servicios.AutorServicio;
+import com.egg.libreriaEgg.servicios.CatalogoCache;
+import java.util.Date;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Verifica la cache de segundo nivel de Hibernate: con la cache llena, el
+ * inicio se arma sin consultas, y las modificaciones (por entidad o con
+ * UPDATE masivos) se ven en las lecturas siguientes.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser(roles = "USUARIO")
+class CacheSegundoNivelTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    @Autowired
+    private AutorServicio autorServicio;
+
+    @Autowired
+    private AutorRepositorio autorRepositorio;
+
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+
+    @Autowired
+    private FotoRepositorio fotoRepositorio;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @AfterEach
+    void borrarDatos() {
+        datos.borrarTodo();
+    }
+
+    @Test
+    void elInicioNoConsultaLaDbConLaCacheLlena() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            datos.libro("Cacheado " + i, datos.autor("Autor cacheado " + i), datos.editorial("Editorial cacheada " + i));
+        }
+        Usuario usuario = datos.usuario("lector");
+
+        inicio(usuario);
+        Statistics estadisticas = estadisticas();
+        estadisticas.clear();
+        inicio(usuario);
+
+        assertEquals(0, estadisticas.getPrepareStatementCount(), "El inicio consultó la DB con la cache llena.");
+        assertTrue(estadisticas.getSecondLevelCacheHitCount() > 0);
+        assertTrue(estadisticas.getQueryCacheHitCount() > 0);
+    }
+
+    @Test
+    void lasModificacionesInvalidanLaCache() throws Exception {
+        Autor autor = datos.autor("Antes");
+        Libro libro = datos.libro("Libro del autor", autor, datos.editorial("Editorial del autor"));
+        // Se llenan las caches:
+        autorRepositorio.findAll();
+        libroRepositorio.findById(libro.getId());
+
+        autorServicio.modificarAutor(autor.getId(), "Después");
+        assertTrue(autorRepositorio.findAll().stream().anyMatch(a -> a.getNombre().equals("Después")));
+        assertTrue(autorRepositorio.findAll().stream().noneMatch(a -> a.getNombre().equals("Antes")));
+        assertEquals("Después", libroRepositorio.findById(libro.getId()).get().getAutor().getNombre());
+
+        // UPDATE masivo de los ejemplares:
+        transactionTemplate.execute(estado -> libroRepositorio.reservarEjemplar(libro.getId()));
+        assertEquals(1, libroRepositorio.findById(libro.getId()).get().getEjemplaresPrestados().intValue());
+    }
+
+    @Test
+    void losDatosDeLasFotosSeCacheanYSeInvalidan() {
+        Foto foto = new Foto();
+        foto.setMime("image/png");
+        foto.setHash("hash-1");
+        foto.setTamanio(10L);
+        foto.setModificacion(new Date());
+        fotoRepositorio.save(foto);
+        Libro libro = datos.libro("Libro con foto", datos.autor("Autor con foto"), datos.editorial("Editorial con foto"));
+        libro.setFoto(foto);
+        libroRepositorio.save(libro);
+
+        assertEquals("hash-1", fotoRepositorio.metadatosDeLibro(libro.getId()).getHash());
+        Statistics estadisticas = estadisticas();
+        estadisticas.clear();
+        assertEquals("hash-1", fotoRepositorio.metadatosDeLibro(libro.getId()).getHash());
+        assertEquals(0, estadisticas.getPrepareStatementCount());
+
+        transactionTemplate.execute(estado -> fotoRepositorio.completarDatos(foto.getId(), "hash-2", new Date(), 20L));
+        FotoMetadatos metadatos = fotoRepositorio.metadatosDeLibro(libro.getId());
+        assertEquals("hash-2", metadatos.getHash());
+        assertEquals(20L, metadatos.getTamanio().longValue());
+    }
+
+    private void inicio(Usuario usuario) throws Exception {
+        // Sin la CatalogoCache, para medir sólo la de Hibernate.
+        catalogoCache.invalidarTodo();
+        mockMvc.perform(get("/inicio").sessionAttr("usuariosession", UsuarioSesion.de(usuario)))
+                .andExpect(status().isOk());
+    }
+
+    private Statistics estadisticas() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+}
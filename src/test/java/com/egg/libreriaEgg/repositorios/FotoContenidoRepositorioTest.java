@@ -0,0 +1,99 @@
+package com.egg.libreriaEgg.repositorios;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.egg.libreriaEgg.entidades.Foto;
+import com.egg.libreriaEgg.ids.IdBinario;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import org.hibernate.engine.jdbc.BlobProxy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Verifica la lectura de las fotos de a bloques: el contenido se lee completo
+ * (también el de las fotos sin hash), y si la foto se reemplaza a mitad de la
+ * lectura, o tiene menos bytes de los esperados, la lectura falla en lugar de
+ * devolver un contenido mezclado o cortado.
+ *
+ * Usa su propio FotoContenidoRepositorio, con bloques de 4 bytes.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+@Transactional
+class FotoContenidoRepositorioTest {
+
+    private static final byte[] CONTENIDO = "0123456789abcdef".getBytes();
+
+    @Autowired
+    private FotoRepositorio fotoRepositorio;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private FotoContenidoRepositorio repositorio;
+
+    @BeforeEach
+    void crearRepositorio() {
+        repositorio = new FotoContenidoRepositorio();
+        ReflectionTestUtils.setField(repositorio, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(repositorio, "bloqueBytes", 4);
+    }
+
+    @Test
+    void seLeeElContenidoCompletoDeABloques() throws IOException {
+        Foto foto = foto("hash-completo");
+        try (InputStream entrada = repositorio.abrir(foto.getId(), "hash-completo", null, "foto").getInputStream()) {
+            assertArrayEquals(CONTENIDO, StreamUtils.copyToByteArray(entrada));
+        }
+        // Una foto guardada antes de que existiera el hash:
+        Foto sinHash = foto(null);
+        try (InputStream entrada = repositorio.abrir(sinHash.getId(), null, (long) CONTENIDO.length, "foto").getInputStream()) {
+            assertArrayEquals(CONTENIDO, StreamUtils.copyToByteArray(entrada));
+        }
+    }
+
+    @Test
+    void siLaFotoSeReemplazaALaMitadLaLecturaFalla() throws IOException {
+        Foto foto = foto("hash-anterior");
+        try (InputStream entrada = repositorio.abrir(foto.getId(), "hash-anterior", (long) CONTENIDO.length, "foto").getInputStream()) {
+            byte[] primerBloque = new byte[4];
+            assertEquals(4, entrada.read(primerBloque));
+            assertArrayEquals(Arrays.copyOf(CONTENIDO, 4), primerBloque);
+
+            jdbcTemplate.update("UPDATE foto SET hash = ?, contenido = ? WHERE id = ?",
+                    "hash-nuevo", "otro contenido distinto".getBytes(), IdBinario.aBytes(foto.getId()));
+
+            IOException e = assertThrows(IOException.class, () -> entrada.read(new byte[4]));
+            assertEquals("La foto " + foto.getId() + " cambió o se borró mientras se leía.", e.getMessage());
+        }
+    }
+
+    @Test
+    void siElContenidoEsMasCortoQueElTamanioLaLecturaFalla() throws IOException {
+        Foto foto = foto("hash-corto");
+        try (InputStream entrada = repositorio.abrir(foto.getId(), "hash-corto", (long) CONTENIDO.length + 4, "foto").getInputStream()) {
+            assertThrows(IOException.class, () -> StreamUtils.copyToByteArray(entrada));
+        }
+    }
+
+    private Foto foto(String hash) {
+        Foto foto = new Foto();
+        foto.setHash(hash);
+        foto.setTamanio((long) CONTENIDO.length);
+        foto.setContenido(BlobProxy.generateProxy(CONTENIDO));
+        // Se lee con JDBC: el INSERT tiene que llegar a la DB.
+        return fotoRepositorio.saveAndFlush(foto);
+    }
+
+}
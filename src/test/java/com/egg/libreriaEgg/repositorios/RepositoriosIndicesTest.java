@@ -0,0 +1,160 @@
+package com.egg.libreriaEgg.repositorios;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import org.hibernate.engine.query.spi.HQLQueryPlan;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.support.Repositories;
+
+/**
+ * Revisa con EXPLAIN (H2) el plan de cada consulta @Query de los
+ * repositorios: ninguna puede recorrer una tabla entera, salvo las que listan
+ * la tabla completa a propósito (CONSULTAS_COMPLETAS). Si se agrega una
+ * consulta sin índice, o una migración borra uno, este test falla con el
+ * plan de la consulta.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+class RepositoriosIndicesTest {
+
+    // Consultas que devuelven (casi) toda la tabla: recorrerla es lo que
+    // corresponde. Se nombran como Repositorio.metodo.
+    private static final Set<String> CONSULTAS_COMPLETAS = new HashSet<>(Arrays.asList(
+            "AutorRepositorio.findAll",
+            "AutorRepositorio.nombresEIds",
+            "EditorialRepositorio.findAll",
+            "EditorialRepositorio.nombresEIds",
+            "LibroRepositorio.isbns",
+            "MiniaturaRepositorio.borrarHuerfanas",
+            "PrestamoRepositorio.recorrerPrestamos",
+            "UsuarioRepositorio.buscarActivos",
+            "UsuarioRepositorio.buscarInactivos"));
+
+    // Cada tabla del plan de H2 lleva un comentario con el índice que usa y,
+    // si busca por el índice, las condiciones: /* public.indice: id = ?1 */
+    private static final Pattern TABLA = Pattern.compile("/\\* ([\\w.]+)(: [^*]*)? \\*/");
+
+    @Autowired
+    private ApplicationContext contexto;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void ningunaConsultaRecorreUnaTablaEntera() throws Exception {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        List<String> recorridos = new ArrayList<>();
+        Set<String> completasRevisadas = new HashSet<>();
+        int revisadas = 0;
+        try (Connection conexion = dataSource.getConnection()) {
+            for (Class<?> repositorio : interfaces()) {
+                for (Method metodo : repositorio.getDeclaredMethods()) {
+                    Query query = metodo.getAnnotation(Query.class);
+                    if (query == null || query.nativeQuery() || metodo.isBridge()) {
+                        continue;
+                    }
+                    String nombre = repositorio.getSimpleName() + "." + metodo.getName();
+                    if (CONSULTAS_COMPLETAS.contains(nombre)) {
+                        completasRevisadas.add(nombre);
+                        continue;
+                    }
+                    for (String sql : sql(sessionFactory, query.value())) {
+                        String plan = explicar(conexion, sql);
+                        if (recorreTabla(plan)) {
+                            recorridos.add(nombre + ":\n" + plan);
+                        }
+                        revisadas++;
+                    }
+                }
+            }
+        }
+        assertTrue(revisadas > 0, "No se revisó ninguna consulta.");
+        assertTrue(recorridos.isEmpty(), "Consultas que recorren una tabla entera:\n\n" + String.join("\n\n", recorridos));
+        // Que la lista de excepciones no nombre consultas que ya no existen:
+        assertTrue(completasRevisadas.equals(CONSULTAS_COMPLETAS), "Consultas completas que no existen: " + diferencia(CONSULTAS_COMPLETAS, completasRevisadas));
+    }
+
+    @Test
+    void lasBusquedasUsanLosIndicesDeLasMigraciones() throws Exception {
+        try (Connection conexion = dataSource.getConnection()) {
+            String plan = explicar(conexion, "SELECT id FROM prestamo WHERE usuario_id = ? AND alta = ?");
+            assertTrue(plan.contains("idx_prestamo_usuario_alta"), plan);
+            plan = explicar(conexion, "SELECT id FROM libro WHERE isbn = ?");
+            assertTrue(plan.contains("uk_libro_isbn"), plan);
+            // Sin índice (descripcion) el plan es un recorrido completo:
+            assertTrue(recorreTabla(explicar(conexion, "SELECT id FROM libro WHERE descripcion = ?")));
+            assertFalse(recorreTabla(plan));
+        }
+    }
+
+    private List<Class<?>> interfaces() {
+        List<Class<?>> interfaces = new ArrayList<>();
+        for (Class<?> entidad : new Repositories(contexto)) {
+            new Repositories(contexto).getRepositoryInformationFor(entidad).ifPresent(informacion -> interfaces.add(informacion.getRepositoryInterface()));
+        }
+        return interfaces;
+    }
+
+    private static String[] sql(SessionFactoryImplementor sessionFactory, String jpql) {
+        return new HQLQueryPlan(jpql, false, Collections.emptyMap(), sessionFactory).getSqlStrings();
+    }
+
+    private static String explicar(Connection conexion, String sql) throws SQLException {
+        try (PreparedStatement explain = conexion.prepareStatement("EXPLAIN " + sql)) {
+            // H2 arma el plan sin mirar los valores de los parámetros.
+            for (int i = 1; i <= explain.getParameterMetaData().getParameterCount(); i++) {
+                explain.setObject(i, null);
+            }
+            try (ResultSet plan = explain.executeQuery()) {
+                plan.next();
+                return plan.getString(1);
+            }
+        }
+    }
+
+    /**
+     * Una tabla se recorre entera cuando el plan no usa índice (tableScan) o
+     * usa uno sin condiciones (lo lee completo, en orden).
+     */
+    private static boolean recorreTabla(String plan) {
+        Matcher tabla = TABLA.matcher(plan);
+        while (tabla.find()) {
+            if (tabla.group(1).endsWith(".tableScan") || tabla.group(2) == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<String> diferencia(Set<String> a, Set<String> b) {
+        Set<String> diferencia = new HashSet<>(a);
+        diferencia.removeAll(b);
+        return diferencia;
+    }
+
+}
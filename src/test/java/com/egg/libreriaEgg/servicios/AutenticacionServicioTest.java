@@ -0,0 +1,174 @@
+package com.egg.libreriaEgg.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestBuilders.formLogin;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.autenticacion.CredencialesCache;
+import com.egg.libreriaEgg.autenticacion.UsuarioDetalles;
+import com.egg.libreriaEgg.autenticacion.UsuarioSesion;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.enums.Rol;
+import com.egg.libreriaEgg.repositorios.UsuarioRepositorio;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * Verifica el login: la sesión guarda sólo un UsuarioSesion, los datos de
+ * login se leen de la cache (también después de que Spring Security borra la
+ * clave) y se descartan al cambiar el rol, aunque se haya escrito el mail con
+ * otras mayúsculas; las sesiones abiertas se cierran
+ * al deshabilitar al usuario o cambiarle el rol; la API con HTTP Basic no abre
+ * sesiones.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class AutenticacionServicioTest {
+
+    private static final String CLAVE = "clave123";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AutenticacionServicio autenticacionServicio;
+
+    @Autowired
+    private UsuarioServicio usuarioServicio;
+
+    @Autowired
+    private UsuarioRepositorio usuarioRepositorio;
+
+    @Autowired
+    private CredencialesCache credencialesCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @AfterEach
+    void borrarDatos() {
+        datos.borrarTodo();
+    }
+
+    @Test
+    void elLoginGuardaUnUsuarioSesionYUsaLaCache() throws Exception {
+        Usuario usuario = usuario("login@autenticacion.com");
+
+        MvcResult login = mockMvc.perform(formLogin("/logincheck").user(usuario.getMail()).password(CLAVE))
+                .andExpect(status().is3xxRedirection())
+                .andReturn();
+        Object enSesion = login.getRequest().getSession().getAttribute(AutenticacionServicio.ATRIBUTO_SESION);
+        assertTrue(enSesion instanceof UsuarioSesion, "La sesión guarda " + enSesion);
+        assertEquals(usuario.getId(), ((UsuarioSesion) enSesion).getId());
+        assertEquals("Login", ((UsuarioSesion) enSesion).getNombre());
+
+        // El segundo login no consulta la DB y la clave sigue estando:
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+        mockMvc.perform(formLogin("/logincheck").user(usuario.getMail()).password(CLAVE))
+                .andExpect(status().is3xxRedirection());
+        assertEquals(0, estadisticas.getPrepareStatementCount());
+
+        // Una clave incorrecta no abre sesión con el usuario:
+        MvcResult fallido = mockMvc.perform(formLogin("/logincheck").user(usuario.getMail()).password("otra-clave"))
+                .andReturn();
+        MockHttpSession sesionFallida = (MockHttpSession) fallido.getRequest().getSession(false);
+        assertTrue(sesionFallida == null || sesionFallida.getAttribute(AutenticacionServicio.ATRIBUTO_SESION) == null);
+    }
+
+    @Test
+    void cambiarElRolDescartaLosDatosGuardados() throws Exception {
+        Usuario usuario = usuario("rol@autenticacion.com");
+        UserDetails antes = autenticacionServicio.loadUserByUsername(usuario.getMail());
+        assertEquals("ROLE_USUARIO", antes.getAuthorities().iterator().next().getAuthority());
+
+        usuarioServicio.cambiarRol(usuario.getId());
+
+        UserDetails despues = autenticacionServicio.loadUserByUsername(usuario.getMail());
+        assertEquals("ROLE_ADMIN", despues.getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    void elMailConOtrasMayusculasUsaLaMismaEntrada() throws Exception {
+        Usuario usuario = usuario("mayusculas@autenticacion.com");
+        // En MySQL buscarPorMail no distingue mayúsculas (en H2 sí): el cargador lo simula.
+        String mailEscrito = " MAYUSCULAS@Autenticacion.com";
+        UserDetails antes = credencialesCache.obtener(mailEscrito, () -> UsuarioDetalles.de(usuarioRepositorio.findById(usuario.getId()).get()));
+        assertEquals("ROLE_USUARIO", antes.getAuthorities().iterator().next().getAuthority());
+        long fallos = credencialesCache.getFallos();
+        autenticacionServicio.loadUserByUsername(usuario.getMail());
+        assertEquals(fallos, credencialesCache.getFallos());
+
+        // UsuarioServicio invalida usuario.getMail(): la entrada del mail escrito también se va.
+        usuarioServicio.cambiarRol(usuario.getId());
+
+        UserDetails despues = credencialesCache.obtener(mailEscrito, () -> UsuarioDetalles.de(usuarioRepositorio.findById(usuario.getId()).get()));
+        assertEquals("ROLE_ADMIN", despues.getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    void deshabilitarOCambiarElRolCierraLasSesionesAbiertas() throws Exception {
+        Usuario admin = usuario("admin@autenticacion.com");
+        usuarioServicio.cambiarRol(admin.getId());
+        MockHttpSession sesionAdmin = iniciarSesion(admin);
+        mockMvc.perform(get("/admin/dashboard").session(sesionAdmin))
+                .andExpect(status().isOk());
+
+        // Al pasar a USUARIO, la sesión que abrió como ADMIN ya no sirve:
+        usuarioServicio.cambiarRol(admin.getId());
+        mockMvc.perform(get("/admin/dashboard").session(sesionAdmin))
+                .andExpect(redirectedUrl("/"));
+
+        Usuario usuario = usuario("baja@autenticacion.com");
+        MockHttpSession sesion = iniciarSesion(usuario);
+        mockMvc.perform(get("/api/v1/usuarios/yo").session(sesion))
+                .andExpect(status().isOk());
+
+        usuarioServicio.deshabilitar(usuario.getId());
+        mockMvc.perform(get("/api/v1/usuarios/yo").session(sesion))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void laApiConHttpBasicNoAbreSesion() throws Exception {
+        Usuario usuario = usuario("api@autenticacion.com");
+
+        MvcResult resultado = mockMvc.perform(get("/api/v1/usuarios/yo").with(httpBasic(usuario.getMail(), CLAVE)))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertNull(resultado.getRequest().getSession(false));
+    }
+
+    private MockHttpSession iniciarSesion(Usuario usuario) throws Exception {
+        return (MockHttpSession) mockMvc.perform(formLogin("/logincheck").user(usuario.getMail()).password(CLAVE))
+                .andExpect(redirectedUrl("/inicio"))
+                .andReturn().getRequest().getSession(false);
+    }
+
+    private Usuario usuario(String mail) {
+        return datos.usuario("Login", Rol.USUARIO, mail, new BCryptPasswordEncoder().encode(CLAVE));
+    }
+
+}
@@ -0,0 +1,264 @@
+package com.egg.libreriaEgg.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.entidades.Autor;
+import com.egg.libreriaEgg.entidades.Editorial;
+import com.egg.libreriaEgg.entidades.Libro;
+import com.egg.libreriaEgg.entidades.Prestamo;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.repositorios.AutorRepositorio;
+import com.egg.libreriaEgg.repositorios.EditorialRepositorio;
+import com.egg.libreriaEgg.repositorios.LibroRepositorio;
+import com.egg.libreriaEgg.repositorios.PrestamoRepositorio;
+import com.egg.libreriaEgg.repositorios.UsuarioRepositorio;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Verifica que la baja y el alta de un Autor o una Editorial con UPDATE en
+ * lote (LibroServicio.bajaPorAutor, bajaPorEditorial y altaPorAutor) dejan
+ * todo igual que hacerlo libro por libro con LibroServicio.baja y alta: los
+ * libros, sus ejemplares, los préstamos y los préstamos activos de los
+ * usuarios. Además, que la baja de un Autor y una devolución en lote de sus
+ * préstamos al mismo tiempo no se bloquean entre sí.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+class BajaEnCascadaTest {
+
+    private static final SimpleDateFormat FORMATO = new SimpleDateFormat("yyyy-MM-dd");
+
+    @Autowired
+    private AutorServicio autorServicio;
+
+    @Autowired
+    private EditorialServicio editorialServicio;
+
+    @Autowired
+    private LibroServicio libroServicio;
+
+    @Autowired
+    private PrestamoServicio prestamoServicio;
+
+    @Autowired
+    private AutorRepositorio autorRepositorio;
+
+    @Autowired
+    private EditorialRepositorio editorialRepositorio;
+
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+
+    @Autowired
+    private PrestamoRepositorio prestamoRepositorio;
+
+    @Autowired
+    private UsuarioRepositorio usuarioRepositorio;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @AfterEach
+    void borrarDatos() {
+        datos.borrarTodo();
+    }
+
+    @Test
+    void laBajaDeUnAutorDejaTodoIgualQueLibroPorLibro() throws Exception {
+        Escenario filaPorFila = cargar("autor-filas");
+        Escenario enLote = cargar("autor-lote");
+
+        for (Libro libro : libroRepositorio.buscarPorAutor(filaPorFila.autor.getId())) {
+            if (libro.isAlta()) {
+                libroServicio.baja(libro.getId());
+            }
+        }
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+        autorServicio.baja(enLote.autor.getId());
+        long consultas = estadisticas.getPrepareStatementCount();
+
+        assertEquals(estado(filaPorFila), estado(enLote));
+        assertFalse(autorRepositorio.findById(enLote.autor.getId()).get().isAlta());
+        // Los préstamos del libro de otro autor no cambian:
+        assertTrue(prestamoRepositorio.findById(enLote.prestamos.get(enLote.prestamos.size() - 1).getId()).get().isAlta());
+        // El autor, los libros y los préstamos (bloqueo y baja), y los ejemplares y
+        // los usuarios (un UPDATE por cada cantidad distinta: acá, 1 y 2):
+        assertTrue(consultas <= 9, "Se hicieron " + consultas + " consultas.");
+    }
+
+    @Test
+    void laBajaDeUnaEditorialDejaTodoIgualQueLibroPorLibro() throws Exception {
+        Escenario filaPorFila = cargar("editorial-filas");
+        Escenario enLote = cargar("editorial-lote");
+
+        for (Libro libro : libroRepositorio.buscarPorEditorial(filaPorFila.editorial.getId())) {
+            if (libro.isAlta()) {
+                libroServicio.baja(libro.getId());
+            }
+        }
+        editorialServicio.baja(enLote.editorial.getId());
+
+        assertEquals(estado(filaPorFila), estado(enLote));
+        assertFalse(editorialRepositorio.findById(enLote.editorial.getId()).get().isAlta());
+    }
+
+    @Test
+    void elAltaDeUnAutorDejaTodoIgualQueLibroPorLibro() throws Exception {
+        Escenario filaPorFila = cargar("alta-filas");
+        Escenario enLote = cargar("alta-lote");
+        autorServicio.baja(filaPorFila.autor.getId());
+        autorServicio.baja(enLote.autor.getId());
+
+        Autor autor = autorRepositorio.findById(filaPorFila.autor.getId()).get();
+        autor.setAlta(true);
+        autorRepositorio.save(autor);
+        for (Libro libro : libroRepositorio.buscarPorAutor(filaPorFila.autor.getId())) {
+            libroServicio.alta(libro.getId());
+        }
+        autorServicio.alta(enLote.autor.getId());
+
+        assertEquals(estado(filaPorFila), estado(enLote));
+        assertTrue(autorRepositorio.findById(enLote.autor.getId()).get().isAlta());
+        assertTrue(editorialRepositorio.findById(enLote.otraEditorial.getId()).get().isAlta());
+    }
+
+    @Test
+    void laBajaDeUnAutorYUnaDevolucionEnLoteNoSeBloquean() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 5; i++) {
+                Escenario escenario = cargar("simultaneas-" + i);
+                List<String> idsPrestamos = new ArrayList<>();
+                for (Prestamo prestamo : escenario.prestamos) {
+                    idsPrestamos.add(prestamo.getId());
+                }
+                final CountDownLatch largada = new CountDownLatch(1);
+                Future<?> devolucion = executor.submit(() -> {
+                    largada.await();
+                    return prestamoServicio.bajaPrestamos(idsPrestamos);
+                });
+                Future<?> baja = executor.submit(() -> {
+                    largada.await();
+                    autorServicio.baja(escenario.autor.getId());
+                    return null;
+                });
+                largada.countDown();
+                devolucion.get(30, TimeUnit.SECONDS);
+                baja.get(30, TimeUnit.SECONDS);
+
+                // Cada préstamo se devolvió una sola vez, lo haya devuelto quien lo haya devuelto:
+                for (Libro libro : escenario.libros) {
+                    Libro actual = libroRepositorio.findById(libro.getId()).get();
+                    assertEquals(0, actual.getEjemplaresPrestados().intValue());
+                    assertEquals(actual.getEjemplares(), actual.getEjemplaresRestantes());
+                }
+                for (Usuario usuario : escenario.usuarios) {
+                    assertEquals(0, usuarioRepositorio.findById(usuario.getId()).get().getPrestamosActivos());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Los datos que cambian con la baja o el alta, en el orden en que se
+     * cargaron (sin ids, para comparar dos escenarios).
+     */
+    private List<String> estado(Escenario escenario) {
+        String hoy = FORMATO.format(new Date());
+        List<String> estado = new ArrayList<>();
+        for (Libro libro : escenario.libros) {
+            Libro actual = libroRepositorio.findById(libro.getId()).get();
+            estado.add("libro alta=" + actual.isAlta() + " prestados=" + actual.getEjemplaresPrestados() + " restantes=" + actual.getEjemplaresRestantes());
+        }
+        for (Prestamo prestamo : escenario.prestamos) {
+            Prestamo actual = prestamoRepositorio.findById(prestamo.getId()).get();
+            boolean devueltoHoy = FORMATO.format(actual.getFechaDevolucion()).equals(hoy);
+            estado.add("prestamo alta=" + actual.isAlta() + " devueltoHoy=" + devueltoHoy);
+        }
+        for (Usuario usuario : escenario.usuarios) {
+            estado.add("usuario activos=" + usuarioRepositorio.findById(usuario.getId()).get().getPrestamosActivos());
+        }
+        estado.add("otraEditorial alta=" + editorialRepositorio.findById(escenario.otraEditorial.getId()).get().isAlta());
+        return estado;
+    }
+
+    /**
+     * Un autor con cuatro libros: dos de alta con préstamos activos (y uno
+     * devuelto), uno dado de baja que todavía tiene un préstamo activo, y uno
+     * sin préstamos de otra editorial, dada de baja. Además, un libro de otro
+     * autor y de la misma editorial, con un préstamo activo.
+     */
+    private Escenario cargar(String prefijo) throws Exception {
+        Escenario escenario = new Escenario();
+        escenario.autor = datos.autor("Autor " + prefijo);
+        Autor otroAutor = datos.autor("Autor otro-" + prefijo);
+        escenario.editorial = datos.editorial("Editorial " + prefijo, true);
+        escenario.otraEditorial = datos.editorial("Editorial otra-" + prefijo, false);
+        for (int i = 0; i < 2; i++) {
+            escenario.usuarios.add(datos.usuario(prefijo + i));
+        }
+        Date devolucion = FORMATO.parse("2030-01-01");
+
+        Libro primero = datos.libro(prefijo + " 1", 3, escenario.autor, escenario.editorial);
+        Libro segundo = datos.libro(prefijo + " 2", 2, escenario.autor, escenario.editorial);
+        Libro deBaja = datos.libro(prefijo + " de baja", 2, escenario.autor, escenario.editorial);
+        Libro sinPrestamos = datos.libro(prefijo + " sin préstamos", 1, escenario.autor, escenario.otraEditorial);
+        Libro deOtroAutor = datos.libro(prefijo + " de otro autor", 2, otroAutor, escenario.editorial);
+        escenario.libros.add(primero);
+        escenario.libros.add(segundo);
+        escenario.libros.add(deBaja);
+        escenario.libros.add(sinPrestamos);
+        escenario.libros.add(deOtroAutor);
+
+        String usuario0 = escenario.usuarios.get(0).getId();
+        String usuario1 = escenario.usuarios.get(1).getId();
+        escenario.prestamos.add(prestamoServicio.agregarPrestamo(new Date(), devolucion, primero.getId(), usuario0));
+        escenario.prestamos.add(prestamoServicio.agregarPrestamo(new Date(), devolucion, primero.getId(), usuario1));
+        escenario.prestamos.add(prestamoServicio.agregarPrestamo(new Date(), devolucion, segundo.getId(), usuario0));
+        Prestamo devuelto = prestamoServicio.agregarPrestamo(new Date(), devolucion, segundo.getId(), usuario1);
+        prestamoServicio.baja(devuelto.getId());
+        escenario.prestamos.add(devuelto);
+        escenario.prestamos.add(prestamoServicio.agregarPrestamo(new Date(), devolucion, deBaja.getId(), usuario1));
+        Libro libroDeBaja = libroRepositorio.findById(deBaja.getId()).get();
+        libroDeBaja.setAlta(false);
+        libroRepositorio.save(libroDeBaja);
+        escenario.prestamos.add(prestamoServicio.agregarPrestamo(new Date(), devolucion, deOtroAutor.getId(), usuario0));
+        return escenario;
+    }
+
+    private static class Escenario {
+
+        private Autor autor;
+        private Editorial editorial;
+        private Editorial otraEditorial;
+        private final List<Libro> libros = new ArrayList<>();
+        private final List<Prestamo> prestamos = new ArrayList<>();
+        private final List<Usuario> usuarios = new ArrayList<>();
+    }
+
+}
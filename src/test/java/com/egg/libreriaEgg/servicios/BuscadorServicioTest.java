@@ -0,0 +1,159 @@
+package com.egg.libreriaEgg.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.entidades.Autor;
+import com.egg.libreriaEgg.entidades.Editorial;
+import com.egg.libreriaEgg.entidades.Libro;
+import com.egg.libreriaEgg.repositorios.LibroRepositorio;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Verifica la búsqueda por texto: los resultados se ordenan por relevancia
+ * (título antes que autor, y autor antes que descripción), los términos se
+ * buscan como prefijo y sin tildes ni mayúsculas, y los libros dados de baja
+ * (solos o por su autor) o eliminados dejan de aparecer. Las actualizaciones
+ * que llegan mientras se reconstruye el índice no se pierden.
+ *
+ * Los libros se cargan con LibroServicio, que es quien actualiza el índice, y
+ * cada test usa palabras que no aparecen en otros datos de prueba.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+class BuscadorServicioTest {
+
+    @Autowired
+    private BuscadorServicio buscadorServicio;
+
+    @Autowired
+    private LibroServicio libroServicio;
+
+    @Autowired
+    private AutorServicio autorServicio;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @AfterEach
+    void borrarDatos() {
+        datos.borrarTodo();
+    }
+
+    @Test
+    void losResultadosSeOrdenanPorRelevancia() throws Exception {
+        Autor autor = datos.autor("Autor Relevancia");
+        Autor autorQuimera = datos.autor("Autor Quimerina");
+        Editorial editorial = datos.editorial("Editorial Relevancia");
+        Libro enDescripcion = libro(9780001700001L, "Libro de la descripción", "Trata sobre una quimerina.", autor, editorial);
+        Libro enTitulo = libro(9780001700002L, "La quimerina", "Un libro cualquiera.", autor, editorial);
+        Libro enAutor = libro(9780001700003L, "Libro del autor", "Otro libro cualquiera.", autorQuimera, editorial);
+
+        assertEquals(Arrays.asList(enTitulo.getId(), enAutor.getId(), enDescripcion.getId()),
+                buscadorServicio.buscarIds("quimerina", 10));
+        // Sólo quedan los libros que contienen todos los términos:
+        assertEquals(Arrays.asList(enDescripcion.getId()), buscadorServicio.buscarIds("quimerina descripcion", 10));
+        // Y se devuelven como mucho los pedidos:
+        assertEquals(Arrays.asList(enTitulo.getId()), buscadorServicio.buscarIds("quimerina", 1));
+    }
+
+    @Test
+    void losTerminosSeBuscanComoPrefijoSinTildesNiMayusculas() throws Exception {
+        Autor autor = datos.autor("Autor Prefijos");
+        Editorial editorial = datos.editorial("Editorial Prefijos");
+        Libro libro = libro(9780001700101L, "Canción del Ñandú Zumbón", "Un libro para buscar por prefijo.", autor, editorial);
+
+        assertEquals(Arrays.asList(libro.getId()), buscadorServicio.buscarIds("zumbon", 10));
+        assertEquals(Arrays.asList(libro.getId()), buscadorServicio.buscarIds("ZUMB", 10));
+        assertEquals(Arrays.asList(libro.getId()), buscadorServicio.buscarIds("ñand zúmbón", 10));
+        assertEquals(Arrays.asList(libro.getId()), buscadorServicio.buscarIds("nandu, del zumbon!", 10));
+        // Un término que no está en el libro (ni como prefijo) lo descarta:
+        assertTrue(buscadorServicio.buscarIds("zumbonazo", 10).isEmpty());
+        assertTrue(buscadorServicio.buscarIds("zumbon inexistentisimo", 10).isEmpty());
+        // Las palabras vacías no se buscan:
+        assertTrue(buscadorServicio.buscarIds("de la", 10).isEmpty());
+        // Y buscar devuelve los libros en el mismo orden:
+        assertEquals(libro.getId(), buscadorServicio.buscar("zumbon", 10).get(0).getId());
+    }
+
+    @Test
+    void losLibrosDadosDeBajaOEliminadosDejanDeAparecer() throws Exception {
+        Autor autor = datos.autor("Autor Bajas");
+        Autor otroAutor = datos.autor("Otro Autor Bajas");
+        Editorial editorial = datos.editorial("Editorial Bajas");
+        Libro deBaja = libro(9780001700201L, "Ornitorrinco de baja", "Un libro.", autor, editorial);
+        Libro eliminado = libro(9780001700202L, "Ornitorrinco eliminado", "Un libro.", otroAutor, editorial);
+        Libro porAutor = libro(9780001700203L, "Ornitorrinco del autor", "Un libro.", autor, editorial);
+        Libro queda = libro(9780001700204L, "Ornitorrinco que queda", "Un libro.", otroAutor, editorial);
+        assertEquals(4, buscadorServicio.buscarIds("ornitorrinco", 10).size());
+
+        libroServicio.baja(deBaja.getId());
+        assertEquals(3, buscadorServicio.buscarIds("ornitorrinco", 10).size());
+        assertFalse(buscadorServicio.buscarIds("ornitorrinco", 10).contains(deBaja.getId()));
+
+        libroServicio.eliminarLibro(eliminado.getId());
+        assertEquals(2, buscadorServicio.buscarIds("ornitorrinco", 10).size());
+        assertFalse(buscadorServicio.buscarIds("ornitorrinco", 10).contains(eliminado.getId()));
+
+        // La baja del autor da de baja sus libros (con un UPDATE en lote):
+        autorServicio.baja(autor.getId());
+        assertEquals(Arrays.asList(queda.getId()), buscadorServicio.buscarIds("ornitorrinco", 10));
+
+        // Al volver a darlo de alta, sus libros vuelven a aparecer:
+        libroServicio.altaPorAutor(autor.getId());
+        assertTrue(buscadorServicio.buscarIds("ornitorrinco", 10).contains(porAutor.getId()));
+        assertTrue(buscadorServicio.buscarIds("ornitorrinco", 10).contains(deBaja.getId()));
+    }
+
+    @Test
+    void lasActualizacionesDuranteLaReconstruccionNoSePierden() {
+        // Un buscador aparte, con datos leídos antes de dos modificaciones:
+        LibroRepositorio repositorio = Mockito.mock(LibroRepositorio.class);
+        BuscadorServicio buscador = new BuscadorServicio();
+        ReflectionTestUtils.setField(buscador, "libroRepositorio", repositorio);
+        Libro modificado = libroEnMemoria("modificado", "Armadillo nuevo");
+        List<Object[]> anteriores = Arrays.asList(
+                new Object[]{"modificado", "Armadillo viejo", null, null, null},
+                new Object[]{"eliminado", "Armadillo eliminado", null, null, null});
+        // Las modificaciones se confirman mientras construir() lee la DB:
+        Mockito.when(repositorio.datosIndexables()).thenAnswer(invocacion -> {
+            buscador.indexar(modificado);
+            buscador.quitar("eliminado");
+            return anteriores;
+        });
+
+        buscador.construir();
+        assertEquals(Arrays.asList("modificado"), buscador.buscarIds("armadillo", 10));
+        assertEquals(Arrays.asList("modificado"), buscador.buscarIds("nuevo", 10));
+        assertTrue(buscador.buscarIds("viejo", 10).isEmpty());
+        assertEquals(1, buscador.cantidadLibros());
+
+        // Después de reconstruir, las actualizaciones ya no se guardan:
+        assertNull(ReflectionTestUtils.getField(buscador, "pendientes"));
+    }
+
+    private static Libro libroEnMemoria(String id, String titulo) {
+        Libro libro = new Libro();
+        libro.setId(id);
+        libro.setTitulo(titulo);
+        libro.setAlta(true);
+        return libro;
+    }
+
+    private Libro libro(Long isbn, String titulo, String descripcion, Autor autor, Editorial editorial) throws Exception {
+        libroServicio.agregarLibro(null, isbn, titulo, 2021, descripcion, 1, autor, editorial);
+        return libroServicio.buscarPorIsbn(isbn);
+    }
+
+}
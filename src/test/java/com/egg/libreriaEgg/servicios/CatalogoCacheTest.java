@@ -0,0 +1,198 @@
+package com.egg.libreriaEgg.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.entidades.Autor;
+import com.egg.libreriaEgg.entidades.Editorial;
+import com.egg.libreriaEgg.entidades.Libro;
+import com.egg.libreriaEgg.repositorios.LibroRepositorio;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+/**
+ * Prueba la cache del catálogo: el desalojo LRU al llegar a
+ * catalogo.cache.max-entradas, los contadores de aciertos y fallos, que cada
+ * método que modifica Autores, Editoriales o Libros invalide sus regiones, y
+ * que una lectura hecha mientras la transacción no se confirmó no quede
+ * guardada.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+class CatalogoCacheTest {
+
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    @Autowired
+    private AutorServicio autorServicio;
+
+    @Autowired
+    private EditorialServicio editorialServicio;
+
+    @Autowired
+    private LibroServicio libroServicio;
+
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @AfterEach
+    void borrarDatos() {
+        datos.borrarTodo();
+    }
+
+    @Test
+    void desalojaLaEntradaUsadaHaceMasTiempo() {
+        CatalogoCache cache = new CatalogoCache(2);
+        cache.lista(CatalogoCache.LIBROS + "a", ArrayList::new);
+        cache.lista(CatalogoCache.LIBROS + "b", ArrayList::new);
+        // "a" se usa de nuevo: la menos usada pasa a ser "b".
+        cache.lista(CatalogoCache.LIBROS + "a", ArrayList::new);
+        cache.lista(CatalogoCache.LIBROS + "c", ArrayList::new);
+
+        assertEquals(2, cache.getTamanio());
+        assertEquals(1, cache.getDesalojos());
+        assertTrue(guardada(cache, CatalogoCache.LIBROS + "a"));
+        assertTrue(guardada(cache, CatalogoCache.LIBROS + "c"));
+        assertFalse(guardada(cache, CatalogoCache.LIBROS + "b"));
+    }
+
+    @Test
+    void cuentaLosAciertosYLosFallos() {
+        CatalogoCache cache = new CatalogoCache(10);
+        cache.lista(CatalogoCache.AUTORES + "todos", ArrayList::new);
+        cache.lista(CatalogoCache.AUTORES + "todos", ArrayList::new);
+        cache.porId(CatalogoCache.AUTORES, "1", () -> "Autor");
+        cache.porId(CatalogoCache.AUTORES, "1", () -> "Autor");
+        cache.porId(CatalogoCache.AUTORES, "2", () -> null);
+
+        assertEquals(2, cache.getAciertos());
+        assertEquals(3, cache.getFallos());
+        // Los resultados nulos no se guardan:
+        assertEquals(2, cache.getTamanio());
+    }
+
+    @Test
+    void noGuardaLoLeidoAntesDeUnaInvalidacion() {
+        CatalogoCache cache = new CatalogoCache(10);
+        // La invalidación llega mientras se carga la lista:
+        cache.lista(CatalogoCache.LIBROS + "alta", () -> {
+            cache.invalidarLibros();
+            return new ArrayList<>();
+        });
+        assertFalse(guardada(cache, CatalogoCache.LIBROS + "alta"));
+    }
+
+    @Test
+    void vuelveAInvalidarAlTerminarLaTransaccion() {
+        CatalogoCache cache = new CatalogoCache(10);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidarLibros();
+            // Otro hilo lee la DB antes de que se confirme la modificación y guarda lo anterior:
+            cache.lista(CatalogoCache.LIBROS + "alta", () -> Arrays.asList("anterior"));
+            assertTrue(guardada(cache, CatalogoCache.LIBROS + "alta"));
+
+            List<TransactionSynchronization> sincronizaciones = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationUtils.invokeAfterCompletion(sincronizaciones, TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertFalse(guardada(cache, CatalogoCache.LIBROS + "alta"));
+    }
+
+    @Test
+    void losServiciosDeAutoresInvalidanAutoresYLibros() throws Exception {
+        autorServicio.agregarAutor("Autor cache");
+        Autor autor = autorServicio.buscarPorNombre("Autor cache");
+        invalidan(() -> autorServicio.modificarAutor(autor.getId(), "Autor cache modificado"), CatalogoCache.AUTORES, CatalogoCache.LIBROS);
+        invalidan(() -> autorServicio.baja(autor.getId()), CatalogoCache.AUTORES, CatalogoCache.LIBROS);
+        invalidan(() -> autorServicio.alta(autor.getId()), CatalogoCache.AUTORES, CatalogoCache.LIBROS);
+        invalidan(() -> autorServicio.eliminarAutor(autor.getId()), CatalogoCache.AUTORES, CatalogoCache.LIBROS);
+        invalidan(() -> autorServicio.agregarAutor("Autor cache nuevo"), CatalogoCache.AUTORES, CatalogoCache.LIBROS);
+        assertTrue(guardada(catalogoCache, CatalogoCache.EDITORIALES + "prueba"));
+    }
+
+    @Test
+    void losServiciosDeEditorialesInvalidanEditorialesYLibros() throws Exception {
+        editorialServicio.agregarEditorial("Editorial cache");
+        Editorial editorial = editorialServicio.buscarPorNombre("Editorial cache");
+        invalidan(() -> editorialServicio.modificarEditorial(editorial.getId(), "Editorial cache modificada"), CatalogoCache.EDITORIALES, CatalogoCache.LIBROS);
+        invalidan(() -> editorialServicio.baja(editorial.getId()), CatalogoCache.EDITORIALES, CatalogoCache.LIBROS);
+        invalidan(() -> editorialServicio.alta(editorial.getId()), CatalogoCache.EDITORIALES, CatalogoCache.LIBROS);
+        invalidan(() -> editorialServicio.eliminarEditorial(editorial.getId()), CatalogoCache.EDITORIALES, CatalogoCache.LIBROS);
+        invalidan(() -> editorialServicio.agregarEditorial("Editorial cache nueva"), CatalogoCache.EDITORIALES, CatalogoCache.LIBROS);
+        assertTrue(guardada(catalogoCache, CatalogoCache.AUTORES + "prueba"));
+    }
+
+    @Test
+    void losServiciosDeLibrosInvalidanLosLibros() throws Exception {
+        final Autor guardado = datos.autor("Autor de libros cache");
+        final Editorial guardada = datos.editorial("Editorial de libros cache");
+        final MockMultipartFile sinFoto = new MockMultipartFile("archivo", new byte[0]);
+
+        invalidan(() -> libroServicio.agregarLibro(sinFoto, 9789870000101L, "Libro cache", 2021, "Descripción", 2, guardado, guardada), CatalogoCache.LIBROS);
+        final Libro libro = libroRepositorio.buscarPorIsbn(9789870000101L);
+        invalidan(() -> libroServicio.modificarLibro(libro.getId(), sinFoto, 9789870000101L, "Libro cache modificado", 2021, "Descripción", 3, guardado, guardada), CatalogoCache.LIBROS);
+        invalidan(() -> libroServicio.prestamoLibro(libro), CatalogoCache.LIBROS);
+        invalidan(() -> libroServicio.devolucionLibro(libro), CatalogoCache.LIBROS);
+        invalidan(() -> libroServicio.prestamoLibros(Collections.singletonList(libro.getId())), CatalogoCache.LIBROS);
+        invalidan(() -> libroServicio.devolucionLibros(Collections.singletonList(libro.getId()), 1), CatalogoCache.LIBROS);
+        invalidan(() -> libroServicio.baja(libro.getId()), CatalogoCache.LIBROS);
+        invalidan(() -> libroServicio.alta(libro.getId()), CatalogoCache.LIBROS);
+        invalidan(() -> libroServicio.eliminarLibro(libro.getId()), CatalogoCache.LIBROS);
+        // Los libros no invalidan a los autores ni a las editoriales:
+        assertTrue(guardada(catalogoCache, CatalogoCache.AUTORES + "prueba"));
+        assertTrue(guardada(catalogoCache, CatalogoCache.EDITORIALES + "prueba"));
+    }
+
+    /**
+     * Guarda una lista en cada región, ejecuta la modificación y verifica que
+     * se hayan quitado las de las regiones indicadas.
+     */
+    private void invalidan(Modificacion modificacion, String... regiones) throws Exception {
+        for (String region : Arrays.asList(CatalogoCache.AUTORES, CatalogoCache.EDITORIALES, CatalogoCache.LIBROS)) {
+            catalogoCache.lista(region + "prueba", ArrayList::new);
+        }
+        modificacion.ejecutar();
+        for (String region : regiones) {
+            assertFalse(guardada(catalogoCache, region + "prueba"), "No se invalidó " + region);
+        }
+    }
+
+    /**
+     * @return true si la lista de esa clave estaba guardada (si no, la carga
+     * y la guarda).
+     */
+    private static boolean guardada(CatalogoCache cache, String clave) {
+        AtomicBoolean cargada = new AtomicBoolean();
+        cache.lista(clave, () -> {
+            cargada.set(true);
+            return new ArrayList<>();
+        });
+        return !cargada.get();
+    }
+
+    private interface Modificacion {
+
+        void ejecutar() throws Exception;
+    }
+
+}
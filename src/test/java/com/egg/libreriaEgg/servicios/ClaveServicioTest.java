@@ -0,0 +1,103 @@
+package com.egg.libreriaEgg.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestBuilders.formLogin;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.enums.Rol;
+import com.egg.libreriaEgg.repositorios.UsuarioRepositorio;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Verifica la encriptación de claves: el costo configurado, la calibración y
+ * que una clave guardada con un costo menor se vuelve a encriptar al iniciar
+ * sesión; un pedido que espera demasiado se rechaza.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ClaveServicioTest {
+
+    private static final String CLAVE = "clave123";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ClaveServicio claveServicio;
+
+    @Autowired
+    private UsuarioRepositorio usuarioRepositorio;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @AfterEach
+    void borrarDatos() {
+        datos.borrarTodo();
+    }
+
+    @Test
+    void encriptaConElCostoConfigurado() throws Exception {
+        String encriptada = claveServicio.encriptar(CLAVE);
+
+        assertEquals(5, claveServicio.getCosto());
+        assertEquals(5, ClaveServicio.costo(encriptada));
+        assertTrue(claveServicio.coincide(CLAVE, encriptada));
+        assertFalse(claveServicio.coincide("otra-clave", encriptada));
+        assertTrue(claveServicio.upgradeEncoding(new BCryptPasswordEncoder(4).encode(CLAVE)));
+        assertFalse(claveServicio.upgradeEncoding(new BCryptPasswordEncoder(6).encode(CLAVE)));
+        assertEquals(-1, ClaveServicio.costo("no-es-bcrypt"));
+    }
+
+    @Test
+    void laCalibracionNoBajaDelMinimo() {
+        assertEquals(4, ClaveServicio.calibrar(4, 0));
+        assertTrue(ClaveServicio.calibrar(4, 50) >= 4);
+    }
+
+    @Test
+    void unPedidoQueEsperaDemasiadoSeRechaza() throws Exception {
+        ClaveServicio lento = new ClaveServicio();
+        ReflectionTestUtils.setField(lento, "costoConfigurado", 14);
+        ReflectionTestUtils.setField(lento, "hilos", 1);
+        ReflectionTestUtils.setField(lento, "cola", 1);
+        ReflectionTestUtils.setField(lento, "esperaMs", 1L);
+        ReflectionTestUtils.setField(lento, "hilosTomcat", 200);
+        lento.iniciar();
+        try {
+            Exception e = assertThrows(Exception.class, () -> lento.encriptar(CLAVE));
+            assertTrue(e.getMessage().startsWith("Hay demasiadas solicitudes"), e.getMessage());
+        } finally {
+            lento.detener();
+        }
+    }
+
+    @Test
+    void elLoginVuelveAEncriptarLasClavesConMenosCosto() throws Exception {
+        Usuario usuario = datos.usuario("Rehash", Rol.USUARIO, null, new BCryptPasswordEncoder(4).encode(CLAVE));
+
+        mockMvc.perform(formLogin("/logincheck").user(usuario.getMail()).password(CLAVE))
+                .andExpect(redirectedUrl("/inicio"));
+
+        String guardada = usuarioRepositorio.buscarPorMail(usuario.getMail()).getClave();
+        assertEquals(claveServicio.getCosto(), ClaveServicio.costo(guardada));
+        // La clave nueva sigue sirviendo para iniciar sesión:
+        mockMvc.perform(formLogin("/logincheck").user(usuario.getMail()).password(CLAVE))
+                .andExpect(redirectedUrl("/inicio"));
+    }
+
+}
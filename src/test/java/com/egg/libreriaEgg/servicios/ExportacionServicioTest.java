@@ -0,0 +1,162 @@
+package com.egg.libreriaEgg.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.dto.PrestamoVista;
+import com.egg.libreriaEgg.entidades.Autor;
+import com.egg.libreriaEgg.entidades.Libro;
+import com.egg.libreriaEgg.entidades.Prestamo;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.exportacion.FormatoExportacion;
+import com.egg.libreriaEgg.exportacion.LectorColumnar;
+import com.egg.libreriaEgg.repositorios.PrestamoRepositorio;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Verifica la exportación de préstamos: el CSV y el formato columnar (con
+ * varios grupos de filas, exportacion.lote = 2 en los tests) tienen los
+ * mismos préstamos, con los mismos datos; y si la exportación se interrumpe,
+ * el archivo columnar queda sin pie y no se puede leer como si estuviera
+ * completo.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+@Transactional
+class ExportacionServicioTest {
+
+    @Autowired
+    private ExportacionServicio exportacionServicio;
+
+    @Autowired
+    private PrestamoRepositorio prestamoRepositorio;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @TempDir
+    Path carpeta;
+
+    @Test
+    void elCsvYElColumnarTienenLosMismosPrestamos() throws Exception {
+        Usuario usuario = datos.usuario("exportacion");
+        Libro conComa = datos.libro("Exportado, con coma", datos.autor("Autor exportado"));
+        Libro sinAutor = datos.libro("Exportado sin autor", null);
+        Prestamo primero = datos.prestamo(conComa, usuario, fecha(2021, 1, 10), fecha(2021, 1, 20), false);
+        Prestamo segundo = datos.prestamo(conComa, usuario, fecha(2021, 2, 1), fecha(2021, 2, 15), true);
+        Prestamo tercero = datos.prestamo(sinAutor, usuario, fecha(1999, 12, 31), fecha(2000, 1, 2), true);
+
+        Path csv = carpeta.resolve("prestamos.csv");
+        long filasCsv;
+        try (FileChannel canal = FileChannel.open(csv, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            filasCsv = exportacionServicio.exportarPrestamos(FormatoExportacion.CSV, canal);
+        }
+        Path columnar = carpeta.resolve("prestamos.lpc");
+        long filasColumnar;
+        try (FileChannel canal = FileChannel.open(columnar, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            filasColumnar = exportacionServicio.exportarPrestamos(FormatoExportacion.COLUMNAR, canal);
+        }
+
+        assertEquals(prestamoRepositorio.count(), filasCsv);
+        assertEquals(filasCsv, filasColumnar);
+        List<String> lineas = Files.readAllLines(csv, StandardCharsets.UTF_8);
+        assertEquals(filasCsv + 1, lineas.size());
+        assertEquals("id,alta,fechaPrestamo,fechaDevolucion,tituloLibro,autorLibro,anioLibro,idUsuario,nombreUsuario,apellidoUsuario,dniUsuario", lineas.get(0));
+        assertTrue(lineas.contains(primero.getId() + ",false,2021-01-10,2021-01-20,\"Exportado, con coma\",Autor exportado,2021,"
+                + usuario.getId() + ",exportacion,Apellido," + usuario.getDni()));
+        assertTrue(lineas.contains(tercero.getId() + ",true,1999-12-31,2000-01-02,Exportado sin autor,,2021,"
+                + usuario.getId() + ",exportacion,Apellido," + usuario.getDni()));
+        // Del más antiguo al más reciente:
+        assertTrue(lineas.indexOf(lineas.stream().filter(l -> l.startsWith(tercero.getId())).findFirst().get())
+                < lineas.indexOf(lineas.stream().filter(l -> l.startsWith(segundo.getId())).findFirst().get()));
+
+        Map<String, PrestamoVista> leidos = new HashMap<>();
+        try (FileChannel canal = FileChannel.open(columnar, StandardOpenOption.READ)) {
+            assertEquals(filasColumnar, LectorColumnar.leer(canal, prestamo -> leidos.put(prestamo.getId(), prestamo)));
+        }
+        assertEquals(filasColumnar, leidos.size());
+        PrestamoVista leido = leidos.get(primero.getId());
+        assertEquals(false, leido.isAlta());
+        assertEquals(fecha(2021, 1, 10), leido.getFechaPrestamo());
+        assertEquals(fecha(2021, 1, 20), leido.getFechaDevolucion());
+        assertEquals("Exportado, con coma", leido.getTituloLibro());
+        assertEquals("Autor exportado", leido.getAutorLibro());
+        assertEquals(2021, leido.getAnioLibro().intValue());
+        assertEquals(usuario.getId(), leido.getIdUsuario());
+        assertEquals(usuario.getDni(), leido.getDniUsuario());
+        assertTrue(leidos.get(segundo.getId()).isAlta());
+        assertNull(leidos.get(tercero.getId()).getAutorLibro());
+    }
+
+    @Test
+    void unaExportacionInterrumpidaNoTienePie() throws Exception {
+        Usuario usuario = datos.usuario("interrumpida");
+        Libro libro = datos.libro("Exportación interrumpida", null);
+        datos.prestamo(libro, usuario, fecha(2021, 3, 1), fecha(2021, 3, 10), true);
+        datos.prestamo(libro, usuario, fecha(2021, 3, 2), fecha(2021, 3, 11), true);
+
+        Path columnar = carpeta.resolve("interrumpida.lpc");
+        final FileChannel archivo = FileChannel.open(columnar, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        // Falla sólo la escritura del primer grupo (la primera es el encabezado):
+        WritableByteChannel conexion = new WritableByteChannel() {
+            private int escrituras;
+
+            @Override
+            public int write(ByteBuffer buffer) throws IOException {
+                if (++escrituras == 2) {
+                    throw new IOException("Se cortó la conexión.");
+                }
+                return archivo.write(buffer);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return archivo.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                archivo.close();
+            }
+        };
+        // La conexión cierra el archivo:
+        try {
+            assertThrows(IOException.class, () -> exportacionServicio.exportarPrestamos(FormatoExportacion.COLUMNAR, conexion));
+        } finally {
+            conexion.close();
+        }
+
+        // Sólo quedó el encabezado: ni el resto de los grupos ni el pie.
+        assertEquals(4, Files.size(columnar));
+        try (FileChannel canal = FileChannel.open(columnar, StandardOpenOption.READ)) {
+            assertThrows(IOException.class, () -> LectorColumnar.leer(canal, prestamo -> {
+            }));
+        }
+    }
+
+    private static Date fecha(int anio, int mes, int dia) {
+        return Date.valueOf(LocalDate.of(anio, mes, dia));
+    }
+
+}
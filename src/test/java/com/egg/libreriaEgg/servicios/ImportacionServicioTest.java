@@ -0,0 +1,182 @@
+package com.egg.libreriaEgg.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.entidades.Autor;
+import com.egg.libreriaEgg.entidades.Editorial;
+import com.egg.libreriaEgg.entidades.Libro;
+import com.egg.libreriaEgg.importacion.EstadoImportacion;
+import com.egg.libreriaEgg.importacion.FormatoImportacion;
+import com.egg.libreriaEgg.importacion.Importacion;
+import com.egg.libreriaEgg.importacion.ImportacionArchivos;
+import com.egg.libreriaEgg.repositorios.AutorRepositorio;
+import com.egg.libreriaEgg.repositorios.LibroRepositorio;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+
+/**
+ * Verifica la importación de libros: las filas inválidas van al reporte de
+ * errores sin detener la importación, los autores nuevos se crean (y los
+ * dados de baja se dan de alta), un autor o una editorial que ya existe con
+ * otras mayúsculas o acentos no se vuelve a crear, y al reanudar se sigue
+ * desde el punto de control.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+class ImportacionServicioTest {
+
+    @Autowired
+    private ImportacionServicio importacionServicio;
+
+    @Autowired
+    private AutorRepositorio autorRepositorio;
+
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @Value("${importacion.directorio}")
+    private String directorio;
+
+    @AfterEach
+    void borrarDatos() {
+        datos.borrarTodo();
+    }
+
+    @Test
+    void lasFilasInvalidasVanAlReporteDeErrores() throws Exception {
+        Editorial editorial = datos.editorial("Editorial CSV");
+        Autor deBaja = datos.autor("Autor CSV de baja", false);
+        Libro existente = datos.libro("Libro existente", deBaja, editorial);
+        existente.setIsbn(9780001600004L);
+        existente.setAlta(false);
+        libroRepositorio.save(existente);
+        String csv = "isbn,titulo,año,descripcion,ejemplares,autor,editorial\n"
+                + "9780001600001,Primero,2001,Descripción,3,Autor CSV nuevo,Editorial CSV\n"
+                + "9780001600002,Año inválido,abc,Descripción,3,Autor CSV nuevo,Editorial CSV\n"
+                + "9780001600001,ISBN repetido,2001,Descripción,3,Autor CSV nuevo,Editorial CSV\n"
+                + "9780001600004,ISBN existente,2001,Descripción,3,Autor CSV nuevo,Editorial CSV\n"
+                + "9780001600005,Sin autor,2001,Descripción,3,,Editorial CSV\n"
+                + "9780001600006,\"Segundo, con coma\",2002,Descripción,2,Autor CSV de baja,Editorial CSV\n";
+
+        Importacion importacion = esperar(importacionServicio.importar(archivo("libros.csv", csv)));
+
+        assertEquals(EstadoImportacion.TERMINADA, importacion.getEstado());
+        assertEquals(6, importacion.getFilasLeidas());
+        assertEquals(2, importacion.getImportados());
+        assertEquals(4, importacion.getErrores());
+        assertEquals(1, importacion.getAutoresCreados());
+        assertEquals(0, importacion.getEditorialesCreadas());
+        assertEquals(6, importacion.getCheckpoint());
+
+        Libro primero = libroRepositorio.buscarPorIsbn(9780001600001L);
+        assertEquals(autorRepositorio.buscarPorNombre("Autor CSV nuevo").getId(), primero.getAutor().getId());
+        assertEquals(3, primero.getEjemplaresRestantes().intValue());
+        assertEquals("Segundo, con coma", libroRepositorio.buscarPorIsbn(9780001600006L).getTitulo());
+        assertTrue(autorRepositorio.findById(deBaja.getId()).get().isAlta());
+        assertNull(libroRepositorio.buscarPorIsbn(9780001600005L));
+
+        List<String> errores = Files.readAllLines(importacionServicio.reporteErrores(importacion.getId()), StandardCharsets.UTF_8);
+        assertEquals(5, errores.size());
+        assertEquals("2,9780001600002,Año inválido,Año no válido.", errores.get(1));
+        assertTrue(errores.get(2).startsWith("3,9780001600001,ISBN repetido,"));
+        assertTrue(errores.get(3).startsWith("4,9780001600004,ISBN existente,"));
+        assertEquals("5,9780001600005,Sin autor,Debe indicar un Autor.", errores.get(4));
+    }
+
+    @Test
+    void seImportaUnArrayJson() throws Exception {
+        String json = "[{\"isbn\": 9780001600101, \"titulo\": \"JSON uno\", \"anio\": 2010, \"descripcion\": \"Uno\","
+                + " \"ejemplares\": 1, \"autor\": \"Autor JSON\", \"editorial\": \"Editorial JSON\"},"
+                + " {\"isbn\": \"9780001600102\", \"titulo\": \"JSON dos\", \"anio\": 2011, \"descripcion\": \"Dos\","
+                + " \"ejemplares\": 2, \"autor\": \"Autor JSON\", \"editorial\": \"Editorial JSON\"}]";
+
+        Importacion importacion = esperar(importacionServicio.importar(archivo("libros.json", json)));
+
+        assertEquals(EstadoImportacion.TERMINADA, importacion.getEstado());
+        assertEquals(2, importacion.getImportados());
+        assertEquals(0, importacion.getErrores());
+        assertEquals(1, importacion.getAutoresCreados());
+        assertEquals(1, importacion.getEditorialesCreadas());
+        assertEquals(libroRepositorio.buscarPorIsbn(9780001600101L).getAutor().getId(),
+                libroRepositorio.buscarPorIsbn(9780001600102L).getAutor().getId());
+    }
+
+    @Test
+    void losNombresSeComparanSinMayusculasNiAcentos() throws Exception {
+        Autor existente = datos.autor("Jorge Luis Borgés");
+        Editorial editorial = datos.editorial("Editorial Sudamericana");
+        String csv = "isbn,titulo,anio,descripcion,ejemplares,autor,editorial\n"
+                + "9780001600301,Ficciones,1944,Uno,1,JORGE LUIS BORGES,editorial sudamericana\n"
+                + "9780001600302,El Aleph,1949,Dos,1,jorge luis borgés,EDITORIAL SUDAMERICANA\n"
+                + "9780001600303,Rayuela,1963,Tres,1,Julio Cortázar,Editorial Sudamericana\n"
+                + "9780001600304,Bestiario,1951,Cuatro,1,JULIO CORTAZAR,Editorial Sudamericana\n";
+
+        Importacion importacion = esperar(importacionServicio.importar(archivo("mayusculas.csv", csv)));
+
+        assertEquals(EstadoImportacion.TERMINADA, importacion.getEstado());
+        assertEquals(4, importacion.getImportados());
+        assertEquals(0, importacion.getErrores());
+        assertEquals(1, importacion.getAutoresCreados());
+        assertEquals(0, importacion.getEditorialesCreadas());
+        assertEquals(existente.getId(), libroRepositorio.buscarPorIsbn(9780001600301L).getAutor().getId());
+        assertEquals(existente.getId(), libroRepositorio.buscarPorIsbn(9780001600302L).getAutor().getId());
+        assertEquals(editorial.getId(), libroRepositorio.buscarPorIsbn(9780001600302L).getEditorial().getId());
+        assertEquals(libroRepositorio.buscarPorIsbn(9780001600303L).getAutor().getId(),
+                libroRepositorio.buscarPorIsbn(9780001600304L).getAutor().getId());
+    }
+
+    @Test
+    void alReanudarSeSigueDesdeElPuntoDeControl() throws Exception {
+        String csv = "isbn;titulo;anio;descripcion;ejemplares;autor;editorial\n"
+                + "9780001600201;Ya importado;2001;Uno;1;Autor reanudado;Editorial reanudada\n"
+                + "9780001600202;Ya importado;2001;Dos;1;Autor reanudado;Editorial reanudada\n"
+                + "9780001600203;Pendiente;2001;Tres;1;Autor reanudado;Editorial reanudada\n";
+        // Una importación que se interrumpió después de guardar el lote de las dos primeras filas:
+        ImportacionArchivos archivos = new ImportacionArchivos(directorio);
+        Importacion importacion = new Importacion(UUID.randomUUID().toString(), "reanudar.csv", FormatoImportacion.CSV);
+        archivos.crear(importacion, new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+        archivos.lote(importacion, 2, 2, 0, 2, 0, 0);
+        archivos.interrumpida(importacion, "Interrumpida");
+        assertTrue(importacion.isReanudable());
+
+        importacionServicio.procesar(importacion);
+
+        assertEquals(EstadoImportacion.TERMINADA, importacion.getEstado());
+        assertEquals(3, importacion.getFilasLeidas());
+        assertEquals(3, importacion.getImportados());
+        assertEquals(3, importacion.getCheckpoint());
+        assertNull(libroRepositorio.buscarPorIsbn(9780001600201L));
+        assertNotNull(libroRepositorio.buscarPorIsbn(9780001600203L));
+    }
+
+    private Importacion esperar(Importacion importacion) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 10000;
+        while ((importacion.getEstado() == EstadoImportacion.PENDIENTE || importacion.getEstado() == EstadoImportacion.EN_CURSO)
+                && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+        }
+        return importacion;
+    }
+
+    private MockMultipartFile archivo(String nombre, String contenido) {
+        return new MockMultipartFile("archivo", nombre, "application/octet-stream", contenido.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.egg.libreriaEgg.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.dto.PaginaLibros;
+import com.egg.libreriaEgg.entidades.Autor;
+import com.egg.libreriaEgg.entidades.Libro;
+import com.egg.libreriaEgg.repositorios.LibroRepositorio;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Prueba la paginación por clave (titulo, id) del catálogo: la primera
+ * página, la siguiente y la anterior (que la consulta trae en orden inverso),
+ * los indicadores de página anterior y siguiente en los dos extremos, el
+ * filtro por autor y los títulos repetidos, que se ordenan por id.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+@Transactional
+class LibroServicioTest {
+
+    private static final int TAMANIO = 3;
+
+    @Autowired
+    private LibroServicio libroServicio;
+
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @Test
+    void recorreLosLibrosDeUnAutorHaciaAdelanteYHaciaAtras() {
+        Autor autor = datos.autor("Autor paginado");
+        // Tres títulos repetidos: sólo el id decide su orden, y caen en dos páginas distintas.
+        for (String titulo : new String[]{"D", "B", "A", "B", "E", "B", "C"}) {
+            datos.libro(titulo, autor);
+        }
+        // El orden completo (titulo, id), en una sola consulta:
+        List<String> orden = ids(libroRepositorio.paginaInicialAutor(autor.getId(), PageRequest.of(0, 100)));
+        assertEquals(7, orden.size());
+
+        PaginaLibros primera = libroServicio.paginaCatalogo(autor.getId(), null, null, false, TAMANIO);
+        assertEquals(orden.subList(0, 3), ids(primera.getLibros()));
+        assertFalse(primera.isHayAnterior());
+        assertTrue(primera.isHaySiguiente());
+
+        PaginaLibros segunda = siguiente(autor, primera);
+        assertEquals(orden.subList(3, 6), ids(segunda.getLibros()));
+        assertTrue(segunda.isHayAnterior());
+        assertTrue(segunda.isHaySiguiente());
+        // La página corta entre los "B": el primero de ésta sigue al último de la anterior.
+        assertEquals("B", primera.getUltimo().getTitulo());
+        assertEquals("B", segunda.getPrimero().getTitulo());
+
+        PaginaLibros ultima = siguiente(autor, segunda);
+        assertEquals(orden.subList(6, 7), ids(ultima.getLibros()));
+        assertTrue(ultima.isHayAnterior());
+        assertFalse(ultima.isHaySiguiente());
+
+        // Hacia atrás se vuelve a las mismas páginas, en el mismo orden:
+        PaginaLibros atras = anterior(autor, ultima);
+        assertEquals(ids(segunda.getLibros()), ids(atras.getLibros()));
+        assertTrue(atras.isHayAnterior());
+        assertTrue(atras.isHaySiguiente());
+
+        PaginaLibros inicio = anterior(autor, atras);
+        assertEquals(ids(primera.getLibros()), ids(inicio.getLibros()));
+        assertFalse(inicio.isHayAnterior());
+        assertTrue(inicio.isHaySiguiente());
+    }
+
+    @Test
+    void sinAutorSoloListaLosLibrosDeAlta() {
+        Autor autor = datos.autor("Autor del catálogo");
+        List<String> deAlta = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            deAlta.add(datos.libro("Catálogo " + i, autor).getId());
+        }
+        Libro deBaja = datos.libro("Catálogo de baja", autor);
+        deBaja.setAlta(false);
+        libroRepositorio.save(deBaja);
+
+        PaginaLibros primera = libroServicio.paginaCatalogo(null, null, null, false, TAMANIO);
+        assertEquals(deAlta.subList(0, 3), ids(primera.getLibros()));
+        assertFalse(primera.isHayAnterior());
+        assertTrue(primera.isHaySiguiente());
+        PaginaLibros ultima = libroServicio.paginaCatalogo(null, primera.getUltimo().getTitulo(), primera.getUltimo().getId(), false, TAMANIO);
+        assertEquals(deAlta.subList(3, 4), ids(ultima.getLibros()));
+        assertTrue(ultima.isHayAnterior());
+        assertFalse(ultima.isHaySiguiente());
+
+        PaginaLibros atras = libroServicio.paginaCatalogo(null, ultima.getPrimero().getTitulo(), ultima.getPrimero().getId(), true, TAMANIO);
+        assertEquals(deAlta.subList(0, 3), ids(atras.getLibros()));
+        assertTrue(atras.isHaySiguiente());
+    }
+
+    private PaginaLibros siguiente(Autor autor, PaginaLibros pagina) {
+        return libroServicio.paginaCatalogo(autor.getId(), pagina.getUltimo().getTitulo(), pagina.getUltimo().getId(), false, TAMANIO);
+    }
+
+    private PaginaLibros anterior(Autor autor, PaginaLibros pagina) {
+        return libroServicio.paginaCatalogo(autor.getId(), pagina.getPrimero().getTitulo(), pagina.getPrimero().getId(), true, TAMANIO);
+    }
+
+    private static List<String> ids(List<Libro> libros) {
+        List<String> ids = new ArrayList<>();
+        for (Libro libro : libros) {
+            ids.add(libro.getId());
+        }
+        return ids;
+    }
+
+}
@@ -0,0 +1,220 @@
+package com.egg.libreriaEgg.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.dto.FotoMetadatos;
+import com.egg.libreriaEgg.entidades.Foto;
+import com.egg.libreriaEgg.entidades.Libro;
+import com.egg.libreriaEgg.entidades.Miniatura;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.repositorios.LibroRepositorio;
+import com.egg.libreriaEgg.repositorios.MiniaturaRepositorio;
+import com.egg.libreriaEgg.repositorios.UsuarioRepositorio;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Prueba las miniaturas: se generan en segundo plano con cada ancho de
+ * ANCHOS, "?w=" sirve la menor que cubre el ancho pedido, mientras no existe
+ * se sirve la original (con el mismo Cache-Control), los anchos no válidos
+ * sirven la original, y con la cola llena el pedido se descarta sin error y
+ * se vuelve a intentar la próxima vez.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class MiniaturaServicioTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FotoServicio fotoServicio;
+
+    @Autowired
+    private MiniaturaRepositorio miniaturaRepositorio;
+
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+
+    @Autowired
+    private UsuarioRepositorio usuarioRepositorio;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @AfterEach
+    void borrarDatos() {
+        datos.borrarTodo();
+    }
+
+    @Test
+    void elAnchoPedidoUsaLaMenorMiniaturaQueLoCubre() {
+        assertEquals(200, MiniaturaServicio.anchoPara(1).intValue());
+        assertEquals(200, MiniaturaServicio.anchoPara(200).intValue());
+        assertEquals(400, MiniaturaServicio.anchoPara(201).intValue());
+        assertEquals(800, MiniaturaServicio.anchoPara(800).intValue());
+        // Sin ancho, un ancho no válido o uno mayor que todas: la original.
+        assertNull(MiniaturaServicio.anchoPara(null));
+        assertNull(MiniaturaServicio.anchoPara(0));
+        assertNull(MiniaturaServicio.anchoPara(-100));
+        assertNull(MiniaturaServicio.anchoPara(801));
+    }
+
+    @Test
+    void seGeneranLasMiniaturasYSeSirvenConW() throws Exception {
+        Foto foto = fotoServicio.guardar(new MockMultipartFile("archivo", "portada.png", "image/png", imagen(1000, 500)));
+        Libro libro = datos.libro("Con miniaturas");
+        libro.setFoto(foto);
+        libro = libroRepositorio.save(libro);
+        String hash = fotoServicio.metadatos(foto.getId()).getHash();
+
+        // Se generan al confirmar el guardado de la foto, en segundo plano:
+        List<Integer> anchos = esperarMiniaturas(hash);
+        Collections.sort(anchos);
+        assertEquals(3, anchos.size());
+        for (int i = 0; i < MiniaturaServicio.ANCHOS.length; i++) {
+            assertEquals(MiniaturaServicio.ANCHOS[i], anchos.get(i).intValue());
+            BufferedImage miniatura = ImageIO.read(new ByteArrayInputStream(miniaturaRepositorio.buscarContenido(Miniatura.id(hash, anchos.get(i)))));
+            assertEquals(anchos.get(i).intValue(), miniatura.getWidth());
+            assertEquals(anchos.get(i) / 2, miniatura.getHeight());
+        }
+
+        mockMvc.perform(get("/foto/libro/" + libro.getId()).param("w", "150"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_JPEG))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + Miniatura.id(hash, 200) + "\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, public"));
+        // Un ancho no válido o mayor que todas: la original.
+        for (String ancho : new String[]{"0", "-5", "2000"}) {
+            mockMvc.perform(get("/foto/libro/" + libro.getId()).param("w", ancho))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.IMAGE_PNG))
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"" + hash + "\""));
+        }
+        mockMvc.perform(get("/foto/libro/" + libro.getId()).param("w", "ancho"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void sinMiniaturaSeSirveLaOriginalConElMismoCacheControl() throws Exception {
+        // El contenido no es una imagen: la miniatura nunca llega a existir.
+        Foto foto = fotoServicio.guardar(new MockMultipartFile("archivo", "perfil.png", "image/png", "perfil".getBytes(StandardCharsets.UTF_8)));
+        Usuario usuario = datos.usuario("Sin miniatura");
+        usuario.setFoto(foto);
+        usuario = usuarioRepositorio.save(usuario);
+        String hash = fotoServicio.metadatos(foto.getId()).getHash();
+
+        mockMvc.perform(get("/foto/usuario/" + usuario.getId()).param("w", "200"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_PNG))
+                .andExpect(content().bytes("perfil".getBytes(StandardCharsets.UTF_8)))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + hash + "\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void conLaColaLlenaElPedidoSeDescartaYSeReintenta() throws Exception {
+        Foto foto = fotoServicio.guardar(new MockMultipartFile("archivo", "cola.png", "image/png", "cola".getBytes(StandardCharsets.UTF_8)));
+        FotoMetadatos metadatos = fotoServicio.metadatos(foto.getId());
+
+        // Un servicio aparte, con un hilo y lugar para un pedido en la cola:
+        MiniaturaServicio servicio = new MiniaturaServicio();
+        ReflectionTestUtils.setField(servicio, "fotoServicio", fotoServicio);
+        ReflectionTestUtils.setField(servicio, "miniaturaRepositorio", miniaturaRepositorio);
+        ReflectionTestUtils.setField(servicio, "hilos", 1);
+        ReflectionTestUtils.setField(servicio, "cola", 1);
+        servicio.iniciar();
+        try {
+            ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(servicio, "executor");
+            Set<String> pendientes = (Set<String>) ReflectionTestUtils.getField(servicio, "pendientes");
+            CountDownLatch liberar = new CountDownLatch(1);
+            CountDownLatch ocupado = new CountDownLatch(1);
+            executor.execute(() -> {
+                ocupado.countDown();
+                esperar(liberar);
+            });
+            ocupado.await();
+            executor.execute(() -> esperar(liberar));
+
+            // No hay lugar: se sirve la original y el pedido no queda pendiente.
+            assertNull(servicio.buscar(metadatos, 200));
+            assertTrue(pendientes.isEmpty());
+            assertEquals(2, executor.getTaskCount());
+
+            // Con lugar, el siguiente pedido se encola y se ejecuta.
+            liberar.countDown();
+            esperarTareas(executor, 2);
+            assertNull(servicio.buscar(metadatos, 200));
+            esperarTareas(executor, 3);
+            assertTrue(pendientes.isEmpty());
+        } finally {
+            servicio.detener();
+        }
+    }
+
+    private List<Integer> esperarMiniaturas(String hash) throws InterruptedException {
+        List<Integer> anchos = miniaturaRepositorio.anchosGenerados(hash);
+        for (int i = 0; i < 300 && anchos.size() < MiniaturaServicio.ANCHOS.length; i++) {
+            Thread.sleep(100);
+            anchos = miniaturaRepositorio.anchosGenerados(hash);
+        }
+        return anchos;
+    }
+
+    private static void esperarTareas(ThreadPoolExecutor executor, long tareas) throws InterruptedException {
+        for (int i = 0; i < 300 && executor.getCompletedTaskCount() < tareas; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(tareas, executor.getCompletedTaskCount());
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] imagen(int ancho, int alto) throws Exception {
+        BufferedImage imagen = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = imagen.createGraphics();
+        g.setColor(Color.BLUE);
+        g.fillRect(0, 0, ancho, alto);
+        g.dispose();
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        ImageIO.write(imagen, "png", salida);
+        return salida.toByteArray();
+    }
+
+}
@@ -0,0 +1,338 @@
+package com.egg.libreriaEgg.servicios;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.dto.ResumenPrestamos;
+import com.egg.libreriaEgg.entidades.Libro;
+import com.egg.libreriaEgg.entidades.Prestamo;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.enums.Rol;
+import com.egg.libreriaEgg.repositorios.LibroRepositorio;
+import com.egg.libreriaEgg.repositorios.PrestamoRepositorio;
+import com.egg.libreriaEgg.repositorios.UsuarioRepositorio;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+
+/**
+ * Pruebas de concurrencia de los préstamos: muchos préstamos y devoluciones
+ * simultáneos de un mismo libro nunca prestan más ejemplares de los que hay,
+ * los de un mismo usuario nunca pasan el límite de su rol, y los contadores
+ * del libro y del usuario quedan consistentes; también con los préstamos y
+ * devoluciones en lote, al eliminar préstamos y al modificar los ejemplares
+ * del libro.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+class PrestamoServicioTest {
+
+    private static final int EJEMPLARES = 10;
+    private static final int PEDIDOS = 60;
+    private static final int HILOS = 16;
+
+    @Autowired
+    private PrestamoServicio prestamoServicio;
+
+    @Autowired
+    private LibroServicio libroServicio;
+
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+
+    @Autowired
+    private UsuarioRepositorio usuarioRepositorio;
+
+    @Autowired
+    private PrestamoRepositorio prestamoRepositorio;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @AfterEach
+    void borrarDatos() {
+        datos.borrarTodo();
+    }
+
+    @Test
+    void prestamosSimultaneosNoPrestanMasEjemplaresDeLosQueHay() throws Exception {
+        final Libro libro = datos.libro("Concurrencia", EJEMPLARES);
+        final List<Usuario> usuarios = new ArrayList<>();
+        for (int i = 0; i < PEDIDOS; i++) {
+            usuarios.add(datos.usuario("prestamo" + i));
+        }
+
+        List<Callable<Boolean>> pedidos = new ArrayList<>();
+        for (final Usuario usuario : usuarios) {
+            pedidos.add(() -> {
+                prestamoServicio.agregarPrestamo(new Date(), new Date(), libro.getId(), usuario.getId());
+                return true;
+            });
+        }
+        int exitosos = ejecutarEnParalelo(pedidos);
+
+        assertEquals(EJEMPLARES, exitosos);
+        assertEquals(EJEMPLARES, prestamoRepositorio.buscarPorLibro(libro.getId()).size());
+        Libro actual = libroRepositorio.findById(libro.getId()).get();
+        assertEquals(EJEMPLARES, actual.getEjemplaresPrestados().intValue());
+        assertEquals(0, actual.getEjemplaresRestantes().intValue());
+
+        // Todas las devoluciones a la vez (dos veces cada una: la segunda tiene que fallar):
+        List<Callable<Boolean>> devoluciones = new ArrayList<>();
+        for (final Prestamo prestamo : prestamoRepositorio.buscarPorLibro(libro.getId())) {
+            for (int i = 0; i < 2; i++) {
+                devoluciones.add(() -> {
+                    prestamoServicio.baja(prestamo.getId());
+                    return true;
+                });
+            }
+        }
+        assertEquals(EJEMPLARES, ejecutarEnParalelo(devoluciones));
+
+        actual = libroRepositorio.findById(libro.getId()).get();
+        assertEquals(0, actual.getEjemplaresPrestados().intValue());
+        assertEquals(EJEMPLARES, actual.getEjemplaresRestantes().intValue());
+    }
+
+    @Test
+    void prestamosSimultaneosDeUnUsuarioNoPasanSuLimite() throws Exception {
+        for (Rol rol : Rol.values()) {
+            final Usuario usuario = datos.usuario("limite" + rol, rol);
+            final int limite = prestamoServicio.limitePrestamos(rol);
+            final List<Libro> libros = new ArrayList<>();
+            List<Callable<Boolean>> pedidos = new ArrayList<>();
+            for (int i = 0; i < limite * 3; i++) {
+                final Libro libro = datos.libro("Límite " + rol + " " + i, 2);
+                libros.add(libro);
+                pedidos.add(() -> {
+                    prestamoServicio.agregarPrestamo(new Date(), new Date(), libro.getId(), usuario.getId());
+                    return true;
+                });
+            }
+
+            assertEquals(limite, ejecutarEnParalelo(pedidos));
+            assertEquals(limite, usuarioRepositorio.findById(usuario.getId()).get().getPrestamosActivos());
+            // Los pedidos rechazados no se llevaron ningún ejemplar:
+            assertEquals(limite, prestados(libros));
+
+            // Todas las devoluciones a la vez:
+            List<Callable<Boolean>> devoluciones = new ArrayList<>();
+            for (final Prestamo prestamo : prestamoRepositorio.buscarPrestamosAltaUsuario(usuario.getId())) {
+                devoluciones.add(() -> {
+                    prestamoServicio.baja(prestamo.getId());
+                    return true;
+                });
+            }
+            assertEquals(limite, ejecutarEnParalelo(devoluciones));
+            assertEquals(0, usuarioRepositorio.findById(usuario.getId()).get().getPrestamosActivos());
+            assertEquals(0, prestados(libros));
+        }
+        assertEquals(4, prestamoServicio.limitePrestamos(Rol.USUARIO));
+        assertEquals(6, prestamoServicio.limitePrestamos(Rol.ADMIN));
+    }
+
+    @Test
+    void sinEjemplaresNoSeCuentaElPrestamo() throws Exception {
+        Usuario usuario = datos.usuario("sinejemplares");
+        Libro libro = datos.libro("Sin ejemplares", 0);
+
+        assertThrows(Exception.class, () -> prestamoServicio.agregarPrestamo(new Date(), new Date(), libro.getId(), usuario.getId()));
+        assertEquals(0, usuarioRepositorio.findById(usuario.getId()).get().getPrestamosActivos());
+    }
+
+    @Test
+    void prestamosYDevolucionesEnLote() throws Exception {
+        Usuario usuario = datos.usuario("lote");
+        Libro primero = datos.libro("Lote 1", 1);
+        Libro segundo = datos.libro("Lote 2", 1);
+        Libro sinEjemplares = datos.libro("Lote sin ejemplares", 0);
+        List<Libro> libros = new ArrayList<>();
+        for (int i = 3; i <= 6; i++) {
+            libros.add(datos.libro("Lote " + i, 1));
+        }
+
+        ResumenPrestamos prestamos = prestamoServicio.agregarPrestamos(new Date(), new Date(), usuario.getId(),
+                Arrays.asList(primero.getId(), sinEjemplares.getId(), primero.getId(), segundo.getId(), libros.get(0).getId(), libros.get(1).getId(), libros.get(2).getId()));
+
+        // Se prestan los primeros 4 disponibles (el límite del usuario):
+        assertEquals(4, prestamos.getRealizados().size());
+        assertEquals(3, prestamos.getRechazados().size());
+        assertTrue(prestamos.getRechazados().get(sinEjemplares.getId()).startsWith("No hay ejemplares"));
+        assertTrue(prestamos.getRechazados().get(primero.getId()).contains("repetido"));
+        assertTrue(prestamos.getRechazados().get(libros.get(2).getId()).startsWith("Límite"));
+        assertEquals(4, usuarioRepositorio.findById(usuario.getId()).get().getPrestamosActivos());
+        assertEquals(0, libroRepositorio.findById(primero.getId()).get().getEjemplaresRestantes().intValue());
+        assertEquals(1, libroRepositorio.findById(libros.get(2).getId()).get().getEjemplaresRestantes().intValue());
+        // Sin cupo, no se presta nada más:
+        assertTrue(prestamoServicio.agregarPrestamos(new Date(), new Date(), usuario.getId(), Arrays.asList(libros.get(3).getId())).getRealizados().isEmpty());
+
+        // Las devoluciones, en dos lotes simultáneos que se superponen: cada préstamo se devuelve una sola vez.
+        final List<String> ids = prestamos.getRealizados();
+        // Los dos hilos agregan su resumen a la misma lista:
+        final List<ResumenPrestamos> devoluciones = Collections.synchronizedList(new ArrayList<>());
+        List<Callable<Boolean>> lotes = new ArrayList<>();
+        lotes.add(() -> devoluciones.add(prestamoServicio.bajaPrestamos(ids.subList(0, 3))));
+        lotes.add(() -> devoluciones.add(prestamoServicio.bajaPrestamos(ids.subList(1, 4))));
+        assertEquals(2, ejecutarEnParalelo(lotes));
+        int devueltos = 0;
+        for (ResumenPrestamos devolucion : devoluciones) {
+            devueltos += devolucion.getRealizados().size();
+        }
+        assertEquals(4, devueltos);
+        assertEquals(0, usuarioRepositorio.findById(usuario.getId()).get().getPrestamosActivos());
+        assertEquals(1, libroRepositorio.findById(primero.getId()).get().getEjemplaresRestantes().intValue());
+        assertEquals(0, libroRepositorio.findById(primero.getId()).get().getEjemplaresPrestados().intValue());
+        for (String id : ids) {
+            assertFalse(prestamoRepositorio.findById(id).get().isAlta());
+        }
+
+        ResumenPrestamos repetida = prestamoServicio.bajaPrestamos(Arrays.asList(ids.get(0), "no-existe"));
+        assertTrue(repetida.getRealizados().isEmpty());
+        assertEquals(2, repetida.getRechazados().size());
+    }
+
+    @Test
+    void modificarLosEjemplaresNoPierdePrestamosSimultaneos() throws Exception {
+        final Libro libro = datos.libro("Modificación", EJEMPLARES);
+        // Un préstamo ya devuelto no cuenta como prestado:
+        Usuario anterior = datos.usuario("modificacionanterior");
+        prestamoServicio.agregarPrestamo(new Date(), new Date(), libro.getId(), anterior.getId());
+        prestamoServicio.baja(prestamoRepositorio.buscarPrestamosAltaUsuario(anterior.getId()).get(0).getId());
+        modificar(libro, "Modificación", EJEMPLARES);
+        Libro actual = libroRepositorio.findById(libro.getId()).get();
+        assertEquals(0, actual.getEjemplaresPrestados().intValue());
+        assertEquals(EJEMPLARES, actual.getEjemplaresRestantes().intValue());
+
+        // Préstamos y modificaciones (que bajan los ejemplares a la mitad) al mismo tiempo:
+        final int mitad = EJEMPLARES / 2;
+        List<Callable<Boolean>> tareas = new ArrayList<>();
+        for (int i = 0; i < EJEMPLARES; i++) {
+            final Usuario usuario = datos.usuario("modificacion" + i);
+            tareas.add(() -> {
+                prestamoServicio.agregarPrestamo(new Date(), new Date(), libro.getId(), usuario.getId());
+                return true;
+            });
+            tareas.add(() -> {
+                modificar(libro, "Modificación", mitad);
+                return false;
+            });
+        }
+        ejecutarEnParalelo(tareas);
+
+        actual = libroRepositorio.findById(libro.getId()).get();
+        final int vigentes = vigentes(libro);
+        assertEquals(vigentes, actual.getEjemplaresPrestados().intValue());
+        assertTrue(actual.getEjemplaresPrestados() <= actual.getEjemplares());
+        assertEquals(actual.getEjemplares() - vigentes, actual.getEjemplaresRestantes().intValue());
+
+        // Menos ejemplares que los prestados: falla y no se modifica nada.
+        if (vigentes > 0) {
+            assertThrows(Exception.class, () -> modificar(libro, "No se guarda", vigentes - 1));
+            Libro rechazado = libroRepositorio.findById(libro.getId()).get();
+            assertEquals("Modificación", rechazado.getTitulo());
+            assertEquals(actual.getEjemplares(), rechazado.getEjemplares());
+        }
+    }
+
+    @Test
+    void eliminarYDevolverUnPrestamoAlMismoTiempoLoDevuelveUnaVez() throws Exception {
+        Libro libro = datos.libro("Eliminación", EJEMPLARES);
+        List<Usuario> usuarios = new ArrayList<>();
+        List<Callable<Boolean>> tareas = new ArrayList<>();
+        for (int i = 0; i < EJEMPLARES; i++) {
+            Usuario usuario = datos.usuario("eliminacion" + i);
+            usuarios.add(usuario);
+            prestamoServicio.agregarPrestamo(new Date(), new Date(), libro.getId(), usuario.getId());
+            final String id = prestamoRepositorio.buscarPrestamosAltaUsuario(usuario.getId()).get(0).getId();
+            tareas.add(() -> {
+                prestamoServicio.eliminarPrestamo(id);
+                return true;
+            });
+            tareas.add(() -> {
+                prestamoServicio.baja(id);
+                return true;
+            });
+        }
+        ejecutarEnParalelo(tareas);
+
+        Libro actual = libroRepositorio.findById(libro.getId()).get();
+        assertEquals(0, actual.getEjemplaresPrestados().intValue());
+        assertEquals(EJEMPLARES, actual.getEjemplaresRestantes().intValue());
+        for (Usuario usuario : usuarios) {
+            assertEquals(0, usuarioRepositorio.findById(usuario.getId()).get().getPrestamosActivos());
+        }
+    }
+
+    private int prestados(List<Libro> libros) {
+        int prestados = 0;
+        for (Libro libro : libros) {
+            prestados += libroRepositorio.findById(libro.getId()).get().getEjemplaresPrestados();
+        }
+        return prestados;
+    }
+
+    private int vigentes(Libro libro) {
+        int vigentes = 0;
+        for (Prestamo prestamo : prestamoRepositorio.buscarPorLibro(libro.getId())) {
+            if (prestamo.isAlta()) {
+                vigentes++;
+            }
+        }
+        return vigentes;
+    }
+
+    private void modificar(Libro libro, String titulo, int ejemplares) throws Exception {
+        libroServicio.modificarLibro(libro.getId(), new MockMultipartFile("archivo", new byte[0]), 9789870000000L, titulo, 2021, "Descripción", ejemplares, null, null);
+    }
+
+    /**
+     * Ejecuta las tareas al mismo tiempo y devuelve cuántas terminaron sin
+     * error.
+     */
+    private int ejecutarEnParalelo(List<Callable<Boolean>> tareas) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        final CountDownLatch largada = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> resultados = new ArrayList<>();
+            for (final Callable<Boolean> tarea : tareas) {
+                resultados.add(executor.submit(() -> {
+                    largada.await();
+                    return tarea.call();
+                }));
+            }
+            largada.countDown();
+            int exitosas = 0;
+            for (Future<Boolean> resultado : resultados) {
+                try {
+                    if (resultado.get(30, TimeUnit.SECONDS)) {
+                        exitosas++;
+                    }
+                } catch (ExecutionException e) {
+                    // La operación se rechazó (no quedaban ejemplares, o ya estaba devuelto).
+                }
+            }
+            return exitosas;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
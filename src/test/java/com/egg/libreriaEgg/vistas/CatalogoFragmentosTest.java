@@ -0,0 +1,130 @@
+package com.egg.libreriaEgg.vistas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.egg.libreriaEgg.DatosPrueba;
+import com.egg.libreriaEgg.autenticacion.UsuarioSesion;
+import com.egg.libreriaEgg.entidades.Autor;
+import com.egg.libreriaEgg.entidades.Libro;
+import com.egg.libreriaEgg.entidades.Usuario;
+import com.egg.libreriaEgg.servicios.AutorServicio;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Verifica el catálogo pre-renderizado del inicio: la respuesta gzip armada
+ * por partes es igual a la respuesta sin comprimir, el catálogo no guarda
+ * datos de la sesión, y se vuelve a armar cuando cambia el catálogo.
+ *
+ * @author Mauro Montenegro <maumontenegro.s at gmail.com>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser(roles = "USUARIO")
+class CatalogoFragmentosTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CatalogoFragmentos catalogoFragmentos;
+
+    @Autowired
+    private AutorServicio autorServicio;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @AfterEach
+    void borrarDatos() {
+        datos.borrarTodo();
+    }
+
+    @Test
+    void laRespuestaGzipEsIgualALaSinComprimir() throws Exception {
+        Autor autor = datos.autor("Autor del fragmento");
+        datos.libro("Libro del fragmento", autor);
+        Usuario usuario = datos.usuario("fragmento");
+
+        MockHttpServletResponse plana = autor(autor, usuario, null);
+        assertNull(plana.getHeader("Content-Encoding"));
+        String html = plana.getContentAsString(StandardCharsets.UTF_8);
+        assertTrue(html.contains("Libro del fragmento"));
+        assertTrue(html.contains(usuario.getNombre()), "Falta la barra de navegación del usuario.");
+
+        MockHttpServletResponse comprimida = autor(autor, usuario, "gzip, deflate");
+        assertEquals("gzip", comprimida.getHeader("Content-Encoding"));
+        assertTrue(comprimida.getHeaders("Vary").contains("Accept-Encoding"));
+        assertEquals(comprimida.getContentAsByteArray().length, comprimida.getContentLength());
+        assertEquals(html, descomprimir(comprimida.getContentAsByteArray()));
+    }
+
+    @Test
+    void elCatalogoNoDependeDeLaSesion() throws Exception {
+        Autor autor = datos.autor("Autor compartido");
+        datos.libro("Libro compartido", autor);
+        Usuario primero = datos.usuario("primero");
+        Usuario segundo = datos.usuario("segundo");
+
+        autor(autor, primero, null);
+        int tamanio = catalogoFragmentos.getTamanio();
+        String html = autor(autor, segundo, null).getContentAsString(StandardCharsets.UTF_8);
+
+        assertEquals(tamanio, catalogoFragmentos.getTamanio(), "El segundo usuario no reutilizó el catálogo.");
+        assertTrue(html.contains(segundo.getNombre()));
+        assertFalse(html.contains(primero.getId()));
+        assertFalse(html.contains("jsessionid"));
+        assertFalse(html.contains("idUsuario"));
+    }
+
+    @Test
+    void losCambiosEnElCatalogoSeVen() throws Exception {
+        Autor autor = datos.autor("Nombre anterior");
+        datos.libro("Libro renombrado", autor);
+        Usuario usuario = datos.usuario("cambios");
+
+        assertTrue(autor(autor, usuario, null).getContentAsString(StandardCharsets.UTF_8).contains("Nombre anterior"));
+        autorServicio.modificarAutor(autor.getId(), "Nombre nuevo");
+        String html = descomprimir(autor(autor, usuario, "gzip").getContentAsByteArray());
+
+        assertTrue(html.contains("Nombre nuevo"));
+        assertFalse(html.contains("Nombre anterior"));
+    }
+
+    private MockHttpServletResponse autor(Autor autor, Usuario usuario, String aceptadas) throws Exception {
+        return mockMvc.perform(get("/autor").param("idAutor", autor.getId())
+                .sessionAttr("usuariosession", UsuarioSesion.de(usuario))
+                .headers(aceptadas == null ? new HttpHeaders() : encabezados(aceptadas)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+    }
+
+    private HttpHeaders encabezados(String aceptadas) {
+        HttpHeaders encabezados = new HttpHeaders();
+        encabezados.set("Accept-Encoding", aceptadas);
+        return encabezados;
+    }
+
+    private String descomprimir(byte[] gzip) throws Exception {
+        try (GZIPInputStream entrada = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return new String(StreamUtils.copyToByteArray(entrada), StandardCharsets.UTF_8);
+        }
+    }
+
+}